@@ -73,11 +73,24 @@ DEFINE_int64_hidden(catalog_partial_fetch_rpc_queue_timeout_s, LLONG_MAX, "Maxim
     "(in seconds) a partial catalog object fetch RPC spends in the queue waiting "
     "to run. Must be set to a value greater than zero.");
 
+DEFINE_int32_hidden(catalog_partial_fetch_rpc_max_queue_len, 1000, "Maximum number of "
+    "partial catalog object fetch RPCs that can wait in the queue to run. Further RPCs "
+    "are rejected, and the coordinators which sent them back off and retry. A value of "
+    "zero or less means that the queue length is not limited.");
+
+DEFINE_bool_hidden(skip_unchanged_dirs_on_refresh, false, "If true, a refresh of an "
+    "HDFS table does not re-list partition directories whose modification time has not "
+    "changed since they were last listed, and reuses their file descriptors instead. "
+    "Appending to or overwriting a file in place does not change the modification time "
+    "of its directory, so such changes are not detected by a refresh. Only enable this "
+    "if the data files of the tables are never modified in place.");
+
 DECLARE_string(state_store_host);
 DECLARE_int32(state_store_subscriber_port);
 DECLARE_int32(state_store_port);
 DECLARE_string(hostname);
 DECLARE_bool(compact_catalog_topic);
+DECLARE_string(catalog_topic_compression_codec);
 
 string CatalogServer::IMPALA_CATALOG_TOPIC = "catalog-update";
 
@@ -87,6 +100,54 @@ const string CATALOG_SERVER_TOPIC_PROCESSING_TIMES =
 const string CATALOG_SERVER_PARTIAL_FETCH_RPC_QUEUE_LEN =
     "catalog.partial-fetch-rpc.queue-len";
 
+const string CATALOG_SERVER_PARTIAL_FETCH_RPC_NUM_REJECTED =
+    "catalog.partial-fetch-rpc.num-rejected";
+
+const string CATALOG_SERVER_FILE_LISTING_QUEUE_LEN =
+    "catalog.file-listing.queue-len";
+
+const string CATALOG_SERVER_FILE_LISTING_NUM_TASKS =
+    "catalog.file-listing.num-tasks";
+
+const string CATALOG_SERVER_FILE_LISTING_TOTAL_WAIT_TIME =
+    "catalog.file-listing.total-wait-time";
+
+const string CATALOG_SERVER_TOPIC_UPDATE_NUM_ITEMS =
+    "catalog-server.topic-update.num-items";
+
+const string CATALOG_SERVER_TOPIC_UPDATE_BYTES =
+    "catalog-server.topic-update.bytes";
+
+const string CATALOG_SERVER_TOPIC_UPDATE_COMPRESSED_BYTES =
+    "catalog-server.topic-update.compressed-bytes";
+
+const string CATALOG_SERVER_TOPIC_UPDATE_TOTAL_BYTES =
+    "catalog-server.topic-update.total-bytes";
+
+const string CATALOG_SERVER_TOPIC_UPDATE_PARTITIONS_SKIPPED =
+    "catalog-server.topic-update.partitions-skipped";
+
+const string CATALOG_SERVER_TABLE_INVALIDATOR_LAST_ROUND_BYTES_FREED =
+    "catalog-server.table-invalidator.last-round-bytes-freed";
+
+const string CATALOG_SERVER_TABLE_INVALIDATOR_TOTAL_BYTES_FREED =
+    "catalog-server.table-invalidator.total-bytes-freed";
+
+const string CATALOG_SERVER_TABLE_INVALIDATOR_NUM_TABLES_INVALIDATED =
+    "catalog-server.table-invalidator.num-tables-invalidated";
+
+const string CATALOG_SERVER_LATENCY_COUNT = "catalog-server.$0.count";
+
+const string CATALOG_SERVER_LATENCY_TOTAL_TIME = "catalog-server.$0.total-time";
+
+const string CATALOG_SERVER_LATENCY_P50 = "catalog-server.$0.p50";
+
+const string CATALOG_SERVER_LATENCY_P95 = "catalog-server.$0.p95";
+
+const string CATALOG_SERVER_LATENCY_P99 = "catalog-server.$0.p99";
+
+const string CATALOG_SERVER_LATENCY_MAX = "catalog-server.$0.max";
+
 const string CATALOG_WEB_PAGE = "/catalog";
 const string CATALOG_TEMPLATE = "catalog.tmpl";
 const string CATALOG_OBJECT_WEB_PAGE = "/catalog_object";
@@ -166,13 +227,10 @@ class CatalogServiceThriftIf : public CatalogServiceIf {
 
   void GetPartialCatalogObject(TGetPartialCatalogObjectResponse& resp,
       const TGetPartialCatalogObjectRequest& req) override {
-    // TODO(todd): capture detailed metrics on the types of inbound requests, lock
-    // wait times, etc.
-    // TODO(todd): add some kind of limit on the number of concurrent requests here
-    // to avoid thread exhaustion -- eg perhaps it would be best to use a trylock
-    // on the catalog locks, or defer these calls to a separate (bounded) queue,
-    // so a heavy query workload against a table undergoing a slow refresh doesn't
-    // end up taking down the catalog by creating thousands of threads.
+    // The catalog limits the number of requests that run concurrently, queues the
+    // others and rejects requests once its queue is full, see
+    // --catalog_max_parallel_partial_fetch_rpc and
+    // --catalog_partial_fetch_rpc_max_queue_len.
     VLOG_RPC << "GetPartialCatalogObject(): request=" << ThriftDebugString(req);
     Status status = catalog_server_->catalog()->GetPartialCatalogObject(req, &resp);
     if (!status.ok()) LOG(ERROR) << status.GetDetail();
@@ -182,6 +240,17 @@ class CatalogServiceThriftIf : public CatalogServiceIf {
     VLOG_RPC << "GetPartialCatalogObject(): response=" << ThriftDebugString(resp);
   }
 
+  void GetPartialCatalogObjects(TGetPartialCatalogObjectsResponse& resp,
+      const TGetPartialCatalogObjectsRequest& req) override {
+    VLOG_RPC << "GetPartialCatalogObjects(): request=" << ThriftDebugString(req);
+    Status status = catalog_server_->catalog()->GetPartialCatalogObjects(req, &resp);
+    if (!status.ok()) LOG(ERROR) << status.GetDetail();
+    TStatus thrift_status;
+    status.ToThrift(&thrift_status);
+    resp.__set_status(thrift_status);
+    VLOG_RPC << "GetPartialCatalogObjects(): response=" << ThriftDebugString(resp);
+  }
+
   void GetPartitionStats(TGetPartitionStatsResponse& resp,
       const TGetPartitionStatsRequest& req) override {
     VLOG_RPC << "GetPartitionStats(): request=" << ThriftDebugString(req);
@@ -232,12 +301,65 @@ class CatalogServiceThriftIf : public CatalogServiceIf {
 CatalogServer::CatalogServer(MetricGroup* metrics)
   : thrift_iface_(new CatalogServiceThriftIf(this)),
     thrift_serializer_(FLAGS_compact_catalog_topic), metrics_(metrics),
+    version_lock_read_waits_metrics_(metrics, "version-lock.read-wait"),
+    version_lock_write_waits_metrics_(metrics, "version-lock.write-wait"),
+    partial_fetch_table_latency_metrics_(metrics, "partial-fetch.table"),
+    partial_fetch_db_latency_metrics_(metrics, "partial-fetch.db"),
+    partial_fetch_catalog_latency_metrics_(metrics, "partial-fetch.catalog"),
+    partial_fetch_function_latency_metrics_(metrics, "partial-fetch.function"),
+    partial_fetch_planning_queue_waits_metrics_(
+        metrics, "partial-fetch.planning-queue-wait"),
+    partial_fetch_prefetch_queue_waits_metrics_(
+        metrics, "partial-fetch.prefetch-queue-wait"),
     topic_updates_ready_(false), last_sent_catalog_version_(0L),
-    catalog_objects_max_version_(0L) {
+    catalog_objects_max_version_(0L), topic_codec_(THdfsCompression::LZ4) {
   topic_processing_time_metric_ = StatsMetric<double>::CreateAndRegister(metrics,
       CATALOG_SERVER_TOPIC_PROCESSING_TIMES);
   partial_fetch_rpc_queue_len_metric_ =
       metrics->AddGauge(CATALOG_SERVER_PARTIAL_FETCH_RPC_QUEUE_LEN, 0);
+  partial_fetch_rpc_num_rejected_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_PARTIAL_FETCH_RPC_NUM_REJECTED, 0);
+  file_listing_queue_len_metric_ =
+      metrics->AddGauge(CATALOG_SERVER_FILE_LISTING_QUEUE_LEN, 0);
+  file_listing_num_tasks_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_FILE_LISTING_NUM_TASKS, 0);
+  file_listing_total_wait_time_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_FILE_LISTING_TOTAL_WAIT_TIME, 0);
+  topic_update_num_items_metric_ =
+      metrics->AddGauge(CATALOG_SERVER_TOPIC_UPDATE_NUM_ITEMS, 0);
+  topic_update_bytes_metric_ = metrics->AddGauge(CATALOG_SERVER_TOPIC_UPDATE_BYTES, 0);
+  topic_update_compressed_bytes_metric_ =
+      metrics->AddGauge(CATALOG_SERVER_TOPIC_UPDATE_COMPRESSED_BYTES, 0);
+  topic_update_total_bytes_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_TOPIC_UPDATE_TOTAL_BYTES, 0);
+  topic_update_partitions_skipped_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_TOPIC_UPDATE_PARTITIONS_SKIPPED, 0);
+  table_invalidator_last_round_bytes_freed_metric_ =
+      metrics->AddGauge(CATALOG_SERVER_TABLE_INVALIDATOR_LAST_ROUND_BYTES_FREED, 0);
+  table_invalidator_total_bytes_freed_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_TABLE_INVALIDATOR_TOTAL_BYTES_FREED, 0);
+  table_invalidator_num_tables_invalidated_metric_ =
+      metrics->AddCounter(CATALOG_SERVER_TABLE_INVALIDATOR_NUM_TABLES_INVALIDATED, 0);
+}
+
+CatalogServer::LatencyHistogramMetrics::LatencyHistogramMetrics(
+    MetricGroup* metrics, const string& name) {
+  count_ = metrics->AddCounter(CATALOG_SERVER_LATENCY_COUNT, 0, name);
+  total_time_ = metrics->AddCounter(CATALOG_SERVER_LATENCY_TOTAL_TIME, 0, name);
+  p50_ = metrics->AddGauge(CATALOG_SERVER_LATENCY_P50, 0, name);
+  p95_ = metrics->AddGauge(CATALOG_SERVER_LATENCY_P95, 0, name);
+  p99_ = metrics->AddGauge(CATALOG_SERVER_LATENCY_P99, 0, name);
+  max_ = metrics->AddGauge(CATALOG_SERVER_LATENCY_MAX, 0, name);
+}
+
+void CatalogServer::LatencyHistogramMetrics::Update(
+    const TLatencyHistogram& histogram) {
+  count_->SetValue(histogram.count);
+  total_time_->SetValue(histogram.total_ns);
+  p50_->SetValue(histogram.p50_ns);
+  p95_->SetValue(histogram.p95_ns);
+  p99_->SetValue(histogram.p99_ns);
+  max_->SetValue(histogram.max_ns);
 }
 
 Status CatalogServer::Start() {
@@ -247,6 +369,10 @@ Status CatalogServer::Start() {
       MakeNetworkAddress(FLAGS_state_store_host, FLAGS_state_store_port);
   TNetworkAddress server_address = MakeNetworkAddress(FLAGS_hostname,
       FLAGS_catalog_service_port);
+  if (FLAGS_compact_catalog_topic) {
+    RETURN_IF_ERROR(
+        ParseCatalogTopicCodec(FLAGS_catalog_topic_compression_codec, &topic_codec_));
+  }
 
   // This will trigger a full Catalog metadata load.
   catalog_.reset(new Catalog());
@@ -379,6 +505,11 @@ void CatalogServer::UpdateCatalogTopicCallback(
         LOG(ERROR) << status.GetDetail();
       } else {
         catalog_objects_max_version_ = resp.max_catalog_version;
+        int64_t compressed_bytes = 0;
+        for (const TTopicItem& item : pending_topic_updates_) {
+          compressed_bytes += item.value.size();
+        }
+        topic_update_compressed_bytes_metric_->SetValue(compressed_bytes);
       }
     }
 
@@ -398,6 +529,35 @@ void CatalogServer::UpdateCatalogTopicCallback(
     }
     partial_fetch_rpc_queue_len_metric_->SetValue(
         response.catalog_partial_fetch_rpc_queue_len);
+    partial_fetch_rpc_num_rejected_metric_->SetValue(
+        response.partial_fetch_num_rejected);
+    file_listing_queue_len_metric_->SetValue(response.file_listing_queue_len);
+    file_listing_num_tasks_metric_->SetValue(response.file_listing_num_tasks);
+    file_listing_total_wait_time_metric_->SetValue(
+        response.file_listing_total_wait_time_ns);
+    topic_update_num_items_metric_->SetValue(response.topic_update_num_items);
+    topic_update_bytes_metric_->SetValue(response.topic_update_bytes);
+    topic_update_total_bytes_metric_->SetValue(response.topic_update_total_bytes);
+    topic_update_partitions_skipped_metric_->SetValue(
+        response.topic_update_partitions_skipped);
+    table_invalidator_last_round_bytes_freed_metric_->SetValue(
+        response.table_invalidator_last_round_bytes_freed);
+    table_invalidator_total_bytes_freed_metric_->SetValue(
+        response.table_invalidator_total_bytes_freed);
+    table_invalidator_num_tables_invalidated_metric_->SetValue(
+        response.table_invalidator_num_tables_invalidated);
+    version_lock_read_waits_metrics_.Update(response.version_lock_read_waits);
+    version_lock_write_waits_metrics_.Update(response.version_lock_write_waits);
+    partial_fetch_table_latency_metrics_.Update(response.partial_fetch_table_latency);
+    partial_fetch_db_latency_metrics_.Update(response.partial_fetch_db_latency);
+    partial_fetch_catalog_latency_metrics_.Update(
+        response.partial_fetch_catalog_latency);
+    partial_fetch_function_latency_metrics_.Update(
+        response.partial_fetch_function_latency);
+    partial_fetch_planning_queue_waits_metrics_.Update(
+        response.partial_fetch_planning_queue_waits);
+    partial_fetch_prefetch_queue_waits_metrics_.Update(
+        response.partial_fetch_prefetch_queue_waits);
     TEventProcessorMetrics eventProcessorMetrics = response.event_metrics;
     MetastoreEventMetrics::refresh(&eventProcessorMetrics);
   }
@@ -674,7 +834,7 @@ bool CatalogServer::AddPendingTopicItem(std::string key, int64_t version,
   pending_topic_updates_.emplace_back();
   TTopicItem& item = pending_topic_updates_.back();
   if (FLAGS_compact_catalog_topic) {
-    Status status = CompressCatalogObject(item_data, size, &item.value);
+    Status status = CompressCatalogObject(item_data, size, &item.value, topic_codec_);
     if (!status.ok()) {
       pending_topic_updates_.pop_back();
       LOG(ERROR) << "Error compressing topic item: " << status.GetDetail();
@@ -24,6 +24,7 @@
 #include <boost/thread/mutex.hpp>
 #include <boost/unordered_set.hpp>
 
+#include "gen-cpp/CatalogObjects_types.h"
 #include "gen-cpp/CatalogService.h"
 #include "gen-cpp/Frontend_types.h"
 #include "gen-cpp/Types_types.h"
@@ -93,6 +94,65 @@ class CatalogServer {
   /// Tracks the partial fetch RPC call queue length on the Catalog server.
   IntGauge* partial_fetch_rpc_queue_len_metric_;
 
+  /// Number of partial fetch RPCs rejected because the Catalog server was overloaded.
+  IntCounter* partial_fetch_rpc_num_rejected_metric_;
+
+  /// Tracks the number of file listing tasks waiting for a thread.
+  IntGauge* file_listing_queue_len_metric_;
+
+  /// Number of file listing tasks started and the total time they spent waiting for a
+  /// thread.
+  IntCounter* file_listing_num_tasks_metric_;
+  IntCounter* file_listing_total_wait_time_metric_;
+
+  /// Number of items and serialized size of the last catalog topic update, and its
+  /// size after compression.
+  IntGauge* topic_update_num_items_metric_;
+  IntGauge* topic_update_bytes_metric_;
+  IntGauge* topic_update_compressed_bytes_metric_;
+
+  /// Total serialized size of all catalog topic updates and the number of partitions
+  /// which were not resent because they did not change since they were last sent.
+  IntCounter* topic_update_total_bytes_metric_;
+  IntCounter* topic_update_partitions_skipped_metric_;
+
+  /// Estimated metadata size of the tables freed by the last round of automatic table
+  /// invalidations and by all rounds, and the number of invalidated tables.
+  IntGauge* table_invalidator_last_round_bytes_freed_metric_;
+  IntCounter* table_invalidator_total_bytes_freed_metric_;
+  IntCounter* table_invalidator_num_tables_invalidated_metric_;
+
+  /// Metrics which summarize a TLatencyHistogram of the catalog. They are registered
+  /// with the keys catalog-server.<name>.{count,total-time,p50,p95,p99,max}.
+  class LatencyHistogramMetrics {
+   public:
+    LatencyHistogramMetrics(MetricGroup* metrics, const std::string& name);
+
+    /// Sets the metrics to the values of 'histogram'.
+    void Update(const TLatencyHistogram& histogram);
+
+   private:
+    IntCounter* count_;
+    IntCounter* total_time_;
+    IntGauge* p50_;
+    IntGauge* p95_;
+    IntGauge* p99_;
+    IntGauge* max_;
+  };
+
+  /// Time spent waiting for the read and the write lock of the catalog version lock.
+  LatencyHistogramMetrics version_lock_read_waits_metrics_;
+  LatencyHistogramMetrics version_lock_write_waits_metrics_;
+
+  /// End-to-end latency of the partial fetch RPCs served for each type of catalog object,
+  /// and the time partial fetch RPCs of each priority class waited to be admitted.
+  LatencyHistogramMetrics partial_fetch_table_latency_metrics_;
+  LatencyHistogramMetrics partial_fetch_db_latency_metrics_;
+  LatencyHistogramMetrics partial_fetch_catalog_latency_metrics_;
+  LatencyHistogramMetrics partial_fetch_function_latency_metrics_;
+  LatencyHistogramMetrics partial_fetch_planning_queue_waits_metrics_;
+  LatencyHistogramMetrics partial_fetch_prefetch_queue_waits_metrics_;
+
   /// Thread that polls the catalog for any updates.
   std::unique_ptr<Thread> catalog_update_gathering_thread_;
 
@@ -129,6 +189,10 @@ class CatalogServer {
   /// catalog_update_gathering_thread_ and protected by catalog_lock_.
   int64_t catalog_objects_max_version_;
 
+  /// The codec used to compress topic items if --compact_catalog_topic is true. Set in
+  /// Start() from --catalog_topic_compression_codec.
+  THdfsCompression::type topic_codec_;
+
   /// Called during each Statestore heartbeat and is responsible for updating the current
   /// set of catalog objects in the IMPALA_CATALOG_TOPIC. Responds to each heartbeat with a
   /// delta update containing the set of changes since the last heartbeat. This function
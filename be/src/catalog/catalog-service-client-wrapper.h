@@ -63,6 +63,14 @@ class CatalogServiceClientWrapper : public CatalogServiceClient {
     recv_GetPartialCatalogObject(_return);
   }
 
+  void GetPartialCatalogObjects(TGetPartialCatalogObjectsResponse& _return,
+      const TGetPartialCatalogObjectsRequest& req, bool* send_done) {
+    DCHECK(!*send_done);
+    send_GetPartialCatalogObjects(req);
+    *send_done = true;
+    recv_GetPartialCatalogObjects(_return);
+  }
+
   void ResetMetadata(TResetMetadataResponse& _return, const TResetMetadataRequest& req,
       bool* send_done) {
     DCHECK(!*send_done);
@@ -24,11 +24,12 @@ using namespace impala;
 using namespace std;
 using namespace strings;
 
-void CompressAndDecompress(const std::string& input) {
+void CompressAndDecompress(const std::string& input,
+    THdfsCompression::type codec = THdfsCompression::LZ4) {
   string compressed;
   string decompressed;
   ASSERT_OK(CompressCatalogObject(reinterpret_cast<const uint8_t*>(input.data()),
-      static_cast<uint32_t>(input.size()), &compressed));
+      static_cast<uint32_t>(input.size()), &compressed, codec));
   ASSERT_OK(DecompressCatalogObject(reinterpret_cast<const uint8_t*>(compressed.data()),
       static_cast<uint32_t>(compressed.size()), &decompressed));
   ASSERT_EQ(input.size(), decompressed.size());
@@ -47,6 +48,30 @@ TEST(CatalogUtil, TestCatalogCompression) {
   CompressAndDecompress(large_string);
 }
 
+TEST(CatalogUtil, TestCatalogCompressionCodecs) {
+  for (const string& name : {"lz4", "ZSTD", "snappy"}) {
+    THdfsCompression::type codec;
+    ASSERT_OK(ParseCatalogTopicCodec(name, &codec));
+    CompressAndDecompress("", codec);
+    CompressAndDecompress("deadbeef", codec);
+    CompressAndDecompress(string(100000, 'x'), codec);
+  }
+  THdfsCompression::type codec;
+  EXPECT_FALSE(ParseCatalogTopicCodec("gzip", &codec).ok());
+
+  // Corrupted headers are detected.
+  string compressed;
+  ASSERT_OK(CompressCatalogObject(reinterpret_cast<const uint8_t*>("deadbeef"), 8,
+      &compressed, THdfsCompression::ZSTD));
+  compressed[sizeof(uint32_t)] = static_cast<char>(THdfsCompression::GZIP);
+  string decompressed;
+  EXPECT_FALSE(DecompressCatalogObject(
+      reinterpret_cast<const uint8_t*>(compressed.data()),
+      static_cast<uint32_t>(compressed.size()), &decompressed).ok());
+  EXPECT_FALSE(DecompressCatalogObject(
+      reinterpret_cast<const uint8_t*>(compressed.data()), 2, &decompressed).ok());
+}
+
 TEST(CatalogUtil, TestTPrivilegeFromObjectName) {
   vector<tuple<string, TPrivilegeLevel::type>> actions = {
       make_tuple("all", TPrivilegeLevel::ALL),
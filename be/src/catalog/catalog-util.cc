@@ -19,6 +19,7 @@
 #include <boost/algorithm/string.hpp>
 #include <boost/algorithm/string_regex.hpp>
 #include <sstream>
+#include <gutil/strings/substitute.h>
 
 #include "catalog/catalog-util.h"
 #include "exec/read-write-util.h"
@@ -29,7 +30,9 @@
 
 #include "common/names.h"
 
+using boost::algorithm::to_lower_copy;
 using boost::algorithm::to_upper_copy;
+using strings::Substitute;
 
 namespace impala {
 
@@ -340,31 +343,57 @@ Status TPrivilegeFromObjectName(const string& object_name, TPrivilege* privilege
   return Status::OK();
 }
 
-Status CompressCatalogObject(const uint8_t* src, uint32_t size, string* dst) {
+Status ParseCatalogTopicCodec(const string& name, THdfsCompression::type* codec) {
+  string lower_name = to_lower_copy(name);
+  if (lower_name == "lz4") {
+    *codec = THdfsCompression::LZ4;
+  } else if (lower_name == "zstd") {
+    *codec = THdfsCompression::ZSTD;
+  } else if (lower_name == "snappy") {
+    *codec = THdfsCompression::SNAPPY;
+  } else {
+    return Status(Substitute("Unsupported catalog topic compression codec: '$0'. "
+        "Supported codecs are 'lz4', 'zstd' and 'snappy'.", name));
+  }
+  return Status::OK();
+}
+
+Status CompressCatalogObject(const uint8_t* src, uint32_t size, string* dst,
+    THdfsCompression::type codec) {
   scoped_ptr<Codec> compressor;
-  Codec::CodecInfo codec_info(THdfsCompression::LZ4);
+  Codec::CodecInfo codec_info(
+      codec, codec == THdfsCompression::ZSTD ? ZSTD_CLEVEL_DEFAULT : 0);
   RETURN_IF_ERROR(Codec::CreateCompressor(nullptr, false, codec_info, &compressor));
   int64_t compressed_data_len = compressor->MaxOutputLen(size);
-  int64_t output_buffer_len = compressed_data_len + sizeof(uint32_t);
+  int64_t output_buffer_len = compressed_data_len + CATALOG_OBJECT_HEADER_LEN;
   dst->resize(static_cast<size_t>(output_buffer_len));
   uint8_t* output_buffer_ptr = reinterpret_cast<uint8_t*>(&((*dst)[0]));
   ReadWriteUtil::PutInt(output_buffer_ptr, size);
-  output_buffer_ptr += sizeof(uint32_t);
+  output_buffer_ptr[sizeof(uint32_t)] = static_cast<uint8_t>(codec);
+  output_buffer_ptr += CATALOG_OBJECT_HEADER_LEN;
   RETURN_IF_ERROR(compressor->ProcessBlock(true, size, src, &compressed_data_len,
       &output_buffer_ptr));
-  dst->resize(compressed_data_len + sizeof(uint32_t));
+  dst->resize(compressed_data_len + CATALOG_OBJECT_HEADER_LEN);
   return Status::OK();
 }
 
 Status DecompressCatalogObject(const uint8_t* src, uint32_t size, string* dst) {
+  if (size < CATALOG_OBJECT_HEADER_LEN) {
+    return Status(Substitute("Compressed catalog object too small: $0 bytes", size));
+  }
+  THdfsCompression::type codec =
+      static_cast<THdfsCompression::type>(src[sizeof(uint32_t)]);
+  if (codec != THdfsCompression::LZ4 && codec != THdfsCompression::ZSTD &&
+      codec != THdfsCompression::SNAPPY) {
+    return Status(Substitute("Unexpected catalog object compression codec: $0", codec));
+  }
   scoped_ptr<Codec> decompressor;
-  RETURN_IF_ERROR(Codec::CreateDecompressor(nullptr, false, THdfsCompression::LZ4,
-      &decompressor));
+  RETURN_IF_ERROR(Codec::CreateDecompressor(nullptr, false, codec, &decompressor));
   int64_t decompressed_len = ReadWriteUtil::GetInt<uint32_t>(src);
   dst->resize(static_cast<size_t>(decompressed_len));
   uint8_t* decompressed_data_ptr = reinterpret_cast<uint8_t*>(&((*dst)[0]));
-  RETURN_IF_ERROR(decompressor->ProcessBlock(true, size - sizeof(uint32_t),
-      src + sizeof(uint32_t), &decompressed_len, &decompressed_data_ptr));
+  RETURN_IF_ERROR(decompressor->ProcessBlock(true, size - CATALOG_OBJECT_HEADER_LEN,
+      src + CATALOG_OBJECT_HEADER_LEN, &decompressed_len, &decompressed_data_ptr));
   return Status::OK();
 }
 
@@ -101,15 +101,26 @@ Status TCatalogObjectFromObjectName(const TCatalogObjectType::type& object_type,
 /// Populates a TPrivilege based on the given object name string.
 Status TPrivilegeFromObjectName(const std::string& object_name, TPrivilege* privilege);
 
-/// Compresses a serialized catalog object using LZ4 and stores it back in 'dst'. Stores
-/// the size of the uncompressed catalog object in the first sizeof(uint32_t) bytes of
-/// 'dst'. The compression fails if the uncompressed data size exceeds 0x7E000000 bytes.
-Status CompressCatalogObject(const uint8_t* src, uint32_t size, std::string* dst)
+/// Size of the header that CompressCatalogObject() prepends to the compressed data: the
+/// size of the uncompressed catalog object as a uint32_t, followed by the codec as a
+/// single byte.
+constexpr uint32_t CATALOG_OBJECT_HEADER_LEN = sizeof(uint32_t) + 1;
+
+/// Parses the name of a codec for compressing catalog objects, see
+/// --catalog_topic_compression_codec, into 'codec'. Supported codecs are LZ4, ZSTD and
+/// SNAPPY.
+Status ParseCatalogTopicCodec(const std::string& name, THdfsCompression::type* codec)
     WARN_UNUSED_RESULT;
 
-/// Decompress an LZ4-compressed catalog object. The decompressed object is stored in
-/// 'dst'. The first sizeof(uint32_t) bytes of 'src' store the size of the uncompressed
-/// catalog object.
+/// Compresses a serialized catalog object using 'codec' and stores it in 'dst', after a
+/// header of CATALOG_OBJECT_HEADER_LEN bytes that stores the size of the uncompressed
+/// catalog object and 'codec'. With LZ4, the compression fails if the uncompressed data
+/// size exceeds 0x7E000000 bytes.
+Status CompressCatalogObject(const uint8_t* src, uint32_t size, std::string* dst,
+    THdfsCompression::type codec = THdfsCompression::LZ4) WARN_UNUSED_RESULT;
+
+/// Decompress a catalog object compressed by CompressCatalogObject(). The codec is read
+/// from the header of 'src'. The decompressed object is stored in 'dst'.
 Status DecompressCatalogObject(const uint8_t* src, uint32_t size, std::string* dst)
     WARN_UNUSED_RESULT;
 }
@@ -36,12 +36,30 @@ DEFINE_int32(num_metadata_loading_threads, 16,
     "(Advanced) The number of metadata loading threads (degree of parallelism) to use "
     "when loading catalog metadata.");
 DEFINE_int32(max_hdfs_partitions_parallel_load, 5,
-    "(Advanced) Number of threads used to load block metadata for HDFS based partitioned "
-    "tables. Due to HDFS architectural limitations, it is unlikely to get a linear "
-    "speed up beyond 5 threads.");
+    "(Advanced) Number of partitions of a single table whose block metadata is loaded "
+    "in parallel from HDFS. Due to HDFS architectural limitations, it is unlikely to get "
+    "a linear speed up beyond 5 threads.");
 DEFINE_int32(max_nonhdfs_partitions_parallel_load, 20,
-    "(Advanced) Number of threads used to load block metadata for tables that do not "
-    "support the notion of blocks/storage IDs. Currently supported for S3/ADLS.");
+    "(Advanced) Number of partitions of a single table whose file metadata is loaded in "
+    "parallel from filesystems that do not support the notion of blocks/storage IDs. "
+    "Currently supported for S3/ADLS.");
+DEFINE_int32(max_hdfs_file_listing_threads, 20,
+    "(Advanced) Maximum number of threads used to load file and block metadata from "
+    "HDFS across all concurrent table loads. Loads needed by queries are served before "
+    "background loads.");
+DEFINE_int32(max_nonhdfs_file_listing_threads, 100,
+    "(Advanced) Maximum number of threads used to load file metadata across all "
+    "concurrent table loads from each type of filesystem other than HDFS, e.g. S3 or "
+    "ADLS.");
+DEFINE_int32(max_hms_partition_fetch_threads, 4,
+    "(Advanced) Maximum number of concurrent RPCs issued to the Hive Metastore to fetch "
+    "the partitions of a single table. File metadata of fetched partitions is loaded "
+    "while later partitions are still being fetched. Set to 1 to fetch the partitions "
+    "of a table one batch at a time.");
+DEFINE_int32(max_total_hms_partition_fetch_threads, 16,
+    "(Advanced) Maximum number of threads used to fetch partitions from the Hive "
+    "Metastore across all concurrent table loads. Bounds the number of Metastore "
+    "connections opened for partition fetches.");
 DEFINE_int32(initial_hms_cnxn_timeout_s, 120,
     "Number of seconds catalogd will wait to establish an initial connection to the HMS "
     "before exiting.");
@@ -50,6 +68,20 @@ DEFINE_int64(sentry_catalog_polling_frequency_s, 60,
     "any policy changes.");
 DEFINE_string(sentry_config, "", "Local path to a sentry-site.xml configuration "
     "file. If set, authorization will be enabled.");
+DEFINE_string(catalog_snapshot_dir, "",
+    "(Advanced) Local directory where catalogd periodically writes a snapshot of the "
+    "loaded HDFS table metadata. On startup, tables found in the snapshot are restored "
+    "without contacting the Hive Metastore or the NameNode and are then brought up to "
+    "date by replaying metastore events. Requires --hms_event_polling_interval_s to be "
+    "greater than zero. An empty value disables snapshots.");
+DEFINE_int32(catalog_snapshot_interval_s, 600,
+    "(Advanced) Interval (in seconds) at which catalogd writes a metadata snapshot to "
+    "--catalog_snapshot_dir.");
+DEFINE_bool(store_file_descriptors_off_heap, false,
+    "(Advanced) If true, catalogd stores the file and block metadata of HDFS tables in "
+    "large direct memory buffers outside of the Java heap, which reduces heap usage and "
+    "garbage collection pauses for tables with many files. The JVM's direct memory "
+    "limit (-XX:MaxDirectMemorySize) must leave room for this metadata.");
 
 Catalog::Catalog() {
   JniMethodDescriptor methods[] = {
@@ -64,6 +96,7 @@ Catalog::Catalog() {
     {"checkUserSentryAdmin", "([B)[B", &sentry_admin_check_id_},
     {"getCatalogObject", "([B)[B", &get_catalog_object_id_},
     {"getPartialCatalogObject", "([B)[B", &get_partial_catalog_object_id_},
+    {"getPartialCatalogObjects", "([B)[B", &get_partial_catalog_objects_id_},
     {"getCatalogDelta", "([B)[B", &get_catalog_delta_id_},
     {"getCatalogUsage", "()[B", &get_catalog_usage_id_},
     {"getCatalogVersion", "()J", &get_catalog_version_id_},
@@ -102,6 +135,11 @@ Status Catalog::GetPartialCatalogObject(const TGetPartialCatalogObjectRequest& r
   return JniUtil::CallJniMethod(catalog_, get_partial_catalog_object_id_, req, resp);
 }
 
+Status Catalog::GetPartialCatalogObjects(const TGetPartialCatalogObjectsRequest& req,
+    TGetPartialCatalogObjectsResponse* resp) {
+  return JniUtil::CallJniMethod(catalog_, get_partial_catalog_objects_id_, req, resp);
+}
+
 Status Catalog::GetCatalogVersion(long* version) {
   JNIEnv* jni_env = JniUtil::GetJNIEnv();
   JniLocalFrame jni_frame;
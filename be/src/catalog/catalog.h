@@ -78,6 +78,13 @@ class Catalog {
   Status GetPartialCatalogObject(const TGetPartialCatalogObjectRequest& request,
       TGetPartialCatalogObjectResponse* response);
 
+  /// Return partial information about several Catalog objects at once. The status of
+  /// the individual requests is set in their responses.
+  /// Returns OK if the operation was successful, otherwise a Status object with
+  /// information on the error will be returned.
+  Status GetPartialCatalogObjects(const TGetPartialCatalogObjectsRequest& request,
+      TGetPartialCatalogObjectsResponse* response);
+
   /// Return all databases matching the optional argument 'pattern'.
   /// If pattern is NULL, match all databases otherwise match only those databases that
   /// match the pattern string. Patterns are "p1|p2|p3" where | denotes choice,
@@ -145,6 +152,7 @@ class Catalog {
   jmethodID reset_metadata_id_;  // JniCatalog.resetMetdata()
   jmethodID get_catalog_object_id_;  // JniCatalog.getCatalogObject()
   jmethodID get_partial_catalog_object_id_;  // JniCatalog.getPartialCatalogObject()
+  jmethodID get_partial_catalog_objects_id_;  // JniCatalog.getPartialCatalogObjects()
   jmethodID get_catalog_delta_id_;  // JniCatalog.getCatalogDelta()
   jmethodID get_catalog_version_id_;  // JniCatalog.getCatalogVersion()
   jmethodID get_catalog_usage_id_; // JniCatalog.getCatalogUsage()
@@ -97,6 +97,16 @@ DEFINE_bool(compact_catalog_topic, true, "If true, catalog updates sent via the
     " cost of a small quantity of CPU time. Enable this option in cluster with large"
     " catalogs. It must be enabled on both the catalog service, and all Impala demons.");
 
+DEFINE_string(catalog_topic_compression_codec, "lz4", "The codec used to compress "
+    "catalog updates sent via the statestore if --compact_catalog_topic is true. "
+    "Supported codecs are 'lz4', 'zstd' and 'snappy'. The codec is recorded in each "
+    "compressed update, so it only needs to be set on the catalog service.");
+
+DEFINE_int32(num_catalog_update_threads, 8, "Number of threads coordinators use to "
+    "deserialize and load the objects of a catalog topic update in parallel. Tables of "
+    "different databases are loaded concurrently. Set to 1 to apply updates on a "
+    "single thread.");
+
 DEFINE_string(redaction_rules_file, "", "Absolute path to sensitive data redaction "
     "rules. The rules will be applied to all log messages and query text shown in the "
     "Web UI and audit records. Query results will not be affected. Refer to the "
@@ -249,6 +259,12 @@ DEFINE_int32(hms_event_polling_interval_s, 0,
     "feature and not recommended to be deployed on production systems until it is "
     "made generally available.");
 
+DEFINE_int32(hms_event_processing_threads, 4,
+    "(Advanced) Number of threads catalogd uses to apply metastore events. Events of "
+    "different tables are applied concurrently, events of the same table in order. "
+    "Database level events wait for all preceding events to be applied. Set to 1 to "
+    "apply all events in order on a single thread.");
+
 DEFINE_string(blacklisted_dbs, "sys,information_schema",
     "Comma separated list for blacklisted databases. Configure which databases to be "
     "skipped for loading (in startup and global INVALIDATE METADATA). Users can't access,"
@@ -266,6 +282,13 @@ DEFINE_double_hidden(invalidate_tables_fraction_on_memory_pressure, 0.1,
     "The fraction of tables to invalidate when CatalogdTableInvalidator considers the "
     "old GC generation to be almost full.");
 
+DEFINE_string(invalidate_tables_eviction_policy, "cost",
+    "The order in which tables are invalidated when the old GC generation is almost "
+    "full, see invalidate_tables_on_memory_pressure. 'lru' invalidates the least "
+    "recently used tables first. 'cost' invalidates the tables first which free the most "
+    "memory for the least expected cost of reloading them, based on their estimated "
+    "metadata size, their load time and how frequently they were used recently.");
+
 DEFINE_bool_hidden(unlock_mt_dop, false,
     "(Experimental) If true, allow specifying mt_dop for all queries.");
 
@@ -292,6 +315,16 @@ DEFINE_string(min_privilege_set_for_show_stmts, "any",
     "user with large scale of privileges. No significant performance gain when using "
     "Ranger");
 
+DEFINE_int32_hidden(query_plan_cache_capacity, 0,
+    "(Experimental) Maximum number of query plans which the coordinator caches, so that "
+    "repeated queries with the same statement and query options are not planned again. "
+    "Literals are not parameterized, so only queries that are repeated with the same "
+    "literals reuse a plan. "
+    "Only plans of SELECT queries on non-transactional filesystem tables are cached, and "
+    "only if authorization and lineage are disabled. Cached plans include their scan "
+    "ranges, so plans of queries which scan many files take a lot of memory. If 0 or "
+    "less, the cache is disabled.");
+
 // Set the slow RPC threshold to 2 minutes to avoid false positives (since TransmitData
 // RPCs can take some time to process).
 DEFINE_int64(impala_slow_rpc_threshold_ms, 2 * 60 * 1000,
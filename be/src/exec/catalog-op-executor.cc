@@ -283,13 +283,16 @@ void CatalogOpExecutor::SetColumnStats(const TTableSchema& col_stats_schema,
   // Set per-column stats. For a column at position i in its source table,
   // the NDVs and the number of NULLs are at position i and i + 1 of the
   // col_stats_row, respectively. Positions i + 2 and i + 3 contain the max/avg
-  // length for string columns, and -1 for non-string columns.
-  for (int i = 0; i < col_stats_row.colVals.size(); i += 4) {
+  // length for string columns, and -1 for non-string columns. Position i + 4
+  // contains the histogram of the column, or NULL if none was computed.
+  for (int i = 0; i < col_stats_row.colVals.size(); i += 5) {
     TColumnStats col_stats;
     col_stats.__set_num_distinct_values(col_stats_row.colVals[i].i64Val.value);
     col_stats.__set_num_nulls(col_stats_row.colVals[i + 1].i64Val.value);
     col_stats.__set_max_size(col_stats_row.colVals[i + 2].i32Val.value);
     col_stats.__set_avg_size(col_stats_row.colVals[i + 3].doubleVal.value);
+    const TStringValue& histogram = col_stats_row.colVals[i + 4].stringVal;
+    if (histogram.__isset.value) col_stats.__set_histogram(histogram.value);
     params->column_stats[col_stats_schema.columns[i].columnName] = col_stats;
   }
   params->__isset.column_stats = true;
@@ -335,6 +338,26 @@ Status CatalogOpExecutor::GetPartialCatalogObject(
   return Status::OK();
 }
 
+Status CatalogOpExecutor::GetPartialCatalogObjects(
+    const TGetPartialCatalogObjectsRequest& req,
+    TGetPartialCatalogObjectsResponse* resp) {
+  DCHECK(FLAGS_use_local_catalog || TestInfo::is_test());
+  const TNetworkAddress& address =
+      MakeNetworkAddress(FLAGS_catalog_service_host, FLAGS_catalog_service_port);
+  int attempt = 0; // Used for debug action only.
+  CatalogServiceConnection::RpcStatus rpc_status =
+      CatalogServiceConnection::DoRpcWithRetry(env_->catalogd_client_cache(), address,
+          &CatalogServiceClientWrapper::GetPartialCatalogObjects, req,
+          FLAGS_catalog_client_connection_num_retries,
+          FLAGS_catalog_client_rpc_retry_interval_ms,
+          [&attempt]() { return CatalogRpcDebugFn(&attempt); }, resp);
+  RETURN_IF_ERROR(rpc_status.status);
+  if (FLAGS_inject_latency_after_catalog_fetch_ms > 0) {
+    SleepForMs(FLAGS_inject_latency_after_catalog_fetch_ms);
+  }
+  return Status::OK();
+}
+
 
 Status CatalogOpExecutor::PrioritizeLoad(const TPrioritizeLoadRequest& req,
     TPrioritizeLoadResponse* result) {
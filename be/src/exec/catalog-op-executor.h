@@ -32,6 +32,8 @@ class RuntimeProfile;
 
 class TGetPartialCatalogObjectRequest;
 class TGetPartialCatalogObjectResponse;
+class TGetPartialCatalogObjectsRequest;
+class TGetPartialCatalogObjectsResponse;
 
 /// The CatalogOpExecutor is responsible for executing catalog operations.
 /// This includes DDL statements such as CREATE and ALTER as well as statements such
@@ -54,6 +56,11 @@ class CatalogOpExecutor {
   Status GetPartialCatalogObject(const TGetPartialCatalogObjectRequest& req,
       TGetPartialCatalogObjectResponse* resp);
 
+  /// Fetch partial information about several TCatalogObjects from the catalog server
+  /// in a single RPC.
+  Status GetPartialCatalogObjects(const TGetPartialCatalogObjectsRequest& req,
+      TGetPartialCatalogObjectsResponse* resp);
+
   /// Translates the given compute stats request and its child-query results into
   /// a new table alteration request for updating the stats metadata, and executes
   /// the alteration via Exec();
@@ -113,10 +113,24 @@ DEFINE_int32_hidden(local_catalog_cache_expiration_s, 60 * 60,
     "of the catalog cache within each impalad. Even if the configured "
     "cache capacity has not been reached, items are removed from the cache "
     "if they have not been accessed in this amount of time.");
+DEFINE_string_hidden(local_catalog_cache_capacity_split, "",
+    "If --use_local_catalog is enabled, optionally reserves a share of the catalog "
+    "cache for each kind of metadata, so that loading one kind cannot evict the "
+    "others. Comma-separated list of <kind>:<percent> pairs whose percentages add up "
+    "to 100, where the kinds are table, partition and column_stats, e.g. "
+    "'table:30,partition:55,column_stats:15'. If empty, all kinds of metadata share "
+    "the whole cache.");
 DEFINE_int32_hidden(local_catalog_max_fetch_retries, 40,
     "If --use_local_catalog is enabled, configures the maximum number of times "
     "the frontend retries when fetching a metadata object from the impalad "
     "coordinator's local catalog cache.");
+DEFINE_int32_hidden(local_catalog_fetch_overload_timeout_ms, 60 * 1000,
+    "If --use_local_catalog is enabled, the frontend retries, with exponential backoff, "
+    "fetching metadata from the catalogd when the catalogd rejects the fetch because it "
+    "is overloaded. This configures the maximum time in milliseconds for which a fetch "
+    "is queued and retried before the query fails with a retriable error. Set it to "
+    "zero to retry fetches until they succeed, each attempt waiting in the queue of the "
+    "catalogd for up to its --catalog_partial_fetch_rpc_queue_timeout_s.");
 
 DECLARE_int32(state_store_port);
 DECLARE_int32(num_threads_per_core);
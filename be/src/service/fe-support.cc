@@ -456,12 +456,13 @@ Java_org_apache_impala_service_FeSupport_NativeLookupSymbol(
   return result_bytes;
 }
 
-// Add a catalog update to pending_topic_updates_.
+// Add a catalog update to pending_topic_updates_. 'serialized_object' is a direct
+// ByteBuffer whose first 'size' bytes hold the serialized TCatalogObject.
 extern "C"
 JNIEXPORT jboolean JNICALL
 Java_org_apache_impala_service_FeSupport_NativeAddPendingTopicItem(JNIEnv* env,
     jclass fe_support_class, jlong native_catalog_server_ptr, jstring key, jlong version,
-    jbyteArray serialized_object, jboolean deleted) {
+    jobject serialized_object, jint size, jboolean deleted) {
   std::string key_string;
   {
     JniUtfCharGuard key_str;
@@ -470,14 +471,15 @@ Java_org_apache_impala_service_FeSupport_NativeAddPendingTopicItem(JNIEnv* env,
     }
     key_string.assign(key_str.get());
   }
-  JniScopedArrayCritical obj_buf;
-  if (!JniScopedArrayCritical::Create(env, serialized_object, &obj_buf)) {
+  const uint8_t* obj_buf =
+      static_cast<const uint8_t*>(env->GetDirectBufferAddress(serialized_object));
+  if (obj_buf == nullptr || size < 0
+      || size > env->GetDirectBufferCapacity(serialized_object)) {
     return static_cast<jboolean>(false);
   }
-  reinterpret_cast<CatalogServer*>(native_catalog_server_ptr)->
-      AddPendingTopicItem(std::move(key_string), version, obj_buf.get(),
-      static_cast<uint32_t>(obj_buf.size()), deleted);
-  return static_cast<jboolean>(true);
+  return static_cast<jboolean>(reinterpret_cast<CatalogServer*>(
+      native_catalog_server_ptr)->AddPendingTopicItem(std::move(key_string), version,
+      obj_buf, static_cast<uint32_t>(size), deleted));
 }
 
 // Get the next catalog update pointed by 'callback_ctx'.
@@ -616,6 +618,27 @@ Java_org_apache_impala_service_FeSupport_NativeGetPartialCatalogObject(
   return result_bytes;
 }
 
+// Calls in to the catalog server to request partial information about several
+// catalog objects in a single RPC.
+extern "C"
+JNIEXPORT jbyteArray JNICALL
+Java_org_apache_impala_service_FeSupport_NativeGetPartialCatalogObjects(
+    JNIEnv* env, jclass fe_support_class, jbyteArray thrift_struct) {
+  TGetPartialCatalogObjectsRequest request;
+  THROW_IF_ERROR_RET(DeserializeThriftMsg(env, thrift_struct, &request), env,
+      JniUtil::internal_exc_class(), nullptr);
+
+  CatalogOpExecutor catalog_op_executor(ExecEnv::GetInstance(), nullptr, nullptr);
+  TGetPartialCatalogObjectsResponse result;
+  Status status = catalog_op_executor.GetPartialCatalogObjects(request, &result);
+  THROW_IF_ERROR_RET(status, env, JniUtil::internal_exc_class(), nullptr);
+
+  jbyteArray result_bytes = nullptr;
+  THROW_IF_ERROR_RET(SerializeThriftMsg(env, &result, &result_bytes), env,
+      JniUtil::internal_exc_class(), result_bytes);
+  return result_bytes;
+}
+
 // Used to call native code from the FE to make a request to catalogd
 // for per-partition statistics.
 extern "C" JNIEXPORT jbyteArray JNICALL
@@ -734,6 +757,11 @@ static JNINativeMethod native_methods[] = {
       const_cast<char*>("([B)[B"),
       (void*)::Java_org_apache_impala_service_FeSupport_NativeGetPartialCatalogObject
   },
+  {
+      const_cast<char*>("NativeGetPartialCatalogObjects"),
+      const_cast<char*>("([B)[B"),
+      (void*)::Java_org_apache_impala_service_FeSupport_NativeGetPartialCatalogObjects
+  },
   {
       const_cast<char*>("NativeGetPartitionStats"), const_cast<char*>("([B)[B"),
      (void*) ::Java_org_apache_impala_service_FeSupport_NativeGetPartitionStats
@@ -755,7 +783,7 @@ static JNINativeMethod native_methods[] = {
   },
   {
       const_cast<char*>("NativeAddPendingTopicItem"),
-      const_cast<char*>("(JLjava/lang/String;J[BZ)Z"),
+      const_cast<char*>("(JLjava/lang/String;JLjava/nio/ByteBuffer;IZ)Z"),
       (void*)::Java_org_apache_impala_service_FeSupport_NativeAddPendingTopicItem
   },
   {
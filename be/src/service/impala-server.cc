@@ -1198,6 +1198,9 @@ Status ImpalaServer::UpdateCatalogMetrics() {
   DCHECK(metrics.__isset.cache_hit_rate);
   DCHECK(metrics.__isset.cache_load_exception_rate);
   DCHECK(metrics.__isset.cache_miss_rate);
+  DCHECK(metrics.__isset.cache_table_hit_rate);
+  DCHECK(metrics.__isset.cache_partition_hit_rate);
+  DCHECK(metrics.__isset.cache_column_stats_hit_rate);
   ImpaladMetrics::CATALOG_CACHE_EVICTION_COUNT->SetValue(metrics.cache_eviction_count);
   ImpaladMetrics::CATALOG_CACHE_HIT_COUNT->SetValue(metrics.cache_hit_count);
   ImpaladMetrics::CATALOG_CACHE_LOAD_COUNT->SetValue(metrics.cache_load_count);
@@ -1213,6 +1216,11 @@ Status ImpalaServer::UpdateCatalogMetrics() {
   ImpaladMetrics::CATALOG_CACHE_LOAD_EXCEPTION_RATE->SetValue(
       metrics.cache_load_exception_rate);
   ImpaladMetrics::CATALOG_CACHE_MISS_RATE->SetValue(metrics.cache_miss_rate);
+  ImpaladMetrics::CATALOG_CACHE_TABLE_HIT_RATE->SetValue(metrics.cache_table_hit_rate);
+  ImpaladMetrics::CATALOG_CACHE_PARTITION_HIT_RATE->SetValue(
+      metrics.cache_partition_hit_rate);
+  ImpaladMetrics::CATALOG_CACHE_COLUMN_STATS_HIT_RATE->SetValue(
+      metrics.cache_column_stats_hit_rate);
   return Status::OK();
 
 }
@@ -1553,7 +1561,10 @@ void ImpalaServer::CatalogUpdateCallback(
   req.__set_is_delta(delta.is_delta);
   req.__set_native_iterator_ptr(reinterpret_cast<int64_t>(&callback_ctx));
   TUpdateCatalogCacheResponse resp;
+  int64_t start_time_ms = MonotonicMillis();
   Status s = exec_env_->frontend()->UpdateCatalogCache(req, &resp);
+  ImpaladMetrics::CATALOG_UPDATE_APPLY_DURATIONS->Update(
+      MonotonicMillis() - start_time_ms);
   if (!s.ok()) {
     LOG(ERROR) << "There was an error processing the impalad catalog update. Requesting"
                << " a full topic update to recover: " << s.GetDetail();
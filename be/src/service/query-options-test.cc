@@ -237,6 +237,8 @@ TEST(QueryOptions, SetIntOptions) {
   pair<OptionDef<int32_t>, Range<int32_t>> case_set[]{
       {MAKE_OPTIONDEF(runtime_filter_wait_time_ms),    {0, I32_MAX}},
       {MAKE_OPTIONDEF(mt_dop),                         {0, 64}},
+      {MAKE_OPTIONDEF(join_order_dp_threshold),
+          {0, MAX_JOIN_ORDER_DP_THRESHOLD}},
       {MAKE_OPTIONDEF(disable_codegen_rows_threshold), {0, I32_MAX}},
       {MAKE_OPTIONDEF(max_num_runtime_filters),        {0, I32_MAX}},
       {MAKE_OPTIONDEF(batch_size),                     {0, 65536}},
@@ -916,6 +916,26 @@ Status impala::SetQueryOption(const string& key, const string& value,
         query_options->__set_broadcast_bytes_limit(broadcast_bytes_limit);
         break;
       }
+      case TImpalaQueryOptions::COMPUTE_COLUMN_HISTOGRAMS: {
+        query_options->__set_compute_column_histograms(IsTrue(value));
+        break;
+      }
+      case TImpalaQueryOptions::JOIN_ORDER_DP_THRESHOLD: {
+        StringParser::ParseResult result;
+        const int32_t threshold =
+            StringParser::StringToInt<int32_t>(value.c_str(), value.length(), &result);
+        if (result != StringParser::PARSE_SUCCESS || threshold < 0
+            || threshold > MAX_JOIN_ORDER_DP_THRESHOLD) {
+          return Status(Substitute("$0 is not valid for join_order_dp_threshold. "
+              "Valid values are in [0, $1].", value, MAX_JOIN_ORDER_DP_THRESHOLD));
+        }
+        query_options->__set_join_order_dp_threshold(threshold);
+        break;
+      }
+      case TImpalaQueryOptions::PRUNE_SCANS_WITH_MIN_MAX_STATS: {
+        query_options->__set_prune_scans_with_min_max_stats(IsTrue(value));
+        break;
+      }
       default:
         if (IsRemovedQueryOption(key)) {
           LOG(WARNING) << "Ignoring attempt to set removed query option '" << key << "'";
@@ -47,7 +47,7 @@ typedef std::unordered_map<string, beeswax::TQueryOptionLevel::type>
 // time we add or remove a query option to/from the enum TImpalaQueryOptions.
 #define QUERY_OPTS_TABLE\
   DCHECK_EQ(_TImpalaQueryOptions_VALUES_TO_NAMES.size(),\
-      TImpalaQueryOptions::BROADCAST_BYTES_LIMIT + 1);\
+      TImpalaQueryOptions::PRUNE_SCANS_WITH_MIN_MAX_STATS + 1);\
   REMOVED_QUERY_OPT_FN(abort_on_default_limit_exceeded, ABORT_ON_DEFAULT_LIMIT_EXCEEDED)\
   QUERY_OPT_FN(abort_on_error, ABORT_ON_ERROR, TQueryOptionLevel::REGULAR)\
   REMOVED_QUERY_OPT_FN(allow_unsupported_formats, ALLOW_UNSUPPORTED_FORMATS)\
@@ -193,7 +193,13 @@ typedef std::unordered_map<string, beeswax::TQueryOptionLevel::type>
   QUERY_OPT_FN(parquet_object_store_split_size, PARQUET_OBJECT_STORE_SPLIT_SIZE,\
       TQueryOptionLevel::ADVANCED)\
   QUERY_OPT_FN(mem_limit_executors, MEM_LIMIT_EXECUTORS, TQueryOptionLevel::DEVELOPMENT)\
-  QUERY_OPT_FN(broadcast_bytes_limit, BROADCAST_BYTES_LIMIT, TQueryOptionLevel::ADVANCED)
+  QUERY_OPT_FN(broadcast_bytes_limit, BROADCAST_BYTES_LIMIT, TQueryOptionLevel::ADVANCED)\
+  QUERY_OPT_FN(compute_column_histograms, COMPUTE_COLUMN_HISTOGRAMS,\
+      TQueryOptionLevel::ADVANCED)\
+  QUERY_OPT_FN(join_order_dp_threshold, JOIN_ORDER_DP_THRESHOLD,\
+      TQueryOptionLevel::ADVANCED)\
+  QUERY_OPT_FN(prune_scans_with_min_max_stats, PRUNE_SCANS_WITH_MIN_MAX_STATS,\
+      TQueryOptionLevel::ADVANCED)
   ;
 
 /// Enforce practical limits on some query options to avoid undesired query state.
@@ -205,6 +211,11 @@ static const int64_t ROW_SIZE_LIMIT = 1LL << 40; // 1 TB
 static const int32_t MIN_STATEMENT_EXPRESSION_LIMIT = 1 << 10; // 1024
 static const int32_t MIN_MAX_STATEMENT_LENGTH_BYTES = 1 << 10; // 1 KB
 
+/// The number of join orders searched by the planner grows exponentially with the
+/// number of tables in a join block. Beyond 12 tables, planning a densely connected
+/// join block can take seconds.
+static const int32_t MAX_JOIN_ORDER_DP_THRESHOLD = 12;
+
 /// Converts a TQueryOptions struct into a map of key, value pairs.  Options that
 /// aren't set and lack defaults in common/thrift/ImpalaInternalService.thrift are
 /// mapped to the empty string.
@@ -32,6 +32,7 @@ DECLARE_bool(enable_orc_scanner);
 DECLARE_bool(use_local_catalog);
 DECLARE_int32(local_catalog_cache_expiration_s);
 DECLARE_int32(local_catalog_cache_mb);
+DECLARE_string(local_catalog_cache_capacity_split);
 DECLARE_int32(non_impala_java_vlog);
 DECLARE_int32(num_metadata_loading_threads);
 DECLARE_int32(max_hdfs_partitions_parallel_load);
@@ -58,11 +59,14 @@ DECLARE_int32(invalidate_tables_timeout_s);
 DECLARE_bool(invalidate_tables_on_memory_pressure);
 DECLARE_double(invalidate_tables_gc_old_gen_full_threshold);
 DECLARE_double(invalidate_tables_fraction_on_memory_pressure);
+DECLARE_string(invalidate_tables_eviction_policy);
 DECLARE_int32(local_catalog_max_fetch_retries);
 DECLARE_int64(kudu_scanner_thread_estimated_bytes_per_column);
 DECLARE_int64(kudu_scanner_thread_max_estimated_bytes);
 DECLARE_int32(catalog_max_parallel_partial_fetch_rpc);
 DECLARE_int64(catalog_partial_fetch_rpc_queue_timeout_s);
+DECLARE_int32(catalog_partial_fetch_rpc_max_queue_len);
+DECLARE_int32(local_catalog_fetch_overload_timeout_ms);
 DECLARE_int64(exchg_node_buffer_size_bytes);
 DECLARE_int32(kudu_mutation_buffer_size);
 DECLARE_int32(kudu_error_buffer_size);
@@ -82,7 +86,18 @@ DECLARE_string(blacklisted_dbs);
 DECLARE_bool(unlock_zorder_sort);
 DECLARE_string(blacklisted_tables);
 DECLARE_string(min_privilege_set_for_show_stmts);
+DECLARE_int32(query_plan_cache_capacity);
 DECLARE_int32(num_expected_executors);
+DECLARE_string(catalog_snapshot_dir);
+DECLARE_int32(catalog_snapshot_interval_s);
+DECLARE_bool(skip_unchanged_dirs_on_refresh);
+DECLARE_int32(max_hdfs_file_listing_threads);
+DECLARE_int32(max_nonhdfs_file_listing_threads);
+DECLARE_bool(store_file_descriptors_off_heap);
+DECLARE_int32(num_catalog_update_threads);
+DECLARE_int32(max_hms_partition_fetch_threads);
+DECLARE_int32(max_total_hms_partition_fetch_threads);
+DECLARE_int32(hms_event_processing_threads);
 
 namespace impala {
 
@@ -94,6 +109,8 @@ Status GetThriftBackendGflags(JNIEnv* jni_env, jbyteArray* cfg_bytes) {
   cfg.__set_local_catalog_cache_mb(FLAGS_local_catalog_cache_mb);
   cfg.__set_local_catalog_cache_expiration_s(
     FLAGS_local_catalog_cache_expiration_s);
+  cfg.__set_local_catalog_cache_capacity_split(
+      FLAGS_local_catalog_cache_capacity_split);
   cfg.__set_server_name(FLAGS_server_name);
   cfg.__set_sentry_config(FLAGS_sentry_config);
   cfg.__set_authorization_policy_provider_class(
@@ -137,6 +154,7 @@ Status GetThriftBackendGflags(JNIEnv* jni_env, jbyteArray* cfg_bytes) {
       FLAGS_invalidate_tables_gc_old_gen_full_threshold);
   cfg.__set_invalidate_tables_fraction_on_memory_pressure(
       FLAGS_invalidate_tables_fraction_on_memory_pressure);
+  cfg.__set_invalidate_tables_eviction_policy(FLAGS_invalidate_tables_eviction_policy);
   cfg.__set_local_catalog_max_fetch_retries(FLAGS_local_catalog_max_fetch_retries);
   cfg.__set_kudu_scanner_thread_estimated_bytes_per_column(
       FLAGS_kudu_scanner_thread_estimated_bytes_per_column);
@@ -146,6 +164,10 @@ Status GetThriftBackendGflags(JNIEnv* jni_env, jbyteArray* cfg_bytes) {
       FLAGS_catalog_max_parallel_partial_fetch_rpc);
   cfg.__set_catalog_partial_fetch_rpc_queue_timeout_s(
       FLAGS_catalog_partial_fetch_rpc_queue_timeout_s);
+  cfg.__set_catalog_partial_fetch_rpc_max_queue_len(
+      FLAGS_catalog_partial_fetch_rpc_max_queue_len);
+  cfg.__set_local_catalog_fetch_overload_timeout_ms(
+      FLAGS_local_catalog_fetch_overload_timeout_ms);
   cfg.__set_exchg_node_buffer_size_bytes(
       FLAGS_exchg_node_buffer_size_bytes);
   cfg.__set_kudu_mutation_buffer_size(FLAGS_kudu_mutation_buffer_size);
@@ -168,7 +190,19 @@ Status GetThriftBackendGflags(JNIEnv* jni_env, jbyteArray* cfg_bytes) {
   cfg.__set_unlock_zorder_sort(FLAGS_unlock_zorder_sort);
   cfg.__set_blacklisted_tables(FLAGS_blacklisted_tables);
   cfg.__set_min_privilege_set_for_show_stmts(FLAGS_min_privilege_set_for_show_stmts);
+  cfg.__set_query_plan_cache_capacity(FLAGS_query_plan_cache_capacity);
   cfg.__set_num_expected_executors(FLAGS_num_expected_executors);
+  cfg.__set_catalog_snapshot_dir(FLAGS_catalog_snapshot_dir);
+  cfg.__set_catalog_snapshot_interval_s(FLAGS_catalog_snapshot_interval_s);
+  cfg.__set_skip_unchanged_dirs_on_refresh(FLAGS_skip_unchanged_dirs_on_refresh);
+  cfg.__set_max_hdfs_file_listing_threads(FLAGS_max_hdfs_file_listing_threads);
+  cfg.__set_max_nonhdfs_file_listing_threads(FLAGS_max_nonhdfs_file_listing_threads);
+  cfg.__set_store_file_descriptors_off_heap(FLAGS_store_file_descriptors_off_heap);
+  cfg.__set_num_catalog_update_threads(FLAGS_num_catalog_update_threads);
+  cfg.__set_max_hms_partition_fetch_threads(FLAGS_max_hms_partition_fetch_threads);
+  cfg.__set_max_total_hms_partition_fetch_threads(
+      FLAGS_max_total_hms_partition_fetch_threads);
+  cfg.__set_hms_event_processing_threads(FLAGS_hms_event_processing_threads);
   RETURN_IF_ERROR(SerializeThriftMsg(jni_env, &cfg, cfg_bytes));
   return Status::OK();
 }
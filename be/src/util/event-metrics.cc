@@ -24,6 +24,10 @@ string MetastoreEventMetrics::NUMBER_EVENTS_RECEIVED_METRIC_NAME =
     "events-processor.events-received";
 string MetastoreEventMetrics::NUMBER_EVENTS_SKIPPED_METRIC_NAME =
     "events-processor.events-skipped";
+string MetastoreEventMetrics::NUMBER_EVENTS_MERGED_METRIC_NAME =
+    "events-processor.events-merged";
+string MetastoreEventMetrics::NUMBER_SELF_EVENTS_SKIPPED_METRIC_NAME =
+    "events-processor.self-events-skipped";
 string MetastoreEventMetrics::EVENT_PROCESSOR_STATUS_METRIC_NAME =
     "events-processor.status";
 string MetastoreEventMetrics::EVENTS_FETCH_DURATION_MEAN_METRIC_NAME =
@@ -39,9 +43,16 @@ string MetastoreEventMetrics::EVENTS_RECEIVED_15MIN_METRIC_NAME =
     "events-processor.events-received-15min-rate";
 string MetastoreEventMetrics::LAST_SYNCED_EVENT_ID_METRIC_NAME =
     "events-processor.last-synced-event-id";
+string MetastoreEventMetrics::EVENTS_LAG_METRIC_NAME = "events-processor.events-lag";
+string MetastoreEventMetrics::MAX_WORKER_QUEUE_DEPTH_METRIC_NAME =
+    "events-processor.max-worker-queue-depth";
+string MetastoreEventMetrics::MAX_WORKER_LAG_METRIC_NAME =
+    "events-processor.max-worker-lag";
 
 IntCounter* MetastoreEventMetrics::NUM_EVENTS_RECEIVED_COUNTER = nullptr;
 IntCounter* MetastoreEventMetrics::NUM_EVENTS_SKIPPED_COUNTER = nullptr;
+IntCounter* MetastoreEventMetrics::NUM_EVENTS_MERGED_COUNTER = nullptr;
+IntCounter* MetastoreEventMetrics::NUM_SELF_EVENTS_SKIPPED_COUNTER = nullptr;
 
 DoubleGauge* MetastoreEventMetrics::EVENTS_FETCH_DURATION_MEAN = nullptr;
 DoubleGauge* MetastoreEventMetrics::EVENTS_PROCESS_DURATION_MEAN = nullptr;
@@ -52,6 +63,9 @@ DoubleGauge* MetastoreEventMetrics::EVENTS_RECEIVED_1MIN_RATE = nullptr;
 DoubleGauge* MetastoreEventMetrics::EVENTS_RECEIVED_5MIN_RATE = nullptr;
 DoubleGauge* MetastoreEventMetrics::EVENTS_RECEIVED_15MIN_RATE = nullptr;
 IntCounter* MetastoreEventMetrics::LAST_SYNCED_EVENT_ID = nullptr;
+IntGauge* MetastoreEventMetrics::EVENTS_LAG = nullptr;
+IntGauge* MetastoreEventMetrics::MAX_WORKER_QUEUE_DEPTH = nullptr;
+IntGauge* MetastoreEventMetrics::MAX_WORKER_LAG = nullptr;
 
 // Initialize all the metrics for the events metric group
 void MetastoreEventMetrics::InitMetastoreEventMetrics(MetricGroup* metric_group) {
@@ -66,6 +80,10 @@ void MetastoreEventMetrics::InitMetastoreEventMetrics(MetricGroup* metric_group)
       event_metrics->AddCounter(NUMBER_EVENTS_RECEIVED_METRIC_NAME, 0);
   NUM_EVENTS_SKIPPED_COUNTER =
       event_metrics->AddCounter(NUMBER_EVENTS_SKIPPED_METRIC_NAME, 0);
+  NUM_EVENTS_MERGED_COUNTER =
+      event_metrics->AddCounter(NUMBER_EVENTS_MERGED_METRIC_NAME, 0);
+  NUM_SELF_EVENTS_SKIPPED_COUNTER =
+      event_metrics->AddCounter(NUMBER_SELF_EVENTS_SKIPPED_METRIC_NAME, 0);
   EVENTS_FETCH_DURATION_MEAN =
       event_metrics->AddDoubleGauge(EVENTS_FETCH_DURATION_MEAN_METRIC_NAME, 0.0);
   EVENTS_PROCESS_DURATION_MEAN =
@@ -78,6 +96,9 @@ void MetastoreEventMetrics::InitMetastoreEventMetrics(MetricGroup* metric_group)
       event_metrics->AddDoubleGauge(EVENTS_RECEIVED_15MIN_METRIC_NAME, 0.0);
   LAST_SYNCED_EVENT_ID =
       event_metrics->AddCounter(LAST_SYNCED_EVENT_ID_METRIC_NAME, 0);
+  EVENTS_LAG = event_metrics->AddGauge(EVENTS_LAG_METRIC_NAME, 0);
+  MAX_WORKER_QUEUE_DEPTH = event_metrics->AddGauge(MAX_WORKER_QUEUE_DEPTH_METRIC_NAME, 0);
+  MAX_WORKER_LAG = event_metrics->AddGauge(MAX_WORKER_LAG_METRIC_NAME, 0);
 }
 
 void MetastoreEventMetrics::refresh(TEventProcessorMetrics* response) {
@@ -94,6 +115,12 @@ void MetastoreEventMetrics::refresh(TEventProcessorMetrics* response) {
   if (response->__isset.events_skipped) {
     NUM_EVENTS_SKIPPED_COUNTER->SetValue(response->events_skipped);
   }
+  if (response->__isset.events_merged) {
+    NUM_EVENTS_MERGED_COUNTER->SetValue(response->events_merged);
+  }
+  if (response->__isset.self_events_skipped) {
+    NUM_SELF_EVENTS_SKIPPED_COUNTER->SetValue(response->self_events_skipped);
+  }
   if (response->__isset.events_fetch_duration_mean) {
     EVENTS_FETCH_DURATION_MEAN->SetValue(response->events_fetch_duration_mean);
   }
@@ -112,5 +139,16 @@ void MetastoreEventMetrics::refresh(TEventProcessorMetrics* response) {
   if(response->__isset.last_synced_event_id){
     LAST_SYNCED_EVENT_ID->SetValue(response->last_synced_event_id);
   }
+  if (response->__isset.events_lag) EVENTS_LAG->SetValue(response->events_lag);
+  if (response->__isset.worker_metrics) {
+    int64_t max_queue_depth = 0;
+    int64_t max_lag_s = 0;
+    for (const TEventProcessorWorkerMetrics& worker : response->worker_metrics) {
+      max_queue_depth = std::max<int64_t>(max_queue_depth, worker.queue_depth);
+      max_lag_s = std::max(max_lag_s, worker.lag_s);
+    }
+    MAX_WORKER_QUEUE_DEPTH->SetValue(max_queue_depth);
+    MAX_WORKER_LAG->SetValue(max_lag_s);
+  }
 }
 } // namespace impala
\ No newline at end of file
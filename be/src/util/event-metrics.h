@@ -36,6 +36,12 @@ class MetastoreEventMetrics {
   /// Total number of events skipped so far
   static IntCounter* NUM_EVENTS_SKIPPED_COUNTER;
 
+  /// Total number of partition events merged into batch events so far
+  static IntCounter* NUM_EVENTS_MERGED_COUNTER;
+
+  /// Total number of self-events skipped so far
+  static IntCounter* NUM_SELF_EVENTS_SKIPPED_COUNTER;
+
   /// Mean duration required to fetch a batch of events
   static DoubleGauge* EVENTS_FETCH_DURATION_MEAN;
 
@@ -58,6 +64,16 @@ class MetastoreEventMetrics {
   /// Last metastore event id that the catalog server synced to.
   static IntCounter* LAST_SYNCED_EVENT_ID;
 
+  /// Number of metastore events the catalog server has not synced to yet.
+  static IntGauge* EVENTS_LAG;
+
+  /// Largest number of events waiting to be applied by one event processing thread.
+  static IntGauge* MAX_WORKER_QUEUE_DEPTH;
+
+  /// Largest age in seconds of the oldest event not yet applied by one event
+  /// processing thread.
+  static IntGauge* MAX_WORKER_LAG;
+
  private:
   /// Following metric names must match with the key in metrics.json
 
@@ -67,6 +83,12 @@ class MetastoreEventMetrics {
   /// metric name for events skipped counter
   static string NUMBER_EVENTS_SKIPPED_METRIC_NAME;
 
+  /// metric name for events merged counter
+  static string NUMBER_EVENTS_MERGED_METRIC_NAME;
+
+  /// metric name for self-events skipped counter
+  static string NUMBER_SELF_EVENTS_SKIPPED_METRIC_NAME;
+
   /// metric name for event processor status
   static string EVENT_PROCESSOR_STATUS_METRIC_NAME;
 
@@ -87,6 +109,15 @@ class MetastoreEventMetrics {
 
   /// Metric name for last metastore event id that the catalog server synced to.
   static string LAST_SYNCED_EVENT_ID_METRIC_NAME;
+
+  /// Metric name for the number of events not synced to yet.
+  static string EVENTS_LAG_METRIC_NAME;
+
+  /// Metric name for the largest queue depth of an event processing thread.
+  static string MAX_WORKER_QUEUE_DEPTH_METRIC_NAME;
+
+  /// Metric name for the largest lag of an event processing thread.
+  static string MAX_WORKER_LAG_METRIC_NAME;
 };
 
 } // namespace impala
@@ -85,6 +85,8 @@ const char* ImpaladMetricKeys::CATALOG_NUM_DBS =
     "catalog.num-databases";
 const char* ImpaladMetricKeys::CATALOG_NUM_TABLES =
     "catalog.num-tables";
+const char* ImpaladMetricKeys::CATALOG_UPDATE_APPLY_DURATIONS =
+    "catalog.update-apply-durations-ms";
 const char* ImpaladMetricKeys::CATALOG_VERSION = "catalog.curr-version";
 const char* ImpaladMetricKeys::CATALOG_OBJECT_VERSION_LOWER_BOUND =
     "catalog.catalog-object-version-lower-bound";
@@ -112,6 +114,12 @@ const char* ImpaladMetricKeys::CATALOG_CACHE_REQUEST_COUNT =
     "catalog.cache.request-count";
 const char* ImpaladMetricKeys::CATALOG_CACHE_TOTAL_LOAD_TIME =
     "catalog.cache.total-load-time";
+const char* ImpaladMetricKeys::CATALOG_CACHE_TABLE_HIT_RATE =
+    "catalog.cache.table.hit-rate";
+const char* ImpaladMetricKeys::CATALOG_CACHE_PARTITION_HIT_RATE =
+    "catalog.cache.partition.hit-rate";
+const char* ImpaladMetricKeys::CATALOG_CACHE_COLUMN_STATS_HIT_RATE =
+    "catalog.cache.column-stats.hit-rate";
 const char* ImpaladMetricKeys::NUM_FILES_OPEN_FOR_INSERT =
     "impala-server.num-files-open-for-insert";
 const char* ImpaladMetricKeys::IMPALA_SERVER_NUM_OPEN_HS2_SESSIONS =
@@ -197,6 +205,9 @@ DoubleGauge* ImpaladMetrics::CATALOG_CACHE_AVG_LOAD_TIME = nullptr;
 DoubleGauge* ImpaladMetrics::CATALOG_CACHE_HIT_RATE = nullptr;
 DoubleGauge* ImpaladMetrics::CATALOG_CACHE_LOAD_EXCEPTION_RATE = nullptr;
 DoubleGauge* ImpaladMetrics::CATALOG_CACHE_MISS_RATE = nullptr;
+DoubleGauge* ImpaladMetrics::CATALOG_CACHE_TABLE_HIT_RATE = nullptr;
+DoubleGauge* ImpaladMetrics::CATALOG_CACHE_PARTITION_HIT_RATE = nullptr;
+DoubleGauge* ImpaladMetrics::CATALOG_CACHE_COLUMN_STATS_HIT_RATE = nullptr;
 
 // Properties
 BooleanProperty* ImpaladMetrics::CATALOG_READY = nullptr;
@@ -207,6 +218,7 @@ StringProperty* ImpaladMetrics::CATALOG_SERVICE_ID = nullptr;
 // Histograms
 HistogramMetric* ImpaladMetrics::QUERY_DURATIONS = nullptr;
 HistogramMetric* ImpaladMetrics::DDL_DURATIONS = nullptr;
+HistogramMetric* ImpaladMetrics::CATALOG_UPDATE_APPLY_DURATIONS = nullptr;
 
 // Other
 StatsMetric<uint64_t, StatsType::MEAN>*
@@ -227,6 +239,10 @@ void ImpaladMetrics::InitCatalogMetrics(MetricGroup* m) {
       catalog_metrics->AddProperty<string>(ImpaladMetricKeys::CATALOG_SERVICE_ID, "");
   CATALOG_READY =
       catalog_metrics->AddProperty<bool>(ImpaladMetricKeys::CATALOG_READY, false);
+  const int ONE_HOUR_IN_MS = 60 * 60 * 1000;
+  CATALOG_UPDATE_APPLY_DURATIONS = catalog_metrics->RegisterMetric(new HistogramMetric(
+      MetricDefs::Get(ImpaladMetricKeys::CATALOG_UPDATE_APPLY_DURATIONS), ONE_HOUR_IN_MS,
+      3));
   // CatalogdMetaProvider cache metrics. Valid only when --use_local_catalog is set.
   if (FLAGS_use_local_catalog) {
     CATALOG_CACHE_AVG_LOAD_TIME = catalog_metrics->AddDoubleGauge(
@@ -253,6 +269,12 @@ void ImpaladMetrics::InitCatalogMetrics(MetricGroup* m) {
         catalog_metrics->AddCounter(ImpaladMetricKeys::CATALOG_CACHE_REQUEST_COUNT, 0);
     CATALOG_CACHE_TOTAL_LOAD_TIME =
         catalog_metrics->AddCounter(ImpaladMetricKeys::CATALOG_CACHE_TOTAL_LOAD_TIME, 0);
+    CATALOG_CACHE_TABLE_HIT_RATE = catalog_metrics->AddDoubleGauge(
+        ImpaladMetricKeys::CATALOG_CACHE_TABLE_HIT_RATE, 0);
+    CATALOG_CACHE_PARTITION_HIT_RATE = catalog_metrics->AddDoubleGauge(
+        ImpaladMetricKeys::CATALOG_CACHE_PARTITION_HIT_RATE, 0);
+    CATALOG_CACHE_COLUMN_STATS_HIT_RATE = catalog_metrics->AddDoubleGauge(
+        ImpaladMetricKeys::CATALOG_CACHE_COLUMN_STATS_HIT_RATE, 0);
   }
 }
 
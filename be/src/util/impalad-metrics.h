@@ -129,6 +129,9 @@ class ImpaladMetricKeys {
   /// Number of tables in the catalog
   static const char* CATALOG_NUM_TABLES;
 
+  /// Time spent applying catalog topic updates to the catalog cache.
+  static const char* CATALOG_UPDATE_APPLY_DURATIONS;
+
   /// True if the impalad catalog is ready (has received a valid catalog-update topic
   /// entry from the state store). Reset to false while recovering from an invalid
   /// catalog state, such as detecting a catalog-update topic entry originating from
@@ -176,6 +179,12 @@ class ImpaladMetricKeys {
   /// Total time spent in Impalad Catalog cache loading new values.
   static const char* CATALOG_CACHE_TOTAL_LOAD_TIME;
 
+  /// Ratios of Impalad Catalog cache requests for table, partition and column stats
+  /// entries that were hits. Accounts for all the requests since the process boot time.
+  static const char* CATALOG_CACHE_TABLE_HIT_RATE;
+  static const char* CATALOG_CACHE_PARTITION_HIT_RATE;
+  static const char* CATALOG_CACHE_COLUMN_STATS_HIT_RATE;
+
   /// Number of files open for insert
   static const char* NUM_FILES_OPEN_FOR_INSERT;
 
@@ -267,6 +276,9 @@ class ImpaladMetrics {
   static DoubleGauge* CATALOG_CACHE_HIT_RATE;
   static DoubleGauge* CATALOG_CACHE_LOAD_EXCEPTION_RATE;
   static DoubleGauge* CATALOG_CACHE_MISS_RATE;
+  static DoubleGauge* CATALOG_CACHE_TABLE_HIT_RATE;
+  static DoubleGauge* CATALOG_CACHE_PARTITION_HIT_RATE;
+  static DoubleGauge* CATALOG_CACHE_COLUMN_STATS_HIT_RATE;
   static IntGauge* IMPALA_SERVER_NUM_OPEN_BEESWAX_SESSIONS;
   static IntGauge* IMPALA_SERVER_NUM_OPEN_HS2_SESSIONS;
   static MetricGroup* IO_MGR_METRICS;
@@ -291,6 +303,7 @@ class ImpaladMetrics {
   // Histograms
   static HistogramMetric* QUERY_DURATIONS;
   static HistogramMetric* DDL_DURATIONS;
+  static HistogramMetric* CATALOG_UPDATE_APPLY_DURATIONS;
 
   // Other
   static StatsMetric<uint64_t, StatsType::MEAN>* IO_MGR_CACHED_FILE_HANDLES_HIT_RATIO;
@@ -147,4 +147,34 @@ struct TBackendGflags {
   61: required bool mt_dop_auto_fallback
 
   62: required i32 num_expected_executors
+
+  63: required string catalog_snapshot_dir
+
+  64: required i32 catalog_snapshot_interval_s
+
+  65: required bool skip_unchanged_dirs_on_refresh
+
+  66: required i32 max_hdfs_file_listing_threads
+
+  67: required i32 max_nonhdfs_file_listing_threads
+
+  68: required bool store_file_descriptors_off_heap
+
+  69: required i32 num_catalog_update_threads
+
+  70: required i32 max_hms_partition_fetch_threads
+
+  71: required i32 max_total_hms_partition_fetch_threads
+
+  72: required i32 hms_event_processing_threads
+
+  73: required string invalidate_tables_eviction_policy
+
+  74: required string local_catalog_cache_capacity_split
+
+  75: required i32 catalog_partial_fetch_rpc_max_queue_len
+
+  76: required i32 local_catalog_fetch_overload_timeout_ms
+
+  77: required i32 query_plan_cache_capacity
 }
@@ -41,6 +41,9 @@ enum TCatalogObjectType {
   HDFS_CACHE_POOL = 9
   // A catalog object type as a marker for authorization cache invalidation.
   AUTHZ_CACHE_INVALIDATION = 10
+  // A partition of an HDFS table, published separately from its table in the catalog
+  // topic. See THdfsTable.partition_versions.
+  HDFS_PARTITION = 11
 }
 
 enum TTableType {
@@ -167,6 +170,17 @@ struct TColumnStats {
 
   // Estimated number of null values.
   4: required i64 num_nulls
+
+  // Upper bounds of the buckets of an equi-height histogram over the non-null values of
+  // a numeric column, as produced by the histogram() builtin. Each bucket holds the
+  // same number of values. Only set if the histogram was computed.
+  5: optional string histogram
+
+  // Smallest and largest non-null value of a numeric, DECIMAL or DATE column, as loaded
+  // from the HMS column stats. DATE values are given as days since the epoch. Not set
+  // if unknown.
+  6: optional double min_value
+  7: optional double max_value
 }
 
 // Intermediate state for the computation of per-column stats. Impala can aggregate these
@@ -315,6 +329,10 @@ struct THdfsPartition {
 
   // For acid table, store last committed write id.
   20: optional i64 write_id
+
+  // The version of this partition, changed whenever its metadata changes. Set by the
+  // catalogd when sending a table in a catalog update.
+  21: optional i64 version
 }
 
 // Constant partition ID used for THdfsPartition.prototype_partition below.
@@ -371,6 +389,25 @@ struct THdfsTable {
 
   // Foreign Keys information for HDFS Tables
   12: optional list<hive_metastore.SQLForeignKey> foreign_keys
+
+  // Map from partition id to partition version of all partitions of the table. Only
+  // set in catalog topic updates. If set, 'partitions' is empty and each partition is
+  // published as a separate HDFS_PARTITION object (TCatalogHdfsPartition), which is only
+  // resent when its version changes.
+  13: optional map<i64, i64> partition_versions
+}
+
+// A partition of an HDFS table, published as a separate HDFS_PARTITION object in the
+// catalog topic. See THdfsTable.partition_versions.
+struct TCatalogHdfsPartition {
+  1: required string db_name
+  2: required string tbl_name
+
+  // The id of the partition.
+  3: required i64 id
+
+  // Not set if the partition is deleted from the topic.
+  4: optional THdfsPartition partition
 }
 
 struct THBaseTable {
@@ -667,4 +704,7 @@ struct TCatalogObject {
 
   // Set iff object type is AUTHZ_CACHE_INVALIDATION
   11: optional TAuthzCacheInvalidation authz_cache_invalidation
+
+  // Set iff object type is HDFS_PARTITION
+  12: optional TCatalogHdfsPartition hdfs_partition
 }
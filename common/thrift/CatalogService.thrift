@@ -324,6 +324,18 @@ struct TTableInfoSelector {
   // ... each partition should include the partition stats serialized as a byte[]
   // and that is deflate-compressed.
   7: bool want_partition_stats
+
+  // Versions of the requested partitions already known to the caller, keyed by
+  // partition ID (see TPartialPartitionInfo.version). Requested partitions whose
+  // version is unchanged are not returned in TPartialTableInfo.partitions, their IDs are
+  // returned in TPartialTableInfo.unchanged_partition_ids instead. Only used if
+  // 'partition_ids' is set.
+  8: optional map<i64, i64> known_partition_versions
+
+  // If true, the response should include stats for all columns of the table, as if
+  // all of them were listed in 'want_stats_for_column_names'. Used by callers that do
+  // not know the columns of the table yet, e.g. in a batched request.
+  9: bool want_stats_for_all_columns
 }
 
 // Returned information about a particular partition.
@@ -349,6 +361,10 @@ struct TPartialPartitionInfo {
   // TTableInfoSelector. Incremental stats data can be fetched by setting
   // 'want_partition_stats' in TTableInfoSelector.
   6: optional bool has_incremental_stats
+
+  // Version of the partition's metadata. Changes whenever the metadata of the partition
+  // changes in the catalogd, independently of the version of the table.
+  7: optional i64 version
 }
 
 // Returned information about a Table, as selected by TTableInfoSelector.
@@ -358,7 +374,8 @@ struct TPartialTableInfo {
   // The partition metadata for the requested partitions.
   //
   // If explicit partitions were passed, then it is guaranteed that this list
-  // is the same size and the same order as the requested list of IDs.
+  // is the same order as the requested list of IDs and contains all of them, except
+  // those in 'unchanged_partition_ids'.
   //
   // See TPartialPartitionInfo for details on which fields will be set based
   // on the caller-provided selector.
@@ -375,6 +392,11 @@ struct TPartialTableInfo {
   // than duplicate the list of network address, which helps reduce memory usage.
   // Only used when partition files are fetched.
   7: optional list<Types.TNetworkAddress> network_addresses
+
+  // IDs of the requested partitions whose version matched the one passed in
+  // TTableInfoSelector.known_partition_versions. These are not included in
+  // 'partitions'.
+  8: optional list<i64> unchanged_partition_ids
 }
 
 // Selector for partial information about a Database.
@@ -396,6 +418,16 @@ struct TPartialDbInfo {
   3: optional list<string> function_names
 }
 
+// Priority class of a GetPartialCatalogObject request. When catalogd has to queue partial
+// fetches, it admits the queued PLANNING requests before the PREFETCH requests.
+enum TPartialFetchPriority {
+  // The request fetches metadata that the planning of a query is blocked on.
+  PLANNING,
+  // The request fetches metadata ahead of time that may or may not be used later. The
+  // caller falls back to fetching the metadata with a PLANNING request if it fails.
+  PREFETCH
+}
+
 // RPC request for GetPartialCatalogObject.
 struct TGetPartialCatalogObjectRequest {
   1: required CatalogServiceVersion protocol_version = CatalogServiceVersion.V1
@@ -408,6 +440,18 @@ struct TGetPartialCatalogObjectRequest {
   3: optional TTableInfoSelector table_info_selector
   4: optional TDbInfoSelector db_info_selector
   5: optional TCatalogInfoSelector catalog_info_selector
+
+  6: optional TPartialFetchPriority priority = TPartialFetchPriority.PLANNING
+
+  // Identifies the coordinator that sent the request. Catalogd shares the partial fetch
+  // capacity fairly between the coordinators with queued requests.
+  7: optional string requester
+
+  // Maximum time in milliseconds the request may wait in catalogd's queue of partial
+  // fetches. If catalogd does not expect to admit the request within this time, it
+  // rejects it right away with lookup status CATALOG_OVERLOADED. The time is relative
+  // so that it does not depend on the clocks of the hosts being in sync.
+  8: optional i64 queue_timeout_ms
 }
 
 enum CatalogLookupStatus {
@@ -420,7 +464,11 @@ enum CatalogLookupStatus {
   // change over the lifetime of a table with queries like invalidate metadata. In such
   // cases this lookup status is set and the caller can retry the fetch.
   // TODO: Fix partition lookup logic to not do it with IDs.
-  PARTITION_NOT_FOUND
+  PARTITION_NOT_FOUND,
+  // Catalogd rejected the request without serving it because too many partial fetches
+  // were queued, or because it could not admit the request within its queue timeout.
+  // The caller may retry the request after backing off, see retry_after_ms.
+  CATALOG_OVERLOADED
 }
 
 // RPC response for GetPartialCatalogObject.
@@ -439,6 +487,30 @@ struct TGetPartialCatalogObjectResponse {
 
   // Functions are small enough that we return them wholesale.
   7: optional list<Types.TFunction> functions
+
+  // Set if lookup_status is CATALOG_OVERLOADED to the time in milliseconds that catalogd
+  // expects the queued partial fetches to take to drain.
+  8: optional i64 retry_after_ms
+}
+
+// RPC request for GetPartialCatalogObjects. Batches several GetPartialCatalogObject
+// requests into a single round-trip, e.g. to fetch all tables referenced by a
+// statement at once.
+struct TGetPartialCatalogObjectsRequest {
+  1: required CatalogServiceVersion protocol_version = CatalogServiceVersion.V1
+
+  2: required list<TGetPartialCatalogObjectRequest> requests
+}
+
+// RPC response for GetPartialCatalogObjects.
+struct TGetPartialCatalogObjectsResponse {
+  // The status of the operation as a whole, OK if the operation was successful.
+  // Unset indicates "OK". The status of the individual requests is set in their
+  // responses.
+  1: optional Status.TStatus status
+
+  // The responses to the batched requests, in the same order.
+  2: optional list<TGetPartialCatalogObjectResponse> responses
 }
 
 
@@ -568,6 +640,10 @@ service CatalogService {
   TGetPartialCatalogObjectResponse GetPartialCatalogObject(
       1: TGetPartialCatalogObjectRequest req);
 
+  // Fetch partial information about several objects in the catalog at once.
+  TGetPartialCatalogObjectsResponse GetPartialCatalogObjects(
+      1: TGetPartialCatalogObjectsRequest req);
+
   // Update recently used tables and their usage counts in an impalad since the last
   // report.
   TUpdateTableUsageResponse UpdateTableUsage(1: TUpdateTableUsageRequest req);
@@ -116,6 +116,10 @@ struct TGetCatalogMetricsResult {
   12: optional double cache_hit_rate
   13: optional double cache_load_exception_rate
   14: optional double cache_miss_rate
+  // Hit rates of the kinds of cache entries, see MetadataCache.Kind.
+  15: optional double cache_table_hit_rate
+  16: optional double cache_partition_hit_rate
+  17: optional double cache_column_stats_hit_rate
 }
 
 // Arguments to getDbs, which returns a list of dbs that match an optional pattern
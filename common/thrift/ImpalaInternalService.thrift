@@ -407,6 +407,15 @@ struct TQueryOptions {
   // See comment in ImpalaService.thrift
   // The default value is set to 32 GB
   98: optional i64 broadcast_bytes_limit = 34359738368;
+
+  // See comment in ImpalaService.thrift
+  99: optional bool compute_column_histograms = false;
+
+  // See comment in ImpalaService.thrift
+  100: optional i32 join_order_dp_threshold = 0;
+
+  // See comment in ImpalaService.thrift
+  101: optional bool prune_scans_with_min_max_stats = false;
 }
 
 // Impala currently has two types of sessions: Beeswax and HiveServer2
@@ -503,6 +503,25 @@ enum TImpalaQueryOptions {
   // exchange will exceed this limit, it will not consider a broadcast and instead
   // fall back on a hash partition exchange. 0 or -1 means this has no effect.
   BROADCAST_BYTES_LIMIT = 97
+
+  // If true, COMPUTE STATS also builds an equi-height histogram for each numeric column
+  // and stores it with the column stats. The planner uses the histograms to estimate
+  // the selectivity of range and equality predicates on skewed columns.
+  COMPUTE_COLUMN_HISTOGRAMS = 98
+
+  // Maximum number of tables in a join block for which the planner searches for the
+  // cheapest join order with dynamic programming, also considering bushy join trees.
+  // Larger join blocks and join blocks with outer, semi or hinted joins are ordered
+  // with the greedy heuristic. 0 disables the search. Valid values are in [0, 12].
+  JOIN_ORDER_DP_THRESHOLD = 99
+
+  // If true, the planner replaces the scan of a table with an empty result if one of
+  // the scan's conjuncts compares a column with a constant that lies outside of the
+  // column's min/max values in the table's column stats. Only enable this if the column
+  // stats are up to date, since rows that were added after the stats were computed
+  // may be dropped from the query result otherwise. Only if this is set do equality and
+  // IN predicates with such constants get selectivity 0 in cardinality estimates.
+  PRUNE_SCANS_WITH_MIN_MAX_STATS = 100
 }
 
 // The summary of a DML statement.
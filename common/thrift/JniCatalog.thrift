@@ -788,6 +788,17 @@ struct TCommentOnParams {
   4: optional TColumnName column_name
 }
 
+// Metrics of one of the threads applying metastore events of different tables in
+// parallel.
+struct TEventProcessorWorkerMetrics {
+  // Number of events assigned to the worker that were not applied yet
+  1: required i32 queue_depth
+
+  // Time in sec since the oldest event not yet applied by the worker was generated, or
+  // 0 if there is none
+  2: required i64 lag_s
+}
+
 struct TEventProcessorMetrics {
   // status of event processor
   1: required string status
@@ -818,6 +829,29 @@ struct TEventProcessorMetrics {
 
   // Last metastore event id that the catalog server synced to
   10: optional i64 last_synced_event_id
+
+  // Number of events in the metastore with an id above last_synced_event_id, as of the
+  // last poll
+  11: optional i64 events_lag
+
+  // Metrics of the threads applying events, see TEventProcessorWorkerMetrics
+  12: optional list<TEventProcessorWorkerMetrics> worker_metrics
+
+  // Total number of partition events merged into batch events so far
+  13: optional i64 events_merged
+
+  // Total number of self-events skipped so far
+  14: optional i64 self_events_skipped
+}
+
+// Summary of a histogram of latencies since startup, see LatencyHistogram.java.
+struct TLatencyHistogram {
+  1: required i64 count
+  2: required i64 total_ns
+  3: required i64 p50_ns
+  4: required i64 p95_ns
+  5: required i64 p99_ns
+  6: required i64 max_ns
 }
 
 // Response to GetCatalogServerMetrics() call.
@@ -827,6 +861,54 @@ struct TGetCatalogServerMetricsResponse {
 
   // gets the events processor metrics if configured
   2: optional TEventProcessorMetrics event_metrics;
+
+  // Number of file listing tasks waiting for a thread.
+  3: required i32 file_listing_queue_len
+
+  // Number of file listing tasks started since startup.
+  4: required i64 file_listing_num_tasks
+
+  // Total time file listing tasks spent waiting for a thread since startup.
+  5: required i64 file_listing_total_wait_time_ns
+
+  // Number of items in the last catalog topic update.
+  6: required i64 topic_update_num_items
+
+  // Serialized size, before compression, of the last catalog topic update.
+  7: required i64 topic_update_bytes
+
+  // Total serialized size of all catalog topic updates since startup.
+  8: required i64 topic_update_total_bytes
+
+  // Number of partitions left out of catalog topic updates since startup because
+  // they did not change since they were last sent.
+  9: required i64 topic_update_partitions_skipped
+
+  // Estimated metadata size of the tables invalidated by the last round of automatic
+  // invalidations which invalidated any table, and of all rounds since startup.
+  10: required i64 table_invalidator_last_round_bytes_freed
+  11: required i64 table_invalidator_total_bytes_freed
+
+  // Number of tables automatically invalidated since startup.
+  12: required i64 table_invalidator_num_tables_invalidated
+
+  // Time spent waiting for the read and the write lock of the catalog version lock.
+  13: required TLatencyHistogram version_lock_read_waits
+  14: required TLatencyHistogram version_lock_write_waits
+
+  // End-to-end latency, including the time spent queued, of the partial fetches of
+  // each type of catalog object that catalogd served.
+  15: required TLatencyHistogram partial_fetch_table_latency
+  16: required TLatencyHistogram partial_fetch_db_latency
+  17: required TLatencyHistogram partial_fetch_catalog_latency
+  18: required TLatencyHistogram partial_fetch_function_latency
+
+  // Time partial fetches of each priority class waited to be admitted.
+  19: required TLatencyHistogram partial_fetch_planning_queue_waits
+  20: required TLatencyHistogram partial_fetch_prefetch_queue_waits
+
+  // Number of partial fetches rejected since startup because catalogd was overloaded.
+  21: required i64 partial_fetch_num_rejected
 }
 
 // Request to copy the generated testcase from a given input path.
@@ -839,3 +921,13 @@ struct TEventProcessorMetricsSummaryResponse {
   // metrics and other details
   1: required string summary
 }
+
+// One table entry of an on-disk catalogd metadata snapshot (see CatalogSnapshot.java).
+struct TCatalogSnapshotTable {
+  // Full thrift representation of the table, as produced by Table.toThrift().
+  1: required CatalogObjects.TTable table
+
+  // HMS representation of each partition of an HDFS table, keyed by the partition id
+  // used in 'table'. Not set for unpartitioned tables.
+  2: optional map<i64, hive_metastore.Partition> hms_partitions
+}
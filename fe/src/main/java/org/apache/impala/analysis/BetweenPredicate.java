@@ -83,6 +83,23 @@ public class BetweenPredicate extends Predicate {
     } else {
       analyzer.castAllToCompatibleType(children_);
     }
+
+    // Estimate the selectivity from the histogram or the min/max stats of the compared
+    // column, if any.
+    SlotRef slotRef = getChild(0).unwrapSlotRef(false);
+    Double lowerBound = getStatsValue(getChild(1));
+    Double upperBound = getStatsValue(getChild(2));
+    if (slotRef != null && lowerBound != null && upperBound != null) {
+      double upperFraction = getLessFraction(slotRef, upperBound, true);
+      double lowerFraction = getLessFraction(slotRef, lowerBound, false);
+      if (upperFraction >= 0 && lowerFraction >= 0) {
+        selectivity_ = Math.max(0, upperFraction - lowerFraction);
+        // NULL values are neither between nor not between the bounds.
+        if (isNotBetween_) {
+          selectivity_ = Math.max(0, getNonNullFraction(slotRef) - selectivity_);
+        }
+      }
+    }
   }
 
   @Override
@@ -21,8 +21,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.impala.catalog.ColumnHistogram;
+import org.apache.impala.catalog.ColumnStats;
 import org.apache.impala.catalog.Db;
 import org.apache.impala.catalog.Function.CompareMode;
+import org.apache.impala.catalog.PrimitiveType;
 import org.apache.impala.catalog.ScalarFunction;
 import org.apache.impala.catalog.Type;
 import org.apache.impala.common.AnalysisException;
@@ -212,7 +215,6 @@ public class BinaryPredicate extends Predicate {
 
     // Determine selectivity
     // TODO: Compute selectivity for nested predicates.
-    // TODO: Improve estimation using histograms.
     Reference<SlotRef> slotRefRef = new Reference<SlotRef>();
     if ((op_ == Operator.EQ || op_ == Operator.NOT_DISTINCT)
         && isSingleColumnPredicate(slotRefRef, null)) {
@@ -222,6 +224,145 @@ public class BinaryPredicate extends Predicate {
         selectivity_ = Math.max(0, Math.min(1, selectivity_));
       }
     }
+    computeStatsSelectivity(
+        analyzer.getQueryOptions().isPrune_scans_with_min_max_stats());
+  }
+
+  /**
+   * If this predicate compares a column that has a histogram or min/max stats with a
+   * numeric or DATE literal, e.g. 'c < 10' or '10 >= c', returns the operator of the
+   * comparison with the column on the left-hand side and sets 'slotRefRef' to the
+   * column and 'valueRef' to the value of the literal. Returns null otherwise.
+   */
+  private Operator getRangeComparison(Reference<SlotRef> slotRefRef,
+      Reference<Double> valueRef) {
+    switch (op_) {
+      case EQ: case NOT_DISTINCT: case LT: case LE: case GT: case GE: break;
+      default: return null;
+    }
+    Reference<Integer> idxRef = new Reference<Integer>();
+    if (!isSingleColumnPredicate(slotRefRef, idxRef)) return null;
+    SlotRef slotRef = slotRefRef.getRef();
+    if (getHistogram(slotRef) == null && getMinMaxStats(slotRef) == null) return null;
+    Double value = getStatsValue(getChild(1 - idxRef.getRef()));
+    if (value == null) return null;
+    valueRef.setRef(value);
+    return idxRef.getRef() == 0 ? op_ : op_.converse();
+  }
+
+  /**
+   * Updates the selectivity of this predicate based on the histogram or the min/max
+   * stats of the compared column, if there are any. For equality predicates the
+   * histogram only improves on the NDV-based estimate for frequent values. Comparisons
+   * with a value outside of the min/max values only have selectivity 0 if
+   * 'trustMinMaxStats' is true, since the stats may predate the value being added.
+   * Otherwise range comparisons are estimated to match at least one distinct value.
+   */
+  private void computeStatsSelectivity(boolean trustMinMaxStats) {
+    Reference<SlotRef> slotRefRef = new Reference<SlotRef>();
+    Reference<Double> valueRef = new Reference<Double>();
+    Operator op = getRangeComparison(slotRefRef, valueRef);
+    if (op == null) return;
+    SlotRef slotRef = slotRefRef.getRef();
+    double value = valueRef.getRef();
+    switch (op) {
+      case EQ:
+      case NOT_DISTINCT:
+        ColumnStats stats = getMinMaxStats(slotRef);
+        if (trustMinMaxStats && stats != null
+            && (value < stats.getMinValue() || value > stats.getMaxValue())) {
+          selectivity_ = 0;
+          break;
+        }
+        ColumnHistogram histogram = getHistogram(slotRef);
+        double equalFraction = histogram == null ? 0 :
+            getNonNullFraction(slotRef) * histogram.getEqualFraction(value);
+        if (equalFraction > 0 && equalFraction > selectivity_) {
+          selectivity_ = equalFraction;
+        }
+        break;
+      case LT: selectivity_ = getLessFraction(slotRef, value, false); break;
+      case LE: selectivity_ = getLessFraction(slotRef, value, true); break;
+      // NULL values are neither less nor greater than 'value'.
+      case GT:
+        selectivity_ = Math.max(0,
+            getNonNullFraction(slotRef) - getLessFraction(slotRef, value, true));
+        break;
+      case GE:
+        selectivity_ = Math.max(0,
+            getNonNullFraction(slotRef) - getLessFraction(slotRef, value, false));
+        break;
+      default: Preconditions.checkState(false, op);
+    }
+    if (trustMinMaxStats || op.isEquivalence()) return;
+    long distinctValues = slotRef.getNumDistinctValues();
+    if (distinctValues > 0) {
+      selectivity_ = Math.max(selectivity_, 1.0 / distinctValues);
+    } else if (selectivity_ == 0) {
+      // Without an NDV there is no better estimate than the default one.
+      selectivity_ = -1;
+    }
+  }
+
+  /**
+   * Returns true if this predicate compares a column with a constant that lies outside
+   * of the min/max values in the column stats, e.g. 'c > 10' if the largest value of
+   * 'c' is 5. If the stats are accurate, such a predicate is false for all rows.
+   */
+  public boolean contradictsMinMaxStats() {
+    Reference<SlotRef> slotRefRef = new Reference<SlotRef>();
+    Reference<Double> valueRef = new Reference<Double>();
+    Operator op = getRangeComparison(slotRefRef, valueRef);
+    if (op == null) return false;
+    SlotRef slotRef = slotRefRef.getRef();
+    // Explicit casts may not preserve the order of values. Comparisons of FLOAT values
+    // round the constant, which is not reflected in 'valueRef'.
+    if (getChild(0).unwrapSlotRef(true) != slotRef
+        && getChild(1).unwrapSlotRef(true) != slotRef) {
+      return false;
+    }
+    if (getChild(0).getType().getPrimitiveType() == PrimitiveType.FLOAT) return false;
+    ColumnStats stats = getMinMaxStats(slotRef);
+    if (stats == null) return false;
+    double value = valueRef.getRef();
+    // The min/max values of BIGINT and DECIMAL columns and the constant may have been
+    // rounded in the conversion to double, so only strict comparisons are conclusive.
+    switch (op) {
+      case EQ:
+      case NOT_DISTINCT:
+        return value < stats.getMinValue() || value > stats.getMaxValue();
+      case LT: case LE: return value < stats.getMinValue();
+      case GT: case GE: return value > stats.getMaxValue();
+      default: return false;
+    }
+  }
+
+  /**
+   * Returns the selectivity of the conjunction of 'e1' and 'e2' if both are range
+   * predicates that bound the same column from opposite sides based on its stats,
+   * e.g. 'c >= 10 AND c <= 20' as produced by rewriting 'c BETWEEN 10 AND 20'.
+   * Returns -1 otherwise. Unlike the product of the selectivities, this accounts for
+   * the two predicates being correlated.
+   */
+  public static double computeRangeSelectivity(Expr e1, Expr e2) {
+    if (!(e1 instanceof BinaryPredicate) || !(e2 instanceof BinaryPredicate)) return -1;
+    Reference<SlotRef> slotRef1 = new Reference<SlotRef>();
+    Reference<SlotRef> slotRef2 = new Reference<SlotRef>();
+    Reference<Double> valueRef = new Reference<Double>();
+    Operator op1 = ((BinaryPredicate) e1).getRangeComparison(slotRef1, valueRef);
+    Operator op2 = ((BinaryPredicate) e2).getRangeComparison(slotRef2, valueRef);
+    if (op1 == null || op2 == null || op1.isEquivalence() || op2.isEquivalence()) {
+      return -1;
+    }
+    if (!slotRef1.getRef().getSlotId().equals(slotRef2.getRef().getSlotId())) return -1;
+    boolean isLowerBound1 = op1 == Operator.GT || op1 == Operator.GE;
+    boolean isLowerBound2 = op2 == Operator.GT || op2 == Operator.GE;
+    if (isLowerBound1 == isLowerBound2) return -1;
+    // The fraction of values above the lower bound plus the fraction of values below
+    // the upper bound counts the values in between twice and all other non-null values
+    // once.
+    double nonNullFraction = getNonNullFraction(slotRef1.getRef());
+    return Math.max(0, e1.getSelectivity() + e2.getSelectivity() - nonNullFraction);
   }
 
   @Override
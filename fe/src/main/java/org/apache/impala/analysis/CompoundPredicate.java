@@ -143,7 +143,10 @@ public class CompoundPredicate extends Predicate {
 
     switch (op_) {
       case AND:
-        selectivity_ = getChild(0).selectivity_ * getChild(1).selectivity_;
+        selectivity_ = BinaryPredicate.computeRangeSelectivity(getChild(0), getChild(1));
+        if (selectivity_ < 0) {
+          selectivity_ = getChild(0).selectivity_ * getChild(1).selectivity_;
+        }
         break;
       case OR:
         selectivity_ = getChild(0).selectivity_ + getChild(1).selectivity_
@@ -285,11 +285,28 @@ public class ComputeStatsStmt extends StatementBase {
       if (isIncremental_) {
         // Need the count in order to properly combine per-partition column stats
         columnStatsSelectList.add("COUNT(" + colRefSql + ")");
+      } else {
+        columnStatsSelectList.add(getHistogramSql(analyzer, colRefSql, type));
       }
     }
     return columnStatsSelectList;
   }
 
+  /**
+   * Returns the select list item that computes the histogram of a column, or a NULL
+   * STRING if no histogram should be computed for it. Histograms are only computed for
+   * numeric columns and only if the COMPUTE_COLUMN_HISTOGRAMS query option is set.
+   * DECIMAL values are cast to DOUBLE because histogram() prints them unscaled.
+   */
+  private String getHistogramSql(Analyzer analyzer, String colRefSql, Type type) {
+    if (!analyzer.getQueryOptions().isCompute_column_histograms()
+        || !type.isNumericType()) {
+      return "CAST(NULL AS STRING)";
+    }
+    if (type.isDecimal()) return "HISTOGRAM(CAST(" + colRefSql + " AS DOUBLE))";
+    return "HISTOGRAM(" + colRefSql + ")";
+  }
+
   /**
    * Constructs two SQL queries for computing the row-count and column statistics and
    * sets them in 'tableStatsQueryStr_' and 'columnStatsQueryStr_', respectively.
@@ -303,9 +320,13 @@ public class ComputeStatsStmt extends StatementBase {
    *
    * 1.2 Column stats:
    * SELECT NDV(c1), CAST(-1 as typeof(c1)), MAX(length(c1)), AVG(length(c1)),
+   *        HISTOGRAM(c1),
    *        NDV(c2), CAST(-1 as typeof(c2)), MAX(length(c2)), AVG(length(c2)),
+   *        HISTOGRAM(c2),
    *        ...
    * FROM tbl
+   * HISTOGRAM() is replaced with a NULL STRING for non-numeric columns and if the
+   * COMPUTE_COLUMN_HISTOGRAMS query option is not set.
    *
    * 2. COMPUTE STATS with TABLESAMPLE
    * 2.1 Row counts:
@@ -314,7 +335,9 @@ public class ComputeStatsStmt extends StatementBase {
    *
    * 2.1 Column stats:
    * SELECT SAMPLED_NDV(c1, p), CAST(-1 as typeof(c1)), MAX(length(c1)), AVG(length(c1)),
+   *        HISTOGRAM(c1),
    *        SAMPLED_NDV(c2, p), CAST(-1 as typeof(c2)), MAX(length(c2)), AVG(length(c2)),
+   *        HISTOGRAM(c2),
    *        ...
    * FROM tbl TABLESAMPLE SYSTEM(<sample_perc>) REPEATABLE (<random_seed>)
    * SAMPLED_NDV() is a specialized aggregation function that estimates the NDV based on
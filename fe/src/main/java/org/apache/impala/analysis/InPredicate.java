@@ -19,6 +19,8 @@ package org.apache.impala.analysis;
 
 import java.util.List;
 
+import org.apache.impala.catalog.ColumnHistogram;
+import org.apache.impala.catalog.ColumnStats;
 import org.apache.impala.catalog.Db;
 import org.apache.impala.catalog.Function.CompareMode;
 import org.apache.impala.catalog.PrimitiveType;
@@ -176,15 +178,45 @@ public class InPredicate extends Predicate {
     Reference<Integer> idxRef = new Reference<Integer>();
     if (isSingleColumnPredicate(slotRefRef, idxRef) && idxRef.getRef() == 0
         && slotRefRef.getRef().getNumDistinctValues() > 0) {
-      if (isNotIn()) {
-        selectivity_ = 1.0 - ((double) (getChildren().size() - 1)
-            / (double) slotRefRef.getRef().getNumDistinctValues());
+      double inSelectivity = computeInSelectivity(slotRefRef.getRef(),
+          analyzer.getQueryOptions().isPrune_scans_with_min_max_stats());
+      selectivity_ = isNotIn() ? 1.0 - inSelectivity : inSelectivity;
+      selectivity_ = Math.max(0.0, Math.min(1.0, selectivity_));
+    }
+  }
+
+  /**
+   * Returns the selectivity of 'slotRef IN (<values>)'. Each value matches 1/NDV of the
+   * rows, unless the histogram of the column shows that it is a frequent value, or
+   * 'trustMinMaxStats' is true and the value lies outside of the min/max values of the
+   * column. Stale stats may not cover recently added values, see
+   * BinaryPredicate.computeStatsSelectivity().
+   */
+  private double computeInSelectivity(SlotRef slotRef, boolean trustMinMaxStats) {
+    double valueSelectivity = 1.0 / slotRef.getNumDistinctValues();
+    ColumnHistogram histogram = getHistogram(slotRef);
+    ColumnStats stats = trustMinMaxStats ? getMinMaxStats(slotRef) : null;
+    if (histogram == null && stats == null) {
+      return (getChildren().size() - 1) * valueSelectivity;
+    }
+    // The histogram only describes the non-null values.
+    double nonNullFraction = getNonNullFraction(slotRef);
+    double result = 0;
+    for (int i = 1; i < getChildren().size(); ++i) {
+      Double value = getStatsValue(getChild(i));
+      if (value == null) {
+        result += valueSelectivity;
+      } else if (stats != null
+          && (value < stats.getMinValue() || value > stats.getMaxValue())) {
+        continue;
+      } else if (histogram != null) {
+        result += Math.max(valueSelectivity,
+            nonNullFraction * histogram.getEqualFraction(value));
       } else {
-        selectivity_ = (double) (getChildren().size() - 1)
-            / (double) slotRefRef.getRef().getNumDistinctValues();
+        result += valueSelectivity;
       }
-      selectivity_ = Math.max(0.0, Math.min(1.0, selectivity_));
     }
+    return result;
   }
 
   @Override
@@ -17,6 +17,9 @@
 
 package org.apache.impala.analysis;
 
+import org.apache.impala.catalog.ColumnHistogram;
+import org.apache.impala.catalog.ColumnStats;
+import org.apache.impala.catalog.FeTable;
 import org.apache.impala.catalog.Type;
 import org.apache.impala.common.AnalysisException;
 import org.apache.impala.common.Pair;
@@ -47,6 +50,82 @@ public abstract class Predicate extends Expr {
     numDistinctValues_ = 3;
   }
 
+  /**
+   * Returns the histogram of the column referenced by 'slotRef', or null if the column
+   * is not numeric or has no histogram.
+   */
+  protected static ColumnHistogram getHistogram(SlotRef slotRef) {
+    if (!slotRef.getType().isNumericType() || slotRef.getDesc() == null) return null;
+    return slotRef.getDesc().getStats().getHistogram();
+  }
+
+  /**
+   * Returns the column stats of 'slotRef' if they contain its min and max values, or
+   * null otherwise.
+   */
+  protected static ColumnStats getMinMaxStats(SlotRef slotRef) {
+    if (slotRef.getDesc() == null) return null;
+    ColumnStats stats = slotRef.getDesc().getStats();
+    return stats.hasMinValue() && stats.hasMaxValue() ? stats : null;
+  }
+
+  /**
+   * Returns the value of 'expr' in the representation of the histograms and min/max
+   * values of column stats if it is a numeric or DATE literal, or null otherwise.
+   */
+  protected static Double getStatsValue(Expr expr) {
+    if (expr instanceof NumericLiteral) return ((NumericLiteral) expr).getDoubleValue();
+    if (expr instanceof DateLiteral) return (double) ((DateLiteral) expr).getValue();
+    return null;
+  }
+
+  /**
+   * Returns the estimated fraction of the rows in which 'slotRef' is not NULL, based on
+   * the number of NULLs in its column stats and the number of rows of its table. The
+   * histogram and the min/max values only describe the non-null values, so fractions
+   * derived from them must be scaled by this. Returns 1 if either number is unknown.
+   */
+  protected static double getNonNullFraction(SlotRef slotRef) {
+    SlotDescriptor slotDesc = slotRef.getDesc();
+    if (slotDesc == null || !slotDesc.getStats().hasNulls()) return 1;
+    FeTable table = slotDesc.getParent().getTable();
+    if (table == null || table.getNumRows() <= 0) return 1;
+    double numNulls = slotDesc.getStats().getNumNulls();
+    return Math.max(0, 1 - numNulls / table.getNumRows());
+  }
+
+  /**
+   * Returns the estimated fraction of the rows in which 'slotRef' is less than 'value',
+   * or less than or equal to 'value' if 'inclusive' is true. Rows in which 'slotRef' is
+   * NULL never qualify. Returns -1 if neither the histogram nor the min/max values of
+   * the column are known, see getNonNullLessFraction().
+   */
+  protected static double getLessFraction(SlotRef slotRef, double value,
+      boolean inclusive) {
+    double fraction = getNonNullLessFraction(slotRef, value, inclusive);
+    return fraction < 0 ? -1 : getNonNullFraction(slotRef) * fraction;
+  }
+
+  /**
+   * Returns the estimated fraction of the non-null values of 'slotRef' that are less
+   * than 'value', or less than or equal to 'value' if 'inclusive' is true. Uses the
+   * histogram of the column if there is one, and otherwise assumes that the values are
+   * uniformly distributed between the min and max values of the column. Returns -1 if
+   * neither is known.
+   */
+  private static double getNonNullLessFraction(SlotRef slotRef, double value,
+      boolean inclusive) {
+    ColumnHistogram histogram = getHistogram(slotRef);
+    if (histogram != null) return histogram.getLessFraction(value, inclusive);
+    ColumnStats stats = getMinMaxStats(slotRef);
+    if (stats == null) return -1;
+    double minValue = stats.getMinValue();
+    double maxValue = stats.getMaxValue();
+    if (value < minValue || (value == minValue && !inclusive)) return 0;
+    if (value > maxValue || (value == maxValue && inclusive)) return 1;
+    return (value - minValue) / (maxValue - minValue);
+  }
+
   /**
    * Returns true if one of the children is a slotref (possibly wrapped in a cast)
    * and the other children are all constant. Returns the slotref in 'slotRef' and
@@ -79,8 +79,7 @@ public class StringLiteral extends LiteralExpr {
   @Override
   protected void toThrift(TExprNode msg) {
     msg.node_type = TExprNodeType.STRING_LITERAL;
-    String val = (needsUnescaping_) ? getUnescapedValue() : value_;
-    msg.string_literal = new TStringLiteral(val);
+    msg.string_literal = new TStringLiteral(getBackendValue());
   }
 
   /**
@@ -89,6 +88,13 @@ public class StringLiteral extends LiteralExpr {
    */
   public String getValueWithOriginalEscapes() { return value_; }
 
+  /**
+   * Returns the value that is sent to the backend in toThrift().
+   */
+  public String getBackendValue() {
+    return needsUnescaping_ ? getUnescapedValue() : value_;
+  }
+
   public String getUnescapedValue() {
     // Unescape string exactly like Hive does. Hive's method assumes
     // quotes so we add them here to reuse Hive's code.
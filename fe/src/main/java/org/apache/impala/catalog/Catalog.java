@@ -38,6 +38,7 @@ import org.apache.impala.common.TransactionException;
 import org.apache.impala.common.TransactionKeepalive;
 import org.apache.impala.common.TransactionKeepalive.HeartbeatContext;
 import org.apache.impala.compat.MetastoreShim;
+import org.apache.impala.thrift.TCatalogHdfsPartition;
 import org.apache.impala.thrift.TCatalogObject;
 import org.apache.impala.thrift.TFunction;
 import org.apache.impala.thrift.TPartitionKeyValue;
@@ -623,6 +624,10 @@ public abstract class Catalog implements AutoCloseable {
         TTable tbl = catalogObject.getTable();
         return "TABLE:" + tbl.getDb_name().toLowerCase() + "." +
             tbl.getTbl_name().toLowerCase();
+      case HDFS_PARTITION:
+        TCatalogHdfsPartition part = catalogObject.getHdfs_partition();
+        return "HDFS_PARTITION:" + part.getDb_name().toLowerCase() + "." +
+            part.getTbl_name().toLowerCase() + ":" + part.getId();
       case FUNCTION:
         return "FUNCTION:" + catalogObject.getFn().getName() + "(" +
             catalogObject.getFn().getSignature() + ")";
@@ -18,10 +18,12 @@
 package org.apache.impala.catalog;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -30,9 +32,9 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.google.common.base.Stopwatch;
@@ -52,8 +54,10 @@ import org.apache.impala.catalog.MetaStoreClientPool.MetaStoreClient;
 import org.apache.impala.catalog.events.ExternalEventsProcessor;
 import org.apache.impala.catalog.events.MetastoreEventsProcessor;
 import org.apache.impala.catalog.events.NoOpEventProcessor;
+import org.apache.impala.catalog.events.SelfEventFingerprints;
 import org.apache.impala.common.FileSystemUtil;
 import org.apache.impala.common.ImpalaException;
+import org.apache.impala.common.JniUtil;
 import org.apache.impala.common.Pair;
 import org.apache.impala.common.Reference;
 import org.apache.impala.common.RuntimeEnv;
@@ -62,23 +66,30 @@ import org.apache.impala.service.FeSupport;
 import org.apache.impala.thrift.CatalogLookupStatus;
 import org.apache.impala.thrift.CatalogServiceConstants;
 import org.apache.impala.thrift.TCatalog;
+import org.apache.impala.thrift.TCatalogHdfsPartition;
 import org.apache.impala.thrift.TCatalogInfoSelector;
 import org.apache.impala.thrift.TCatalogObject;
 import org.apache.impala.thrift.TCatalogObjectType;
+import org.apache.impala.thrift.TCatalogSnapshotTable;
 import org.apache.impala.thrift.TCatalogUpdateResult;
 import org.apache.impala.thrift.TDatabase;
+import org.apache.impala.thrift.TErrorCode;
 import org.apache.impala.thrift.TEventProcessorMetrics;
 import org.apache.impala.thrift.TEventProcessorMetricsSummaryResponse;
 import org.apache.impala.thrift.TFunction;
 import org.apache.impala.thrift.TGetCatalogUsageResponse;
 import org.apache.impala.thrift.TGetPartialCatalogObjectRequest;
 import org.apache.impala.thrift.TGetPartialCatalogObjectResponse;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsRequest;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsResponse;
 import org.apache.impala.thrift.TGetPartitionStatsRequest;
 import org.apache.impala.thrift.TPartialCatalogInfo;
+import org.apache.impala.thrift.TPartialFetchPriority;
 import org.apache.impala.thrift.TPartitionKeyValue;
 import org.apache.impala.thrift.TPartitionStats;
 import org.apache.impala.thrift.TPrincipalType;
 import org.apache.impala.thrift.TPrivilege;
+import org.apache.impala.thrift.TStatus;
 import org.apache.impala.thrift.TTable;
 import org.apache.impala.thrift.TTableName;
 import org.apache.impala.thrift.TTableUsage;
@@ -87,11 +98,13 @@ import org.apache.impala.thrift.TUniqueId;
 import org.apache.impala.thrift.TUpdateTableUsageRequest;
 import org.apache.impala.util.CatalogBlacklistUtils;
 import org.apache.impala.util.FunctionUtils;
+import org.apache.impala.util.LatencyHistogram;
 import org.apache.impala.util.PatternMatcher;
+import org.apache.impala.util.TDirectBufferSerializer;
 import org.apache.impala.util.TUniqueIdUtil;
 import org.apache.impala.util.ThreadNameAnnotator;
+import org.apache.impala.util.TimedReentrantReadWriteLock;
 import org.apache.thrift.TException;
-import org.apache.thrift.TSerializer;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +115,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 
 
 /**
@@ -191,30 +205,53 @@ public class CatalogServiceCatalog extends Catalog {
   private static final long TBL_LOCK_TIMEOUT_MS = 7200000;
   // Time to sleep before retrying to acquire a table lock
   private static final int TBL_LOCK_RETRY_MS = 10;
+  // Number of locks which protect the versions of in-flight events.
+  private static final int NUM_INFLIGHT_EVENTS_LOCK_STRIPES = 64;
+  // Initial size of the buffer into which topic items are serialized, and the size up
+  // to which it is kept after serializing a larger item.
+  private static final int TOPIC_ITEM_BUFFER_INITIAL_BYTES = 64 * 1024;
+  private static final int TOPIC_ITEM_BUFFER_RETAINED_BYTES = 16 * 1024 * 1024;
 
   private final TUniqueId catalogServiceId_;
 
-  // Fair lock used to synchronize reads/writes of catalogVersion_. Because this lock
-  // protects catalogVersion_, it can be used to perform atomic bulk catalog operations
-  // since catalogVersion_ cannot change externally while the lock is being held.
-  // In addition to protecting catalogVersion_, it is currently used for the
-  // following bulk operations:
-  // * Building a delta update to send to the statestore in getCatalogObjects(),
-  //   so a snapshot of the catalog can be taken without any version changes.
+  // Fair lock used to make catalog updates atomic with respect to each other and to the
+  // catalog delta. Updates hold the write lock while they assign new catalog versions
+  // to the objects they change, and getCatalogDelta() reads the upper bound of the
+  // delta with the read lock held, so every object with a version up to that bound is
+  // already in place when the delta is computed. It is also used for the following
+  // bulk operations:
   // * During a catalog invalidation (call to reset()), which re-reads all dbs and tables
   //   from the metastore.
   // * During renameTable(), because a table must be removed and added to the catalog
   //   atomically (potentially in a different database).
-  private final ReentrantReadWriteLock versionLock_ = new ReentrantReadWriteLock(true);
+  // The catalog version itself is allocated without the lock, and the snapshots of the
+  // catalog taken by getCatalogDelta() rely on the concurrent caches instead of the
+  // lock, so that collecting a topic update does not stall unrelated DDLs queued for
+  // the write lock. The time spent waiting for the lock in either mode is recorded, see
+  // getVersionLockReadWaits() and getVersionLockWriteWaits().
+  private final TimedReentrantReadWriteLock versionLock_ =
+      new TimedReentrantReadWriteLock(true);
+
+  // Protects the lists of versions of in-flight events of databases and tables, striped
+  // by the name of the database or table, so that the event processor and the DDLs
+  // which register these versions do not need versionLock_.
+  private final Striped<Lock> inflightEventsLocks_ =
+      Striped.lock(NUM_INFLIGHT_EVENTS_LOCK_STRIPES);
+
+  // Off-heap buffer into which the items of catalog topic updates are serialized before
+  // they are passed to the backend. Only used by getCatalogDelta(), which is called by
+  // the single thread that collects topic updates.
+  private final TDirectBufferSerializer topicItemSerializer_ =
+      new TDirectBufferSerializer(new TBinaryProtocol.Factory(),
+          TOPIC_ITEM_BUFFER_INITIAL_BYTES, TOPIC_ITEM_BUFFER_RETAINED_BYTES);
 
   // Last assigned catalog version. Starts at INITIAL_CATALOG_VERSION and is incremented
   // with each update to the Catalog. Continued across the lifetime of the object.
-  // Protected by versionLock_.
   // TODO: Handle overflow of catalogVersion_ and nextTableId_.
   // TODO: The name of this variable is misleading and can be interpreted as a property
   // of the catalog server. Rename into something that indicates its role as a global
   // sequence number assigned to catalog objects.
-  private long catalogVersion_ = INITIAL_CATALOG_VERSION;
+  private final AtomicLong catalogVersion_ = new AtomicLong(INITIAL_CATALOG_VERSION);
 
   // The catalog version when we ran reset() last time. Protected by versionLock_.
   private long lastResetStartVersion_ = INITIAL_CATALOG_VERSION;
@@ -241,6 +278,32 @@ public class CatalogServiceCatalog extends Catalog {
 
   private final TopicUpdateLog topicUpdateLog_ = new TopicUpdateLog();
 
+  // The partitions of HdfsTables published as separate HDFS_PARTITION topic items, by
+  // table (see Catalog.toCatalogObjectKey()). Only accessed by getCatalogDelta().
+  private final Map<String, PublishedPartitions> publishedPartitions_ = new HashMap<>();
+
+  /**
+   * The partitions of a table published in the catalog topic, see
+   * addHdfsPartitionsToCatalogDelta().
+   */
+  private static class PublishedPartitions {
+    // The table instance the partitions belong to. Partitions of another instance are
+    // not reused by impalads even if their versions match, as the host indexes of their
+    // file blocks may differ.
+    final WeakReference<HdfsTable> table;
+    final String dbName;
+    final String tblName;
+    // Map from partition id to the last published version of the partition.
+    final Map<Long, Long> versions;
+
+    PublishedPartitions(HdfsTable table, Map<Long, Long> versions) {
+      this.table = new WeakReference<>(table);
+      dbName = table.getDb().getName();
+      tblName = table.getName();
+      this.versions = versions;
+    }
+  }
+
   private final String localLibraryPath_;
 
   private CatalogdTableInvalidator catalogdTableInvalidator_;
@@ -248,6 +311,15 @@ public class CatalogServiceCatalog extends Catalog {
   // Manages the event processing from metastore for issuing invalidates on tables
   private ExternalEventsProcessor metastoreEventProcessor_;
 
+  // Fingerprints of the HMS changes made by this catalog service which are used to
+  // detect self-events, see SelfEventFingerprints.
+  private final SelfEventFingerprints selfEventFingerprints_ =
+      new SelfEventFingerprints();
+
+  // Writes and restores on-disk snapshots of the loaded tables. Null if
+  // --catalog_snapshot_dir is not set or event processing is disabled.
+  private CatalogSnapshot catalogSnapshot_;
+
   /**
    * See the gflag definition in be/.../catalog-server.cc for details on these modes.
    */
@@ -258,16 +330,21 @@ public class CatalogServiceCatalog extends Catalog {
   };
   final TopicMode topicMode_;
 
-  private final long PARTIAL_FETCH_RPC_QUEUE_TIMEOUT_S = BackendConfig.INSTANCE
-      .getCatalogPartialFetchRpcQueueTimeoutS();
-
-  private final int MAX_PARALLEL_PARTIAL_FETCH_RPC_COUNT = BackendConfig.INSTANCE
-      .getCatalogMaxParallelPartialFetchRpc();
+  private final long PARTIAL_FETCH_RPC_QUEUE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(
+      BackendConfig.INSTANCE.getCatalogPartialFetchRpcQueueTimeoutS());
 
   // Controls concurrent access to doGetPartialCatalogObject() call. Limits the number
-  // of parallel requests to --catalog_max_parallel_partial_fetch_rpc.
-  private final Semaphore partialObjectFetchAccess_ =
-      new Semaphore(MAX_PARALLEL_PARTIAL_FETCH_RPC_COUNT, /*fair =*/ true);
+  // of parallel requests to --catalog_max_parallel_partial_fetch_rpc and the number of
+  // queued requests to --catalog_partial_fetch_rpc_max_queue_len.
+  private final PartialFetchAdmissionController partialFetchAdmission_ =
+      new PartialFetchAdmissionController(
+          BackendConfig.INSTANCE.getCatalogMaxParallelPartialFetchRpc(),
+          BackendConfig.INSTANCE.getCatalogPartialFetchRpcMaxQueueLen());
+
+  // End-to-end latency of the partial fetches served, by the type of the requested
+  // object. Views are accounted as tables.
+  private final Map<TCatalogObjectType, LatencyHistogram> partialFetchLatencies_ =
+      new EnumMap<>(TCatalogObjectType.class);
 
   private AuthorizationManager authzManager_;
 
@@ -289,6 +366,7 @@ public class CatalogServiceCatalog extends Catalog {
       MetaStoreClientPool metaStoreClientPool)
       throws ImpalaException {
     super(metaStoreClientPool);
+    ParallelPartitionFetcher.setClientPool(metaStoreClientPool);
     blacklistedDbs_ = CatalogBlacklistUtils.parseBlacklistedDbs(
         BackendConfig.INSTANCE.getBlacklistedDbs(), LOG);
     blacklistedTables_ = CatalogBlacklistUtils.parseBlacklistedTables(
@@ -316,6 +394,7 @@ public class CatalogServiceCatalog extends Catalog {
     Preconditions.checkState(PARTIAL_FETCH_RPC_QUEUE_TIMEOUT_S > 0);
     // start polling for metastore events
     metastoreEventProcessor_.start();
+    catalogSnapshot_ = CatalogSnapshot.create(this, BackendConfig.INSTANCE);
   }
 
   /**
@@ -390,6 +469,10 @@ public class CatalogServiceCatalog extends Catalog {
     return metastoreEventProcessor_;
   }
 
+  public SelfEventFingerprints getSelfEventFingerprints() {
+    return selfEventFingerprints_;
+  }
+
   public boolean isExternalEventProcessingEnabled() {
     return !(metastoreEventProcessor_ instanceof NoOpEventProcessor);
   }
@@ -508,7 +591,22 @@ public class CatalogServiceCatalog extends Catalog {
   }
 
   public int getPartialFetchRpcQueueLength() {
-    return partialObjectFetchAccess_.getQueueLength();
+    return partialFetchAdmission_.getQueueLength();
+  }
+
+  public PartialFetchAdmissionController getPartialFetchAdmission() {
+    return partialFetchAdmission_;
+  }
+
+  /**
+   * Returns the histogram of the end-to-end latency of the partial fetches of objects
+   * of type 'type'.
+   */
+  public LatencyHistogram getPartialFetchLatencies(TCatalogObjectType type) {
+    if (type == TCatalogObjectType.VIEW) type = TCatalogObjectType.TABLE;
+    synchronized (partialFetchLatencies_) {
+      return partialFetchLatencies_.computeIfAbsent(type, t -> new LatencyHistogram());
+    }
   }
 
   /**
@@ -605,7 +703,11 @@ public class CatalogServiceCatalog extends Catalog {
     long lastResetStartVersion;
     // The keys of the updated topics.
     Set<String> updatedCatalogObjects;
-    TSerializer serializer;
+    // Number of items and serialized bytes added to the topic update, and number of
+    // partitions left out of it because they did not change.
+    long numItems;
+    long numBytes;
+    long numPartitionsSkipped;
 
     GetCatalogDeltaContext(long nativeCatalogServerPtr, long fromVersion, long toVersion,
         long lastResetStartVersion)
@@ -615,7 +717,6 @@ public class CatalogServiceCatalog extends Catalog {
       this.toVersion = toVersion;
       this.lastResetStartVersion = lastResetStartVersion;
       updatedCatalogObjects = new HashSet<>();
-      serializer = new TSerializer(new TBinaryProtocol.Factory());
     }
 
     void addCatalogObject(TCatalogObject obj, boolean delete) throws TException {
@@ -625,16 +726,8 @@ public class CatalogServiceCatalog extends Catalog {
             new TopicUpdateLog.Entry(0, obj.getCatalog_version(), toVersion));
         if (!delete) updatedCatalogObjects.add(key);
       }
-      // TODO: TSerializer.serialize() returns a copy of the internal byte array, which
-      // could be elided.
       if (topicMode_ == TopicMode.FULL || topicMode_ == TopicMode.MIXED) {
-        String v1Key = CatalogServiceConstants.CATALOG_TOPIC_V1_PREFIX + key;
-        byte[] data = serializer.serialize(obj);
-        if (!FeSupport.NativeAddPendingTopicItem(nativeCatalogServerPtr, v1Key,
-            obj.catalog_version, data, delete)) {
-          LOG.error("NativeAddPendingTopicItem failed in BE. key=" + v1Key + ", delete="
-              + delete + ", data_size=" + data.length);
-        }
+        addV1Item(key, obj, delete);
       }
 
       if (topicMode_ == TopicMode.MINIMAL || topicMode_ == TopicMode.MIXED) {
@@ -643,17 +736,135 @@ public class CatalogServiceCatalog extends Catalog {
         // to invalidate their local cache.
         TCatalogObject minimalObject = getMinimalObjectForV2(obj);
         if (minimalObject != null) {
-          byte[] data = serializer.serialize(minimalObject);
-          String v2Key = CatalogServiceConstants.CATALOG_TOPIC_V2_PREFIX + key;
-          if (!FeSupport.NativeAddPendingTopicItem(nativeCatalogServerPtr, v2Key,
-              obj.catalog_version, data, delete)) {
-            LOG.error("NativeAddPendingTopicItem failed in BE. key=" + v2Key + ", delete="
-                + delete + ", data_size=" + data.length);
-          }
+          addTopicItem(CatalogServiceConstants.CATALOG_TOPIC_V2_PREFIX + key,
+              minimalObject, delete);
         }
       }
     }
 
+    /**
+     * Adds 'obj' with key 'key' to the topic for impalads that are not running in
+     * 'local-catalog' mode. Returns false if the backend failed to add it.
+     */
+    private boolean addV1Item(String key, TCatalogObject obj, boolean delete)
+        throws TException {
+      return addTopicItem(CatalogServiceConstants.CATALOG_TOPIC_V1_PREFIX + key, obj,
+          delete);
+    }
+
+    /**
+     * Serializes 'obj' into topicItemSerializer_ and passes it to the backend as the
+     * topic item 'topicKey'. Returns false if the backend failed to add it.
+     */
+    private boolean addTopicItem(String topicKey, TCatalogObject obj, boolean delete)
+        throws TException {
+      ByteBuffer data = topicItemSerializer_.serialize(obj);
+      int size = data.limit();
+      if (!FeSupport.NativeAddPendingTopicItem(nativeCatalogServerPtr, topicKey,
+          obj.catalog_version, data, size, delete)) {
+        LOG.error("NativeAddPendingTopicItem failed in BE. key=" + topicKey +
+            ", delete=" + delete + ", data_size=" + size);
+        return false;
+      }
+      ++numItems;
+      numBytes += size;
+      return true;
+    }
+
+    /**
+     * Returns the HDFS_PARTITION items of 'changedPartitions', the partitions of 'tbl'
+     * that changed since they were last published, for a topic update of 'tbl' with
+     * the catalog version 'version'. Called before anything of the table is added to
+     * the topic update, so that the table is left out if a partition fails to convert.
+     */
+    List<TCatalogObject> toHdfsPartitionObjects(HdfsTable tbl, long version,
+        List<HdfsPartition> changedPartitions) {
+      List<TCatalogObject> partitionObjs = new ArrayList<>(changedPartitions.size());
+      for (HdfsPartition partition: changedPartitions) {
+        TCatalogObject obj = newHdfsPartitionObject(tbl.getDb().getName(),
+            tbl.getName(), partition.getId(), version);
+        obj.getHdfs_partition().setPartition(
+            tbl.partitionToThriftForTopicUpdate(partition));
+        partitionObjs.add(obj);
+      }
+      return partitionObjs;
+    }
+
+    /**
+     * Publishes the partitions of 'tbl', which was just added to the topic update as
+     * 'catalogTbl' (the output of HdfsTable.toThriftForTopicUpdate()), as separate
+     * HDFS_PARTITION items. 'partitionObjs' holds the items of the partitions that
+     * changed since they were last published, see toHdfsPartitionObjects(). Partitions
+     * that were published before but are no longer part of the table are deleted from
+     * the topic. The partitions are not tracked in the topic update log, SYNC_DDL relies
+     * on the version of their table instead.
+     */
+    void addHdfsPartitionsToCatalogDelta(HdfsTable tbl, TCatalogObject catalogTbl,
+        List<TCatalogObject> partitionObjs) throws TException {
+      Preconditions.checkState(
+          topicMode_ == TopicMode.FULL || topicMode_ == TopicMode.MIXED);
+      String tblKey = Catalog.toCatalogObjectKey(catalogTbl);
+      Map<Long, Long> versions = catalogTbl.getTable().getHdfs_table()
+          .getPartition_versions();
+      boolean success = true;
+      for (TCatalogObject obj: partitionObjs) {
+        success &= addV1Item(Catalog.toCatalogObjectKey(obj), obj, false);
+      }
+      numPartitionsSkipped += versions.size() - partitionObjs.size();
+      PublishedPartitions published = publishedPartitions_.get(tblKey);
+      if (published != null) {
+        for (long id: published.versions.keySet()) {
+          if (versions.containsKey(id)) continue;
+          success &= deleteHdfsPartition(published, id, catalogTbl.getCatalog_version());
+        }
+      }
+      if (success) {
+        publishedPartitions_.put(tblKey, new PublishedPartitions(tbl, versions));
+      } else {
+        // Resend all partitions of the table with its next update.
+        publishedPartitions_.remove(tblKey);
+      }
+    }
+
+    /**
+     * Returns the versions of the partitions of 'tbl' that were published in earlier
+     * topic updates, or an empty map if they can't be reused by impalads.
+     */
+    Map<Long, Long> getPublishedPartitionVersions(HdfsTable tbl) {
+      PublishedPartitions published = publishedPartitions_.get(tbl.getUniqueName());
+      if (published == null || published.table.get() != tbl) {
+        return Collections.emptyMap();
+      }
+      return published.versions;
+    }
+
+    /**
+     * Deletes the published partitions of the table with key 'tblKey' from the topic,
+     * e.g. because the table was dropped or is no longer loaded.
+     */
+    void removeHdfsPartitionsFromCatalogDelta(String tblKey, long version)
+        throws TException {
+      PublishedPartitions published = publishedPartitions_.remove(tblKey);
+      if (published == null) return;
+      for (long id: published.versions.keySet()) {
+        deleteHdfsPartition(published, id, version);
+      }
+    }
+
+    private boolean deleteHdfsPartition(PublishedPartitions published, long id,
+        long version) throws TException {
+      TCatalogObject obj =
+          newHdfsPartitionObject(published.dbName, published.tblName, id, version);
+      return addV1Item(Catalog.toCatalogObjectKey(obj), obj, true);
+    }
+
+    private TCatalogObject newHdfsPartitionObject(String dbName, String tblName,
+        long id, long version) {
+      TCatalogObject obj = new TCatalogObject(TCatalogObjectType.HDFS_PARTITION, version);
+      obj.setHdfs_partition(new TCatalogHdfsPartition(dbName, tblName, id));
+      return obj;
+    }
+
     private TCatalogObject getMinimalObjectForV2(TCatalogObject obj) {
       Preconditions.checkState(topicMode_ == TopicMode.MINIMAL ||
           topicMode_ == TopicMode.MIXED);
@@ -688,6 +899,7 @@ public class CatalogServiceCatalog extends Catalog {
         break;
       case DATA_SOURCE:
       case HDFS_CACHE_POOL:
+      case HDFS_PARTITION:
         // These are currently not cached by v2 impalad.
         // TODO(todd): handle these items.
         return null;
@@ -716,14 +928,17 @@ public class CatalogServiceCatalog extends Catalog {
   public long getCatalogDelta(long nativeCatalogServerPtr, long fromVersion) throws
       TException {
     GetCatalogDeltaContext ctx;
-    // Get lock to read catalogVersion_ and lastResetStartVersion_
+    // Get lock to read catalogVersion_ and lastResetStartVersion_ while no update is
+    // in progress.
     versionLock_.readLock().lock();
     try {
       ctx = new GetCatalogDeltaContext(nativeCatalogServerPtr, fromVersion,
-          catalogVersion_, lastResetStartVersion_);
+          catalogVersion_.get(), lastResetStartVersion_);
     } finally {
       versionLock_.readLock().unlock();
     }
+    // The topic is rebuilt from scratch, including all partitions.
+    if (fromVersion == 0) publishedPartitions_.clear();
     for (Db db: getAllDbs()) {
       addDatabaseToCatalogDelta(db, ctx);
     }
@@ -747,9 +962,12 @@ public class CatalogServiceCatalog extends Catalog {
     // that we don't include "deleted" objects that were re-added to the catalog.
     for (TCatalogObject removedObject:
         getDeletedObjects(ctx.fromVersion, ctx.toVersion)) {
-      if (!ctx.updatedCatalogObjects.contains(
-          Catalog.toCatalogObjectKey(removedObject))) {
+      String key = Catalog.toCatalogObjectKey(removedObject);
+      if (!ctx.updatedCatalogObjects.contains(key)) {
         ctx.addCatalogObject(removedObject, true);
+        if (removedObject.type == TCatalogObjectType.TABLE) {
+          ctx.removeHdfsPartitionsFromCatalogDelta(key, removedObject.catalog_version);
+        }
       }
     }
     // Each topic update should contain a single "TCatalog" object which is used to
@@ -763,6 +981,8 @@ public class CatalogServiceCatalog extends Catalog {
         new TCatalogObject(TCatalogObjectType.CATALOG, ctx.toVersion);
     catalog.setCatalog(new TCatalog(catalogServiceId_, ctx.lastResetStartVersion));
     ctx.addCatalogObject(catalog, false);
+    topicUpdateLog_.recordTopicUpdate(ctx.numItems, ctx.numBytes,
+        ctx.numPartitionsSkipped);
     // Garbage collect the delete and topic update log.
     deleteLog_.garbageCollect(ctx.toVersion);
     topicUpdateLog_.garbageCollectUpdateLogEntries(ctx.toVersion);
@@ -788,7 +1008,8 @@ public class CatalogServiceCatalog extends Catalog {
     Preconditions.checkState(isExternalEventProcessingEnabled(),
         "Event processing should be enabled before calling this method");
     List<Long> result = Collections.EMPTY_LIST;
-    versionLock_.readLock().lock();
+    Lock lock = getInflightEventsLock(dbName, tblName);
+    lock.lock();
     try {
       Db db = getDb(dbName);
       if (db == null) {
@@ -796,7 +1017,7 @@ public class CatalogServiceCatalog extends Catalog {
             String.format("Database %s not found", dbName));
       }
       if (tblName == null) {
-        return db.getVersionsForInflightEvents();
+        return ImmutableList.copyOf(db.getVersionsForInflightEvents());
       }
       Table tbl = getTable(dbName, tblName);
       if (tbl == null) {
@@ -804,9 +1025,9 @@ public class CatalogServiceCatalog extends Catalog {
             String.format("Table %s not found", new TableName(dbName, tblName)));
       }
       if (tbl instanceof IncompleteTable) return result;
-      return tbl.getVersionsForInflightEvents();
+      return ImmutableList.copyOf(tbl.getVersionsForInflightEvents());
     } finally {
-      versionLock_.readLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -823,7 +1044,8 @@ public class CatalogServiceCatalog extends Catalog {
       long versionNumber) throws DatabaseNotFoundException, TableNotFoundException {
     Preconditions.checkState(isExternalEventProcessingEnabled(),
         "Event processing should be enabled when calling this method");
-    versionLock_.writeLock().lock();
+    Lock lock = getInflightEventsLock(dbName, tblName);
+    lock.lock();
     try {
       Db db = getDb(dbName);
       if (db == null) return;
@@ -839,7 +1061,7 @@ public class CatalogServiceCatalog extends Catalog {
       if (tbl instanceof IncompleteTable) return;
       tbl.removeFromVersionsForInflightEvents(versionNumber);
     } finally {
-      versionLock_.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -852,12 +1074,13 @@ public class CatalogServiceCatalog extends Catalog {
    */
   public void addVersionsForInflightEvents(Table tbl, long versionNumber) {
     if (!isExternalEventProcessingEnabled()) return;
-    versionLock_.writeLock().lock();
+    Lock lock = getInflightEventsLock(tbl.getDb().getName(), tbl.getName());
+    lock.lock();
     try {
       if (tbl instanceof IncompleteTable) return;
       tbl.addToVersionsForInflightEvents(versionNumber);
     } finally {
-      versionLock_.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -870,97 +1093,77 @@ public class CatalogServiceCatalog extends Catalog {
    */
   public void addVersionsForInflightEvents(Db db, long versionNumber) {
     if (!isExternalEventProcessingEnabled()) return;
-    versionLock_.writeLock().lock();
+    Lock lock = getInflightEventsLock(db.getName(), null);
+    lock.lock();
     try {
       db.addToVersionsForInflightEvents(versionNumber);
     } finally {
-      versionLock_.writeLock().unlock();
+      lock.unlock();
     }
   }
 
+  /**
+   * Returns the lock which protects the versions of in-flight events of the table
+   * 'dbName.tblName', or of the database 'dbName' if 'tblName' is null.
+   */
+  private Lock getInflightEventsLock(String dbName, String tblName) {
+    String name = tblName == null ? dbName : dbName + "." + tblName;
+    return inflightEventsLocks_.get(name.toLowerCase());
+  }
+
   /**
    * Get a snapshot view of all the catalog objects that were deleted between versions
    * ('fromVersion', 'toVersion'].
+   *
+   * This and the other snapshot functions used by getCatalogDelta() do not take
+   * versionLock_. They copy thread-safe caches, and changes which are in progress while
+   * a snapshot is taken get versions above the upper bound of the delta, so they are
+   * left out of it either way.
    */
   private List<TCatalogObject> getDeletedObjects(long fromVersion, long toVersion) {
-    versionLock_.readLock().lock();
-    try {
-      return deleteLog_.retrieveObjects(fromVersion, toVersion);
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return deleteLog_.retrieveObjects(fromVersion, toVersion);
   }
 
   /**
    * Get a snapshot view of all the databases in the catalog.
    */
   List<Db> getAllDbs() {
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(dbCache_.get().values());
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(dbCache_.get().values());
   }
 
   /**
    * Get a snapshot view of all the data sources in the catalog.
    */
    private List<DataSource> getAllDataSources() {
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(getDataSources());
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(getDataSources());
   }
 
   /**
    * Get a snapshot view of all the Hdfs cache pools in the catalog.
    */
   private List<HdfsCachePool> getAllHdfsCachePools() {
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(hdfsCachePools_);
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(hdfsCachePools_);
   }
 
   /**
    * Get a snapshot view of all the roles in the catalog.
    */
   private List<Role> getAllRoles() {
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(authPolicy_.getAllRoles());
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(authPolicy_.getAllRoles());
   }
 
   /**
    * Get a snapshot view of all the users in the catalog.
    */
   private List<User> getAllUsers() {
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(authPolicy_.getAllUsers());
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(authPolicy_.getAllUsers());
   }
 
   /**
    * Get a snapshot view of all authz cache invalidation markers in the catalog.
    */
   private List<AuthzCacheInvalidation> getAllAuthzCacheInvalidation() {
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(authzCacheInvalidation_);
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(authzCacheInvalidation_);
   }
 
   /**
@@ -990,12 +1193,7 @@ public class CatalogServiceCatalog extends Catalog {
    */
   List<Table> getAllTables(Db db) {
     Preconditions.checkNotNull(db);
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(db.getTables());
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(db.getTables());
   }
 
   /**
@@ -1003,12 +1201,7 @@ public class CatalogServiceCatalog extends Catalog {
    */
   private List<Function> getAllFunctions(Db db) {
     Preconditions.checkNotNull(db);
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(db.getFunctions(null, new PatternMatcher()));
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(db.getFunctions(null, new PatternMatcher()));
   }
 
   /**
@@ -1144,15 +1337,49 @@ public class CatalogServiceCatalog extends Catalog {
                 topicUpdateEntry.getLastSentCatalogUpdate()));
         return;
       }
+      // Impalads that are not running in 'local-catalog' mode receive the partitions of
+      // HdfsTables as separate topic items, so that only the changed partitions need to
+      // be resent when the table changes.
+      boolean publishPartitions = tbl instanceof HdfsTable &&
+          (topicMode_ == TopicMode.FULL || topicMode_ == TopicMode.MIXED);
+      List<TCatalogObject> partitionObjs = Collections.emptyList();
       try {
-        catalogTbl.setTable(tbl.toThrift());
+        if (tbl instanceof HdfsTable) {
+          // The item of an HdfsTable never contains its partitions. Impalads in
+          // 'local-catalog' mode only receive the name of the table, so its partitions
+          // are not converted to thrift at all.
+          HdfsTable hdfsTable = (HdfsTable) tbl;
+          Map<Long, Long> publishedVersions = publishPartitions ?
+              ctx.getPublishedPartitionVersions(hdfsTable) :
+              Collections.<Long, Long>emptyMap();
+          List<HdfsPartition> changedPartitions = new ArrayList<>();
+          catalogTbl.setTable(
+              hdfsTable.toThriftForTopicUpdate(publishedVersions, changedPartitions));
+          // Convert all changed partitions before the table is added, so that nothing
+          // of the table is published if any of them fails.
+          if (publishPartitions) {
+            partitionObjs = ctx.toHdfsPartitionObjects(hdfsTable, tblVersion,
+                changedPartitions);
+          }
+        } else {
+          catalogTbl.setTable(tbl.toThrift());
+        }
+        catalogTbl.setCatalog_version(tbl.getCatalogVersion());
+        ctx.addCatalogObject(catalogTbl, false);
+        if (publishPartitions) {
+          ctx.addHdfsPartitionsToCatalogDelta((HdfsTable) tbl, catalogTbl,
+              partitionObjs);
+        } else {
+          ctx.removeHdfsPartitionsFromCatalogDelta(
+              Catalog.toCatalogObjectKey(catalogTbl), tblVersion);
+        }
       } catch (Exception e) {
         LOG.error(String.format("Error calling toThrift() on table %s: %s",
             tbl.getFullName(), e.getMessage()), e);
+        // Resend all partitions of the table with its next update.
+        publishedPartitions_.remove(tbl.getUniqueName());
         return;
       }
-      catalogTbl.setCatalog_version(tbl.getCatalogVersion());
-      ctx.addCatalogObject(catalogTbl, false);
     } finally {
       tbl.getLock().unlock();
     }
@@ -1225,12 +1452,7 @@ public class CatalogServiceCatalog extends Catalog {
    */
   private List<PrincipalPrivilege> getAllPrivileges(Principal principal) {
     Preconditions.checkNotNull(principal);
-    versionLock_.readLock().lock();
-    try {
-      return ImmutableList.copyOf(principal.getPrivileges());
-    } finally {
-      versionLock_.readLock().unlock();
-    }
+    return ImmutableList.copyOf(principal.getPrivileges());
   }
 
   /**
@@ -1518,7 +1740,7 @@ public class CatalogServiceCatalog extends Catalog {
     // In case of an empty new catalog, the version should still change to reflect the
     // reset operation itself and to unblock impalads by making the catalog version >
     // INITIAL_CATALOG_VERSION. See Frontend.waitForCatalog()
-    ++catalogVersion_;
+    catalogVersion_.incrementAndGet();
     // Assign new versions to all the loaded data sources.
     for (DataSource dataSource: getDataSources()) {
       dataSource.setCatalogVersion(incrementAndGetCatalogVersion());
@@ -1588,6 +1810,38 @@ public class CatalogServiceCatalog extends Catalog {
     return startVersion;
   }
 
+  /**
+   * Restores the tables of the latest catalog snapshot, if snapshots are enabled, and
+   * starts writing new snapshots periodically. Called once after the initial reset().
+   */
+  public void initFromSnapshot() {
+    if (catalogSnapshot_ == null) return;
+    catalogSnapshot_.restore();
+    catalogSnapshot_.start();
+  }
+
+  /**
+   * Adds the table of a catalog snapshot entry to the catalog. The table is only added
+   * if it is known to the catalog but not loaded yet, so that the restored metadata
+   * never replaces metadata which was loaded or modified since the catalog was reset.
+   * Returns true if the table was added.
+   */
+  boolean addTableFromSnapshot(TCatalogSnapshotTable entry) throws CatalogException {
+    TTable thriftTable = entry.getTable();
+    Db db = getDb(thriftTable.getDb_name());
+    if (db == null) return false;
+    Table existingTbl = db.getTable(thriftTable.getTbl_name());
+    if (!(existingTbl instanceof IncompleteTable) || existingTbl.isLoaded()) {
+      return false;
+    }
+    long expectedCatalogVersion = existingTbl.getCatalogVersion();
+    Table tbl = Table.fromMetastoreTable(db, thriftTable.getMetastore_table());
+    if (!(tbl instanceof HdfsTable)) return false;
+    ((HdfsTable) tbl).loadFromSnapshot(thriftTable, entry.getHms_partitions());
+    tbl.validate();
+    return replaceTableIfUnchanged(tbl, expectedCatalogVersion) == tbl;
+  }
+
   /**
    * Adds a database name to the metadata cache and returns the database's
    * new Db object. Used by CREATE DATABASE statements.
@@ -2227,6 +2481,61 @@ public class CatalogServiceCatalog extends Catalog {
     return true;
   }
 
+  /**
+   * Refresh the partitions with the given partition specs if the table exists. Returns
+   * true if the reload of the partitions succeeds, false if the table does not exist
+   * or is not loaded.
+   * @throws CatalogException if the reload of the partitions is unsuccessful.
+   * @throws DatabaseNotFoundException if Db doesn't exist.
+   */
+  public boolean reloadPartitionsIfExist(String dbName, String tblName,
+      List<List<TPartitionKeyValue>> tPartSpecs, String reason) throws CatalogException {
+    Table table = getTable(dbName, tblName);
+    if (table == null || table instanceof IncompleteTable) return false;
+    reloadPartitions(table, tPartSpecs, reason);
+    return true;
+  }
+
+  /**
+   * Updates the properties and statistics of the loaded HdfsTable 'dbName.tblName' in
+   * place from its current definition in the HMS, without reloading its partitions or
+   * file metadata, see HdfsTable.updatePropertiesFromHmsTable(). Returns false and
+   * leaves the table unchanged if the table is not a loaded HdfsTable, does not exist
+   * in the HMS anymore or its schema or location changed as well.
+   * @throws CatalogException if the table could not be fetched from the HMS.
+   * @throws DatabaseNotFoundException if Db doesn't exist.
+   */
+  public boolean updateTablePropertiesIfExists(String dbName, String tblName,
+      String reason) throws CatalogException {
+    Table table = getTable(dbName, tblName);
+    if (!(table instanceof HdfsTable)) return false;
+    if (!tryLockTable(table)) {
+      throw new CatalogException(String.format("Error updating properties of table %s " +
+          "due to lock contention", table.getFullName()));
+    }
+    try {
+      long newCatalogVersion = incrementAndGetCatalogVersion();
+      versionLock_.writeLock().unlock();
+      org.apache.hadoop.hive.metastore.api.Table msTbl;
+      try (MetaStoreClient msClient = getMetaStoreClient()) {
+        msTbl = msClient.getHiveClient().getTable(dbName, tblName);
+      } catch (NoSuchObjectException e) {
+        return false;
+      } catch (TException e) {
+        throw new CatalogException("Error loading metadata for table: " +
+            table.getFullName(), e);
+      }
+      if (!((HdfsTable) table).updatePropertiesFromHmsTable(msTbl)) return false;
+      table.setCatalogVersion(newCatalogVersion);
+      LOG.info(String.format("Updated properties of table %s in place (%s)",
+          table.getFullName(), reason));
+      return true;
+    } finally {
+      Preconditions.checkState(!versionLock_.isWriteLockedByCurrentThread());
+      table.getLock().unlock();
+    }
+  }
+
   /**
    * Refresh table if exists. Returns true if reloadTable() succeeds, false
    * otherwise. Throws CatalogException if reloadTable() is unsuccessful. Throws
@@ -2523,30 +2832,32 @@ public class CatalogServiceCatalog extends Catalog {
   }
 
   /**
-   * Increments the current Catalog version and returns the new value.
+   * Increments the current Catalog version and returns the new value. Does not take
+   * versionLock_; callers which need the new version to be assigned atomically with
+   * respect to the catalog delta hold its write lock.
    */
   public long incrementAndGetCatalogVersion() {
-    versionLock_.writeLock().lock();
-    try {
-      return ++catalogVersion_;
-    } finally {
-      versionLock_.writeLock().unlock();
-    }
+    return catalogVersion_.incrementAndGet();
   }
 
   /**
    * Returns the current Catalog version.
    */
-  public long getCatalogVersion() {
-    versionLock_.readLock().lock();
-    try {
-      return catalogVersion_;
-    } finally {
-      versionLock_.readLock().unlock();
-    }
-  }
+  public long getCatalogVersion() { return catalogVersion_.get(); }
 
   public ReentrantReadWriteLock getLock() { return versionLock_; }
+
+  /**
+   * Returns the histograms of the time spent waiting for the read and the write lock of
+   * versionLock_.
+   */
+  public LatencyHistogram getVersionLockReadWaits() {
+    return versionLock_.getReadLockWaits();
+  }
+
+  public LatencyHistogram getVersionLockWriteWaits() {
+    return versionLock_.getWriteLockWaits();
+  }
   public AuthorizationPolicy getAuthPolicy() { return authPolicy_; }
 
   /**
@@ -2602,8 +2913,55 @@ public class CatalogServiceCatalog extends Catalog {
     }
   }
 
+  /**
+   * Reloads the metadata of the partitions defined by the partition specs
+   * 'partitionSpecs' in table 'tbl' like reloadPartition(), but with a single batched
+   * fetch of the partitions from the HMS and a single parallel listing of their files,
+   * see HdfsTable.reloadPartitions(). Returns the resulting table's TCatalogObject
+   * after the partition metadata was reloaded.
+   */
+  public TCatalogObject reloadPartitions(Table tbl,
+      List<List<TPartitionKeyValue>> partitionSpecs, String reason)
+      throws CatalogException {
+    if (!tryLockTable(tbl)) {
+      throw new CatalogException(String.format("Error reloading partitions of table " +
+          "%s due to lock contention", tbl.getFullName()));
+    }
+    try {
+      long newCatalogVersion = incrementAndGetCatalogVersion();
+      versionLock_.writeLock().unlock();
+      HdfsTable hdfsTable = (HdfsTable) tbl;
+      List<String> partitionNames = new ArrayList<>(partitionSpecs.size());
+      for (List<TPartitionKeyValue> partitionSpec : partitionSpecs) {
+        // Retrieve partition name from existing partition or construct it from
+        // the partition spec
+        HdfsPartition hdfsPartition = hdfsTable
+            .getPartitionFromThriftPartitionSpec(partitionSpec);
+        partitionNames.add(hdfsPartition == null
+            ? HdfsTable.constructPartitionName(partitionSpec)
+            : hdfsPartition.getPartitionName());
+      }
+      LOG.info(String.format("Refreshing metadata of %d partitions: %s (%s)",
+          partitionNames.size(), hdfsTable.getFullName(), reason));
+      int numReloaded;
+      try (MetaStoreClient msClient = getMetaStoreClient()) {
+        numReloaded = hdfsTable.reloadPartitions(msClient.getHiveClient(),
+            partitionNames);
+      }
+      hdfsTable.setCatalogVersion(newCatalogVersion);
+      LOG.info(String.format("Refreshed metadata of %d partitions: %s",
+          numReloaded, hdfsTable.getFullName()));
+      return hdfsTable.toTCatalogObject();
+    } finally {
+      Preconditions.checkState(!versionLock_.isWriteLockedByCurrentThread());
+      tbl.getLock().unlock();
+    }
+  }
+
   public CatalogDeltaLog getDeleteLog() { return deleteLog_; }
 
+  public TopicUpdateLog getTopicUpdateLog() { return topicUpdateLog_; }
+
   /**
    * Returns the version of the topic update that an operation using SYNC_DDL must wait
    * for in order to ensure that its result set ('result') has been broadcast to all the
@@ -2822,42 +3180,85 @@ public class CatalogServiceCatalog extends Catalog {
 
   /**
    * A wrapper around doGetPartialCatalogObject() that controls the number of concurrent
-   * invocations.
+   * invocations, see PartialFetchAdmissionController. A request which is not admitted
+   * within --catalog_partial_fetch_rpc_queue_timeout_s, or within its own queue timeout
+   * if that is shorter, is rejected with lookup status CATALOG_OVERLOADED.
    */
   public TGetPartialCatalogObjectResponse getPartialCatalogObject(
       TGetPartialCatalogObjectRequest req) throws CatalogException {
-    try {
-      if (!partialObjectFetchAccess_.tryAcquire(1,
-          PARTIAL_FETCH_RPC_QUEUE_TIMEOUT_S, TimeUnit.SECONDS)) {
-        // Timed out trying to acquire the semaphore permit.
-        throw new CatalogException("Timed out while fetching partial object metadata. " +
-            "Please check the metric 'catalog.partial-fetch-rpc.queue-len' for the " +
-            "current queue length and consider increasing " +
-            "'catalog_partial_fetch_rpc_queue_timeout_s' and/or " +
-            "'catalog_max_parallel_partial_fetch_rpc'");
-      }
-      // Acquired the permit at this point, should be released before we exit out of
-      // this method.
-      //
-      // Is there a chance that this thread can get interrupted at this point before it
-      // enters the try block, eventually leading to the semaphore permit not
-      // getting released? It can probably happen if the JVM is already in a bad shape.
-      // In the worst case, every permit is blocked and the subsequent requests throw
-      // the timeout exception and the user can monitor the queue metric to see that it
-      // is full, so the issue should be easy to diagnose.
-      // TODO: Figure out if such a race is possible.
-      try (ThreadNameAnnotator tna = new ThreadNameAnnotator(
+    long startNs = System.nanoTime();
+    TPartialFetchPriority priority = req.isSetPriority() ?
+        req.getPriority() : TPartialFetchPriority.PLANNING;
+    String requester = req.isSetRequester() ? req.getRequester() : "";
+    long queueTimeoutNs = PARTIAL_FETCH_RPC_QUEUE_TIMEOUT_NS;
+    if (req.isSetQueue_timeout_ms()) {
+      queueTimeoutNs = Math.min(queueTimeoutNs,
+          TimeUnit.MILLISECONDS.toNanos(req.getQueue_timeout_ms()));
+    }
+    try (PartialFetchAdmissionController.Admission admission =
+            partialFetchAdmission_.admit(priority, requester, queueTimeoutNs);
+        ThreadNameAnnotator tna = new ThreadNameAnnotator(
             "Get Partial Catalog Object - " +
             Catalog.toCatalogObjectKey(req.object_desc))) {
-        return doGetPartialCatalogObject(req);
-      } finally {
-        partialObjectFetchAccess_.release();
-      }
+      TGetPartialCatalogObjectResponse resp = doGetPartialCatalogObject(req);
+      getPartialFetchLatencies(req.object_desc.getType()).record(
+          System.nanoTime() - startNs);
+      return resp;
+    } catch (PartialFetchAdmissionController.RejectedException e) {
+      LOG.debug("{} from {}: {}", e.getMessage(), requester,
+          Catalog.toCatalogObjectKey(req.object_desc));
+      TGetPartialCatalogObjectResponse resp = new TGetPartialCatalogObjectResponse();
+      resp.setLookup_status(CatalogLookupStatus.CATALOG_OVERLOADED);
+      resp.setRetry_after_ms(e.getRetryAfterMs());
+      return resp;
     } catch (InterruptedException e) {
       throw new CatalogException("Error running getPartialCatalogObject(): ", e);
     }
   }
 
+  /**
+   * Serves a batch of partial object requests, see getPartialCatalogObject(). The
+   * loads of all requested tables which are not loaded yet are queued up front, so that
+   * they proceed in parallel rather than one after the other as the requests are
+   * served. Failures of individual requests are returned in the status of their
+   * responses and do not fail the other requests.
+   */
+  public TGetPartialCatalogObjectsResponse getPartialCatalogObjects(
+      TGetPartialCatalogObjectsRequest req) {
+    List<TCatalogObject> unloadedTables = new ArrayList<>();
+    versionLock_.readLock().lock();
+    try {
+      for (TGetPartialCatalogObjectRequest objReq: req.requests) {
+        TCatalogObject objectDesc = objReq.object_desc;
+        if (objectDesc == null || !objectDesc.isSetTable()) continue;
+        Table tbl = getTable(objectDesc.getTable().getDb_name(),
+            objectDesc.getTable().getTbl_name());
+        if (tbl != null && !tbl.isLoaded()) unloadedTables.add(objectDesc);
+      }
+    } finally {
+      versionLock_.readLock().unlock();
+    }
+    if (!unloadedTables.isEmpty()) prioritizeLoad(unloadedTables);
+
+    TGetPartialCatalogObjectsResponse resp = new TGetPartialCatalogObjectsResponse();
+    resp.setResponses(Lists.newArrayListWithCapacity(req.requests.size()));
+    for (TGetPartialCatalogObjectRequest objReq: req.requests) {
+      TGetPartialCatalogObjectResponse objResp;
+      try {
+        objResp = getPartialCatalogObject(objReq);
+        objResp.setStatus(new TStatus(TErrorCode.OK, Lists.newArrayList()));
+      } catch (Exception e) {
+        LOG.warn("Error fetching partial object metadata for " +
+            Catalog.toCatalogObjectKey(objReq.object_desc), e);
+        objResp = new TGetPartialCatalogObjectResponse();
+        objResp.setStatus(new TStatus(TErrorCode.INTERNAL_ERROR,
+            Lists.newArrayList(JniUtil.throwableToString(e))));
+      }
+      resp.addToResponses(objResp);
+    }
+    return resp;
+  }
+
   /**
    * Gets the id for this catalog service
    */
@@ -2870,9 +3271,7 @@ public class CatalogServiceCatalog extends Catalog {
    */
   @VisibleForTesting
   public int getConcurrentPartialRpcReqCount() {
-    // Calculated based on number of currently available semaphore permits.
-    return MAX_PARALLEL_PARTIAL_FETCH_RPC_COUNT - partialObjectFetchAccess_
-        .availablePermits();
+    return partialFetchAdmission_.getNumRunning();
   }
 
   /**
@@ -2980,8 +3379,8 @@ public class CatalogServiceCatalog extends Catalog {
   }
 
   /**
-   * Set the last used time of specified tables to now.
-   * TODO: Make use of TTableUsage.num_usages.
+   * Set the last used time of specified tables to now and record their number of
+   * usages.
    */
   public void updateTableUsage(TUpdateTableUsageRequest req) {
     for (TTableUsage usage : req.usages) {
@@ -2991,11 +3390,11 @@ public class CatalogServiceCatalog extends Catalog {
       } catch (DatabaseNotFoundException e) {
         // do nothing
       }
-      if (table != null) table.refreshLastUsedTime();
+      if (table != null) table.refreshLastUsedTime(usage.num_usages);
     }
   }
 
-  CatalogdTableInvalidator getCatalogdTableInvalidator() {
+  public CatalogdTableInvalidator getCatalogdTableInvalidator() {
     return catalogdTableInvalidator_;
   }
 
@@ -0,0 +1,308 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hadoop.hive.metastore.api.NotificationEvent;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.impala.catalog.MetaStoreClientPool.MetaStoreClient;
+import org.apache.impala.catalog.events.ExternalEventsProcessor;
+import org.apache.impala.catalog.events.MetastoreEventsProcessor.EventProcessorStatus;
+import org.apache.impala.common.PrintUtils;
+import org.apache.impala.service.BackendConfig;
+import org.apache.impala.thrift.TCatalogSnapshotTable;
+import org.apache.impala.thrift.TEventProcessorMetrics;
+import org.apache.impala.util.ThreadNameAnnotator;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Clock;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Periodically writes the loaded HDFS tables of a CatalogServiceCatalog to a snapshot
+ * file on local disk, and restores them from that file when catalogd starts. Restoring
+ * a table from the snapshot needs neither the Hive Metastore nor the NameNode, so
+ * catalogd can serve the snapshotted tables right after startup instead of having to
+ * reload them from scratch.
+ *
+ * A snapshot starts with the id of the last metastore event that the events processor
+ * had synced to when the snapshot was started, followed by one TCatalogSnapshotTable
+ * per table. After restoring the tables, event processing is restarted from that event
+ * id so that all the changes which happened after the snapshot was taken are applied on
+ * top of the restored metadata. Since the tables are serialized after the event id was
+ * read, some events may be applied to tables which already reflect them. This is okay
+ * for the same reasons as described in CatalogServiceCatalog.reset().
+ *
+ * Snapshots are only used if metastore event processing is enabled, since otherwise
+ * there is no way to catch up with the changes made while catalogd was down.
+ */
+public class CatalogSnapshot {
+  private static final Logger LOG = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+  private static final String SNAPSHOT_FILE_NAME = "catalogd.snapshot";
+  private static final int SNAPSHOT_MAGIC = 0x494d5053;
+  private static final int SNAPSHOT_FORMAT_VERSION = 1;
+  // Written in place of an entry length to mark the end of the table entries.
+  private static final int END_OF_TABLES = -1;
+  // Maximum time to wait for the lock of a table while writing a snapshot. Tables
+  // which are locked for longer are left out of the snapshot.
+  private static final long TBL_LOCK_TIMEOUT_MS = 10000;
+
+  private static final TBinaryProtocol.Factory protocolFactory_ =
+      new TBinaryProtocol.Factory();
+
+  private final CatalogServiceCatalog catalog_;
+  private final File snapshotFile_;
+  private final int intervalSec_;
+  private final ScheduledExecutorService scheduler_ =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("CatalogSnapshotWriter").build());
+
+  @VisibleForTesting
+  CatalogSnapshot(CatalogServiceCatalog catalog, String snapshotDir, int intervalSec) {
+    catalog_ = Preconditions.checkNotNull(catalog);
+    snapshotFile_ = new File(snapshotDir, SNAPSHOT_FILE_NAME);
+    intervalSec_ = intervalSec;
+  }
+
+  /**
+   * Returns a CatalogSnapshot for 'catalog' if snapshots are configured and metastore
+   * event processing is enabled. Returns null otherwise.
+   */
+  public static CatalogSnapshot create(CatalogServiceCatalog catalog,
+      BackendConfig config) {
+    String snapshotDir = config.getCatalogSnapshotDir();
+    if (Strings.isNullOrEmpty(snapshotDir)) return null;
+    int intervalSec = config.getCatalogSnapshotIntervalS();
+    Preconditions.checkArgument(intervalSec > 0,
+        "catalog_snapshot_interval_s must be a positive integer.");
+    if (!catalog.isExternalEventProcessingEnabled()) {
+      LOG.warn("Catalog snapshots are disabled since metastore event processing is " +
+          "not enabled. Set hms_event_polling_interval_s to use catalog_snapshot_dir.");
+      return null;
+    }
+    return new CatalogSnapshot(catalog, snapshotDir, intervalSec);
+  }
+
+  /**
+   * Starts writing snapshots every 'intervalSec_' seconds.
+   */
+  public void start() {
+    scheduler_.scheduleWithFixedDelay(() -> {
+      try {
+        write();
+      } catch (Exception e) {
+        LOG.error("Failed to write catalog snapshot to " + snapshotFile_, e);
+      }
+    }, intervalSec_, intervalSec_, TimeUnit.SECONDS);
+    LOG.info(String.format("Writing catalog snapshots to %s every %d seconds.",
+        snapshotFile_, intervalSec_));
+  }
+
+  /**
+   * Writes a snapshot of all the loaded HDFS tables. The snapshot is first written to a
+   * temporary file which then atomically replaces the previous snapshot, so a crash
+   * while writing never leaves a truncated snapshot behind. Returns the number of
+   * tables written, or -1 if no snapshot was written because the events processor is
+   * not in sync with the metastore.
+   */
+  @VisibleForTesting
+  int write() throws IOException {
+    TEventProcessorMetrics eventMetrics =
+        catalog_.getMetastoreEventProcessor().getEventProcessorMetrics();
+    if (!EventProcessorStatus.ACTIVE.toString().equals(eventMetrics.getStatus())) {
+      LOG.warn("Skipping catalog snapshot since the events processor status is " +
+          eventMetrics.getStatus());
+      return -1;
+    }
+    long lastEventId = eventMetrics.getLast_synced_event_id();
+    final Clock clock = Clock.defaultClock();
+    long startTime = clock.getTick();
+    File tmpFile = new File(snapshotFile_.getPath() + ".tmp");
+    int numTables = 0;
+    try (ThreadNameAnnotator tna = new ThreadNameAnnotator(
+             "Writing catalog snapshot to " + snapshotFile_);
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+             new GZIPOutputStream(new FileOutputStream(tmpFile))))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_FORMAT_VERSION);
+      out.writeLong(lastEventId);
+      TSerializer serializer = new TSerializer(protocolFactory_);
+      for (Db db: catalog_.getAllDbs()) {
+        for (Table tbl: db.getTables()) {
+          if (!(tbl instanceof HdfsTable)) continue;
+          byte[] entry = serializeTable((HdfsTable) tbl, serializer);
+          if (entry == null) continue;
+          out.writeInt(entry.length);
+          out.write(entry);
+          ++numTables;
+        }
+      }
+      out.writeInt(END_OF_TABLES);
+    }
+    Files.move(tmpFile.toPath(), snapshotFile_.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    LOG.info(String.format("Wrote catalog snapshot with %d tables at event id %d to " +
+        "%s. Time taken: %s", numTables, lastEventId, snapshotFile_,
+        PrintUtils.printTimeNs(clock.getTick() - startTime)));
+    return numTables;
+  }
+
+  /**
+   * Serializes 'tbl' into a TCatalogSnapshotTable while holding the table lock. Returns
+   * null if the lock could not be acquired in time or the table could not be
+   * serialized.
+   */
+  private byte[] serializeTable(HdfsTable tbl, TSerializer serializer) {
+    try {
+      if (!tbl.getLock().tryLock(TBL_LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Leaving table {} out of the catalog snapshot since its lock could " +
+            "not be acquired.", tbl.getFullName());
+        return null;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    try {
+      TCatalogSnapshotTable entry = new TCatalogSnapshotTable(tbl.toThrift());
+      if (tbl.getNumClusteringCols() > 0) {
+        Map<Long, Partition> msPartitions = new HashMap<>();
+        for (PrunablePartition p: tbl.getPartitions()) {
+          HdfsPartition part = (HdfsPartition) p;
+          msPartitions.put(part.getId(), part.toHmsPartition());
+        }
+        entry.setHms_partitions(msPartitions);
+      }
+      return serializer.serialize(entry);
+    } catch (TException e) {
+      LOG.warn("Leaving table " + tbl.getFullName() + " out of the catalog snapshot",
+          e);
+      return null;
+    } finally {
+      tbl.getLock().unlock();
+    }
+  }
+
+  /**
+   * Restores the tables of the latest snapshot, if there is one, into the catalog and
+   * restarts event processing from the event id of the snapshot. Must be called after
+   * the catalog was reset during startup. Only tables which are known to the catalog
+   * and have not been loaded yet are restored. Never throws: a missing or unusable
+   * snapshot only means that tables are loaded from the metastore as usual. Returns
+   * the number of restored tables.
+   */
+  public int restore() {
+    if (!snapshotFile_.exists()) {
+      LOG.info("No catalog snapshot found at " + snapshotFile_);
+      return 0;
+    }
+    final Clock clock = Clock.defaultClock();
+    long startTime = clock.getTick();
+    int numRestored = 0;
+    try (ThreadNameAnnotator tna = new ThreadNameAnnotator(
+             "Restoring catalog snapshot from " + snapshotFile_);
+         DataInputStream in = new DataInputStream(new BufferedInputStream(
+             new GZIPInputStream(new FileInputStream(snapshotFile_))))) {
+      int magic = in.readInt();
+      int version = in.readInt();
+      if (magic != SNAPSHOT_MAGIC || version != SNAPSHOT_FORMAT_VERSION) {
+        LOG.warn(String.format("Ignoring catalog snapshot %s with unexpected format " +
+            "(magic: %x, version: %d)", snapshotFile_, magic, version));
+        return 0;
+      }
+      long lastEventId = in.readLong();
+      if (!canCatchUpFrom(lastEventId)) {
+        LOG.warn(String.format("Ignoring catalog snapshot %s since the metastore no " +
+            "longer has all the events after event id %d", snapshotFile_, lastEventId));
+        return 0;
+      }
+      ExternalEventsProcessor eventsProcessor = catalog_.getMetastoreEventProcessor();
+      eventsProcessor.pause();
+      try {
+        TDeserializer deserializer = new TDeserializer(protocolFactory_);
+        int length;
+        while ((length = in.readInt()) != END_OF_TABLES) {
+          byte[] bytes = new byte[length];
+          in.readFully(bytes);
+          TCatalogSnapshotTable entry = new TCatalogSnapshotTable();
+          deserializer.deserialize(entry, bytes);
+          try {
+            if (catalog_.addTableFromSnapshot(entry)) ++numRestored;
+          } catch (CatalogException e) {
+            LOG.warn(String.format("Failed to restore table %s.%s from the catalog " +
+                "snapshot", entry.getTable().getDb_name(),
+                entry.getTable().getTbl_name()), e);
+          }
+        }
+      } finally {
+        // Whatever was restored so far must catch up from the snapshot's event id.
+        eventsProcessor.start(lastEventId);
+      }
+      LOG.info(String.format("Restored %d tables from catalog snapshot %s at event id " +
+          "%d. Time taken: %s", numRestored, snapshotFile_, lastEventId,
+          PrintUtils.printTimeNs(clock.getTick() - startTime)));
+    } catch (Exception e) {
+      LOG.error(String.format("Failed to read catalog snapshot %s. %d tables were " +
+          "restored.", snapshotFile_, numRestored), e);
+    }
+    return numRestored;
+  }
+
+  /**
+   * Returns true if the metastore still has all the events after 'eventId', i.e. the
+   * changes made since the snapshot can be replayed by the events processor.
+   */
+  private boolean canCatchUpFrom(long eventId) throws TException {
+    try (MetaStoreClient msClient = catalog_.getMetaStoreClient()) {
+      long currentEventId =
+          msClient.getHiveClient().getCurrentNotificationEventId().getEventId();
+      if (currentEventId < eventId) return false;
+      if (currentEventId == eventId) return true;
+      List<NotificationEvent> events = msClient.getHiveClient()
+          .getNextNotification(eventId, 1, null).getEvents();
+      return !events.isEmpty() && events.get(0).getEventId() == eventId + 1;
+    }
+  }
+}
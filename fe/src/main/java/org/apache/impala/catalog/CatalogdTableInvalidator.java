@@ -42,11 +42,13 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * Automatically invalidates recently unused tables. There are currently 2 rules
  * implemented:
- * 1. Invalidate a certain percentage of the least recently used tables after a GC with an
- * almost full old generation. The fullness of the GC generation depends on the maximum
- * heap size.
+ * 1. Invalidate a certain percentage of the tables after a GC with an almost full old
+ * generation. The fullness of the GC generation depends on the maximum heap size. The
+ * order in which tables are invalidated is decided by a TableEvictionPolicy.
  * 2. If invalidate_tables_timeout_s is set in the backend, unused tables older than the
  * threshold are invalidated periodically.
+ * The estimated metadata size of the invalidated tables is tracked as bytes freed, see
+ * getLastRoundBytesFreed() and getTotalBytesFreed().
  */
 public class CatalogdTableInvalidator {
   public static final Logger LOG = Logger.getLogger(CatalogdTableInvalidator.class);
@@ -72,6 +74,20 @@ public class CatalogdTableInvalidator {
    * The ratio of tables to invalidate when the old gen is almost full.
    */
   final private double gcInvalidationFraction_;
+  /**
+   * Decides which tables are invalidated first when the old gen is almost full.
+   */
+  final private TableEvictionPolicy evictionPolicy_;
+  /**
+   * Estimated metadata size of the tables invalidated in the last round of
+   * invalidations, and in all rounds since startup.
+   */
+  private final AtomicLong lastRoundBytesFreed_ = new AtomicLong();
+  private final AtomicLong totalBytesFreed_ = new AtomicLong();
+  /**
+   * The number of tables invalidated since startup.
+   */
+  private final AtomicLong numTablesInvalidated_ = new AtomicLong();
   /**
    * The number of times the daemon thread wakes up and scans the tables for invalidation.
    * It's useful for tests to ensure that a scan happened.
@@ -97,10 +113,18 @@ public class CatalogdTableInvalidator {
   CatalogdTableInvalidator(CatalogServiceCatalog catalog, final long unusedTableTtlSec,
       boolean invalidateTableOnMemoryPressure, double oldGenFullThreshold,
       double gcInvalidationFraction) {
+    this(catalog, unusedTableTtlSec, invalidateTableOnMemoryPressure,
+        oldGenFullThreshold, gcInvalidationFraction, TableEvictionPolicy.create(null));
+  }
+
+  CatalogdTableInvalidator(CatalogServiceCatalog catalog, final long unusedTableTtlSec,
+      boolean invalidateTableOnMemoryPressure, double oldGenFullThreshold,
+      double gcInvalidationFraction, TableEvictionPolicy evictionPolicy) {
     catalog_ = catalog;
     unusedTableTtlNano_ = TimeUnit.SECONDS.toNanos(unusedTableTtlSec);
     oldGenFullThreshold_ = oldGenFullThreshold;
     gcInvalidationFraction_ = gcInvalidationFraction;
+    evictionPolicy_ = Preconditions.checkNotNull(evictionPolicy);
     lastInvalidationTime_ = TIME_SOURCE.read();
     invalidateTableOnMemoryPressure_ =
         invalidateTableOnMemoryPressure && tryInstallGcListener();
@@ -119,6 +143,8 @@ public class CatalogdTableInvalidator {
         config.getInvalidateTablesGcOldGenFullThreshold();
     final double fractionOnMemoryPressure =
         config.getInvalidateTablesFractionOnMemoryPressure();
+    final TableEvictionPolicy evictionPolicy =
+        TableEvictionPolicy.create(config.getInvalidateTablesEvictionPolicy());
     Preconditions.checkArgument(timeoutSec >= 0,
         "invalidate_tables_timeout_s must be a non-negative integer.");
     Preconditions.checkArgument(gcOldGenFullThreshold >= 0 && gcOldGenFullThreshold <= 1,
@@ -129,7 +155,7 @@ public class CatalogdTableInvalidator {
     if (timeoutSec > 0 || invalidateTableOnMemoryPressure) {
       return new CatalogdTableInvalidator(catalog, timeoutSec,
           invalidateTableOnMemoryPressure, gcOldGenFullThreshold,
-          fractionOnMemoryPressure);
+          fractionOnMemoryPressure, evictionPolicy);
     } else {
       return null;
     }
@@ -197,46 +223,107 @@ public class CatalogdTableInvalidator {
     return false;
   }
 
-  private void invalidateSome(double invalidationFraction) {
-    List<Table> tables = new ArrayList<>();
+  @VisibleForTesting
+  void invalidateSome(double invalidationFraction) {
+    long now = TIME_SOURCE.read();
+    List<ScoredTable> tables = new ArrayList<>();
     for (Db db : catalog_.getAllDbs()) {
       for (Table table : db.getTables()) {
-        if (!(table instanceof IncompleteTable)) tables.add(table);
+        if (table instanceof IncompleteTable) continue;
+        // The scores change over time, compute them once for the sort.
+        tables.add(new ScoredTable(table, evictionPolicy_.getRetentionScore(table, now)));
       }
     }
     // TODO: use quick select
-    Collections.sort(tables, new Comparator<Table>() {
+    Collections.sort(tables, new Comparator<ScoredTable>() {
       @Override
-      public int compare(Table o1, Table o2) {
-        return Long.compare(o1.getLastUsedTime(), o2.getLastUsedTime());
+      public int compare(ScoredTable o1, ScoredTable o2) {
+        return Double.compare(o1.score_, o2.score_);
       }
     });
+    long bytesFreed = 0;
+    int numInvalidated = 0;
     for (int i = 0; i < tables.size() * invalidationFraction; ++i) {
-      TTableName tTableName = tables.get(i).getTableName().toThrift();
-      Reference<Boolean> tblWasRemoved = new Reference<>();
-      Reference<Boolean> dbWasAdded = new Reference<>();
-      catalog_.invalidateTable(tTableName, tblWasRemoved, dbWasAdded);
-      LOG.info("Table " + tables.get(i).getFullName() + " invalidated due to memory " +
-          "pressure.");
+      Table table = tables.get(i).table_;
+      long sizeBytes = table.getEstimatedMetadataSize();
+      invalidate(table);
+      bytesFreed += sizeBytes;
+      ++numInvalidated;
+      LOG.info(String.format("Table %s invalidated due to memory pressure. Policy: " +
+          "%s, retention score: %.3g, estimated size: %d bytes, max load time: %d ms, " +
+          "access frequency: %.2f", table.getFullName(), evictionPolicy_.getName(),
+          tables.get(i).score_, sizeBytes,
+          TimeUnit.NANOSECONDS.toMillis(table.getMaxTableLoadingTime()),
+          table.getAccessFrequency(now)));
     }
+    if (numInvalidated == 0) return;
+    finishRound(bytesFreed);
+    LOG.info(String.format("Invalidated %d of %d tables due to memory pressure, " +
+        "freeing an estimated %d bytes.", numInvalidated, tables.size(), bytesFreed));
   }
 
   private void invalidateOlderThan(long retireAgeNano) {
     long now = TIME_SOURCE.read();
+    long bytesFreed = 0;
+    int numInvalidated = 0;
     for (Db db : catalog_.getAllDbs()) {
       for (Table table : catalog_.getAllTables(db)) {
         if (table instanceof IncompleteTable) continue;
         long inactivityTime = now - table.getLastUsedTime();
         if (inactivityTime <= retireAgeNano) continue;
-        Reference<Boolean> tblWasRemoved = new Reference<>();
-        Reference<Boolean> dbWasAdded = new Reference<>();
-        TTableName tTableName = table.getTableName().toThrift();
-        catalog_.invalidateTable(tTableName, tblWasRemoved, dbWasAdded);
+        long sizeBytes = table.getEstimatedMetadataSize();
+        invalidate(table);
+        bytesFreed += sizeBytes;
+        ++numInvalidated;
         LOG.info(
             "Invalidated " + table.getFullName() + " due to inactivity for " +
-                TimeUnit.NANOSECONDS.toSeconds(inactivityTime) + " seconds.");
+                TimeUnit.NANOSECONDS.toSeconds(inactivityTime) + " seconds. " +
+                "Estimated size: " + sizeBytes + " bytes.");
       }
     }
+    if (numInvalidated > 0) finishRound(bytesFreed);
+  }
+
+  private void invalidate(Table table) {
+    Reference<Boolean> tblWasRemoved = new Reference<>();
+    Reference<Boolean> dbWasAdded = new Reference<>();
+    TTableName tTableName = table.getTableName().toThrift();
+    catalog_.invalidateTable(tTableName, tblWasRemoved, dbWasAdded);
+    numTablesInvalidated_.incrementAndGet();
+  }
+
+  private void finishRound(long bytesFreed) {
+    lastRoundBytesFreed_.set(bytesFreed);
+    totalBytesFreed_.addAndGet(bytesFreed);
+  }
+
+  /**
+   * Returns the estimated metadata size of the tables invalidated in the last round of
+   * invalidations which invalidated any table.
+   */
+  public long getLastRoundBytesFreed() { return lastRoundBytesFreed_.get(); }
+
+  /**
+   * Returns the estimated metadata size of all tables invalidated since startup.
+   */
+  public long getTotalBytesFreed() { return totalBytesFreed_.get(); }
+
+  /**
+   * Returns the number of tables invalidated since startup.
+   */
+  public long getNumTablesInvalidated() { return numTablesInvalidated_.get(); }
+
+  /**
+   * A table and its retention score at the start of a round of invalidations.
+   */
+  private static class ScoredTable {
+    final Table table_;
+    final double score_;
+
+    ScoredTable(Table table, double score) {
+      table_ = table;
+      score_ = score;
+    }
   }
 
   void stop() {
@@ -0,0 +1,172 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Equi-height histogram over the non-null values of a numeric column. The histogram
+ * is described by the sorted upper bounds of its buckets, each of which holds the same
+ * fraction of the values. This is the format produced by the histogram() builtin,
+ * e.g. "1, 1, 1, 5, 9, 20". A value that spans several buckets is a frequent value.
+ *
+ * The lower bound of the first bucket is not known, so all values of the first bucket
+ * are assumed to be equal to its upper bound. Within the other buckets the values are
+ * assumed to be uniformly distributed between the bounds of the bucket.
+ */
+public class ColumnHistogram {
+  private final static Logger LOG = LoggerFactory.getLogger(ColumnHistogram.class);
+
+  // Separator between the bucket bounds in the string representation.
+  private final static String SEPARATOR = ", ";
+
+  // Sorted upper bounds of the buckets. Never empty.
+  private final double[] bounds_;
+
+  private ColumnHistogram(double[] bounds) {
+    Preconditions.checkArgument(bounds.length > 0);
+    bounds_ = bounds;
+  }
+
+  /**
+   * Parses a histogram from its string representation. Returns null if 'str' is null
+   * or not a valid histogram, e.g. because it contains non-finite values.
+   */
+  public static ColumnHistogram parse(String str) {
+    if (StringUtils.isBlank(str)) return null;
+    String[] tokens = str.split(",");
+    double[] bounds = new double[tokens.length];
+    try {
+      for (int i = 0; i < tokens.length; ++i) {
+        bounds[i] = Double.parseDouble(tokens[i].trim());
+        if (Double.isNaN(bounds[i]) || Double.isInfinite(bounds[i])) return null;
+        if (i > 0 && bounds[i] < bounds[i - 1]) return null;
+      }
+    } catch (NumberFormatException e) {
+      LOG.warn("Ignoring invalid column histogram: " + str);
+      return null;
+    }
+    return new ColumnHistogram(bounds);
+  }
+
+  public int getNumBuckets() { return bounds_.length; }
+
+  /**
+   * Returns the estimated fraction of values that are equal to 'value'. A value that is
+   * the upper bound of k buckets fills at least k - 1 buckets entirely. Returns 0 if
+   * 'value' is the upper bound of at most one bucket, in which case the histogram
+   * cannot tell the frequency of 'value' apart from that of any infrequent value.
+   */
+  public double getEqualFraction(double value) {
+    int numBuckets = upperBound(value) - lowerBound(value);
+    return (double) Math.max(0, numBuckets - 1) / bounds_.length;
+  }
+
+  /**
+   * Returns the estimated fraction of values that are less than 'value', or less than
+   * or equal to 'value' if 'inclusive' is true.
+   */
+  public double getLessFraction(double value, boolean inclusive) {
+    int idx = inclusive ? upperBound(value) : lowerBound(value);
+    // All buckets before 'idx' are entirely below 'value'. A bucket whose upper bound
+    // is equal to 'value' is counted as holding only 'value', consistent with
+    // getEqualFraction().
+    double numBuckets = idx;
+    if (idx > 0 && idx < bounds_.length && bounds_[idx] > value) {
+      // Interpolate within the bucket that contains 'value'.
+      double lo = bounds_[idx - 1];
+      numBuckets += (value - lo) / (bounds_[idx] - lo);
+    }
+    return Math.max(0, Math.min(1, numBuckets / bounds_.length));
+  }
+
+  /**
+   * Returns the estimated fraction of values that are greater than 'value', or greater
+   * than or equal to 'value' if 'inclusive' is true.
+   */
+  public double getGreaterFraction(double value, boolean inclusive) {
+    return 1 - getLessFraction(value, !inclusive);
+  }
+
+  /**
+   * Returns the index of the first bound that is not less than 'value'.
+   */
+  private int lowerBound(double value) {
+    int lo = 0;
+    int hi = bounds_.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (bounds_[mid] < value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Returns the index of the first bound that is greater than 'value'.
+   */
+  private int upperBound(double value) {
+    int lo = 0;
+    int hi = bounds_.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (bounds_[mid] <= value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof ColumnHistogram)) return false;
+    return Arrays.equals(bounds_, ((ColumnHistogram) obj).bounds_);
+  }
+
+  @Override
+  public int hashCode() { return Arrays.hashCode(bounds_); }
+
+  /**
+   * Returns the string representation that is accepted by parse().
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < bounds_.length; ++i) {
+      if (i > 0) sb.append(SEPARATOR);
+      double bound = bounds_[i];
+      if (bound == Math.rint(bound) && Math.abs(bound) < 1e15) {
+        sb.append((long) bound);
+      } else {
+        sb.append(bound);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -17,12 +17,15 @@
 
 package org.apache.impala.catalog;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Set;
 
 import org.apache.hadoop.hive.metastore.api.BinaryColumnStatsData;
 import org.apache.hadoop.hive.metastore.api.BooleanColumnStatsData;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
 import org.apache.hadoop.hive.metastore.api.DateColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.Decimal;
 import org.apache.hadoop.hive.metastore.api.DecimalColumnStatsData;
 import org.apache.hadoop.hive.metastore.api.DoubleColumnStatsData;
 import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
@@ -83,6 +86,12 @@ public class ColumnStats {
   private long maxSize_;  // in bytes
   private long numDistinctValues_;
   private long numNulls_;
+  // Histogram of the non-null values. Null if unknown.
+  private ColumnHistogram histogram_;
+  // Smallest and largest non-null value of numeric, DECIMAL and DATE columns. DATE
+  // values are given as days since the epoch. NaN if unknown.
+  private double minValue_;
+  private double maxValue_;
 
   public ColumnStats(Type colType) {
     initColStats(colType);
@@ -98,6 +107,9 @@ public class ColumnStats {
     maxSize_ = other.maxSize_;
     numDistinctValues_ = other.numDistinctValues_;
     numNulls_ = other.numNulls_;
+    histogram_ = other.histogram_;
+    minValue_ = other.minValue_;
+    maxValue_ = other.maxValue_;
     validate(null);
   }
 
@@ -112,6 +124,9 @@ public class ColumnStats {
     maxSize_ = -1;
     numDistinctValues_ = -1;
     numNulls_ = -1;
+    histogram_ = null;
+    minValue_ = Double.NaN;
+    maxValue_ = Double.NaN;
     if (colType.isFixedLengthType()) {
       avgSerializedSize_ = colType.getSlotSize();
       avgSize_ = colType.getSlotSize();
@@ -134,6 +149,12 @@ public class ColumnStats {
     ColumnStats slotStats = slotRef.getDesc().getStats();
     if (slotStats == null) return stats;
     stats.numNulls_ = slotStats.getNumNulls();
+    if (colType.isNumericType()) stats.histogram_ = slotStats.getHistogram();
+    if (expr.unwrapSlotRef(true) == slotRef) {
+      // Implicit casts preserve the order of values.
+      stats.minValue_ = slotStats.minValue_;
+      stats.maxValue_ = slotStats.maxValue_;
+    }
     if (!colType.isFixedLengthType()) {
       stats.avgSerializedSize_ = slotStats.getAvgSerializedSize();
       stats.avgSize_ = slotStats.getAvgSize();
@@ -161,6 +182,10 @@ public class ColumnStats {
     } else {
       numNulls_ += other.numNulls_;
     }
+    histogram_ = null;
+    // Math.min() and Math.max() return NaN if either bound is unknown.
+    minValue_ = Math.min(minValue_, other.minValue_);
+    maxValue_ = Math.max(maxValue_, other.maxValue_);
     validate(null);
     return this;
   }
@@ -179,6 +204,16 @@ public class ColumnStats {
   public boolean hasAvgSize() { return avgSize_ >= 0; }
   public boolean hasNumDistinctValues() { return numDistinctValues_ >= 0; }
   public boolean hasStats() { return numNulls_ != -1 || numDistinctValues_ != -1; }
+  public ColumnHistogram getHistogram() { return histogram_; }
+  public void setHistogram(ColumnHistogram histogram) { histogram_ = histogram; }
+  public boolean hasMinValue() { return !Double.isNaN(minValue_); }
+  public boolean hasMaxValue() { return !Double.isNaN(maxValue_); }
+  public double getMinValue() { return minValue_; }
+  public double getMaxValue() { return maxValue_; }
+  public void setMinMaxValues(double minValue, double maxValue) {
+    minValue_ = minValue;
+    maxValue_ = maxValue;
+  }
 
   /**
    * Updates the stats with the given ColumnStatisticsData. If the ColumnStatisticsData
@@ -217,6 +252,11 @@ public class ColumnStats {
           LongColumnStatsData longStats = statsData.getLongStats();
           numDistinctValues_ = longStats.getNumDVs();
           numNulls_ = longStats.getNumNulls();
+          // The encoding of TIMESTAMP bounds differs between Hive versions.
+          if (!colType.isTimestamp()) {
+            if (longStats.isSetLowValue()) minValue_ = longStats.getLowValue();
+            if (longStats.isSetHighValue()) maxValue_ = longStats.getHighValue();
+          }
         }
         break;
       case DATE:
@@ -225,6 +265,12 @@ public class ColumnStats {
           DateColumnStatsData dateStats = statsData.getDateStats();
           numDistinctValues_ = dateStats.getNumDVs();
           numNulls_ = dateStats.getNumNulls();
+          if (dateStats.isSetLowValue()) {
+            minValue_ = dateStats.getLowValue().getDaysSinceEpoch();
+          }
+          if (dateStats.isSetHighValue()) {
+            maxValue_ = dateStats.getHighValue().getDaysSinceEpoch();
+          }
         }
         break;
       case FLOAT:
@@ -234,6 +280,8 @@ public class ColumnStats {
           DoubleColumnStatsData doubleStats = statsData.getDoubleStats();
           numDistinctValues_ = doubleStats.getNumDVs();
           numNulls_ = doubleStats.getNumNulls();
+          if (doubleStats.isSetLowValue()) minValue_ = doubleStats.getLowValue();
+          if (doubleStats.isSetHighValue()) maxValue_ = doubleStats.getHighValue();
         }
         break;
       case CHAR:
@@ -277,6 +325,12 @@ public class ColumnStats {
           DecimalColumnStatsData decimalStats = statsData.getDecimalStats();
           numNulls_ = decimalStats.getNumNulls();
           numDistinctValues_ = decimalStats.getNumDVs();
+          if (decimalStats.isSetLowValue()) {
+            minValue_ = toDouble(decimalStats.getLowValue());
+          }
+          if (decimalStats.isSetHighValue()) {
+            maxValue_ = toDouble(decimalStats.getHighValue());
+          }
         }
         break;
       default:
@@ -288,6 +342,11 @@ public class ColumnStats {
     return isCompatible;
   }
 
+  private static double toDouble(Decimal decimal) {
+    return new BigDecimal(new BigInteger(decimal.getUnscaled()), decimal.getScale())
+        .doubleValue();
+  }
+
   /**
    * Convert the statistics back into an HMS-compatible ColumnStatisticsData object.
    * This is essentially the inverse of {@link #update(Type, ColumnStatisticsData)
@@ -426,6 +485,9 @@ public class ColumnStats {
     maxSize_ = stats.getMax_size();
     numDistinctValues_ = stats.getNum_distinct_values();
     numNulls_ = stats.getNum_nulls();
+    if (stats.isSetHistogram()) histogram_ = ColumnHistogram.parse(stats.getHistogram());
+    if (stats.isSetMin_value()) minValue_ = stats.getMin_value();
+    if (stats.isSetMax_value()) maxValue_ = stats.getMax_value();
     validate(colType);
   }
 
@@ -435,6 +497,9 @@ public class ColumnStats {
     colStats.setMax_size(maxSize_);
     colStats.setNum_distinct_values(numDistinctValues_);
     colStats.setNum_nulls(numNulls_);
+    if (histogram_ != null) colStats.setHistogram(histogram_.toString());
+    if (hasMinValue()) colStats.setMin_value(minValue_);
+    if (hasMaxValue()) colStats.setMax_value(maxValue_);
     return colStats;
   }
 
@@ -467,6 +532,9 @@ public class ColumnStats {
         .add("maxSize_", maxSize_)
         .add("numDistinct_", numDistinctValues_)
         .add("numNulls_", numNulls_)
+        .add("histogram_", histogram_)
+        .add("minValue_", minValue_)
+        .add("maxValue_", maxValue_)
         .toString();
   }
 
@@ -83,6 +83,13 @@ public interface FeCatalog {
    */
   void prioritizeLoad(Set<TableName> tableNames) throws InternalException;
 
+  /**
+   * Fetches the metadata of the given tables, if not available yet, in bulk ahead of
+   * the individual getTable() calls. Tables that do not exist are ignored. This is
+   * only a hint, failures are reported by the subsequent getTable() calls.
+   */
+  void prefetchTables(Set<TableName> tableNames);
+
   /**
    * Fetches partition statistics for a table. The table is loaded if needed. If the table
    * does not exist or cannot be loaded, an exception is thrown.
@@ -38,6 +38,7 @@ import org.apache.impala.catalog.CatalogObject.ThriftObjectType;
 import org.apache.impala.catalog.HdfsPartition.FileDescriptor;
 import org.apache.impala.catalog.local.CatalogdMetaProvider;
 import org.apache.impala.catalog.local.LocalCatalog;
+import org.apache.impala.catalog.local.MetadataCache;
 import org.apache.impala.catalog.local.MetaProvider;
 import org.apache.impala.service.BackendConfig;
 import org.apache.impala.thrift.TCatalogObject;
@@ -141,10 +142,13 @@ public abstract class FeCatalogUtils {
 
   /**
    * Given the list of column stats returned from the metastore, inject those
-   * stats into matching columns in 'table'.
+   * stats into matching columns in 'table'. Also injects the column histograms that
+   * are stored in the table properties of 'table'.
    */
   public static void injectColumnStats(List<ColumnStatisticsObj> colStats,
       FeTable table) {
+    Map<String, String> tblParams = table.getMetaStoreTable() == null ? null :
+        table.getMetaStoreTable().getParameters();
     for (ColumnStatisticsObj stats: colStats) {
       Column col = table.getColumn(stats.getColName());
       Preconditions.checkNotNull(col, "Unable to find column %s in table %s",
@@ -164,6 +168,10 @@ public abstract class FeCatalogUtils {
             table.getFullName()));
         continue;
       }
+      if (tblParams != null) {
+        col.getStats().setHistogram(ColumnHistogram.parse(tblParams.get(
+            Table.TBL_PROP_COLUMN_HISTOGRAM_PREFIX + col.getName())));
+      }
     }
   }
 
@@ -370,7 +378,8 @@ public abstract class FeCatalogUtils {
     MetaProvider provider = ((LocalCatalog) catalog).getMetaProvider();
     if (!(provider instanceof CatalogdMetaProvider)) return;
 
-    CacheStats stats = ((CatalogdMetaProvider) provider).getCacheStats();
+    CatalogdMetaProvider catalogdProvider = (CatalogdMetaProvider) provider;
+    CacheStats stats = catalogdProvider.getCacheStats();
     metrics.setCache_eviction_count(stats.evictionCount());
     metrics.setCache_hit_count(stats.hitCount());
     metrics.setCache_load_count(stats.loadCount());
@@ -383,6 +392,12 @@ public abstract class FeCatalogUtils {
     metrics.setCache_hit_rate(stats.hitRate());
     metrics.setCache_load_exception_rate(stats.loadExceptionRate());
     metrics.setCache_miss_rate(stats.missRate());
+    metrics.setCache_table_hit_rate(
+        catalogdProvider.getCacheStats(MetadataCache.Kind.TABLE).hitRate());
+    metrics.setCache_partition_hit_rate(
+        catalogdProvider.getCacheStats(MetadataCache.Kind.PARTITION).hitRate());
+    metrics.setCache_column_stats_hit_rate(
+        catalogdProvider.getCacheStats(MetadataCache.Kind.COLUMN_STATS).hitRate());
   }
 
 
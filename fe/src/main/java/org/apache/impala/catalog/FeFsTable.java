@@ -181,6 +181,14 @@ public interface FeFsTable extends FeTable {
    */
   List<? extends FeFsPartition> loadPartitions(Collection<Long> ids);
 
+  /**
+   * Hints that the partitions with the given IDs are likely going to be passed to
+   * loadPartitions() soon. Implementations may start loading them in the background,
+   * so that a following loadPartitions() call does not have to wait for all of them.
+   * The IDs must have been obtained the same way as those passed to loadPartitions().
+   */
+  void prefetchPartitions(Collection<Long> ids);
+
   /**
    * @return: Primary keys information.
    */
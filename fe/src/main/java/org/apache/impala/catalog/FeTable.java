@@ -44,6 +44,12 @@ public interface FeTable {
   /** @see CatalogObject#isLoaded() */
   boolean isLoaded();
 
+  /**
+   * @return the catalog version of this table, or Catalog.INITIAL_CATALOG_VERSION if it
+   * is not known, e.g. because the table was loaded directly from the HMS
+   */
+  long getCatalogVersion();
+
   /**
    * @return the metastore.api.Table object this Table was created from. Returns null
    * if the derived Table object was not created from a metastore Table (ex. InlineViews).
@@ -0,0 +1,128 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.impala.catalog.HdfsPartition.FileDescriptor;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Packs the encoded file descriptors of partitions into large direct (off-heap)
+ * ByteBuffers, called slabs. Keeping millions of small flatbuffer byte arrays on the
+ * Java heap makes the old generation of the catalogd large and its full GCs slow;
+ * a slab instead costs a single small heap object regardless of how many file
+ * descriptors it holds.
+ *
+ * The file descriptors of one store() call are laid out contiguously in one slab and
+ * returned as a Region, an immutable list of FileDescriptor views into the slab. A
+ * Region may be set on HdfsPartitions like any other list of file descriptors, see
+ * HdfsPartition.setFileDescriptors(). The memory of a slab is released by the garbage
+ * collector once no Region of the slab is referenced anymore.
+ *
+ * An allocator is meant to be used for a single batch of loaded partitions and is not
+ * thread-safe. Slabs are sized after the expected total size of the batch, up to
+ * MAX_SLAB_BYTES, so that small batches (e.g. the refresh of a single partition) do
+ * not waste memory.
+ */
+public class FileDescriptorSlabAllocator {
+  // Maximum size of a slab, unless a single store() call needs more.
+  private static final int MAX_SLAB_BYTES = 64 * 1024 * 1024;
+
+  // Number of bytes that are still expected to be stored.
+  private long expectedBytes_;
+
+  // The slab the next region is stored into, or null if none has been allocated yet.
+  private ByteBuffer slab_;
+  // Offset in 'slab_' at which the next region starts.
+  private int slabPos_;
+
+  /**
+   * @param expectedBytes the expected total encoded size of the file descriptors which
+   * are going to be stored, see getEncodedSize().
+   */
+  public FileDescriptorSlabAllocator(long expectedBytes) {
+    expectedBytes_ = expectedBytes;
+  }
+
+  /**
+   * Returns the total size of the encoded file descriptors in 'fds'.
+   */
+  public static long getEncodedSize(List<FileDescriptor> fds) {
+    long size = 0;
+    for (FileDescriptor fd : fds) size += fd.getEncodedBuffer().remaining();
+    return size;
+  }
+
+  /**
+   * Copies 'fds' into a slab and returns the off-heap copies.
+   */
+  public Region store(List<FileDescriptor> fds) {
+    long size = getEncodedSize(fds);
+    Preconditions.checkState(size <= Integer.MAX_VALUE,
+        "File descriptors too large for a slab: %s bytes", size);
+    if (slab_ == null || slab_.capacity() - slabPos_ < size) {
+      int slabSize = (int) Math.max(size, Math.min(MAX_SLAB_BYTES, expectedBytes_));
+      slab_ = ByteBuffer.allocateDirect(slabSize);
+      slabPos_ = 0;
+    }
+    int[] offsets = new int[fds.size() + 1];
+    ByteBuffer dst = slab_.duplicate();
+    dst.position(slabPos_);
+    for (int i = 0; i < fds.size(); i++) {
+      offsets[i] = dst.position();
+      dst.put(fds.get(i).getEncodedBuffer());
+    }
+    offsets[fds.size()] = dst.position();
+    slabPos_ = dst.position();
+    expectedBytes_ -= size;
+    return new Region(slab_, offsets);
+  }
+
+  /**
+   * Immutable list of file descriptors stored in a slab. The i-th file descriptor is
+   * stored in the bytes [offsets_[i], offsets_[i + 1]) of the slab.
+   */
+  public static class Region extends AbstractList<FileDescriptor>
+      implements RandomAccess {
+    private final ByteBuffer slab_;
+    private final int[] offsets_;
+
+    private Region(ByteBuffer slab, int[] offsets) {
+      Preconditions.checkArgument(offsets.length > 0);
+      slab_ = slab;
+      offsets_ = offsets;
+    }
+
+    @Override
+    public FileDescriptor get(int i) {
+      Preconditions.checkElementIndex(i, size());
+      ByteBuffer bb = slab_.duplicate();
+      bb.limit(offsets_[i + 1]);
+      bb.position(offsets_[i]);
+      return FileDescriptor.wrap(bb.slice());
+    }
+
+    @Override
+    public int size() { return offsets_.length - 1; }
+  }
+}
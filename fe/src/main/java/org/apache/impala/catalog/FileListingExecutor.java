@@ -0,0 +1,218 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.impala.common.FileSystemUtil.FsType;
+import org.apache.impala.service.BackendConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Catalogd-wide executor for the file listing tasks issued by
+ * ParallelFileMetadataLoader. Instead of every table load creating its own thread pool,
+ * tasks run on one bounded pool per filesystem type, so that many concurrent table
+ * loads cannot overload a filesystem (in particular the HDFS NameNode) with listing
+ * calls.
+ *
+ * Each pool serves its tasks in priority order. Tasks of loads needed by queries and
+ * statements run before tasks of background loads, e.g. those queued by
+ * TableLoadingMgr.backgroundLoad() or issued by the metastore event processor. Tasks
+ * of the same priority run in submission order. The priority of a load is a property
+ * of the thread issuing it, see setThreadPriority().
+ */
+public class FileListingExecutor {
+  private final static Logger LOG = LoggerFactory.getLogger(FileListingExecutor.class);
+  private static final Configuration CONF = new Configuration();
+
+  /**
+   * Priority of listing tasks. Tasks of a lower ordinal run first.
+   */
+  public enum Priority {
+    HIGH,
+    LOW
+  }
+
+  // Created on first use.
+  private static FileListingExecutor instance_;
+
+  // Listing priority of the loads issued by the current thread.
+  private static final ThreadLocal<Priority> threadPriority_ =
+      ThreadLocal.withInitial(() -> Priority.HIGH);
+
+  // Idle pool threads are shut down after this many seconds.
+  private static final long THREAD_KEEP_ALIVE_S = 60;
+
+  private final int maxHdfsThreads_;
+  private final int maxNonHdfsThreads_;
+
+  // Pools by filesystem type. Paths of an unknown filesystem type share the pool
+  // mapped to the key 'null'. Pools are created on first use.
+  private final Map<String, ThreadPoolExecutor> pools_ = new ConcurrentHashMap<>();
+
+  // Used to run tasks of the same priority in submission order.
+  private final AtomicLong nextSeq_ = new AtomicLong();
+
+  // Number of tasks that started running and the total time they spent queued.
+  private final AtomicLong numTasks_ = new AtomicLong();
+  private final AtomicLong totalWaitTimeNs_ = new AtomicLong();
+
+  FileListingExecutor(int maxHdfsThreads, int maxNonHdfsThreads) {
+    Preconditions.checkArgument(maxHdfsThreads > 0);
+    Preconditions.checkArgument(maxNonHdfsThreads > 0);
+    maxHdfsThreads_ = maxHdfsThreads;
+    maxNonHdfsThreads_ = maxNonHdfsThreads;
+  }
+
+  public static synchronized FileListingExecutor get() {
+    if (instance_ == null) {
+      instance_ = new FileListingExecutor(
+          BackendConfig.INSTANCE.maxHdfsFileListingThreads(),
+          BackendConfig.INSTANCE.maxNonHdfsFileListingThreads());
+    }
+    return instance_;
+  }
+
+  /**
+   * Returns the listing priority of the loads issued by the current thread.
+   */
+  public static Priority getThreadPriority() { return threadPriority_.get(); }
+
+  /**
+   * Sets the listing priority of the loads issued by the current thread and returns the
+   * previous priority, which callers should restore when done.
+   */
+  public static Priority setThreadPriority(Priority priority) {
+    Priority prev = threadPriority_.get();
+    threadPriority_.set(Preconditions.checkNotNull(priority));
+    return prev;
+  }
+
+  /**
+   * Returns the maximum number of tasks that may run concurrently against a filesystem
+   * of type 'fsType'.
+   */
+  int getMaxThreads(@Nullable FsType fsType) {
+    return fsType == FsType.HDFS ? maxHdfsThreads_ : maxNonHdfsThreads_;
+  }
+
+  /**
+   * Returns the filesystem type whose pool lists 'path'. Paths without a scheme are on
+   * the default filesystem. viewfs mount tables are federations of HDFS namespaces in
+   * practice, so their listings share the HDFS pool and its limit.
+   */
+  public static FsType getFsType(Path path) {
+    String scheme = path.toUri().getScheme();
+    if (scheme == null) scheme = FileSystem.getDefaultUri(CONF).getScheme();
+    if ("viewfs".equals(scheme)) return FsType.HDFS;
+    return FsType.getFsType(scheme);
+  }
+
+  /**
+   * Queues 'task' for execution on the pool of filesystem type 'fsType', or of unknown
+   * filesystems if 'fsType' is null.
+   */
+  public void execute(@Nullable FsType fsType, Priority priority, Runnable task) {
+    getPool(fsType).execute(new PrioritizedTask(priority, task));
+  }
+
+  /**
+   * Returns the number of tasks waiting for a thread across all pools.
+   */
+  public int getQueueLength() {
+    int len = 0;
+    for (ThreadPoolExecutor pool : pools_.values()) len += pool.getQueue().size();
+    return len;
+  }
+
+  /**
+   * Returns the number of tasks that started running since startup.
+   */
+  public long getNumTasks() { return numTasks_.get(); }
+
+  /**
+   * Returns the total time, in nanoseconds, tasks spent queued since startup.
+   */
+  public long getTotalWaitTimeNs() { return totalWaitTimeNs_.get(); }
+
+  private ThreadPoolExecutor getPool(@Nullable FsType fsType) {
+    String key = String.valueOf(fsType);
+    return pools_.computeIfAbsent(key, k -> {
+      int numThreads = getMaxThreads(fsType);
+      LOG.info("Creating file listing pool for {} filesystems with {} threads",
+          fsType == null ? "other" : fsType, numThreads);
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads,
+          THREAD_KEEP_ALIVE_S, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("file-listing-" + k.toLowerCase() + "-%d")
+              .build());
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    });
+  }
+
+  /**
+   * A task ordered by priority, then by submission order.
+   */
+  private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+    private final Priority priority_;
+    private final long seq_;
+    private final long queuedTimeNs_;
+    private final Runnable task_;
+
+    PrioritizedTask(Priority priority, Runnable task) {
+      priority_ = Preconditions.checkNotNull(priority);
+      seq_ = nextSeq_.getAndIncrement();
+      queuedTimeNs_ = System.nanoTime();
+      task_ = Preconditions.checkNotNull(task);
+    }
+
+    @Override
+    public void run() {
+      numTasks_.incrementAndGet();
+      totalWaitTimeNs_.addAndGet(System.nanoTime() - queuedTimeNs_);
+      Priority prev = setThreadPriority(priority_);
+      try {
+        task_.run();
+      } finally {
+        setThreadPriority(prev);
+      }
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask other) {
+      int cmp = priority_.compareTo(other.priority_);
+      return cmp != 0 ? cmp : Long.compare(seq_, other.seq_);
+    }
+  }
+}
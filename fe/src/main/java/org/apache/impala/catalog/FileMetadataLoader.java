@@ -41,6 +41,7 @@ import org.apache.impala.util.ThreadNameAnnotator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,6 +55,13 @@ public class FileMetadataLoader {
   private final static Logger LOG = LoggerFactory.getLogger(FileMetadataLoader.class);
   private static final Configuration CONF = new Configuration();
 
+  // Minimum age of a directory modification time for it to be recorded by
+  // getDirModificationTime(). HDFS keeps modification times at millisecond granularity,
+  // so a directory modified right before it was listed may be modified again without
+  // its modification time changing. The margin also absorbs modest clock skew between
+  // the catalogd and the NameNode.
+  private static final long MIN_DIR_MTIME_AGE_MS = 10000;
+
   private final Path partDir_;
   private final boolean recursive_;
   private final ImmutableMap<String, FileDescriptor> oldFdsByRelPath_;
@@ -65,6 +73,14 @@ public class FileMetadataLoader {
 
   private boolean forceRefreshLocations = false;
 
+  // True if the modification time of 'partDir_' should be tracked. See
+  // setSkipIfDirUnchanged().
+  private boolean trackDirMtime_ = false;
+  // Modification time of 'partDir_' at the time 'oldFdsByRelPath_' was listed, or -1.
+  private long lastDirMtime_ = -1;
+  // Modification time of 'partDir_' that is safe to pass to a later load, or -1.
+  private long dirMtime_ = -1;
+
   private List<FileDescriptor> loadedFds_;
   private LoadStats loadStats_;
 
@@ -106,6 +122,34 @@ public class FileMetadataLoader {
     forceRefreshLocations = refresh;
   }
 
+  /**
+   * Enables tracking the modification time of the partition directory. If the
+   * directory's modification time still equals 'lastDirMtime', the directory is not
+   * listed again and the old file descriptors are reused as is. 'lastDirMtime' must be
+   * the value returned by getDirModificationTime() of the load which produced the old
+   * file descriptors, or -1 if unknown.
+   *
+   * Only non-transactional tables on HDFS are supported, and a directory is only
+   * skipped if none of its files could have changed without changing its modification
+   * time, i.e. if it had no subdirectories when it was listed recursively. Appends to
+   * existing files are not detected for skipped directories.
+   */
+  public void setSkipIfDirUnchanged(long lastDirMtime) {
+    trackDirMtime_ = true;
+    lastDirMtime_ = lastDirMtime;
+  }
+
+  /**
+   * @return the modification time of the partition directory that may be passed to
+   * setSkipIfDirUnchanged() on the next load of this directory, or -1 if the directory
+   * has to be listed on the next load regardless of its modification time.
+   */
+  public long getDirModificationTime() {
+    Preconditions.checkState(loadedFds_ != null,
+        "Must have successfully loaded first");
+    return dirMtime_;
+  }
+
   /**
    * @return the file descriptors that were loaded after an invocation of load()
    */
@@ -141,6 +185,30 @@ public class FileMetadataLoader {
     loadStats_ = new LoadStats();
     FileSystem fs = partDir_.getFileSystem(CONF);
 
+    // Fetch the directory's modification time before listing it, so that any
+    // modification racing with the listing below results in a different modification
+    // time on the next load.
+    FileStatus dirStatus = null;
+    if (trackDirMtime_ && writeIds_ == null &&
+        FileSystemUtil.isDistributedFileSystem(fs)) {
+      try {
+        dirStatus = fs.getFileStatus(partDir_);
+      } catch (FileNotFoundException e) {
+        // Handled by the listing below.
+      }
+      if (dirStatus != null && !forceRefreshLocations && lastDirMtime_ > 0 &&
+          dirStatus.getModificationTime() == lastDirMtime_) {
+        loadedFds_ = new ArrayList<>(oldFdsByRelPath_.values());
+        loadStats_.skippedFiles = loadedFds_.size();
+        loadStats_.skippedDirs = 1;
+        dirMtime_ = lastDirMtime_;
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("Skipped listing unchanged path " + partDir_);
+        }
+        return;
+      }
+    }
+
     // If we don't have any prior FDs from which we could re-use old block location info,
     // we'll need to fetch info for every returned file. In this case we can inline
     // that request with the 'list' call and save a round-trip per file.
@@ -172,6 +240,9 @@ public class FileMetadataLoader {
 
       Reference<Long> numUnknownDiskIds = new Reference<Long>(Long.valueOf(0));
 
+      // Whether the listing returned any subdirectories. Changes to files in
+      // subdirectories do not change the modification time of 'partDir_'.
+      boolean hasSubdirs = false;
       List<FileStatus> stats = new ArrayList<>();
       while (fileStatuses.hasNext()) {
         stats.add(fileStatuses.next());
@@ -184,6 +255,7 @@ public class FileMetadataLoader {
 
       for (FileStatus fileStatus : stats) {
         if (fileStatus.isDirectory()) {
+          hasSubdirs = true;
           continue;
         }
 
@@ -203,6 +275,13 @@ public class FileMetadataLoader {
         loadedFds_.add(Preconditions.checkNotNull(fd));;
       }
       loadStats_.unknownDiskIds += numUnknownDiskIds.getRef();
+      // Listing with locations only returns files, so subdirectories of a recursive
+      // listing cannot be detected in that case.
+      boolean subdirsKnown = !recursive_ || (!listWithLocations && !hasSubdirs);
+      if (dirStatus != null && subdirsKnown && System.currentTimeMillis() -
+          dirStatus.getModificationTime() >= MIN_DIR_MTIME_AGE_MS) {
+        dirMtime_ = dirStatus.getModificationTime();
+      }
       if (LOG.isTraceEnabled()) {
         LOG.trace(loadStats_.debugString());
       }
@@ -264,6 +343,10 @@ public class FileMetadataLoader {
     // TODO(todd) rename this to something indicating it was fast-pathed, not skipped
     public int skippedFiles = 0;
 
+    // Number of directories which were not listed because their modification time did
+    // not change since the last load. More details at setSkipIfDirUnchanged().
+    public int skippedDirs = 0;
+
     // Number of unknown disk IDs encountered while loading block
     // metadata for this path.
     public int unknownDiskIds = 0;
@@ -274,6 +357,7 @@ public class FileMetadataLoader {
         .add("loaded files", loadedFiles)
         .add("hidden files", nullIfZero(hiddenFiles))
         .add("skipped files", nullIfZero(skippedFiles))
+        .add("skipped dirs", nullIfZero(skippedDirs))
         .add("uncommited files", nullIfZero(uncommittedAcidFilesSkipped))
         .add("superceded files", nullIfZero(filesSupercededByNewerBase))
         .add("unknown diskIds", nullIfZero(unknownDiskIds))
@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FileStatus;
@@ -102,6 +103,21 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
       return new FileDescriptor(FbFileDesc.getRootAsFbFileDesc(bb));
     }
 
+    /**
+     * Returns a file descriptor backed by the encoded flatbuffer in 'bb', which may be a
+     * direct buffer. 'bb' must not be modified afterwards.
+     */
+    static FileDescriptor wrap(ByteBuffer bb) {
+      return new FileDescriptor(FbFileDesc.getRootAsFbFileDesc(bb));
+    }
+
+    /**
+     * Returns a read-only view of the encoded flatbuffer of this file descriptor.
+     */
+    ByteBuffer getEncodedBuffer() {
+      return fbFileDescriptor_.getByteBuffer().asReadOnlyBuffer();
+    }
+
     /**
      * Clone the descriptor, but change the replica indexes to reference the new host
      * index 'dstIndex' instead of the original index 'origIndex'.
@@ -109,9 +125,9 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     public FileDescriptor cloneWithNewHostIndex(List<TNetworkAddress> origIndex,
         ListMap<TNetworkAddress> dstIndex) {
       // First clone the flatbuffer with no changes.
-      ByteBuffer oldBuf = fbFileDescriptor_.getByteBuffer();
+      ByteBuffer oldBuf = getEncodedBuffer();
       ByteBuffer newBuf = ByteBuffer.allocate(oldBuf.remaining());
-      newBuf.put(oldBuf.array(), oldBuf.position(), oldBuf.remaining());
+      newBuf.put(oldBuf);
       newBuf.rewind();
       FbFileDesc cloned = FbFileDesc.getRootAsFbFileDesc(newBuf);
 
@@ -239,6 +255,8 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     public THdfsFileDesc toThrift() {
       THdfsFileDesc fd = new THdfsFileDesc();
       ByteBuffer bb = fbFileDescriptor_.getByteBuffer();
+      // Thrift can only serialize heap buffers.
+      if (!bb.hasArray()) bb = ByteBuffer.wrap(TO_BYTES.apply(this));
       fd.setFile_desc_data(bb);
       return fd;
     }
@@ -280,12 +298,19 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     /**
      * Function to convert from the wrapper class to a raw byte[]. Note that
      * this returns a shallow copy and callers should not modify the returned array.
+     * File descriptors which are not backed by a byte[], e.g. those stored off-heap
+     * by a FileDescriptorSlabAllocator, are copied.
      */
     public static final Function<FileDescriptor, byte[]> TO_BYTES =
         new Function<FileDescriptor, byte[]>() {
           @Override
           public byte[] apply(FileDescriptor fd) {
             ByteBuffer bb = fd.fbFileDescriptor_.getByteBuffer();
+            if (!bb.hasArray()) {
+              byte[] arr = new byte[bb.remaining()];
+              bb.duplicate().get(arr);
+              return arr;
+            }
             byte[] arr = bb.array();
             assert bb.arrayOffset() == 0 && bb.remaining() == arr.length;
             return arr;
@@ -570,11 +595,18 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
   // estimated number of rows in partition; -1: unknown
   private long numRows_ = -1;
   private static AtomicLong partitionIdCounter_ = new AtomicLong();
+  private static AtomicLong partitionVersionCounter_ = new AtomicLong();
 
   // A unique ID for each partition, used to identify a partition in the thrift
   // representation of a table.
   private final long id_;
 
+  // Version of the metadata of this partition. Unique across all partitions and bumped
+  // by markChanged() on every in-place modification, so that coordinators can tell if
+  // their cached copy of the partition is still current even if the version of the
+  // table changed. See TTableInfoSelector.known_partition_versions.
+  private volatile long version_ = partitionVersionCounter_.incrementAndGet();
+
   /*
    * Note: Although you can write multiple formats to a single partition (by changing
    * the format before each write), Hive won't let you read that data and neither should
@@ -597,6 +629,10 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
    */
   @Nonnull
   private ImmutableList<byte[]> encodedFileDescriptors_;
+  // If non-null, the file descriptors of this partition are stored off-heap in this
+  // region instead, and 'encodedFileDescriptors_' is empty.
+  @Nullable
+  private FileDescriptorSlabAllocator.Region offHeapFileDescriptors_;
   private HdfsPartitionLocationCompressor.Location location_;
   private boolean isDirty_;
   // True if this partition is marked as cached. Does not necessarily mean the data is
@@ -618,6 +654,11 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
   // -1 means writeId_ is irrelevant(not supported).
   private long writeId_ = -1L;
 
+  // Modification time of the partition directory as observed by the last file metadata
+  // load, if the files of the directory can be reused as long as it stays unchanged.
+  // -1 if unknown. See FileMetadataLoader#setSkipIfDirUnchanged().
+  private long lastListedDirMtime_ = -1L;
+
   private HdfsPartition(HdfsTable table,
       org.apache.hadoop.hive.metastore.api.Partition msPartition,
       List<LiteralExpr> partitionKeyValues,
@@ -732,6 +773,16 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
 
   @Override // FeFsPartition
   public long getId() { return id_; }
+  public long getVersion() { return version_; }
+
+  /**
+   * Bumps the version of this partition. Called by all methods that modify the
+   * partition's metadata in place. Callers that modify the maps returned by
+   * getParameters() or getSerdeInfo() directly must call this as well.
+   */
+  public void markChanged() {
+    version_ = partitionVersionCounter_.incrementAndGet();
+  }
 
   @Override // FeFsPartition
   public HdfsTable getTable() { return table_; }
@@ -743,12 +794,18 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     return FileSystemUtil.FsType.getFsType(getLocationPath().toUri().getScheme());
   }
 
-  public void setNumRows(long numRows) { numRows_ = numRows; }
+  public void setNumRows(long numRows) {
+    numRows_ = numRows;
+    markChanged();
+  }
   @Override // FeFsPartition
   public long getNumRows() { return numRows_; }
   @Override
   public boolean isMarkedCached() { return isMarkedCached_; }
-  void markCached() { isMarkedCached_ = true; }
+  void markCached() {
+    isMarkedCached_ = true;
+    markChanged();
+  }
   private CachedHmsPartitionDescriptor cachedMsPartitionDescriptor_;
 
   /**
@@ -762,6 +819,7 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     cachedMsPartitionDescriptor_.sdOutputFormat = fileFormat.outputFormat();
     cachedMsPartitionDescriptor_.sdSerdeInfo.setSerializationLib(
         fileFormatDescriptor_.getFileFormat().serializationLib());
+    markChanged();
   }
 
   @Override // FeFsPartition
@@ -771,6 +829,7 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
 
   public void setLocation(String place) {
     location_ = table_.getPartitionLocationCompressor().new Location(place);
+    markChanged();
   }
 
   public org.apache.hadoop.hive.metastore.api.SerDeInfo getSerdeInfo() {
@@ -791,6 +850,7 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     if (hasIncrStats) Preconditions.checkNotNull(partitionStats);
     partitionStats_ = partitionStats;
     hasIncrementalStats_ = hasIncrStats;
+    markChanged();
   }
 
   /**
@@ -839,6 +899,16 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
   public void putToParameters(String k, String v) {
     Preconditions.checkArgument(!IS_INCREMENTAL_STATS_KEY.apply(k));
     hmsParameters_.put(k, v);
+    markChanged();
+  }
+
+  /**
+   * Removes the parameter 'k' and returns its previous value, or null if it was not set.
+   */
+  public String removeFromParameters(String k) {
+    String prev = hmsParameters_.remove(k);
+    if (prev != null) markChanged();
+    return prev;
   }
 
   public void putToParameters(Pair<String, String> kv) {
@@ -850,7 +920,10 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
    * made and this partition's metadata should not be reused during the next
    * incremental metadata refresh.
    */
-  public void markDirty() { isDirty_ = true; }
+  public void markDirty() {
+    isDirty_ = true;
+    markChanged();
+  }
   public boolean isDirty() { return isDirty_; }
 
   @Override // FeFsPartition
@@ -860,6 +933,7 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
 
   @Override // FeFsPartition
   public List<HdfsPartition.FileDescriptor> getFileDescriptors() {
+    if (offHeapFileDescriptors_ != null) return offHeapFileDescriptors_;
     // Return a lazily transformed list from our internal bytes storage.
     return Lists.transform(encodedFileDescriptors_, FileDescriptor.FROM_BYTES);
   }
@@ -878,20 +952,38 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     return fileNames;
   }
 
+  /**
+   * Sets the file descriptors of this partition. Since they may not match a listing of
+   * the partition directory, this also forgets the last listed directory modification
+   * time. If 'descriptors' is a region returned by a FileDescriptorSlabAllocator, the
+   * file descriptors stay off-heap, otherwise they are stored on the heap.
+   */
   public void setFileDescriptors(List<FileDescriptor> descriptors) {
-    // Store an eagerly transformed-and-copied list so that we drop the memory usage
-    // of the flatbuffer wrapper.
-    encodedFileDescriptors_ = ImmutableList.copyOf(Lists.transform(
-        descriptors, FileDescriptor.TO_BYTES));
+    if (descriptors instanceof FileDescriptorSlabAllocator.Region) {
+      offHeapFileDescriptors_ = (FileDescriptorSlabAllocator.Region) descriptors;
+      encodedFileDescriptors_ = ImmutableList.of();
+    } else {
+      // Store an eagerly transformed-and-copied list so that we drop the memory usage
+      // of the flatbuffer wrapper.
+      encodedFileDescriptors_ = ImmutableList.copyOf(Lists.transform(
+          descriptors, FileDescriptor.TO_BYTES));
+      offHeapFileDescriptors_ = null;
+    }
+    lastListedDirMtime_ = -1L;
+    markChanged();
   }
 
+  public long getLastListedDirMtime() { return lastListedDirMtime_; }
+  public void setLastListedDirMtime(long mtime) { lastListedDirMtime_ = mtime; }
+
   @Override // FeFsPartition
   public int getNumFileDescriptors() {
+    if (offHeapFileDescriptors_ != null) return offHeapFileDescriptors_.size();
     return encodedFileDescriptors_.size();
   }
 
   @Override
-  public boolean hasFileDescriptors() { return !encodedFileDescriptors_.isEmpty(); }
+  public boolean hasFileDescriptors() { return getNumFileDescriptors() > 0; }
 
   public CachedHmsPartitionDescriptor getCachedMsPartitionDescriptor() {
     return cachedMsPartitionDescriptor_;
@@ -1025,9 +1117,40 @@ public class HdfsPartition implements FeFsPartition, PrunablePartition {
     partition.writeId_ = thriftPartition.isSetWrite_id() ?
         thriftPartition.getWrite_id() : -1L;
 
+    // Keep the version assigned by the catalog server, so that later topic updates can
+    // tell whether this partition is still current. See
+    // HdfsTable.addUnchangedPartitions().
+    if (table.isStoredInImpaladCatalogCache() && thriftPartition.isSetVersion()) {
+      partition.version_ = thriftPartition.getVersion();
+    }
     return partition;
   }
 
+  /**
+   * Returns a copy of this partition that belongs to 'table', which must be a newer
+   * instance of this partition's table in an impalad's catalog cache. The copy shares
+   * the file descriptors and other immutable metadata with this partition and keeps its
+   * version.
+   */
+  HdfsPartition copyForTable(HdfsTable table) {
+    Preconditions.checkState(table.isStoredInImpaladCatalogCache());
+    HdfsPartitionLocationCompressor.Location location = location_ == null ? null :
+        table.getPartitionLocationCompressor().new Location(getLocation());
+    HdfsPartition copy = new HdfsPartition(table, null, partitionKeyValues_,
+        fileFormatDescriptor_, ImmutableList.<FileDescriptor>of(), id_, location,
+        accessLevel_);
+    copy.encodedFileDescriptors_ = encodedFileDescriptors_;
+    copy.offHeapFileDescriptors_ = offHeapFileDescriptors_;
+    copy.numRows_ = numRows_;
+    copy.isMarkedCached_ = isMarkedCached_;
+    copy.hmsParameters_ = hmsParameters_;
+    copy.hasIncrementalStats_ = hasIncrementalStats_;
+    copy.partitionStats_ = partitionStats_;
+    copy.writeId_ = writeId_;
+    copy.version_ = version_;
+    return copy;
+  }
+
   /**
    * Checks that this partition's metadata is well formed. This does not necessarily
    * mean the partition is supported by Impala.
@@ -27,12 +27,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+
 import org.apache.avro.Schema;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -44,6 +48,7 @@ import org.apache.hadoop.hive.common.ValidWriteIdList;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
 import org.apache.hadoop.hive.metastore.api.ForeignKeysRequest;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.PrimaryKeysRequest;
@@ -64,6 +69,7 @@ import org.apache.impala.common.Pair;
 import org.apache.impala.common.PrintUtils;
 import org.apache.impala.compat.MetastoreShim;
 import org.apache.impala.fb.FbFileBlock;
+import org.apache.impala.service.BackendConfig;
 import org.apache.impala.thrift.CatalogLookupStatus;
 import org.apache.impala.thrift.CatalogObjectsConstants;
 import org.apache.impala.thrift.TAccessLevel;
@@ -71,6 +77,7 @@ import org.apache.impala.thrift.TCatalogObjectType;
 import org.apache.impala.thrift.TColumn;
 import org.apache.impala.thrift.TGetPartialCatalogObjectRequest;
 import org.apache.impala.thrift.TGetPartialCatalogObjectResponse;
+import org.apache.impala.thrift.THdfsFileDesc;
 import org.apache.impala.thrift.THdfsPartition;
 import org.apache.impala.thrift.THdfsTable;
 import org.apache.impala.thrift.TNetworkAddress;
@@ -126,9 +133,6 @@ public class HdfsTable extends Table implements FeFsTable {
   // Name of default partition for unpartitioned tables
   private static final String DEFAULT_PARTITION_NAME = "";
 
-  // Number of times to retry fetching the partitions from the HMS should an error occur.
-  private final static int NUM_PARTITION_FETCH_RETRIES = 5;
-
   // Table property key for overriding the Impalad-wide --enable_stats_extrapolation
   // setting for a specific table. By default, tables do not have the property set and
   // rely on the Impalad-wide --enable_stats_extrapolation flag.
@@ -162,7 +166,7 @@ public class HdfsTable extends Table implements FeFsTable {
 
   // Load all partitions time, including fetching all partitions
   // from HMS and loading all partitions. The code path is
-  // MetaStoreUtil.fetchAllPartitions() and HdfsTable.loadAllPartitions()
+  // HdfsTable.loadAllPartitions()
   public static final String LOAD_DURATION_ALL_PARTITIONS =
       "load-duration.all-partitions";
 
@@ -172,6 +176,18 @@ public class HdfsTable extends Table implements FeFsTable {
   public static final String LOAD_DURATION_FILE_METADATA_ALL_PARTITIONS =
       "load-duration.all-partitions.file-metadata";
 
+  // Fetching the partitions of the table from HMS, from listing the partition names
+  // until the last batch arrived. Overlaps with the file metadata loading of earlier
+  // batches. Part of LOAD_DURATION_ALL_PARTITIONS.
+  // Code path: ParallelPartitionFetcher inside loadAllPartitions()
+  public static final String LOAD_DURATION_HMS_FETCH_ALL_PARTITIONS =
+      "load-duration.all-partitions.hms-fetch";
+
+  // The part of LOAD_DURATION_HMS_FETCH_ALL_PARTITIONS that did not overlap with file
+  // metadata loading, i.e. the time spent waiting for HMS.
+  public static final String LOAD_DURATION_HMS_FETCH_WAIT_ALL_PARTITIONS =
+      "load-duration.all-partitions.hms-fetch-wait";
+
   // string to indicate NULL. set in load() from table properties
   private String nullColumnValue_;
 
@@ -374,6 +390,11 @@ public class HdfsTable extends Table implements FeFsTable {
     return partitions;
   }
 
+  @Override // FeFsTable
+  public void prefetchPartitions(Collection<Long> ids) {
+    // All partitions are loaded along with the table.
+  }
+
   @Override // FeFsTable
   public Set<Long> getNullPartitionIds(int i) { return nullPartitionIds_.get(i); }
 
@@ -528,29 +549,31 @@ public class HdfsTable extends Table implements FeFsTable {
   }
 
   /**
-   * Create HdfsPartition objects corresponding to 'msPartitions' and add them to this
-   * table's partition list. Any partition metadata will be reset and loaded from
-   * scratch. For each partition created, we load the block metadata for each data file
-   * under it. Returns time spent loading the filesystem metadata in nanoseconds.
+   * Fetches all partitions of the table from HMS, creates the corresponding
+   * HdfsPartition objects and adds them to this table's partition list. Any partition
+   * metadata will be reset and loaded from scratch. For each partition created, we load
+   * the block metadata for each data file under it. Returns time spent loading the
+   * filesystem metadata in nanoseconds.
+   *
+   * The partitions are fetched in batches by a ParallelPartitionFetcher and the file
+   * metadata of each batch is loaded while the following batches are still being
+   * fetched. The fetcher retries the fetch of a batch that fails with a
+   * MetaException, e.g. if partitions are dropped while they are fetched.
    *
    * If there are no partitions in the Hive metadata, a single partition is added with no
    * partition keys.
    */
   private long loadAllPartitions(IMetaStoreClient client,
-      List<org.apache.hadoop.hive.metastore.api.Partition> msPartitions,
       org.apache.hadoop.hive.metastore.api.Table msTbl) throws IOException,
-      CatalogException {
+      CatalogException, TException {
     Preconditions.checkNotNull(msTbl);
     final Clock clock = Clock.defaultClock();
     long startTime = clock.getTick();
-    initializePartitionMetadata(msTbl);
-    FsPermissionCache permCache = preloadPermissionsCache(msPartitions);
-
-    Path tblLocation = FileSystemUtil.createFullyQualifiedPath(getHdfsBaseDirPath());
-    accessLevel_ = getAvailableAccessLevel(getFullName(), tblLocation, permCache);
-
     if (msTbl.getPartitionKeysSize() == 0) {
-      Preconditions.checkArgument(msPartitions == null || msPartitions.isEmpty());
+      initializePartitionMetadata(msTbl);
+      FsPermissionCache permCache = new FsPermissionCache();
+      Path tblLocation = FileSystemUtil.createFullyQualifiedPath(getHdfsBaseDirPath());
+      accessLevel_ = getAvailableAccessLevel(getFullName(), tblLocation, permCache);
       // This table has no partition key, which means it has no declared partitions.
       // We model partitions slightly differently to Hive - every file must exist in a
       // partition, so add a single partition with no keys which will get all the
@@ -558,24 +581,69 @@ public class HdfsTable extends Table implements FeFsTable {
       HdfsPartition part = createPartition(msTbl.getSd(), null, permCache);
       if (isMarkedCached_) part.markCached();
       addPartition(part);
-    } else {
-      for (org.apache.hadoop.hive.metastore.api.Partition msPartition: msPartitions) {
-        HdfsPartition partition = createPartition(msPartition.getSd(), msPartition,
-            permCache);
-        addPartition(partition);
-        // If the partition is null, its HDFS path does not exist, and it was not added
-        // to this table's partition list. Skip the partition.
-        if (partition == null) continue;
-      }
+      Timer.Context fileMetadataLdContext = getMetrics().getTimer(
+          HdfsTable.LOAD_DURATION_FILE_METADATA_ALL_PARTITIONS).time();
+      loadFileMetadataForPartitions(client, partitionMap_.values(), /*isRefresh=*/false);
+      fileMetadataLdContext.stop();
+      return clock.getTick() - startTime;
     }
-    // Load the file metadata from scratch.
-    Timer.Context fileMetadataLdContext = getMetrics().getTimer(
-        HdfsTable.LOAD_DURATION_FILE_METADATA_ALL_PARTITIONS).time();
-    loadFileMetadataForPartitions(client, partitionMap_.values(), /*isRefresh=*/false);
-    fileMetadataLdContext.stop();
+
+    loadAllPartitionsFromHms(client, msTbl);
     return clock.getTick() - startTime;
   }
 
+  /**
+   * Helper for loadAllPartitions() that loads the partitions of a partitioned table.
+   */
+  private void loadAllPartitionsFromHms(IMetaStoreClient client,
+      org.apache.hadoop.hive.metastore.api.Table msTbl) throws IOException,
+      CatalogException, TException {
+    initializePartitionMetadata(msTbl);
+    long fileMetadataLoadTimeNs = 0;
+    long fetchStartNs = System.nanoTime();
+    // First, get all partition names that currently exist.
+    List<String> partNames =
+        client.listPartitionNames(db_.getName(), name_, (short) -1);
+    long listTimeNs = System.nanoTime() - fetchStartNs;
+    // Permissions of the parent directories are cached across batches, see
+    // preloadPermissionsCache().
+    FsPermissionCache permCache = new FsPermissionCache();
+    Set<Path> precachedParents = new HashSet<>();
+    try (ParallelPartitionFetcher fetcher =
+        new ParallelPartitionFetcher(client, db_.getName(), name_, partNames)) {
+      List<Partition> msPartitions;
+      while ((msPartitions = fetcher.next()) != null) {
+        precachePartitionParents(msPartitions, permCache, precachedParents);
+        List<HdfsPartition> partitions = new ArrayList<>(msPartitions.size());
+        for (Partition msPartition: msPartitions) {
+          HdfsPartition partition = createPartition(msPartition.getSd(), msPartition,
+              permCache);
+          addPartition(partition);
+          // If the partition is null, its HDFS path does not exist, and it was not
+          // added to this table's partition list. Skip the partition.
+          if (partition == null) continue;
+          partitions.add(partition);
+        }
+        // Load the file metadata of this batch while the next ones are fetched.
+        long fileMetadataStartNs = System.nanoTime();
+        loadFileMetadataForPartitions(client, partitions, /*isRefresh=*/false);
+        fileMetadataLoadTimeNs += System.nanoTime() - fileMetadataStartNs;
+      }
+      getMetrics().getTimer(LOAD_DURATION_HMS_FETCH_ALL_PARTITIONS).update(
+          listTimeNs + fetcher.getElapsedTimeNs(), TimeUnit.NANOSECONDS);
+      getMetrics().getTimer(LOAD_DURATION_HMS_FETCH_WAIT_ALL_PARTITIONS).update(
+          listTimeNs + fetcher.getWaitTimeNs(), TimeUnit.NANOSECONDS);
+      LOG.info(String.format("Fetched %d partitions of table %s from the Metastore in " +
+          "%d batches, waited %s for the Metastore", partNames.size(), getFullName(),
+          fetcher.getNumBatches(),
+          PrintUtils.printTimeNs(listTimeNs + fetcher.getWaitTimeNs())));
+    }
+    getMetrics().getTimer(LOAD_DURATION_FILE_METADATA_ALL_PARTITIONS).update(
+        fileMetadataLoadTimeNs, TimeUnit.NANOSECONDS);
+    Path tblLocation = FileSystemUtil.createFullyQualifiedPath(getHdfsBaseDirPath());
+    accessLevel_ = getAvailableAccessLevel(getFullName(), tblLocation, permCache);
+  }
+
   /**
    * Loads valid txn list from HMS. Re-throws exceptions as CatalogException.
    */
@@ -630,6 +698,15 @@ public class HdfsTable extends Table implements FeFsTable {
       boolean hasCachedPartition = Iterables.any(e.getValue(),
           HdfsPartition::isMarkedCached);
       loader.setForceRefreshBlockLocations(hasCachedPartition);
+      if (BackendConfig.INSTANCE.skipUnchangedDirsOnRefresh()) {
+        // The old FDs are only known to match the directory if all partitions mapped
+        // to this path were last listed at the same directory modification time.
+        long lastDirMtime = e.getValue().get(0).getLastListedDirMtime();
+        for (HdfsPartition p : e.getValue()) {
+          if (p.getLastListedDirMtime() != lastDirMtime) lastDirMtime = -1;
+        }
+        loader.setSkipIfDirUnchanged(lastDirMtime);
+      }
       loadersByPath.put(e.getKey(), loader);
     }
 
@@ -637,34 +714,45 @@ public class HdfsTable extends Table implements FeFsTable {
         "%s file and block metadata for %s paths for table %s",
         isRefresh ? "Refreshing" : "Loading", partsByPath.size(),
         getFullName());
-    FileSystem tableFs;
-    try {
-      tableFs = (new Path(getLocation())).getFileSystem(CONF);
-    } catch (IOException e) {
-      throw new CatalogException("Invalid table path for table: " + getFullName(), e);
-    }
 
     // Actually load the partitions.
     // TODO(IMPALA-8406): if this fails to load files from one or more partitions, then
     // we'll throw an exception here and end up bailing out of whatever catalog operation
     // we're in the middle of. This could cause a partial metadata update -- eg we may
     // have refreshed the top-level table properties without refreshing the files.
-    new ParallelFileMetadataLoader(logPrefix, tableFs, loadersByPath.values())
-        .load();
+    new ParallelFileMetadataLoader(logPrefix, loadersByPath.values()).load();
+
+    // If configured, pack the loaded FDs of all paths into off-heap slabs.
+    FileDescriptorSlabAllocator slabAllocator = null;
+    if (BackendConfig.INSTANCE.storeFileDescriptorsOffHeap()) {
+      long expectedBytes = 0;
+      for (FileMetadataLoader loader : loadersByPath.values()) {
+        expectedBytes += FileDescriptorSlabAllocator.getEncodedSize(
+            loader.getLoadedFds());
+      }
+      slabAllocator = new FileDescriptorSlabAllocator(expectedBytes);
+    }
 
     // Store the loaded FDs into the partitions.
+    int loadedFiles = 0, skippedFiles = 0, skippedDirs = 0;
     for (Map.Entry<Path, List<HdfsPartition>> e : partsByPath.entrySet()) {
       Path p = e.getKey();
       FileMetadataLoader loader = loadersByPath.get(p);
+      List<FileDescriptor> fds = loader.getLoadedFds();
+      if (slabAllocator != null) fds = slabAllocator.store(fds);
 
       for (HdfsPartition part : e.getValue()) {
-        part.setFileDescriptors(loader.getLoadedFds());
+        part.setFileDescriptors(fds);
+        part.setLastListedDirMtime(loader.getDirModificationTime());
       }
+      FileMetadataLoader.LoadStats stats = loader.getStats();
+      loadedFiles += stats.loadedFiles;
+      skippedFiles += stats.skippedFiles;
+      skippedDirs += stats.skippedDirs;
     }
 
-    // TODO(todd): would be good to log a summary of the loading process:
-    // - how many block locations did we reuse/load individually/load via batch
-    // - how many partitions did we read metadata for
+    // TODO(todd): would be good to log a more detailed summary of the loading process:
+    // - how many block locations did we load individually/load via batch
     // - etc...
     String partNames = Joiner.on(", ").join(
         Iterables.limit(Iterables.transform(parts, HdfsPartition::getPartitionName), 3));
@@ -674,8 +762,10 @@ public class HdfsTable extends Table implements FeFsTable {
     }
 
     long duration = clock.getTick() - startTime;
-    LOG.info("Loaded file and block metadata for {} partitions: {}. Time taken: {}",
-        getFullName(), partNames, PrintUtils.printTimeNs(duration));
+    LOG.info("Loaded file and block metadata for {} partitions: {}. Paths: {} " +
+        "(unchanged and not listed: {}), files loaded: {}, files reused: {}. " +
+        "Time taken: {}", getFullName(), partNames, partsByPath.size(), skippedDirs,
+        loadedFiles, skippedFiles, PrintUtils.printTimeNs(duration));
   }
 
   /**
@@ -982,6 +1072,12 @@ public class HdfsTable extends Table implements FeFsTable {
     final Timer storageLdTimer =
         getMetrics().getTimer(Table.LOAD_DURATION_STORAGE_METADATA);
     storageMetadataLoadTime_ = 0;
+    // Schema of the reused partitions, see markPartitionsChangedOnSchemaChange().
+    List<FieldSchema> oldFieldSchemas = new ArrayList<>(nonPartFieldSchemas_);
+    SerDeInfo oldSerdeInfo = null;
+    if (msTable_ != null && msTable_.getSd().isSetSerdeInfo()) {
+      oldSerdeInfo = new SerDeInfo(msTable_.getSd().getSerdeInfo());
+    }
     try (ThreadNameAnnotator tna = new ThreadNameAnnotator(annotation)) {
       // turn all exceptions into TableLoadingException
       msTable_ = msTbl;
@@ -1015,14 +1111,15 @@ public class HdfsTable extends Table implements FeFsTable {
           final Timer.Context allPartitionsLdContext =
               getMetrics().getTimer(HdfsTable.LOAD_DURATION_ALL_PARTITIONS).time();
           // Load all partitions from Hive Metastore, including file metadata.
-          List<org.apache.hadoop.hive.metastore.api.Partition> msPartitions =
-              MetaStoreUtil.fetchAllPartitions(
-                  client, db_.getName(), name_, NUM_PARTITION_FETCH_RETRIES);
-          LOG.info("Fetched partition metadata from the Metastore: " + getFullName());
-          storageMetadataLoadTime_ = loadAllPartitions(client, msPartitions, msTbl);
+          storageMetadataLoadTime_ = loadAllPartitions(client, msTbl);
           allPartitionsLdContext.stop();
         }
-        if (loadTableSchema) setAvroSchema(client, msTbl);
+        if (loadTableSchema) {
+          setAvroSchema(client, msTbl);
+          if (reuseMetadata) {
+            markPartitionsChangedOnSchemaChange(oldFieldSchemas, oldSerdeInfo);
+          }
+        }
         setTableStats(msTbl);
         fileMetadataStats_.unset();
         refreshLastUsedTime();
@@ -1043,6 +1140,26 @@ public class HdfsTable extends Table implements FeFsTable {
     }
   }
 
+  /**
+   * Bumps the versions of all partitions if the columns or the SerDe of this table
+   * differ from 'oldFieldSchemas' and 'oldSerdeInfo'. The HMS partitions returned by
+   * HdfsPartition.toHmsPartition() embed the columns of the table, so coordinators must
+   * not keep using their cached copies of the partitions after a schema change, see
+   * TTableInfoSelector.known_partition_versions.
+   */
+  @VisibleForTesting
+  void markPartitionsChangedOnSchemaChange(List<FieldSchema> oldFieldSchemas,
+      SerDeInfo oldSerdeInfo) {
+    SerDeInfo serdeInfo = getMetaStoreTable().getSd().getSerdeInfo();
+    if (oldFieldSchemas.equals(nonPartFieldSchemas_)
+        && Objects.equals(oldSerdeInfo, serdeInfo)) {
+      return;
+    }
+    LOG.info("Schema of table {} changed, invalidating the cached copies of its {} " +
+        "partitions", getFullName(), partitionMap_.size());
+    for (HdfsPartition partition: partitionMap_.values()) partition.markChanged();
+  }
+
   /**
    * Load Primary Key and Foreign Key information for table. Throws TableLoadingException
    * if the load fails.
@@ -1114,6 +1231,9 @@ public class HdfsTable extends Table implements FeFsTable {
     // 'refreshPartitionFileMetadata' below can compare modification times and
     // reload the locations only for those that changed.
     part.setFileDescriptors(oldPartition.getFileDescriptors());
+    if (part.getLocation().equals(oldPartition.getLocation())) {
+      part.setLastListedDirMtime(oldPartition.getLastListedDirMtime());
+    }
     addPartition(part);
     if (isMarkedCached_) part.markCached();
     loadFileMetadataForPartitions(client, ImmutableList.of(part), /*isRefresh=*/true);
@@ -1243,6 +1363,24 @@ public class HdfsTable extends Table implements FeFsTable {
     }
   }
 
+  /**
+   * Updates the properties, owner and statistics of this table from 'msTbl' in place,
+   * without reloading its schema, partitions or file metadata. Returns false and leaves
+   * the table unchanged if 'msTbl' also has schema or location changes compared to the
+   * HMS table this table was loaded from, see TableChange.getChanges(). Such changes
+   * require a reload of the table.
+   */
+  public boolean updatePropertiesFromHmsTable(
+      org.apache.hadoop.hive.metastore.api.Table msTbl) {
+    Set<TableChange> changes = TableChange.getChanges(getMetaStoreTable(), msTbl);
+    if (changes.contains(TableChange.SCHEMA) || changes.contains(TableChange.LOCATION)) {
+      return false;
+    }
+    setMetaStoreTable(msTbl);
+    setTableStats(msTbl);
+    return true;
+  }
+
   /**
    * Sets avroSchema_ if the table or any of the partitions in the table are stored
    * as Avro. Additionally, this method also reconciles the schema if the column
@@ -1343,29 +1481,35 @@ public class HdfsTable extends Table implements FeFsTable {
 
   /**
    * Loads from the Hive Metastore the partitions that correspond to the specified
-   * 'partitionNames' and adds them to the internal list of table partitions.
+   * 'partitionNames' and adds them to the internal list of table partitions. The
+   * partitions are fetched by a ParallelPartitionFetcher and the file metadata of each
+   * batch is loaded while the following batches are still being fetched. Partitions
+   * are only added once all of them were loaded.
    */
   private void loadPartitionsFromMetastore(Set<String> partitionNames,
       IMetaStoreClient client) throws Exception {
     Preconditions.checkNotNull(partitionNames);
     if (partitionNames.isEmpty()) return;
+    List<HdfsPartition> partitions = new ArrayList<>(partitionNames.size());
     // Load partition metadata from Hive Metastore.
-    List<org.apache.hadoop.hive.metastore.api.Partition> msPartitions =
-        new ArrayList<>();
-    msPartitions.addAll(MetaStoreUtil.fetchPartitionsByName(client,
-        Lists.newArrayList(partitionNames), db_.getName(), name_));
-
-    FsPermissionCache permCache = preloadPermissionsCache(msPartitions);
-    List<HdfsPartition> partitions = new ArrayList<>(msPartitions.size());
-    for (org.apache.hadoop.hive.metastore.api.Partition msPartition: msPartitions) {
-      HdfsPartition partition = createPartition(msPartition.getSd(), msPartition,
-          permCache);
-      // If the partition is null, its HDFS path does not exist, and it was not added to
-      // this table's partition list. Skip the partition.
-      if (partition == null) continue;
-      partitions.add(partition);
+    try (ParallelPartitionFetcher fetcher = new ParallelPartitionFetcher(client,
+        db_.getName(), name_, Lists.newArrayList(partitionNames))) {
+      List<Partition> msPartitions;
+      while ((msPartitions = fetcher.next()) != null) {
+        FsPermissionCache permCache = preloadPermissionsCache(msPartitions);
+        List<HdfsPartition> batch = new ArrayList<>(msPartitions.size());
+        for (Partition msPartition: msPartitions) {
+          HdfsPartition partition = createPartition(msPartition.getSd(), msPartition,
+              permCache);
+          // If the partition is null, its HDFS path does not exist, and it was not
+          // added to this table's partition list. Skip the partition.
+          if (partition == null) continue;
+          batch.add(partition);
+        }
+        loadFileMetadataForPartitions(client, batch, /* isRefresh=*/false);
+        partitions.addAll(batch);
+      }
     }
-    loadFileMetadataForPartitions(client, partitions, /* isRefresh=*/false);
     for (HdfsPartition partition : partitions) addPartition(partition);
   }
 
@@ -1391,7 +1535,17 @@ public class HdfsTable extends Table implements FeFsTable {
     // partitions when we only want to know about a small number of newly-added
     // partitions.
     if (msPartitions.size() < partitionMap_.size() * 3) return permCache;
+    precachePartitionParents(msPartitions, permCache, new HashSet<>());
+    return permCache;
+  }
 
+  /**
+   * Pre-caches into 'permCache' the permissions of the children of the parent
+   * directories of 'msPartitions' that contain several of the partitions. Parent
+   * directories in 'precachedParents' are skipped, the others are added to it.
+   */
+  private void precachePartitionParents(List<Partition> msPartitions,
+      FsPermissionCache permCache, Set<Path> precachedParents) {
     // TODO(todd): when HDFS-13616 (batch listing of multiple directories)
     // is implemented, we could likely implement this with a single round
     // trip.
@@ -1414,6 +1568,7 @@ public class HdfsTable extends Table implements FeFsTable {
     for (Multiset.Entry<Path> entry : parentPaths.entrySet()) {
       if (entry.getCount() == 1) continue;
       Path p = entry.getElement();
+      if (!precachedParents.add(p)) continue;
       try {
         FileSystem fs = p.getFileSystem(CONF);
         permCache.precacheChildrenOf(fs, p);
@@ -1424,7 +1579,6 @@ public class HdfsTable extends Table implements FeFsTable {
         LOG.debug("Unable to bulk-load permissions for parent path: " + p, ioe);
       }
     }
-    return permCache;
   }
 
   @Override
@@ -1442,17 +1596,7 @@ public class HdfsTable extends Table implements FeFsTable {
       throws TableLoadingException {
     super.loadFromThrift(thriftTable);
     THdfsTable hdfsTable = thriftTable.getHdfs_table();
-    partitionLocationCompressor_ = new HdfsPartitionLocationCompressor(
-        numClusteringCols_, hdfsTable.getPartition_prefixes());
-    hdfsBaseDir_ = hdfsTable.getHdfsBaseDir();
-    nullColumnValue_ = hdfsTable.nullColumnValue;
-    nullPartitionKeyValue_ = hdfsTable.nullPartitionKeyValue;
-    hostIndex_.populate(hdfsTable.getNetwork_addresses());
-    primaryKeys_.clear();
-    primaryKeys_.addAll(hdfsTable.getPrimary_keys());
-    foreignKeys_.clear();
-    foreignKeys_.addAll(hdfsTable.getForeign_keys());
-    resetPartitions();
+    loadTableMdFromThrift(hdfsTable);
     try {
       for (Map.Entry<Long, THdfsPartition> part: hdfsTable.getPartitions().entrySet()) {
         HdfsPartition hdfsPart =
@@ -1465,9 +1609,101 @@ public class HdfsTable extends Table implements FeFsTable {
     } catch (CatalogException e) {
       throw new TableLoadingException(e.getMessage());
     }
+  }
+
+  /**
+   * Restores this table in the catalog server from an entry of a metadata snapshot
+   * (see CatalogSnapshot) without accessing the Hive Metastore or the filesystem.
+   * 'thriftTable' is the output of toThrift() of the snapshotted table and
+   * 'msPartitions' maps its partition ids to their HMS representation. Unlike
+   * partitions loaded by fromThrift(), the restored partitions keep their HMS
+   * descriptors and get fresh ids, so the result can be used like a table which was
+   * loaded from the Hive Metastore.
+   */
+  public synchronized void loadFromSnapshot(TTable thriftTable,
+      Map<Long, Partition> msPartitions) throws TableLoadingException {
+    Preconditions.checkNotNull(msTable_);
+    super.loadFromThrift(thriftTable);
+    // The restored table belongs to the catalog server, not to an impalad cache.
+    storedInImpaladCatalogCache_ = false;
+    THdfsTable hdfsTable = thriftTable.getHdfs_table();
+    loadTableMdFromThrift(hdfsTable);
+    FileDescriptorSlabAllocator slabAllocator = null;
+    if (BackendConfig.INSTANCE.storeFileDescriptorsOffHeap()) {
+      long expectedBytes = 0;
+      for (THdfsPartition thriftPart: hdfsTable.getPartitions().values()) {
+        if (!thriftPart.isSetFile_desc()) continue;
+        for (THdfsFileDesc desc: thriftPart.getFile_desc()) {
+          expectedBytes += desc.bufferForFile_desc_data().remaining();
+        }
+      }
+      slabAllocator = new FileDescriptorSlabAllocator(expectedBytes);
+    }
+    try {
+      for (Map.Entry<Long, THdfsPartition> entry:
+          hdfsTable.getPartitions().entrySet()) {
+        THdfsPartition thriftPart = entry.getValue();
+        Partition msPartition =
+            msPartitions != null ? msPartitions.get(entry.getKey()) : null;
+        List<LiteralExpr> keyValues;
+        if (numClusteringCols_ > 0) {
+          if (msPartition == null) {
+            throw new CatalogException(String.format("Snapshot of table %s is " +
+                "missing the HMS partition for partition id %s", getFullName(),
+                entry.getKey()));
+          }
+          keyValues = FeCatalogUtils.parsePartitionKeyValues(this,
+              msPartition.getValues());
+        } else {
+          keyValues = Collections.emptyList();
+        }
+        List<FileDescriptor> fds = new ArrayList<>();
+        if (thriftPart.isSetFile_desc()) {
+          for (THdfsFileDesc desc: thriftPart.getFile_desc()) {
+            fds.add(FileDescriptor.fromThrift(desc));
+          }
+        }
+        if (slabAllocator != null) fds = slabAllocator.store(fds);
+        TAccessLevel accessLevel = thriftPart.isSetAccess_level() ?
+            thriftPart.getAccess_level() : TAccessLevel.READ_WRITE;
+        HdfsPartition partition = new HdfsPartition(this, msPartition, keyValues,
+            HdfsStorageDescriptor.fromThriftPartition(thriftPart, name_), fds,
+            accessLevel);
+        if (thriftPart.isSetStats()) {
+          partition.setNumRows(thriftPart.getStats().getNum_rows());
+        }
+        if (thriftPart.isIs_marked_cached()) partition.markCached();
+        addPartition(partition);
+      }
+      prototypePartition_ = HdfsPartition.fromThrift(this,
+          CatalogObjectsConstants.PROTOTYPE_PARTITION_ID,
+          hdfsTable.prototype_partition);
+    } catch (CatalogException e) {
+      throw new TableLoadingException("Failed to restore table from snapshot: " +
+          getFullName(), e);
+    }
+    refreshLastUsedTime();
+  }
+
+  /**
+   * Sets the table-level metadata in 'hdfsTable' and resets the partitions. Shared by
+   * loadFromThrift() and loadFromSnapshot().
+   */
+  private void loadTableMdFromThrift(THdfsTable hdfsTable) {
+    partitionLocationCompressor_ = new HdfsPartitionLocationCompressor(
+        numClusteringCols_, hdfsTable.getPartition_prefixes());
+    hdfsBaseDir_ = hdfsTable.getHdfsBaseDir();
+    nullColumnValue_ = hdfsTable.nullColumnValue;
+    nullPartitionKeyValue_ = hdfsTable.nullPartitionKeyValue;
+    hostIndex_.populate(hdfsTable.getNetwork_addresses());
+    primaryKeys_.clear();
+    primaryKeys_.addAll(hdfsTable.getPrimary_keys());
+    foreignKeys_.clear();
+    foreignKeys_.addAll(hdfsTable.getForeign_keys());
     avroSchema_ = hdfsTable.isSetAvroSchema() ? hdfsTable.getAvroSchema() : null;
     isMarkedCached_ =
         HdfsCachingUtil.validateCacheParams(getMetaStoreTable().getParameters());
+    resetPartitions();
   }
 
   @Override
@@ -1491,6 +1727,66 @@ public class HdfsTable extends Table implements FeFsTable {
     return table;
   }
 
+  /**
+   * Variant of toThrift() used by the catalog server to publish this table in a
+   * catalog topic update. Instead of the partitions, the result contains the versions of
+   * all partitions (THdfsTable.partition_versions). Partitions whose version differs
+   * from their version in 'publishedVersions', which maps the ids of the partitions
+   * published in earlier topic updates to their versions, are added to
+   * 'changedPartitions'. They are not converted to thrift here, the caller converts
+   * them with partitionToThriftForTopicUpdate() and publishes them as separate items.
+   * Partitions that are absent from 'changedPartitions' are expected to be reused from
+   * the previous instance of this table in the receiving impalad's catalog cache, see
+   * addUnchangedPartitions().
+   */
+  public TTable toThriftForTopicUpdate(Map<Long, Long> publishedVersions,
+      List<HdfsPartition> changedPartitions) {
+    Preconditions.checkNotNull(publishedVersions);
+    Preconditions.checkNotNull(changedPartitions);
+    TTable table = super.toThrift();
+    table.setTable_type(TTableType.HDFS_TABLE);
+    table.setHdfs_table(getTHdfsTable(ThriftObjectType.FULL, null, publishedVersions,
+        changedPartitions));
+    return table;
+  }
+
+  /**
+   * Returns the thrift representation of 'partition', one of the changed partitions
+   * returned by toThriftForTopicUpdate(), as published in a catalog topic update.
+   */
+  public THdfsPartition partitionToThriftForTopicUpdate(HdfsPartition partition) {
+    Preconditions.checkArgument(partition.getTable() == this);
+    THdfsPartition result =
+        FeCatalogUtils.fsPartitionToThrift(partition, ThriftObjectType.FULL);
+    result.setVersion(partition.getVersion());
+    return result;
+  }
+
+  /**
+   * Adds the partitions listed in 'partitionVersions' that were not sent along with
+   * this table in a catalog topic update by copying them from 'oldTable', the previous
+   * instance of this table in the impalad's catalog cache. Throws a
+   * PartitionNotFoundException if 'oldTable' does not contain one of these partitions in
+   * the expected version, in which case the impalad needs a full topic update.
+   */
+  public void addUnchangedPartitions(@Nullable Table oldTable,
+      Map<Long, Long> partitionVersions) throws CatalogException {
+    Preconditions.checkState(isStoredInImpaladCatalogCache());
+    HdfsTable oldHdfsTable =
+        oldTable instanceof HdfsTable ? (HdfsTable) oldTable : null;
+    for (Map.Entry<Long, Long> entry: partitionVersions.entrySet()) {
+      if (partitionMap_.containsKey(entry.getKey())) continue;
+      HdfsPartition oldPartition =
+          oldHdfsTable == null ? null : oldHdfsTable.partitionMap_.get(entry.getKey());
+      if (oldPartition == null || oldPartition.getVersion() != entry.getValue()) {
+        throw new PartitionNotFoundException(String.format("Partition %d of table %s " +
+            "in version %d is neither part of the catalog update nor cached",
+            entry.getKey(), getFullName(), entry.getValue()));
+      }
+      addPartition(oldPartition.copyForTable(this));
+    }
+  }
+
   @Override
   public TGetPartialCatalogObjectResponse getPartialInfo(
       TGetPartialCatalogObjectRequest req) throws TableLoadingException {
@@ -1508,6 +1804,13 @@ public class HdfsTable extends Table implements FeFsTable {
       partIds = partitionMap_.keySet();
     }
 
+    // Versions of the partitions the caller already has. Only honored for explicitly
+    // requested partitions.
+    Map<Long, Long> knownVersions = null;
+    if (req.table_info_selector.partition_ids != null) {
+      knownVersions = req.table_info_selector.known_partition_versions;
+    }
+
     if (partIds != null) {
       resp.table_info.partitions = Lists.newArrayListWithCapacity(partIds.size());
       for (long partId : partIds) {
@@ -1518,7 +1821,15 @@ public class HdfsTable extends Table implements FeFsTable {
           return new TGetPartialCatalogObjectResponse().setLookup_status(
               CatalogLookupStatus.PARTITION_NOT_FOUND);
         }
+        if (knownVersions != null) {
+          Long knownVersion = knownVersions.get(partId);
+          if (knownVersion != null && knownVersion == part.getVersion()) {
+            resp.table_info.addToUnchanged_partition_ids(partId);
+            continue;
+          }
+        }
         TPartialPartitionInfo partInfo = new TPartialPartitionInfo(partId);
+        partInfo.setVersion(part.getVersion());
 
         if (req.table_info_selector.want_partition_names) {
           partInfo.setName(part.getPartitionName());
@@ -1570,10 +1881,26 @@ public class HdfsTable extends Table implements FeFsTable {
    *  size of this table.
    */
   private THdfsTable getTHdfsTable(ThriftObjectType type, Set<Long> refPartitions) {
+    return getTHdfsTable(type, refPartitions, null, null);
+  }
+
+  /**
+   * Same as above, but if 'publishedVersions' is non-null, no partition is serialized.
+   * The partitions whose version differs from their entry in 'publishedVersions' are
+   * added to 'changedPartitions' and the result lists the versions of all partitions
+   * instead. See toThriftForTopicUpdate().
+   */
+  private THdfsTable getTHdfsTable(ThriftObjectType type, Set<Long> refPartitions,
+      @Nullable Map<Long, Long> publishedVersions,
+      @Nullable List<HdfsPartition> changedPartitions) {
     if (type == ThriftObjectType.FULL) {
       // "full" implies all partitions should be included.
       Preconditions.checkArgument(refPartitions == null);
     }
+    Preconditions.checkArgument(publishedVersions == null ||
+        (type == ThriftObjectType.FULL && changedPartitions != null));
+    Map<Long, Long> partitionVersions =
+        publishedVersions == null ? null : new HashMap<>();
     long memUsageEstimate = 0;
     int numPartitions =
         (refPartitions == null) ? partitionMap_.values().size() : refPartitions.size();
@@ -1583,12 +1910,27 @@ public class HdfsTable extends Table implements FeFsTable {
     for (HdfsPartition partition: partitionMap_.values()) {
       long id = partition.getId();
       if (refPartitions == null || refPartitions.contains(id)) {
-        THdfsPartition tHdfsPartition = FeCatalogUtils.fsPartitionToThrift(
-            partition, type);
         if (partition.hasIncrementalStats()) {
           memUsageEstimate += getColumns().size() * STATS_SIZE_PER_COLUMN_BYTES;
           hasIncrementalStats_ = true;
         }
+        long version = partition.getVersion();
+        if (partitionVersions != null) {
+          partitionVersions.put(id, version);
+          // Not serialized, only collect the storage statistics.
+          for (FileDescriptor fd: partition.getFileDescriptors()) {
+            stats.numBlocks += fd.getNumFileBlocks();
+            stats.totalFileBytes += fd.getFileLength();
+          }
+          stats.numFiles += partition.getNumFileDescriptors();
+          Long publishedVersion = publishedVersions.get(id);
+          if (publishedVersion == null || publishedVersion != version) {
+            changedPartitions.add(partition);
+          }
+          continue;
+        }
+        THdfsPartition tHdfsPartition = FeCatalogUtils.fsPartitionToThrift(
+            partition, type);
         if (type == ThriftObjectType.FULL) {
           Preconditions.checkState(tHdfsPartition.isSetNum_blocks() &&
               tHdfsPartition.isSetTotal_file_size_bytes());
@@ -1596,6 +1938,7 @@ public class HdfsTable extends Table implements FeFsTable {
           stats.numFiles +=
               tHdfsPartition.isSetFile_desc() ? tHdfsPartition.getFile_desc().size() : 0;
           stats.totalFileBytes += tHdfsPartition.getTotal_file_size_bytes();
+          tHdfsPartition.setVersion(version);
         }
         idToPartition.put(id, tHdfsPartition);
       }
@@ -1617,8 +1960,11 @@ public class HdfsTable extends Table implements FeFsTable {
     if (type == ThriftObjectType.FULL) {
       // Network addresses are used only by THdfsFileBlocks which are inside
       // THdfsFileDesc, so include network addreses only when including THdfsFileDesc.
+      // The list only grows, so the host indexes of the file blocks of partitions that
+      // are not resent remain valid.
       hdfsTable.setNetwork_addresses(hostIndex_.getList());
     }
+    if (partitionVersions != null) hdfsTable.setPartition_versions(partitionVersions);
     hdfsTable.setPartition_prefixes(partitionLocationCompressor_.getPrefixes());
     return hdfsTable;
   }
@@ -2010,6 +2356,9 @@ public class HdfsTable extends Table implements FeFsTable {
         || HdfsPartition.KV_COMPARATOR.compare(oldPartition, refreshedPartition) == 0);
     if (oldPartition != null) {
       refreshedPartition.setFileDescriptors(oldPartition.getFileDescriptors());
+      if (refreshedPartition.getLocation().equals(oldPartition.getLocation())) {
+        refreshedPartition.setLastListedDirMtime(oldPartition.getLastListedDirMtime());
+      }
     }
     loadFileMetadataForPartitions(client, ImmutableList.of(refreshedPartition),
         /*isRefresh=*/true);
@@ -2017,6 +2366,56 @@ public class HdfsTable extends Table implements FeFsTable {
     addPartition(refreshedPartition);
   }
 
+  /**
+   * Reloads the metadata of the partitions named 'partNames' like reloadPartition(),
+   * but fetches the HMS partition objects with getPartitionsByNames() RPCs, see
+   * ParallelPartitionFetcher, and loads the file metadata of all the partitions in
+   * one go. Partitions which do not exist in the HMS anymore are removed from the
+   * table and partitions which are not in the table yet are added to it. Returns the
+   * number of partitions that were reloaded.
+   */
+  public int reloadPartitions(IMetaStoreClient client, List<String> partNames)
+      throws CatalogException {
+    Map<String, HdfsPartition> refreshedParts = new LinkedHashMap<>();
+    try (ParallelPartitionFetcher fetcher = new ParallelPartitionFetcher(client,
+        db_.getName(), name_, partNames)) {
+      List<Partition> msPartitions;
+      while ((msPartitions = fetcher.next()) != null) {
+        FsPermissionCache permCache = preloadPermissionsCache(msPartitions);
+        for (Partition msPartition : msPartitions) {
+          HdfsPartition refreshedPartition = createPartition(msPartition.getSd(),
+              msPartition, permCache);
+          HdfsPartition oldPartition =
+              nameToPartitionMap_.get(refreshedPartition.getPartitionName());
+          if (oldPartition != null) {
+            refreshedPartition.setFileDescriptors(oldPartition.getFileDescriptors());
+            if (refreshedPartition.getLocation().equals(oldPartition.getLocation())) {
+              refreshedPartition.setLastListedDirMtime(
+                  oldPartition.getLastListedDirMtime());
+            }
+          }
+          refreshedParts.put(refreshedPartition.getPartitionName(), refreshedPartition);
+        }
+      }
+    } catch (TException e) {
+      throw new CatalogException("Error loading metadata for partitions of table " +
+          getFullName(), e);
+    }
+    loadFileMetadataForPartitions(client, refreshedParts.values(), /*isRefresh=*/true);
+    for (String partName : partNames) {
+      // If the partition does not exist in the HMS anymore, remove it from the table.
+      if (!refreshedParts.containsKey(partName)) {
+        dropPartition(nameToPartitionMap_.get(partName));
+      }
+    }
+    for (HdfsPartition refreshedPartition : refreshedParts.values()) {
+      dropPartition(nameToPartitionMap_.get(refreshedPartition.getPartitionName()),
+          false);
+      addPartition(refreshedPartition);
+    }
+    return refreshedParts.size();
+  }
+
   /**
    * Registers table metrics.
    */
@@ -19,24 +19,41 @@ package org.apache.impala.catalog;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
 
 import org.apache.impala.analysis.TableName;
 import org.apache.impala.authorization.AuthorizationChecker;
 import org.apache.impala.authorization.AuthorizationPolicy;
 import org.apache.impala.common.InternalException;
 import org.apache.impala.common.Pair;
+import org.apache.impala.service.BackendConfig;
 import org.apache.impala.service.FeSupport;
 import org.apache.impala.thrift.TAuthzCacheInvalidation;
+import org.apache.impala.thrift.TCatalogHdfsPartition;
 import org.apache.impala.thrift.TCatalogObject;
 import org.apache.impala.thrift.TCatalogObjectType;
 import org.apache.impala.thrift.TDataSource;
 import org.apache.impala.thrift.TDatabase;
 import org.apache.impala.thrift.TFunction;
 import org.apache.impala.thrift.TGetPartitionStatsResponse;
+import org.apache.impala.thrift.THdfsPartition;
+import org.apache.impala.thrift.THdfsTable;
 import org.apache.impala.thrift.TTable;
 import org.apache.impala.thrift.TUniqueId;
 import org.apache.impala.thrift.TUpdateCatalogCacheRequest;
@@ -47,7 +64,10 @@ import org.apache.log4j.Logger;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TBinaryProtocol;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Thread safe Catalog for an Impalad.  The Impalad catalog can be updated either via
@@ -90,6 +110,17 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
   // Tracks modifications to this Impalad's catalog from direct updates to the cache.
   private final CatalogDeltaLog catalogDeltaLog_ = new CatalogDeltaLog();
 
+  // Minimum number of objects per task when deserializing a catalog update in parallel.
+  private static final int MIN_OBJECTS_PER_DESERIALIZE_TASK = 64;
+
+  // Maximum size of the serialized objects that are copied out of the update buffers
+  // to be deserialized in parallel at once. A batch holds at least one object.
+  private static final long MAX_DESERIALIZE_BATCH_BYTES = 64L * 1024 * 1024;
+
+  // Pool that deserializes and loads the objects of catalog updates, shared by all
+  // instances. Created on first use, see getUpdatePool().
+  private static ExecutorService updatePool_;
+
   // Object that is used to synchronize on and signal when a catalog update is received.
   private final Object catalogUpdateEventNotifier_ = new Object();
 
@@ -145,7 +176,7 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
      * Returns true if the given object does not depend on any other object already
      * existing in the catalog in order to be added.
      */
-    private static boolean isTopLevelCatalogObject(TCatalogObject catalogObject) {
+    static boolean isTopLevelCatalogObject(TCatalogObject catalogObject) {
       return catalogObject.getType() == TCatalogObjectType.DATABASE ||
           catalogObject.getType() == TCatalogObjectType.DATA_SOURCE ||
           catalogObject.getType() == TCatalogObjectType.HDFS_CACHE_POOL ||
@@ -193,36 +224,102 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
     TUpdateCatalogCacheRequest req) throws CatalogException, TException {
     // For updates from catalog op results, the service ID is set in the request.
     if (req.isSetCatalog_service_id()) setCatalogServiceId(req.catalog_service_id);
+    return applyUpdate(
+        () -> FeSupport.NativeGetNextCatalogObjectUpdate(req.native_iterator_ptr));
+  }
+
+  /**
+   * Applies the catalog objects returned by 'updates', see updateCatalog(). 'updates'
+   * returns whether the next object was deleted along with its serialized form, or null
+   * once all objects were returned. The returned buffers are only valid until the next
+   * call.
+   */
+  @VisibleForTesting
+  synchronized TUpdateCatalogCacheResponse applyUpdate(
+      Supplier<Pair<Boolean, ByteBuffer>> updates) throws CatalogException, TException {
+    List<TCatalogObject> objects = new ArrayList<>();
+    List<Boolean> deleted = new ArrayList<>();
+    List<Integer> sizes = new ArrayList<>();
+    // Without an update pool the objects are deserialized straight from the buffers.
+    // Otherwise the buffers are copied in batches of bounded size, each batch is
+    // deserialized in parallel and its copies are released before the next one.
+    boolean copyBuffers = BackendConfig.INSTANCE.getNumCatalogUpdateThreads() > 1;
+    List<byte[]> batch = new ArrayList<>();
+    long batchBytes = 0;
+    Pair<Boolean, ByteBuffer> update;
+    while ((update = updates.get()) != null) {
+      int len = update.second.remaining();
+      deleted.add(update.first);
+      sizes.add(len);
+      if (!copyBuffers) {
+        objects.add(deserializeCatalogObject(update.second));
+        continue;
+      }
+      byte[] bytes = new byte[len];
+      update.second.get(bytes);
+      batch.add(bytes);
+      batchBytes += len;
+      if (batchBytes >= MAX_DESERIALIZE_BATCH_BYTES) {
+        objects.addAll(deserializeCatalogObjects(batch));
+        batch.clear();
+        batchBytes = 0;
+      }
+    }
+    if (!batch.isEmpty()) objects.addAll(deserializeCatalogObjects(batch));
+    batch = null;
+
     ObjectUpdateSequencer sequencer = new ObjectUpdateSequencer();
+    // Partitions of HdfsTables sent as separate HDFS_PARTITION items, by table.
+    Map<String, Map<Long, THdfsPartition>> partitionsByTable = new HashMap<>();
     long newCatalogVersion = lastSyncedCatalogVersion_.get();
-    Pair<Boolean, ByteBuffer> update;
-    while ((update = FeSupport.NativeGetNextCatalogObjectUpdate(req.native_iterator_ptr))
-        != null) {
-      TCatalogObject obj = new TCatalogObject();
-      obj.read(new TBinaryProtocol(new TByteBuffer(update.second)));
+    for (int i = 0; i < objects.size(); ++i) {
+      TCatalogObject obj = objects.get(i);
+      boolean isDeleted = deleted.get(i);
       String key = Catalog.toCatalogObjectKey(obj);
-      int len = update.second.capacity();
+      int len = sizes.get(i);
       if (len > 100 * 1024 * 1024 /* 100MB */) {
         LOG.info("Received large catalog object(>100mb): " + key + " is " + len +
             "bytes");
       }
-      LOG.info((update.first ? "Deleting: " : "Adding: ") + key + " version: "
+      LOG.info((isDeleted ? "Deleting: " : "Adding: ") + key + " version: "
           + obj.catalog_version + " size: " + len);
       // For statestore updates, the service ID and updated version is wrapped in a
       // CATALOG catalog object.
       if (obj.type == TCatalogObjectType.CATALOG) {
         setCatalogServiceId(obj.catalog.catalog_service_id);
         newCatalogVersion = obj.catalog_version;
+      } else if (obj.type == TCatalogObjectType.HDFS_PARTITION) {
+        // Deleted partitions need no handling, they are dropped along with the previous
+        // instance of their table.
+        if (!isDeleted) {
+          TCatalogHdfsPartition part = obj.getHdfs_partition();
+          partitionsByTable.computeIfAbsent(
+              getTableKey(part.getDb_name(), part.getTbl_name()), k -> new HashMap<>())
+              .put(part.getId(), part.getPartition());
+        }
       } else {
-        sequencer.add(obj, update.first);
+        sequencer.add(obj, isDeleted);
       }
     }
-
+    // Top-level objects (e.g. databases) are applied first, the tables of the update
+    // are then built in parallel and installed along with the remaining objects in
+    // the order of the sequencer.
+    List<TCatalogObject> tableObjects = new ArrayList<>();
     for (TCatalogObject catalogObject: sequencer.getUpdatedObjects()) {
-      try {
-        addCatalogObject(catalogObject);
-      } catch (Exception e) {
-        LOG.error("Error adding catalog object: " + e.getMessage(), e);
+      if (isTableObject(catalogObject)) {
+        tableObjects.add(catalogObject);
+      } else if (ObjectUpdateSequencer.isTopLevelCatalogObject(catalogObject)) {
+        addCatalogObjectOrLogError(catalogObject);
+      }
+    }
+    Map<TCatalogObject, Table> loadedTables =
+        loadTables(tableObjects, partitionsByTable);
+    for (TCatalogObject catalogObject: sequencer.getUpdatedObjects()) {
+      if (isTableObject(catalogObject)) {
+        Table table = loadedTables.get(catalogObject);
+        if (table != null) table.getDb().addTable(table);
+      } else if (!ObjectUpdateSequencer.isTopLevelCatalogObject(catalogObject)) {
+        addCatalogObjectOrLogError(catalogObject);
       }
     }
 
@@ -242,11 +339,171 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
   }
 
 
+  /**
+   * Returns the pool used to deserialize and load the objects of catalog updates in
+   * parallel, or null if updates are applied on the calling thread.
+   */
+  private static synchronized ExecutorService getUpdatePool() {
+    if (updatePool_ == null) {
+      int numThreads = BackendConfig.INSTANCE.getNumCatalogUpdateThreads();
+      if (numThreads <= 1) return null;
+      updatePool_ = Executors.newFixedThreadPool(numThreads,
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("catalog-update-%d")
+              .build());
+    }
+    return updatePool_;
+  }
+
+  /**
+   * Runs 'tasks' on the update pool and returns their results in order. The tasks run
+   * on the calling thread if there is a single one or no pool is configured.
+   */
+  private static <T> List<T> runUpdateTasks(List<Callable<T>> tasks)
+      throws CatalogException, TException {
+    List<T> results = new ArrayList<>(tasks.size());
+    ExecutorService pool = tasks.size() > 1 ? getUpdatePool() : null;
+    try {
+      if (pool == null) {
+        for (Callable<T> task: tasks) results.add(task.call());
+        return results;
+      }
+      for (Future<T> future: pool.invokeAll(tasks)) results.add(future.get());
+      return results;
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), CatalogException.class,
+          TException.class);
+      throw new IllegalStateException(
+          "Error applying catalog update: " + e.getCause().getMessage(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CatalogException("Interrupted while applying catalog update", e);
+    } catch (Exception e) {
+      Throwables.propagateIfPossible(e, CatalogException.class, TException.class);
+      throw new IllegalStateException(
+          "Error applying catalog update: " + e.getMessage(), e);
+    }
+  }
+
+  private static TCatalogObject deserializeCatalogObject(ByteBuffer buffer)
+      throws TException {
+    TCatalogObject obj = new TCatalogObject();
+    obj.read(new TBinaryProtocol(new TByteBuffer(buffer)));
+    return obj;
+  }
+
+  /**
+   * Deserializes the catalog objects in 'serializedObjects'. Large batches are split
+   * into contiguous ranges that are deserialized in parallel.
+   */
+  private static List<TCatalogObject> deserializeCatalogObjects(
+      List<byte[]> serializedObjects) throws CatalogException, TException {
+    TCatalogObject[] objects = new TCatalogObject[serializedObjects.size()];
+    int numTasks = Math.max(1, Math.min(
+        BackendConfig.INSTANCE.getNumCatalogUpdateThreads(),
+        objects.length / MIN_OBJECTS_PER_DESERIALIZE_TASK));
+    int rangeSize = (objects.length + numTasks - 1) / numTasks;
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int start = 0; start < objects.length; start += rangeSize) {
+      int rangeStart = start;
+      int rangeEnd = Math.min(start + rangeSize, objects.length);
+      tasks.add(() -> {
+        for (int i = rangeStart; i < rangeEnd; ++i) {
+          objects[i] =
+              deserializeCatalogObject(ByteBuffer.wrap(serializedObjects.get(i)));
+        }
+        return null;
+      });
+    }
+    runUpdateTasks(tasks);
+    return Arrays.asList(objects);
+  }
+
+  /**
+   * Builds the tables of the TABLE and VIEW objects 'tableObjects' without adding them
+   * to the catalog. Tables are grouped by database and the groups are built in
+   * parallel. Returns the built tables by object; objects that are out of date or
+   * failed to load have no entry. Throws a PartitionNotFoundException if a table
+   * references partitions that are neither part of the update nor cached.
+   */
+  private Map<TCatalogObject, Table> loadTables(List<TCatalogObject> tableObjects,
+      Map<String, Map<Long, THdfsPartition>> partitionsByTable)
+      throws CatalogException, TException {
+    Map<String, List<TCatalogObject>> tablesByDb = new HashMap<>();
+    for (TCatalogObject catalogObject: tableObjects) {
+      tablesByDb.computeIfAbsent(catalogObject.getTable().getDb_name().toLowerCase(),
+          k -> new ArrayList<>()).add(catalogObject);
+    }
+    List<Callable<List<Pair<TCatalogObject, Table>>>> tasks = new ArrayList<>();
+    for (List<TCatalogObject> dbTables: tablesByDb.values()) {
+      tasks.add(() -> {
+        List<Pair<TCatalogObject, Table>> tables = new ArrayList<>();
+        for (TCatalogObject catalogObject: dbTables) {
+          Table table = loadTableOrLogError(catalogObject, partitionsByTable);
+          if (table != null) tables.add(Pair.create(catalogObject, table));
+        }
+        return tables;
+      });
+    }
+    // Thrift objects compare by value, key them by identity instead.
+    Map<TCatalogObject, Table> loadedTables = new IdentityHashMap<>();
+    for (List<Pair<TCatalogObject, Table>> tables: runUpdateTasks(tasks)) {
+      for (Pair<TCatalogObject, Table> table: tables) {
+        loadedTables.put(table.first, table.second);
+      }
+    }
+    return loadedTables;
+  }
+
+  private Table loadTableOrLogError(TCatalogObject catalogObject,
+      Map<String, Map<Long, THdfsPartition>> partitionsByTable) throws CatalogException {
+    // This item is out of date and should not be applied to the catalog.
+    if (catalogDeltaLog_.wasObjectRemovedAfter(catalogObject)) {
+      if (LOG.isTraceEnabled()) {
+        LOG.trace(String.format("Skipping update because a matching object was removed " +
+            "in a later catalog version: %s", catalogObject));
+      }
+      return null;
+    }
+    TTable thriftTable = catalogObject.getTable();
+    try {
+      return loadTable(thriftTable, catalogObject.getCatalog_version(),
+          partitionsByTable.get(
+              getTableKey(thriftTable.getDb_name(), thriftTable.getTbl_name())));
+    } catch (PartitionNotFoundException e) {
+      // The update does not contain all partitions of a table that are missing from
+      // the cache. Fail the update, which triggers a full topic update.
+      throw e;
+    } catch (Exception e) {
+      LOG.error("Error adding catalog object: " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private void addCatalogObjectOrLogError(TCatalogObject catalogObject) {
+    try {
+      addCatalogObject(catalogObject);
+    } catch (Exception e) {
+      LOG.error("Error adding catalog object: " + e.getMessage(), e);
+    }
+  }
+
+  private static boolean isTableObject(TCatalogObject catalogObject) {
+    return catalogObject.getType() == TCatalogObjectType.TABLE ||
+        catalogObject.getType() == TCatalogObjectType.VIEW;
+  }
+
   @Override // FeCatalog
   public void prioritizeLoad(Set<TableName> tableNames) throws InternalException {
     FeSupport.PrioritizeLoad(tableNames);
   }
 
+  @Override // FeCatalog
+  public void prefetchTables(Set<TableName> tableNames) {
+    // No-op: tables arrive through the statestore, see prioritizeLoad().
+  }
+
   @Override // FeCatalog
   public TGetPartitionStatsResponse getPartitionStats(
       TableName table) throws InternalException {
@@ -272,8 +529,7 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
    *  2) The catalogDeltaLog_ contains an entry for this object with a version
    *     > than the given TCatalogObject's version.
    */
-  private void addCatalogObject(TCatalogObject catalogObject)
-      throws TableLoadingException {
+  private void addCatalogObject(TCatalogObject catalogObject) throws CatalogException {
     // This item is out of date and should not be applied to the catalog.
     if (catalogDeltaLog_.wasObjectRemovedAfter(catalogObject)) {
       if (LOG.isTraceEnabled()) {
@@ -287,10 +543,6 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
       case DATABASE:
         addDb(catalogObject.getDb(), catalogObject.getCatalog_version());
         break;
-      case TABLE:
-      case VIEW:
-        addTable(catalogObject.getTable(), catalogObject.getCatalog_version());
-        break;
       case FUNCTION:
         // Remove the function first, in case there is an existing function with the same
         // name and signature.
@@ -415,20 +667,47 @@ public class ImpaladCatalog extends Catalog implements FeCatalog {
     }
   }
 
-  private void addTable(TTable thriftTable, long catalogVersion)
-      throws TableLoadingException {
+  /**
+   * Builds the table 'thriftTable' for the catalog cache without adding it. Returns
+   * null if its database does not exist or the cached instance is at least as recent.
+   * If the partitions of the table were sent as separate HDFS_PARTITION items,
+   * 'partitions' holds the ones that were part of the same update and the others are
+   * reused from the cached instance of the table. Throws a PartitionNotFoundException
+   * if one of them is not cached. May be called concurrently for different tables.
+   */
+  private Table loadTable(TTable thriftTable, long catalogVersion,
+      @Nullable Map<Long, THdfsPartition> partitions) throws CatalogException {
     Db db = getDb(thriftTable.db_name);
     if (db == null) {
       if (LOG.isTraceEnabled()) {
         LOG.trace("Parent database of table does not exist: " +
             thriftTable.db_name + "." + thriftTable.tbl_name);
       }
-      return;
+      return null;
     }
 
+    THdfsTable hdfsTable = thriftTable.getHdfs_table();
+    Table existingTable = null;
+    if (hdfsTable != null && hdfsTable.isSetPartition_versions()) {
+      existingTable = db.getTable(thriftTable.tbl_name);
+      // Skip the update early if it's out of date, db.addTable() would ignore it.
+      if (existingTable != null && existingTable.getCatalogVersion() >= catalogVersion) {
+        return null;
+      }
+      if (partitions != null) hdfsTable.getPartitions().putAll(partitions);
+    }
     Table newTable = Table.fromThrift(db, thriftTable);
+    if (hdfsTable != null && hdfsTable.isSetPartition_versions() &&
+        newTable instanceof HdfsTable) {
+      ((HdfsTable) newTable).addUnchangedPartitions(existingTable,
+          hdfsTable.getPartition_versions());
+    }
     newTable.setCatalogVersion(catalogVersion);
-    db.addTable(newTable);
+    return newTable;
+  }
+
+  private static String getTableKey(String dbName, String tblName) {
+    return dbName.toLowerCase() + "." + tblName.toLowerCase();
   }
 
   private void addFunction(TFunction fn, long catalogVersion) {
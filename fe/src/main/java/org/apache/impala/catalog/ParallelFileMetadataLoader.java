@@ -19,13 +19,11 @@ package org.apache.impala.catalog;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.hadoop.fs.FileSystem;
-import org.apache.impala.common.FileSystemUtil;
+import org.apache.impala.common.FileSystemUtil.FsType;
 import org.apache.impala.service.BackendConfig;
 import org.apache.impala.util.ThreadNameAnnotator;
 import org.slf4j.Logger;
@@ -33,16 +31,15 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.collect.Maps;
 
 
 /**
  * Utility to coordinate the issuing of parallel metadata loading requests
- * on a thread pool.
+ * on the catalogd-wide FileListingExecutor.
  *
- * This may safely be used even to load a single path: if only one path is to
- * be loaded, this avoids creating any extra threads and uses the current thread
- * instead.
+ * All loads, including those of a single path, run on the FileListingExecutor so that
+ * they count towards its limit on concurrent listings.
  */
 public class ParallelFileMetadataLoader {
   private final static Logger LOG = LoggerFactory.getLogger(
@@ -58,54 +55,41 @@ public class ParallelFileMetadataLoader {
 
   private final String logPrefix_;
   private List<FileMetadataLoader> loaders_;
-  private final FileSystem fs_;
 
   /**
    * @param logPrefix informational prefix for log messages
-   * @param fs the filesystem to load from (used to determine appropriate parallelism)
    * @param loaders the metadata loaders to execute in parallel.
    */
-  public ParallelFileMetadataLoader(String logPrefix, FileSystem fs,
+  public ParallelFileMetadataLoader(String logPrefix,
       Collection<FileMetadataLoader> loaders) {
     logPrefix_ = logPrefix;
     loaders_ = ImmutableList.copyOf(loaders);
-
-    // TODO(todd) in actuality, different partitions could be on different file systems.
-    // We probably should create one pool per filesystem type, and size each of those
-    // pools based on that particular filesystem, so if there's a mixed S3+HDFS table
-    // we do the right thing.
-    fs_ = fs;
   }
 
   /**
    * Call 'load()' in parallel on all of the loaders. If any loaders fail, throws
    * an exception. However, any successful loaders are guaranteed to complete
    * before any exception is thrown.
+   *
+   * The loaders are run with the listing priority of the calling thread. Loaders of
+   * paths on different filesystem types run on the respective pools of the
+   * FileListingExecutor.
    */
   void load() throws TableLoadingException {
     if (loaders_.isEmpty()) return;
 
-    int failedLoadTasks = 0;
-    ExecutorService pool = createPool();
+    Throwable[] errors = new Throwable[loaders_.size()];
     try (ThreadNameAnnotator tna = new ThreadNameAnnotator(logPrefix_)) {
-      List<Future<Void>> futures = new ArrayList<>(loaders_.size());
-      for (FileMetadataLoader loader : loaders_) {
-        futures.add(pool.submit(() -> { loader.load(); return null; }));
-      }
+      runOnExecutor(errors);
+    }
 
-      // Wait for the loaders to finish.
-      for (int i = 0; i < futures.size(); i++) {
-        try {
-          futures.get(i).get();
-        } catch (ExecutionException | InterruptedException e) {
-          if (++failedLoadTasks <= MAX_PATH_METADATA_LOADING_ERRORS_TO_LOG) {
-            LOG.error(logPrefix_ + " encountered an error loading data for path " +
-                loaders_.get(i).getPartDir(), e);
-          }
-        }
+    int failedLoadTasks = 0;
+    for (int i = 0; i < errors.length; i++) {
+      if (errors[i] == null) continue;
+      if (++failedLoadTasks <= MAX_PATH_METADATA_LOADING_ERRORS_TO_LOG) {
+        LOG.error(logPrefix_ + " encountered an error loading data for path " +
+            loaders_.get(i).getPartDir(), errors[i]);
       }
-    } finally {
-      pool.shutdown();
     }
     if (failedLoadTasks > 0) {
       int errorsNotLogged = failedLoadTasks - MAX_PATH_METADATA_LOADING_ERRORS_TO_LOG;
@@ -119,30 +103,88 @@ public class ParallelFileMetadataLoader {
   }
 
   /**
-   * Returns the thread pool to load the file metadata.
+   * Runs all loaders on the FileListingExecutor and waits for them to finish. The
+   * error of the i-th loader, if any, is stored in 'errors[i]'.
    *
-   * We use different thread pool sizes for HDFS and non-HDFS tables since the latter
-   * supports much higher throughput of RPC calls for listStatus/listFiles. For
-   * simplicity, the filesystem type is determined based on the table's root path and
-   * not for each partition individually. Based on our experiments, S3 showed a linear
-   * speed up (up to ~100x) with increasing number of loading threads where as the HDFS
-   * throughput was limited to ~5x in un-secure clusters and up to ~3.7x in secure
-   * clusters. We narrowed it down to scalability bottlenecks in HDFS RPC implementation
-   * (HADOOP-14558) on both the server and the client side.
+   * We limit the number of loaders of a single load that run at the same time
+   * differently for HDFS and non-HDFS filesystems, since the latter support much higher
+   * throughput of RPC calls for listStatus/listFiles. Based on our experiments, S3
+   * showed a linear speed up (up to ~100x) with increasing number of loading threads
+   * where as the HDFS throughput was limited to ~5x in un-secure clusters and up to
+   * ~3.7x in secure clusters. We narrowed it down to scalability bottlenecks in HDFS
+   * RPC implementation (HADOOP-14558) on both the server and the client side. The
+   * FileListingExecutor additionally limits the parallelism across all concurrent
+   * loads.
+   */
+  private void runOnExecutor(Throwable[] errors) throws TableLoadingException {
+    Map<FsType, List<Integer>> loaderIdxsByFsType = Maps.newHashMap();
+    for (int i = 0; i < loaders_.size(); i++) {
+      FsType fsType = FileListingExecutor.getFsType(loaders_.get(i).getPartDir());
+      loaderIdxsByFsType.computeIfAbsent(fsType, (t) -> new ArrayList<>()).add(i);
+    }
+
+    FileListingExecutor.Priority priority = FileListingExecutor.getThreadPriority();
+    CountDownLatch done = new CountDownLatch(loaders_.size());
+    for (Map.Entry<FsType, List<Integer>> e : loaderIdxsByFsType.entrySet()) {
+      new LoaderQueue(e.getKey(), e.getValue(), priority, errors, done).start();
+    }
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TableLoadingException(logPrefix_ + ": interrupted while loading " +
+          "file metadata", e);
+    }
+  }
+
+  /**
+   * The loaders of one filesystem type. Keeps at most a fixed number of them queued or
+   * running on the FileListingExecutor, and submits the next one whenever one
+   * finishes.
    */
-  private ExecutorService createPool() {
-    int numLoaders = loaders_.size();
-    Preconditions.checkState(numLoaders > 0);
-    int poolSize = FileSystemUtil.supportsStorageIds(fs_) ?
-        MAX_HDFS_PARTITIONS_PARALLEL_LOAD : MAX_NON_HDFS_PARTITIONS_PARALLEL_LOAD;
-    // Thread pool size need not exceed the number of paths to be loaded.
-    poolSize = Math.min(numLoaders, poolSize);
-
-    if (poolSize == 1) {
-      return MoreExecutors.sameThreadExecutor();
-    } else {
-      LOG.info(logPrefix_ + " using a thread pool of size {}", poolSize);
-      return Executors.newFixedThreadPool(poolSize);
+  private class LoaderQueue {
+    private final FsType fsType_;
+    private final List<Integer> loaderIdxs_;
+    private final FileListingExecutor.Priority priority_;
+    private final Throwable[] errors_;
+    private final CountDownLatch done_;
+    private final AtomicInteger next_ = new AtomicInteger();
+
+    LoaderQueue(FsType fsType, List<Integer> loaderIdxs,
+        FileListingExecutor.Priority priority, Throwable[] errors, CountDownLatch done) {
+      fsType_ = fsType;
+      loaderIdxs_ = loaderIdxs;
+      priority_ = priority;
+      errors_ = errors;
+      done_ = done;
+    }
+
+    void start() {
+      int parallelism = fsType_ == FsType.HDFS ?
+          MAX_HDFS_PARTITIONS_PARALLEL_LOAD : MAX_NON_HDFS_PARTITIONS_PARALLEL_LOAD;
+      parallelism = Math.min(loaderIdxs_.size(), parallelism);
+      Preconditions.checkState(parallelism > 0);
+      if (loaderIdxs_.size() > 1) {
+        LOG.info(logPrefix_ + " using up to {} parallel loaders for {} filesystem paths",
+            parallelism, fsType_ == null ? "other" : fsType_);
+      }
+      for (int i = 0; i < parallelism; i++) submitNext();
+    }
+
+    private void submitNext() {
+      int i = next_.getAndIncrement();
+      if (i >= loaderIdxs_.size()) return;
+      int idx = loaderIdxs_.get(i);
+      FileListingExecutor.get().execute(fsType_, priority_, () -> {
+        try {
+          loaders_.get(idx).load();
+        } catch (Throwable t) {
+          errors_[idx] = t;
+        } finally {
+          done_.countDown();
+          submitNext();
+        }
+      });
     }
   }
 }
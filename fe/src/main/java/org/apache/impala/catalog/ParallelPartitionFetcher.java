@@ -0,0 +1,351 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.impala.catalog.MetaStoreClientPool.MetaStoreClient;
+import org.apache.impala.service.BackendConfig;
+import org.apache.impala.util.MetaStoreUtil;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Fetches the partitions of a table from the Hive Metastore in batches, issuing up to
+ * --max_hms_partition_fetch_threads getPartitionsByNames() RPCs at the same time on
+ * clients of the catalogd's MetaStoreClientPool. Batches are returned by next() in the
+ * order of the partition names while later batches are still being fetched, so that
+ * callers can load the file metadata of the partitions of a batch in the meantime.
+ *
+ * The size of the batches adapts to the observed HMS latency and payload size, see
+ * BatchSizer. The first batch is small so that callers can start loading file metadata
+ * early.
+ *
+ * A batch whose fetch fails with a MetaException is fetched again, up to
+ * NUM_BATCH_FETCH_RETRIES times. Batches that were already fetched are kept.
+ *
+ * If no client pool is set, e.g. outside of the catalogd, the batches are fetched one
+ * at a time on the calling thread with the client passed to the constructor.
+ */
+public class ParallelPartitionFetcher implements AutoCloseable {
+  private final static Logger LOG = LoggerFactory.getLogger(
+      ParallelPartitionFetcher.class);
+
+  // Batches are sized so that fetching one takes about this long.
+  private static final long TARGET_BATCH_LATENCY_NS = 1000L * 1000 * 1000;
+  // Maximum estimated size of the partitions of one batch.
+  private static final long MAX_BATCH_BYTES = 64L * 1024 * 1024;
+  // Smallest batch size the adaptive sizing may choose.
+  private static final int MIN_BATCH_SIZE = 10;
+  // Number of times the fetch of a batch is retried if it fails with a MetaException.
+  // Other TExceptions are not retried since they could indicate a broken connection
+  // which we can't recover from by retrying.
+  @VisibleForTesting
+  static final int NUM_BATCH_FETCH_RETRIES = 5;
+
+  // Set by the catalogd on startup, see setClientPool().
+  private static MetaStoreClientPool clientPool_;
+
+  // Runs the fetches of all tables, with up to --max_total_hms_partition_fetch_threads
+  // threads. The number of fetches in flight is also bounded per fetcher. Created by
+  // setClientPool().
+  private static ExecutorService fetchPool_;
+
+  /**
+   * Fetches the partitions with the given names from HMS.
+   */
+  @VisibleForTesting
+  interface BatchFetcher {
+    List<Partition> fetch(List<String> partNames) throws TException;
+  }
+
+  private final String dbName_;
+  private final String tblName_;
+  private final List<String> partNames_;
+  // Pool the batches are fetched on, or null if they are fetched on the calling thread.
+  @Nullable
+  private final ExecutorService pool_;
+  private final int maxInFlight_;
+  private final BatchFetcher batchFetcher_;
+  private final BatchSizer sizer_;
+
+  // Index in 'partNames_' of the first partition not yet requested.
+  private int nextPartIdx_ = 0;
+  // Batches requested but not yet returned by next(), in order.
+  private final ArrayDeque<Future<List<Partition>>> pending_ = new ArrayDeque<>();
+
+  // Statistics of the fetch, see the getters.
+  private int numBatches_ = 0;
+  private long waitTimeNs_ = 0;
+  private final long startTimeNs_ = System.nanoTime();
+  private long endTimeNs_ = 0;
+
+  /**
+   * Sets the pool that the clients for concurrent fetches are taken from.
+   */
+  public static synchronized void setClientPool(MetaStoreClientPool clientPool) {
+    clientPool_ = clientPool;
+    if (fetchPool_ == null) {
+      fetchPool_ = Executors.newFixedThreadPool(
+          Math.max(1, BackendConfig.INSTANCE.maxTotalHmsPartitionFetchThreads()),
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("hms-partition-fetch-%d")
+              .build());
+    }
+  }
+
+  private static synchronized MetaStoreClientPool getClientPool() { return clientPool_; }
+
+  private static synchronized ExecutorService getFetchPool() { return fetchPool_; }
+
+  /**
+   * Creates a fetcher for the partitions 'partNames' of the table 'dbName.tblName'.
+   * 'client' is used if fetches are not issued concurrently.
+   */
+  public ParallelPartitionFetcher(IMetaStoreClient client, String dbName,
+      String tblName, List<String> partNames) {
+    this(dbName, tblName, partNames, getClientPool() == null ? null : getFetchPool(),
+        getClientPool() == null ?
+            1 : BackendConfig.INSTANCE.maxHmsPartitionFetchThreads(),
+        MetaStoreUtil.getMaxPartitionsPerRpc(),
+        createBatchFetcher(Preconditions.checkNotNull(client), dbName, tblName));
+  }
+
+  /**
+   * Creates a fetcher that fetches the batches with 'batchFetcher' on 'pool', with up
+   * to 'maxInFlight' batches in flight, or on the calling thread if 'pool' is null.
+   */
+  @VisibleForTesting
+  ParallelPartitionFetcher(String dbName, String tblName, List<String> partNames,
+      @Nullable ExecutorService pool, int maxInFlight, int maxBatchSize,
+      BatchFetcher batchFetcher) {
+    dbName_ = dbName;
+    tblName_ = tblName;
+    partNames_ = partNames;
+    pool_ = pool;
+    maxInFlight_ = pool == null ? 1 : Math.max(1, maxInFlight);
+    batchFetcher_ = batchFetcher;
+    sizer_ = new BatchSizer(maxBatchSize);
+  }
+
+  /**
+   * Returns a BatchFetcher that uses a client of the client pool, or 'client' if no
+   * client pool is set.
+   */
+  private static BatchFetcher createBatchFetcher(IMetaStoreClient client,
+      String dbName, String tblName) {
+    MetaStoreClientPool clientPool = getClientPool();
+    if (clientPool == null) {
+      return names -> client.getPartitionsByNames(dbName, tblName, names);
+    }
+    return names -> {
+      try (MetaStoreClient poolClient = clientPool.getClient()) {
+        return poolClient.getHiveClient().getPartitionsByNames(dbName, tblName, names);
+      }
+    };
+  }
+
+  /**
+   * Returns the next batch of partitions, or null once all partitions were returned.
+   * Throws the error of the fetch of the batch, e.g. a MetaException if one of the
+   * partitions no longer exists.
+   */
+  @Nullable
+  public List<Partition> next() throws TException {
+    if (pool_ == null) {
+      // Fetch on the calling thread.
+      if (nextPartIdx_ >= partNames_.size()) return finish();
+      long startNs = System.nanoTime();
+      List<Partition> batch = fetchBatch(nextBatchNames());
+      waitTimeNs_ += System.nanoTime() - startNs;
+      ++numBatches_;
+      return batch;
+    }
+    fillPipeline();
+    Future<List<Partition>> future = pending_.poll();
+    if (future == null) return finish();
+    // Keep the pipeline full while the caller processes the batch.
+    fillPipeline();
+    long startNs = System.nanoTime();
+    try {
+      List<Partition> batch = future.get();
+      ++numBatches_;
+      return batch;
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), TException.class);
+      throw new TException("Error fetching partitions of table " + dbName_ + "." +
+          tblName_, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TException("Interrupted while fetching partitions of table " +
+          dbName_ + "." + tblName_, e);
+    } finally {
+      waitTimeNs_ += System.nanoTime() - startNs;
+    }
+  }
+
+  /**
+   * Cancels the fetches that are still in flight.
+   */
+  @Override
+  public void close() {
+    for (Future<List<Partition>> future : pending_) future.cancel(false);
+    pending_.clear();
+  }
+
+  /**
+   * Returns the number of batches returned by next() so far.
+   */
+  public int getNumBatches() { return numBatches_; }
+
+  /**
+   * Returns the time, in nanoseconds, next() blocked waiting for batches. This is the
+   * part of the fetch that did not overlap with the work of the caller.
+   */
+  public long getWaitTimeNs() { return waitTimeNs_; }
+
+  /**
+   * Returns the time, in nanoseconds, from the creation of the fetcher until next()
+   * returned null, or until now if not all batches were returned yet.
+   */
+  public long getElapsedTimeNs() {
+    return (endTimeNs_ != 0 ? endTimeNs_ : System.nanoTime()) - startTimeNs_;
+  }
+
+  private List<Partition> finish() {
+    if (endTimeNs_ == 0) {
+      endTimeNs_ = System.nanoTime();
+      if (LOG.isTraceEnabled()) {
+        LOG.trace(String.format("Fetched %d partitions of %s.%s in %d batches",
+            partNames_.size(), dbName_, tblName_, numBatches_));
+      }
+    }
+    return null;
+  }
+
+  private void fillPipeline() {
+    while (pending_.size() < maxInFlight_ && nextPartIdx_ < partNames_.size()) {
+      List<String> names = nextBatchNames();
+      pending_.add(pool_.submit(() -> fetchBatch(names)));
+    }
+  }
+
+  private List<String> nextBatchNames() {
+    int end = Math.min(nextPartIdx_ + sizer_.getBatchSize(), partNames_.size());
+    List<String> names = partNames_.subList(nextPartIdx_, end);
+    nextPartIdx_ = end;
+    return names;
+  }
+
+  /**
+   * Fetches the partitions 'names', retrying the fetch if it fails with a
+   * MetaException, e.g. because partitions were dropped while they were fetched.
+   */
+  private List<Partition> fetchBatch(List<String> names) throws TException {
+    int retryAttempt = 0;
+    long startNs;
+    List<Partition> batch;
+    while (true) {
+      startNs = System.nanoTime();
+      try {
+        batch = batchFetcher_.fetch(names);
+        break;
+      } catch (MetaException e) {
+        if (retryAttempt >= NUM_BATCH_FETCH_RETRIES) throw e;
+        LOG.error(String.format("Error fetching %d partitions of table: %s.%s. " +
+            "Retry attempt: %d/%d", names.size(), dbName_, tblName_, retryAttempt,
+            NUM_BATCH_FETCH_RETRIES), e);
+        ++retryAttempt;
+      }
+    }
+    long latencyNs = System.nanoTime() - startNs;
+    // Estimate the payload size from the serialized size of one partition.
+    long sampleBytes = 0;
+    if (!batch.isEmpty()) {
+      sampleBytes = new TSerializer(new TBinaryProtocol.Factory())
+          .serialize(batch.get(0)).length;
+    }
+    sizer_.update(names.size(), latencyNs, sampleBytes);
+    return batch;
+  }
+
+  /**
+   * Chooses the size of the next batch from the latency and payload size per partition
+   * of the previous batches, such that a batch takes about TARGET_BATCH_LATENCY_NS to
+   * fetch and is at most MAX_BATCH_BYTES large. The size grows at most 2x per batch
+   * and never exceeds the HMS limit 'maxSize'. Thread-safe.
+   */
+  static class BatchSizer {
+    // Weight of the latest batch in the moving averages.
+    private static final double ALPHA = 0.5;
+
+    private final int minSize_;
+    private final int maxSize_;
+    private int size_;
+    // Moving averages of the fetch time and the size of a partition, or -1 if no batch
+    // was fetched yet.
+    private double nsPerPartition_ = -1;
+    private double bytesPerPartition_ = -1;
+
+    BatchSizer(int maxSize) {
+      Preconditions.checkArgument(maxSize > 0);
+      maxSize_ = maxSize;
+      minSize_ = Math.min(MIN_BATCH_SIZE, maxSize);
+      size_ = Math.max(minSize_, maxSize / 10);
+    }
+
+    synchronized int getBatchSize() { return size_; }
+
+    synchronized void update(int numParts, long latencyNs, long sampleBytes) {
+      if (numParts <= 0) return;
+      nsPerPartition_ = average(nsPerPartition_, (double) latencyNs / numParts);
+      if (sampleBytes > 0) {
+        bytesPerPartition_ = average(bytesPerPartition_, sampleBytes);
+      }
+      double target = TARGET_BATCH_LATENCY_NS / Math.max(1, nsPerPartition_);
+      if (bytesPerPartition_ > 0) {
+        target = Math.min(target, MAX_BATCH_BYTES / bytesPerPartition_);
+      }
+      long newSize = Math.min((long) target, 2L * size_);
+      size_ = (int) Math.max(minSize_, Math.min(maxSize_, newSize));
+    }
+
+    private static double average(double avg, double value) {
+      return avg < 0 ? value : ALPHA * value + (1 - ALPHA) * avg;
+    }
+  }
+}
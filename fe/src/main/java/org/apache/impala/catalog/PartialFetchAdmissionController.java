@@ -0,0 +1,334 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.impala.thrift.TPartialFetchPriority;
+import org.apache.impala.util.LatencyHistogram;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Admission control for the partial catalog object fetches which catalogd serves to
+ * coordinators in local catalog mode. At most 'maxConcurrency' fetches run at a time,
+ * the others wait in a queue until a running fetch finishes:
+ * - Queued PLANNING fetches are admitted before queued PREFETCH fetches. PREFETCH
+ *   fetches may only occupy three quarters of the slots, so that the fetches which
+ *   queries are blocked on find a free slot even while many prefetches run.
+ * - Within a priority class, the queued fetches of different requesters, i.e.
+ *   coordinators, are admitted round-robin. A coordinator which sends many fetches at
+ *   once, e.g. after it restarted, thus cannot starve the other coordinators.
+ * - A fetch is rejected instead of queued if 'maxQueueLength' fetches are queued
+ *   already, or if it is not expected to be admitted within its queue timeout. A queued
+ *   fetch which is not admitted within its queue timeout is rejected as well. The
+ *   requester is expected to back off and retry, rather than wait in an ever growing
+ *   queue.
+ * Thread-safe.
+ */
+public class PartialFetchAdmissionController {
+  // Weight of the latest fetch in the moving average of the time fetches hold a slot.
+  private static final double SERVICE_TIME_AVG_WEIGHT = 0.1;
+
+  private final int maxConcurrency_;
+  private final int maxPrefetchConcurrency_;
+  private final int maxQueueLength_;
+
+  private final ReentrantLock lock_ = new ReentrantLock();
+
+  // The queued fetches, indexed by the ordinal of their priority. Each map holds the
+  // fetches of each requester in arrival order, and iterates over the requesters in
+  // the order in which they are served next. Guarded by 'lock_'.
+  private final Map<String, Deque<Waiter>>[] queues_;
+  // Number of queued and running fetches, indexed by the ordinal of their priority.
+  // Guarded by 'lock_'.
+  private final int[] numQueued_;
+  private final int[] numRunning_;
+  // Exponential moving average of the time admitted fetches held their slot, used to
+  // estimate how long a fetch will be queued. Guarded by 'lock_'.
+  private double avgServiceTimeNs_;
+
+  // Time fetches waited to be admitted, indexed by the ordinal of their priority.
+  private final LatencyHistogram[] queueWaits_;
+  private final LongAdder numRejected_ = new LongAdder();
+
+  /**
+   * Thrown by admit() if a fetch is rejected.
+   */
+  public static class RejectedException extends Exception {
+    private final long retryAfterMs_;
+
+    RejectedException(String msg, long retryAfterMs) {
+      super(msg);
+      retryAfterMs_ = retryAfterMs;
+    }
+
+    /**
+     * Returns how long the queued fetches are expected to take to drain.
+     */
+    public long getRetryAfterMs() { return retryAfterMs_; }
+  }
+
+  /**
+   * The slot of an admitted fetch. Must be closed once the fetch finishes.
+   */
+  public class Admission implements AutoCloseable {
+    private final TPartialFetchPriority priority_;
+    private final long admitTimeNs_ = System.nanoTime();
+
+    private Admission(TPartialFetchPriority priority) { priority_ = priority; }
+
+    @Override
+    public void close() { release(priority_, System.nanoTime() - admitTimeNs_); }
+  }
+
+  // A queued fetch.
+  private static class Waiter {
+    final TPartialFetchPriority priority;
+    final String requester;
+    final Condition admittedCond;
+    boolean admitted;
+
+    Waiter(TPartialFetchPriority priority, String requester, Condition admittedCond) {
+      this.priority = priority;
+      this.requester = requester;
+      this.admittedCond = admittedCond;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public PartialFetchAdmissionController(int maxConcurrency, int maxQueueLength) {
+    Preconditions.checkArgument(maxConcurrency > 0);
+    maxConcurrency_ = maxConcurrency;
+    maxPrefetchConcurrency_ = Math.max(1, maxConcurrency - maxConcurrency / 4);
+    maxQueueLength_ = maxQueueLength > 0 ? maxQueueLength : Integer.MAX_VALUE;
+    int numPriorities = TPartialFetchPriority.values().length;
+    queues_ = new Map[numPriorities];
+    queueWaits_ = new LatencyHistogram[numPriorities];
+    for (int i = 0; i < numPriorities; i++) {
+      queues_[i] = new LinkedHashMap<>();
+      queueWaits_[i] = new LatencyHistogram();
+    }
+    numQueued_ = new int[numPriorities];
+    numRunning_ = new int[numPriorities];
+  }
+
+  /**
+   * Admits a fetch of priority 'priority' sent by 'requester', waiting for at most
+   * 'timeoutNs' if it has to be queued. Returns the slot of the fetch, which the caller
+   * must close once the fetch finished. Throws a RejectedException if the fetch is
+   * rejected.
+   */
+  public Admission admit(TPartialFetchPriority priority, String requester,
+      long timeoutNs) throws RejectedException, InterruptedException {
+    Preconditions.checkNotNull(priority);
+    Preconditions.checkNotNull(requester);
+    long startNs = System.nanoTime();
+    Waiter waiter;
+    lock_.lock();
+    try {
+      if (getNumQueuedAhead(priority) == 0 && canRun(priority)) {
+        ++numRunning_[priority.ordinal()];
+        return admitted(priority, startNs);
+      }
+      if (getTotalQueued() >= maxQueueLength_) {
+        throw reject(priority, "the queue is full");
+      }
+      if (estimateQueueTimeNs(priority) > timeoutNs) {
+        throw reject(priority, "it is not expected to be admitted within its timeout");
+      }
+      waiter = new Waiter(priority, requester, lock_.newCondition());
+      queues_[priority.ordinal()].computeIfAbsent(requester, r -> new ArrayDeque<>())
+          .add(waiter);
+      ++numQueued_[priority.ordinal()];
+
+      long remainingNs = timeoutNs;
+      try {
+        while (!waiter.admitted) {
+          if (remainingNs <= 0) {
+            dequeue(waiter);
+            throw reject(priority, "it was not admitted within its timeout");
+          }
+          remainingNs = waiter.admittedCond.awaitNanos(remainingNs);
+        }
+      } catch (InterruptedException e) {
+        if (waiter.admitted) {
+          releaseLocked(priority, 0);
+        } else {
+          dequeue(waiter);
+        }
+        throw e;
+      }
+      return admitted(priority, startNs);
+    } finally {
+      lock_.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of queued fetches.
+   */
+  public int getQueueLength() {
+    lock_.lock();
+    try {
+      return getTotalQueued();
+    } finally {
+      lock_.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of admitted fetches which did not finish yet.
+   */
+  public int getNumRunning() {
+    lock_.lock();
+    try {
+      return getTotalRunning();
+    } finally {
+      lock_.unlock();
+    }
+  }
+
+  public long getNumRejected() { return numRejected_.sum(); }
+
+  /**
+   * Returns the time fetches of priority 'priority' waited to be admitted.
+   */
+  public LatencyHistogram getQueueWaits(TPartialFetchPriority priority) {
+    return queueWaits_[priority.ordinal()];
+  }
+
+  private Admission admitted(TPartialFetchPriority priority, long startNs) {
+    queueWaits_[priority.ordinal()].record(System.nanoTime() - startNs);
+    return new Admission(priority);
+  }
+
+  private RejectedException reject(TPartialFetchPriority priority, String reason) {
+    numRejected_.increment();
+    long retryAfterMs = TimeUnit.NANOSECONDS.toMillis(estimateQueueTimeNs(priority));
+    return new RejectedException(String.format("Rejected %s partial fetch because %s " +
+        "(queue length: %d, running: %d)", priority, reason, getTotalQueued(),
+        getTotalRunning()), retryAfterMs);
+  }
+
+  private void release(TPartialFetchPriority priority, long serviceTimeNs) {
+    lock_.lock();
+    try {
+      releaseLocked(priority, serviceTimeNs);
+    } finally {
+      lock_.unlock();
+    }
+  }
+
+  private void releaseLocked(TPartialFetchPriority priority, long serviceTimeNs) {
+    Preconditions.checkState(lock_.isHeldByCurrentThread());
+    Preconditions.checkState(numRunning_[priority.ordinal()] > 0);
+    --numRunning_[priority.ordinal()];
+    if (serviceTimeNs > 0) {
+      avgServiceTimeNs_ = avgServiceTimeNs_ == 0 ? serviceTimeNs :
+          avgServiceTimeNs_ + SERVICE_TIME_AVG_WEIGHT *
+          (serviceTimeNs - avgServiceTimeNs_);
+    }
+    admitQueued();
+  }
+
+  /**
+   * Admits queued fetches, highest priority first, while there are free slots for them.
+   */
+  private void admitQueued() {
+    for (TPartialFetchPriority priority : TPartialFetchPriority.values()) {
+      while (numQueued_[priority.ordinal()] > 0 && canRun(priority)) {
+        Waiter waiter = pollNext(queues_[priority.ordinal()]);
+        --numQueued_[priority.ordinal()];
+        ++numRunning_[priority.ordinal()];
+        waiter.admitted = true;
+        waiter.admittedCond.signal();
+      }
+      // Lower priority fetches must not overtake the queued fetches of this priority.
+      if (numQueued_[priority.ordinal()] > 0) return;
+    }
+  }
+
+  /**
+   * Removes and returns the first queued fetch of the requester which is served next,
+   * and moves that requester to the end of 'queue'.
+   */
+  private static Waiter pollNext(Map<String, Deque<Waiter>> queue) {
+    Iterator<Map.Entry<String, Deque<Waiter>>> it = queue.entrySet().iterator();
+    Map.Entry<String, Deque<Waiter>> next = it.next();
+    it.remove();
+    Waiter waiter = next.getValue().poll();
+    if (!next.getValue().isEmpty()) queue.put(next.getKey(), next.getValue());
+    return waiter;
+  }
+
+  private void dequeue(Waiter waiter) {
+    Map<String, Deque<Waiter>> queue = queues_[waiter.priority.ordinal()];
+    Deque<Waiter> waiters = queue.get(waiter.requester);
+    Preconditions.checkState(waiters != null && waiters.remove(waiter));
+    if (waiters.isEmpty()) queue.remove(waiter.requester);
+    --numQueued_[waiter.priority.ordinal()];
+  }
+
+  private boolean canRun(TPartialFetchPriority priority) {
+    if (getTotalRunning() >= maxConcurrency_) return false;
+    return priority != TPartialFetchPriority.PREFETCH ||
+        numRunning_[priority.ordinal()] < maxPrefetchConcurrency_;
+  }
+
+  private int getTotalRunning() {
+    int total = 0;
+    for (int n : numRunning_) total += n;
+    return total;
+  }
+
+  private int getTotalQueued() {
+    int total = 0;
+    for (int n : numQueued_) total += n;
+    return total;
+  }
+
+  /**
+   * Returns the number of queued fetches which are admitted before a fetch of priority
+   * 'priority' that is queued now.
+   */
+  private int getNumQueuedAhead(TPartialFetchPriority priority) {
+    int total = 0;
+    for (int i = 0; i <= priority.ordinal(); i++) total += numQueued_[i];
+    return total;
+  }
+
+  /**
+   * Estimates how long a fetch of priority 'priority' that is queued now waits to be
+   * admitted, assuming that its slots keep serving fetches at the recent rate. Returns
+   * 0 if no fetch finished yet.
+   */
+  private long estimateQueueTimeNs(TPartialFetchPriority priority) {
+    int slots = priority == TPartialFetchPriority.PREFETCH ?
+        maxPrefetchConcurrency_ : maxConcurrency_;
+    return (long) ((getNumQueuedAhead(priority) + 1) * avgServiceTimeNs_ / slots);
+  }
+}
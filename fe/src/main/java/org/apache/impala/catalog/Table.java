@@ -136,6 +136,14 @@ public abstract class Table extends CatalogObjectImpl implements FeTable {
   // impalad.
   protected long lastUsedTime_;
 
+  // Number of usages of this table, decayed exponentially with a half-life of
+  // ACCESS_FREQUENCY_HALF_LIFE_NS, as of 'lastUsedTime_'. See getAccessFrequency().
+  // This is only set in catalogd and not used by impalad.
+  private volatile double accessFrequency_ = 0;
+
+  // Half-life of the usages counted in 'accessFrequency_'.
+  private static final long ACCESS_FREQUENCY_HALF_LIFE_NS = TimeUnit.HOURS.toNanos(1);
+
   // Valid write id list for this table.
   // null in the case that this table is not transactional.
   // TODO(todd) this should probably be a ValidWriteIdList in memory instead of a String.
@@ -178,6 +186,12 @@ public abstract class Table extends CatalogObjectImpl implements FeTable {
   public static final String TBL_PROP_LAST_COMPUTE_STATS_TIME =
       "impala.lastComputeStatsTime";
 
+  // Prefix of the table property keys for storing column histograms computed by
+  // COMPUTE STATS. The key of a column's histogram is the prefix followed by the
+  // column name. The HMS column stats have no place for histograms.
+  public static final String TBL_PROP_COLUMN_HISTOGRAM_PREFIX =
+      "impala.columnHistogram.";
+
   // Table property key for storing table type externality.
   public static final String TBL_PROP_EXTERNAL_TABLE = "EXTERNAL";
 
@@ -614,10 +628,12 @@ public abstract class Table extends CatalogObjectImpl implements FeTable {
       // is done while we continue to hold the table lock.
       resp.table_info.setHms_table(getMetaStoreTable().deepCopy());
     }
-    if (selector.want_stats_for_column_names != null) {
+    List<String> statsColNames = selector.want_stats_for_all_columns ?
+        getColumnNames() : selector.want_stats_for_column_names;
+    if (statsColNames != null) {
       List<ColumnStatisticsObj> statsList = Lists.newArrayListWithCapacity(
-          selector.want_stats_for_column_names.size());
-      for (String colName: selector.want_stats_for_column_names) {
+          statsColNames.size());
+      for (String colName: statsColNames) {
         Column col = getColumn(colName);
         if (col == null) continue;
 
@@ -802,8 +818,35 @@ public abstract class Table extends CatalogObjectImpl implements FeTable {
     msTbl.putToParameters(propertyKey, Long.toString(System.currentTimeMillis() / 1000));
   }
 
+  /**
+   * Sets the last used time of this table to now without counting a usage. Called when
+   * the table is (re)loaded, which is not an access by a query.
+   */
   public void refreshLastUsedTime() {
-    lastUsedTime_ = CatalogdTableInvalidator.nanoTime();
+    refreshLastUsedTime(0);
+  }
+
+  /**
+   * Sets the last used time of this table to now and records 'numUsages' usages by
+   * queries in its access frequency, see CatalogServiceCatalog.updateTableUsage().
+   * Concurrent calls may lose usages, which is fine for the purpose of the access
+   * frequency.
+   */
+  public void refreshLastUsedTime(int numUsages) {
+    long now = CatalogdTableInvalidator.nanoTime();
+    accessFrequency_ = getAccessFrequency(now) + Math.max(numUsages, 0);
+    lastUsedTime_ = now;
+  }
+
+  /**
+   * Returns the number of usages of this table at time 'nowNs', where a usage counts
+   * half as much for every hour that passed since. Used by CatalogdTableInvalidator to
+   * keep frequently used tables.
+   */
+  public double getAccessFrequency(long nowNs) {
+    long elapsedNs = Math.max(0, nowNs - lastUsedTime_);
+    return accessFrequency_ *
+        Math.pow(0.5, (double) elapsedNs / ACCESS_FREQUENCY_HALF_LIFE_NS);
   }
 
   /**
@@ -0,0 +1,112 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.avro.AvroSerdeUtils;
+import org.apache.impala.util.AcidUtils;
+import org.apache.impala.util.HdfsCachingUtil;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * Kinds of changes between two versions of the same HMS table, see getChanges().
+ * Tables which only have PROPERTIES or STATS changes can be updated in place, see
+ * HdfsTable.updatePropertiesFromHmsTable().
+ */
+public enum TableChange {
+  // Changes of the columns, partition keys or storage format, and any other change
+  // that is not one of the kinds below.
+  SCHEMA,
+  // Changes of the location of the table.
+  LOCATION,
+  // Changes of the table properties or the owner.
+  PROPERTIES,
+  // Changes of the table statistics stored in the table properties.
+  STATS;
+
+  // Table properties which hold table statistics.
+  private static final Set<String> STATS_PROPERTIES = ImmutableSet.of(
+      StatsSetupConst.ROW_COUNT, StatsSetupConst.TOTAL_SIZE,
+      StatsSetupConst.RAW_DATA_SIZE, StatsSetupConst.NUM_FILES,
+      StatsSetupConst.COLUMN_STATS_ACCURATE, "numFilesErasureCoded");
+
+  // Table properties which affect how the schema, partitions or files of a table are
+  // loaded, or from which HdfsTable derives state during the load, e.g. the NULL
+  // column value. Changes of these properties count as schema changes. Lower case.
+  private static final Set<String> SCHEMA_PROPERTIES = ImmutableSet.of(
+      AvroSerdeUtils.AvroTableProperties.SCHEMA_LITERAL.getPropName(),
+      AvroSerdeUtils.AvroTableProperties.SCHEMA_URL.getPropName(),
+      AcidUtils.TABLE_IS_TRANSACTIONAL, AcidUtils.TABLE_TRANSACTIONAL_PROPERTIES,
+      HdfsCachingUtil.CACHE_DIR_ID_PROP_NAME,
+      HdfsCachingUtil.CACHE_DIR_REPLICATION_PROP_NAME,
+      HdfsTable.TBL_PROP_DISABLE_RECURSIVE_LISTING,
+      serdeConstants.SERIALIZATION_NULL_FORMAT,
+      FeFsTable.Utils.TBL_PROP_SKIP_HEADER_LINE_COUNT);
+
+  /**
+   * Returns the kinds of changes between 'before' and 'after', two versions of the same
+   * HMS table. Changes of the table name are not detected.
+   */
+  public static Set<TableChange> getChanges(
+      org.apache.hadoop.hive.metastore.api.Table before,
+      org.apache.hadoop.hive.metastore.api.Table after) {
+    Set<TableChange> changes = EnumSet.noneOf(TableChange.class);
+    // Reset the fields of which the changes are classified in a copy of 'after' and
+    // check if anything else changed.
+    org.apache.hadoop.hive.metastore.api.Table afterCopy = after.deepCopy();
+    if (before.isSetSd() && afterCopy.isSetSd()) {
+      if (!Objects.equals(before.getSd().getLocation(),
+          afterCopy.getSd().getLocation())) {
+        changes.add(LOCATION);
+        afterCopy.getSd().setLocation(before.getSd().getLocation());
+      }
+    }
+    Map<String, String> paramsBefore = before.isSetParameters() ?
+        before.getParameters() : Collections.emptyMap();
+    Map<String, String> paramsAfter = afterCopy.isSetParameters() ?
+        afterCopy.getParameters() : Collections.emptyMap();
+    for (String key : Sets.union(paramsBefore.keySet(), paramsAfter.keySet())) {
+      if (Objects.equals(paramsBefore.get(key), paramsAfter.get(key))) continue;
+      if (STATS_PROPERTIES.contains(key)) {
+        changes.add(STATS);
+      } else if (SCHEMA_PROPERTIES.contains(key.toLowerCase())) {
+        changes.add(SCHEMA);
+      } else {
+        changes.add(PROPERTIES);
+      }
+    }
+    afterCopy.setParameters(before.getParameters());
+    if (!Objects.equals(before.getOwner(), afterCopy.getOwner())
+        || !Objects.equals(before.getOwnerType(), afterCopy.getOwnerType())) {
+      changes.add(PROPERTIES);
+      afterCopy.setOwner(before.getOwner());
+      afterCopy.setOwnerType(before.getOwnerType());
+    }
+    if (!afterCopy.equals(before)) changes.add(SCHEMA);
+    return changes;
+  }
+}
@@ -0,0 +1,101 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides in which order CatalogdTableInvalidator invalidates loaded tables when the
+ * old GC generation is almost full. Each table gets a retention score, tables with
+ * lower scores are invalidated first. Configured with
+ * --invalidate_tables_eviction_policy.
+ */
+public interface TableEvictionPolicy {
+  /**
+   * Returns the retention score of the loaded table 'table' at time 'nowNs', as
+   * returned by CatalogdTableInvalidator.nanoTime().
+   */
+  double getRetentionScore(Table table, long nowNs);
+
+  /**
+   * Returns the name of the policy, as used in --invalidate_tables_eviction_policy.
+   */
+  String getName();
+
+  /**
+   * Returns the policy with the name 'name'. Returns the cost-aware policy if 'name' is
+   * null or empty.
+   */
+  static TableEvictionPolicy create(String name) {
+    if (name == null || name.isEmpty()) return new CostAwarePolicy();
+    switch (name.toLowerCase()) {
+      case LruPolicy.NAME: return new LruPolicy();
+      case CostAwarePolicy.NAME: return new CostAwarePolicy();
+      default:
+        throw new IllegalArgumentException(String.format(
+            "Invalid invalidate_tables_eviction_policy: '%s'. Expected '%s' or '%s'.",
+            name, LruPolicy.NAME, CostAwarePolicy.NAME));
+    }
+  }
+
+  /**
+   * Invalidates the least recently used tables first.
+   */
+  class LruPolicy implements TableEvictionPolicy {
+    static final String NAME = "lru";
+
+    @Override
+    public double getRetentionScore(Table table, long nowNs) {
+      return table.getLastUsedTime();
+    }
+
+    @Override
+    public String getName() { return NAME; }
+  }
+
+  /**
+   * Invalidates the tables first which free the most memory for the least expected
+   * cost of reloading them. The score of a table is the expected reload time per byte
+   * of metadata: its decayed access frequency, see Table.getAccessFrequency(), times
+   * the longest time it took to load it, divided by its estimated metadata size. This
+   * keeps tables which are expensive to load and still used regularly, even if they are
+   * large, and evicts large tables which are cheap to load or no longer used. Tables
+   * with an unknown size or load time are treated as small and quickly loaded.
+   */
+  class CostAwarePolicy implements TableEvictionPolicy {
+    static final String NAME = "cost";
+
+    // Lower bounds of the size and load time of a table, so that tables with unknown
+    // or tiny values do not get extreme scores.
+    private static final long MIN_SIZE_BYTES = 1024;
+    private static final long MIN_LOAD_TIME_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Override
+    public double getRetentionScore(Table table, long nowNs) {
+      Preconditions.checkState(!(table instanceof IncompleteTable));
+      double loadTimeNs = Math.max(MIN_LOAD_TIME_NS, table.getMaxTableLoadingTime());
+      double sizeBytes = Math.max(MIN_SIZE_BYTES, table.getEstimatedMetadataSize());
+      return table.getAccessFrequency(nowNs) * loadTimeNs / sizeBytes;
+    }
+
+    @Override
+    public String getName() { return NAME; }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.impala.catalog;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -118,6 +119,10 @@ public class TableLoadingMgr {
   private final Map<TTableName, AtomicBoolean> tableLoadingBarrier_ =
       new ConcurrentHashMap<>();
 
+  // Tables queued by prioritizeLoad() that have not been taken off the deque yet. Used
+  // to load the file metadata of all other tables from the deque with a low priority.
+  private final Set<TTableName> prioritizedTables_ = ConcurrentHashMap.newKeySet();
+
   // Map of table name to a FutureTask associated with the table load. Used to
   // prevent duplicate loads of the same table.
   private final Map<TTableName, FutureTask<Table>> loadingTables_ =
@@ -172,6 +177,8 @@ public class TableLoadingMgr {
     asyncRefreshThread_.submit(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
+        // Refreshes of this thread are not waited on by any query or statement.
+        FileListingExecutor.setThreadPriority(FileListingExecutor.Priority.LOW);
         while(true) {
           Pair<TTableName, String> work = refreshThreadWork_.take();
           execAsyncRefreshWork(work.first, /* reason=*/work.second);
@@ -187,6 +194,7 @@ public class TableLoadingMgr {
         tableLoadingBarrier_.putIfAbsent(tblName, new AtomicBoolean(false));
     // Only queue the table if a load is not already in progress.
     if (isLoading != null && isLoading.get()) return;
+    prioritizedTables_.add(tblName);
     tableLoadingDeque_.offerFirst(tblName);
   }
 
@@ -228,7 +236,8 @@ public class TableLoadingMgr {
    * Loads a table asynchronously, returning a LoadRequest that can be used to get
    * the result (a Table). If there is already a load in flight for this table name,
    * the same underlying loading task (Future) will be used, helping to prevent duplicate
-   * loads of the same table.
+   * loads of the same table. The file metadata of the table is loaded with the
+   * FileListingExecutor priority of the calling thread.
    */
   public LoadRequest loadAsync(final TTableName tblName, final String reason)
       throws DatabaseNotFoundException {
@@ -238,10 +247,17 @@ public class TableLoadingMgr {
           "Database '" + tblName.getDb_name() + "' was not found.");
     }
 
+    final FileListingExecutor.Priority priority = FileListingExecutor.getThreadPriority();
     FutureTask<Table> tableLoadTask = new FutureTask<Table>(new Callable<Table>() {
         @Override
         public Table call() throws Exception {
-          return tblLoader_.load(parentDb, tblName.table_name, reason);
+          FileListingExecutor.Priority prevPriority =
+              FileListingExecutor.setThreadPriority(priority);
+          try {
+            return tblLoader_.load(parentDb, tblName.table_name, reason);
+          } finally {
+            FileListingExecutor.setThreadPriority(prevPriority);
+          }
         }});
 
     FutureTask<Table> existingValue = loadingTables_.putIfAbsent(tblName, tableLoadTask);
@@ -293,6 +309,7 @@ public class TableLoadingMgr {
   private void loadNextTable() throws InterruptedException {
     // Always get the next table from the head of the deque.
     final TTableName tblName = tableLoadingDeque_.takeFirst();
+    boolean isPrioritized = prioritizedTables_.remove(tblName);
     AtomicBoolean isLoading = tableLoadingBarrier_.get(tblName);
     if (isLoading == null || !isLoading.compareAndSet(false, true)) {
       // Another thread has already completed the load or the load is still in progress.
@@ -301,6 +318,9 @@ public class TableLoadingMgr {
           tblName.db_name + "." + tblName.table_name);
       return;
     }
+    FileListingExecutor.Priority prevPriority = FileListingExecutor.setThreadPriority(
+        isPrioritized ? FileListingExecutor.Priority.HIGH
+            : FileListingExecutor.Priority.LOW);
     try {
       // TODO: Instead of calling "getOrLoad" here we could call "loadAsync". We would
       // just need to add a mechanism for moving loaded tables into the Catalog.
@@ -309,6 +329,7 @@ public class TableLoadingMgr {
     } catch (CatalogException e) {
       // Ignore.
     } finally {
+      FileListingExecutor.setThreadPriority(prevPriority);
       tableLoadingBarrier_.remove(tblName);
     }
   }
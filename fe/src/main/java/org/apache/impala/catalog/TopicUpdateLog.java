@@ -19,6 +19,7 @@ package org.apache.impala.catalog;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,6 +96,30 @@ public class TopicUpdateLog {
   private final Map<String, Entry> topicLogEntries_ =
       new ConcurrentHashMap<>();
 
+  // Number of items and serialized size, before compression, of the last topic update.
+  private volatile long lastUpdateNumItems_;
+  private volatile long lastUpdateBytes_;
+  // Serialized size of all topic updates and number of partitions that were not resent
+  // because they did not change since they were last sent.
+  private final AtomicLong totalBytes_ = new AtomicLong();
+  private final AtomicLong numPartitionsSkipped_ = new AtomicLong();
+
+  /**
+   * Records the size of a topic update. Called once per topic update, after all its
+   * items were added.
+   */
+  public void recordTopicUpdate(long numItems, long numBytes, long numPartitionsSkipped) {
+    lastUpdateNumItems_ = numItems;
+    lastUpdateBytes_ = numBytes;
+    totalBytes_.addAndGet(numBytes);
+    numPartitionsSkipped_.addAndGet(numPartitionsSkipped);
+  }
+
+  public long getLastUpdateNumItems() { return lastUpdateNumItems_; }
+  public long getLastUpdateBytes() { return lastUpdateBytes_; }
+  public long getTotalBytes() { return totalBytes_.get(); }
+  public long getNumPartitionsSkipped() { return numPartitionsSkipped_.get(); }
+
   /**
    * Garbage-collects topic update log entries. These are entries that haven't been
    * added to any of the last TOPIC_UPDATE_LOG_GC_FREQUENCY topic updates.
@@ -25,9 +25,11 @@ import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.NotificationEvent;
@@ -49,6 +51,7 @@ import org.apache.impala.catalog.CatalogServiceCatalog;
 import org.apache.impala.catalog.DatabaseNotFoundException;
 import org.apache.impala.catalog.Db;
 import org.apache.impala.catalog.Table;
+import org.apache.impala.catalog.TableChange;
 import org.apache.impala.catalog.TableNotFoundException;
 import org.apache.impala.catalog.TableLoadingException;
 import org.apache.impala.common.Metrics;
@@ -242,7 +245,48 @@ public class MetastoreEvents {
           + "filtered out: %d", sizeBefore, numFilteredEvents));
       metrics_.getCounter(MetastoreEventsProcessor.EVENTS_SKIPPED_METRIC)
               .inc(numFilteredEvents);
-      return metastoreEvents;
+      return mergePartitionEvents(metastoreEvents);
+    }
+
+    /**
+     * Replaces each run of two or more consecutive events in 'events' which are on the
+     * same table and can be batched, see BatchPartitionEvent.canBeBatched(), by a
+     * single BatchPartitionEvent. An INSERT OVERWRITE into many partitions of a table
+     * in Hive generates such runs of ALTER_PARTITION and INSERT events.
+     */
+    private List<MetastoreEvent> mergePartitionEvents(List<MetastoreEvent> events) {
+      List<MetastoreEvent> mergedEvents = new ArrayList<>(events.size());
+      int numMergedEvents = 0;
+      int i = 0;
+      while (i < events.size()) {
+        MetastoreEvent event = events.get(i);
+        int end = i + 1;
+        if (BatchPartitionEvent.canBeBatched(event)) {
+          while (end < events.size()
+              && BatchPartitionEvent.canBeBatched(events.get(end))
+              && event.getTableKey().equals(events.get(end).getTableKey())) {
+            end++;
+          }
+        }
+        if (end - i > 1) {
+          List<MetastoreTableEvent> batch = new ArrayList<>(end - i);
+          for (MetastoreEvent batchedEvent : events.subList(i, end)) {
+            batch.add((MetastoreTableEvent) batchedEvent);
+          }
+          mergedEvents.add(new BatchPartitionEvent(catalog_, metrics_, batch));
+          numMergedEvents += batch.size();
+        } else {
+          mergedEvents.add(event);
+        }
+        i = end;
+      }
+      if (numMergedEvents > 0) {
+        LOG.info(String.format("Merged %d partition events into %d batch events",
+            numMergedEvents, numMergedEvents - (events.size() - mergedEvents.size())));
+        metrics_.getCounter(MetastoreEventsProcessor.EVENTS_MERGED_METRIC)
+            .inc(numMergedEvents);
+      }
+      return mergedEvents;
     }
   }
 
@@ -325,6 +369,7 @@ public class MetastoreEvents {
       if (isEventProcessingDisabled()) {
         LOG.info(debugString("Skipping this event because of flag evaluation"));
         metrics_.getCounter(MetastoreEventsProcessor.EVENTS_SKIPPED_METRIC).inc();
+        discardSelfEvent();
         return;
       }
       process();
@@ -340,6 +385,15 @@ public class MetastoreEvents {
     protected abstract void process()
         throws MetastoreNotificationException, CatalogException;
 
+    /**
+     * Returns the key of the table this event is confined to, as lower case
+     * "db.table", or null if processing this event may affect other tables. The
+     * MetastoreEventsProcessor may process events of different tables concurrently,
+     * while events of the same table are processed in order. Events without a key are
+     * processed after all preceding events and before all following events.
+     */
+    public String getTableKey() { return null; }
+
     /**
      * Helper method to get debug string with helpful event information prepended to the
      * message. This can be used to generate helpful exception messages
@@ -439,12 +493,34 @@ public class MetastoreEvents {
      * @throws CatalogException in case of exceptions while removing the version number
      * from the database/table or when reading the values of version list from catalog
      * database/table
+     *
+     * Before the list of pending versions is consulted, the fingerprints of the event
+     * (see getSelfEventFingerprints()) are looked up in the fingerprints registered by
+     * the catalog service when it changed the objects of the event. These also detect
+     * self-events if the versions are seen out of order, e.g. for the events of the
+     * partitions altered by one DDL, or if the table was invalidated in the meantime.
      */
     protected boolean isSelfEvent() throws CatalogException {
       initSelfEventIdentifiersFromEvent();
-      if (versionNumberFromEvent_ == -1 || pendingVersionNumbersFromCatalog_.isEmpty()) {
-        return false;
+      if (versionNumberFromEvent_ == -1) return false;
+      if (catalog_.getCatalogServiceId().equals(serviceIdFromEvent_)
+          && catalog_.getSelfEventFingerprints().removeAll(
+              getSelfEventFingerprints())) {
+        // also remove the version from the pending versions, if it is still there, so
+        // that the list does not fill up with versions which were already seen
+        if (pendingVersionNumbersFromCatalog_.contains(versionNumberFromEvent_)) {
+          try {
+            catalog_.removeFromInFlightVersionsForEvents(
+                dbName_, tblName_, versionNumberFromEvent_);
+          } catch (DatabaseNotFoundException | TableNotFoundException e) {
+            debugLog("Received exception {}. Ignoring the pending versions",
+                e.getMessage());
+          }
+        }
+        metrics_.getCounter(MetastoreEventsProcessor.NUMBER_OF_SELF_EVENTS).inc();
+        return true;
       }
+      if (pendingVersionNumbersFromCatalog_.isEmpty()) return false;
 
       // first check if service id is a match, then check if the event version is what we
       // expect in the list
@@ -481,6 +557,33 @@ public class MetastoreEvents {
           String.format("%s is not supported", ClassUtil.getMethodName()));
     }
 
+    /**
+     * Returns the fingerprints which were registered in the catalog's
+     * SelfEventFingerprints if this event is a self-event. Called after
+     * initSelfEventIdentifiersFromEvent(). By default events have no fingerprints and
+     * only the pending versions are used to detect self-events.
+     */
+    protected List<String> getSelfEventFingerprints() {
+      return Collections.emptyList();
+    }
+
+    /**
+     * Returns the fingerprint of a DDL on 'objectName' which set the self-event
+     * identifiers of this event.
+     */
+    protected String getDdlFingerprint(String objectName) {
+      return SelfEventFingerprints.forDdl(serviceIdFromEvent_, versionNumberFromEvent_,
+          objectName);
+    }
+
+    /**
+     * Called if this event is skipped without being processed. If it is a self-event,
+     * removes its fingerprints and its version from the in-flight versions, since they
+     * could otherwise match a later event of the same object, e.g. an external ALTER
+     * which keeps the catalog service identifiers in the parameters. No-op by default.
+     */
+    protected void discardSelfEvent() throws CatalogException {}
+
     protected static String getStringProperty(
         Map<String, String> params, String key, String defaultVal) {
       if (params == null) return defaultVal;
@@ -517,6 +620,9 @@ public class MetastoreEvents {
       return new TableName(dbName_, tblName_).toString();
     }
 
+    @Override
+    public String getTableKey() { return getFullyQualifiedTblName().toLowerCase(); }
+
     /**
      * Util method to issue invalidate on a given table on the catalog. This method
      * atomically invalidates the table if it exists in the catalog. No-op if the table
@@ -587,6 +693,22 @@ public class MetastoreEvents {
       return Boolean.valueOf(val);
     }
 
+    /**
+     * Returns the fingerprint of a DDL which set the self-event identifiers in the
+     * parameters of the partition 'partition' of 'msTbl'.
+     */
+    protected static String getPartitionFingerprint(
+        org.apache.hadoop.hive.metastore.api.Table msTbl, Partition partition) {
+      Map<String, String> params = partition.getParameters();
+      return SelfEventFingerprints.forDdl(
+          getStringProperty(params,
+              MetastoreEventPropertyKey.CATALOG_SERVICE_ID.getKey(), ""),
+          Long.parseLong(getStringProperty(params,
+              MetastoreEventPropertyKey.CATALOG_VERSION.getKey(), "-1")),
+          SelfEventFingerprints.getObjectName(msTbl.getDbName(), msTbl.getTableName(),
+              SelfEventFingerprints.getPartitionName(msTbl, partition.getValues())));
+    }
+
     /**
      * Util method to create partition key-value map from HMS Partition objects.
      */
@@ -762,6 +884,9 @@ public class MetastoreEvents {
     // Represents the partition for this insert. Null if the table is unpartitioned.
     private Partition insertPartition_;
 
+    // The files added by this insert, possibly with their checksums appended.
+    private final List<String> insertFiles_;
+
     /**
      * Prevent instantiation from outside should use MetastoreEventFactory instead
      */
@@ -776,6 +901,7 @@ public class MetastoreEvents {
       try {
         msTbl_ = Preconditions.checkNotNull(insertMessage.getTableObj());
         insertPartition_ = insertMessage.getPtnObj();
+        insertFiles_ = Lists.newArrayList(insertMessage.getFiles());
       } catch (Exception e) {
         throw new MetastoreNotificationException(debugString("Unable to "
             + "parse insert message"), e);
@@ -783,14 +909,17 @@ public class MetastoreEvents {
     }
 
     /**
-     * Currently we do not check for self-events in Inserts. Existing self-events logic
-     * cannot be used for insert events since firing insert event does not allow us to
-     * modify table parameters in HMS. Hence, we cannot get CatalogServiceIdentifiers in
-     * Insert Events.
-     * TODO: Handle self-events for insert case.
+     * Firing an insert event does not allow us to modify table parameters in HMS, hence
+     * the CatalogServiceIdentifiers of the other events are not available in insert
+     * events. Instead, inserts done by this catalog service register a fingerprint of
+     * the table, partition and added files before firing the event, see isSelfInsert().
      */
     @Override
     public void process() throws MetastoreNotificationException {
+      if (isSelfInsert()) {
+        infoLog("Not processing the event as it is a self-event");
+        return;
+      }
       // Reload the whole table if it's a transactional table.
       if (AcidUtils.isTransactionalTable(msTbl_.getParameters())) {
         insertPartition_ = null;
@@ -803,6 +932,29 @@ public class MetastoreEvents {
       }
     }
 
+    /**
+     * Returns true if this insert was done by this catalog service, which already
+     * refreshed the table. Removes the fingerprint of the insert in that case.
+     */
+    boolean isSelfInsert() {
+      if (!removeInsertFingerprint()) return false;
+      metrics_.getCounter(MetastoreEventsProcessor.NUMBER_OF_SELF_EVENTS).inc();
+      return true;
+    }
+
+    /**
+     * Removes the fingerprint of this insert. Returns true if it was registered.
+     */
+    private boolean removeInsertFingerprint() {
+      String partName = insertPartition_ == null ? null :
+          SelfEventFingerprints.getPartitionName(msTbl_, insertPartition_.getValues());
+      return catalog_.getSelfEventFingerprints().remove(SelfEventFingerprints.forInsert(
+          dbName_, tblName_, partName, insertFiles_));
+    }
+
+    @Override
+    protected void discardSelfEvent() { removeInsertFingerprint(); }
+
     /**
      * Process partition inserts
      */
@@ -938,10 +1090,28 @@ public class MetastoreEvents {
       }
     }
 
+    /**
+     * The fingerprint is registered under the name of the table before the alter, also
+     * for renames.
+     */
+    @Override
+    protected List<String> getSelfEventFingerprints() {
+      return Collections.singletonList(getDdlFingerprint(
+          SelfEventFingerprints.getObjectName(msTbl_.getDbName(), msTbl_.getTableName(),
+              null)));
+    }
+
+    /**
+     * A rename affects both the old and the new table.
+     */
+    @Override
+    public String getTableKey() { return isRename_ ? null : super.getTableKey(); }
+
     /**
      * If the ALTER_TABLE event is due a table rename, this method removes the old table
-     * and creates a new table with the new name. Else, this just issues a invalidate
-     * table on the tblName from the event
+     * and creates a new table with the new name. Else, if only the properties or
+     * statistics of the table changed, they are updated in place on the loaded table.
+     * Otherwise, this issues a invalidate table on the tblName from the event
      */
     @Override
     public void process() throws MetastoreNotificationException, CatalogException {
@@ -959,11 +1129,12 @@ public class MetastoreEvents {
             + "which can be ignored.");
         return;
       }
-      // in case of table level alters from external systems it is better to do a full
-      // invalidate  eg. this could be due to as simple as adding a new parameter or a
-      // full blown adding  or changing column type
+      // in case of table level alters from external systems which change the schema or
+      // location of the table it is better to do a full invalidate. Changes of only the
+      // properties or statistics are applied in place.
       // detect the special where a table is renamed
       if (!isRename_) {
+        if (updateTableInPlace()) return;
         // table is not renamed, need to invalidate
         if (!invalidateCatalogTable()) {
           if (wasEventSyncTurnedOn()) {
@@ -1012,6 +1183,38 @@ public class MetastoreEvents {
       }
     }
 
+    /**
+     * Updates the loaded table in place if this event only changed the properties or
+     * statistics of the table, see TableChange.getChanges(). This keeps the
+     * partitions and file metadata of the table loaded. Returns false if the table
+     * needs to be invalidated instead.
+     */
+    private boolean updateTableInPlace() throws CatalogException {
+      // If event sync was turned on or off, events on this table may have been
+      // skipped.
+      if (!Objects.equals(eventSyncBeforeFlag_, eventSyncAfterFlag_)) return false;
+      Set<TableChange> changes = TableChange.getChanges(tableBefore_, tableAfter_);
+      if (changes.contains(TableChange.SCHEMA)
+          || changes.contains(TableChange.LOCATION)) {
+        debugLog("Table {} has changes {} which require an invalidate",
+            getFullyQualifiedTblName(), changes);
+        return false;
+      }
+      try {
+        if (!catalog_.updateTablePropertiesIfExists(dbName_, tblName_,
+            "processing ALTER_TABLE event from HMS")) {
+          return false;
+        }
+      } catch (DatabaseNotFoundException e) {
+        return false;
+      }
+      metrics_.getCounter(MetastoreEventsProcessor.NUMBER_OF_TABLES_UPDATED_IN_PLACE)
+          .inc();
+      infoLog("Table {} is updated in place after changes {}",
+          getFullyQualifiedTblName(), changes);
+      return true;
+    }
+
     /**
      * Detects a event sync flag was turned on in this event
      */
@@ -1261,6 +1464,12 @@ public class MetastoreEvents {
         debugLog("Received exception {}. Ignoring self-event evaluation", e.getMessage());
       }
     }
+
+    @Override
+    protected List<String> getSelfEventFingerprints() {
+      return Collections.singletonList(
+          getDdlFingerprint(SelfEventFingerprints.getObjectName(dbName_)));
+    }
   }
 
   /**
@@ -1343,6 +1552,25 @@ public class MetastoreEvents {
       super(catalog, metrics, event);
     }
 
+    @Override
+    protected void discardSelfEvent() throws CatalogException {
+      initSelfEventIdentifiersFromEvent();
+      if (versionNumberFromEvent_ == -1
+          || !catalog_.getCatalogServiceId().equals(serviceIdFromEvent_)) {
+        return;
+      }
+      catalog_.getSelfEventFingerprints().removeAll(getSelfEventFingerprints());
+      if (pendingVersionNumbersFromCatalog_.contains(versionNumberFromEvent_)) {
+        try {
+          catalog_.removeFromInFlightVersionsForEvents(
+              dbName_, tblName_, versionNumberFromEvent_);
+        } catch (DatabaseNotFoundException | TableNotFoundException e) {
+          debugLog("Received exception {}. Ignoring the pending versions",
+              e.getMessage());
+        }
+      }
+    }
+
     /**
      * Issues a invalidate table on the catalog on the table from the event. This
      * invalidate does not fetch information from metastore unlike the invalidate metadata
@@ -1521,6 +1749,18 @@ public class MetastoreEvents {
       }
     }
 
+    /**
+     * The event is a self-event only if all of the added partitions were registered.
+     */
+    @Override
+    protected List<String> getSelfEventFingerprints() {
+      List<String> fingerprints = new ArrayList<>(addedPartitions_.size());
+      for (Partition partition : addedPartitions_) {
+        fingerprints.add(getPartitionFingerprint(msTbl_, partition));
+      }
+      return fingerprints;
+    }
+
     @Override
     protected boolean canBeSkipped() { return false; }
   }
@@ -1639,6 +1879,117 @@ public class MetastoreEvents {
             e.getMessage());
       }
     }
+
+    @Override
+    protected List<String> getSelfEventFingerprints() {
+      return Collections.singletonList(getPartitionFingerprint(msTbl_, partitionAfter_));
+    }
+  }
+
+  /**
+   * MetastoreEvent which replaces a run of consecutive ALTER_PARTITION and
+   * partition-level INSERT events of the same table, see
+   * MetastoreEventFactory.getFilteredEvents(). Instead of refreshing the partitions of
+   * the events one at a time, all of them are refreshed at once with a batched fetch
+   * from the HMS and a single parallel listing of their files. Self-events and trivial
+   * ALTER_PARTITION events are skipped like when processed on their own. The event id
+   * of a batch event is the one of its last event.
+   */
+  public static class BatchPartitionEvent extends MetastoreTableEvent {
+    // the merged events in the order of their event ids
+    private final List<MetastoreTableEvent> batchedEvents_;
+
+    /**
+     * Prevent instantiation from outside should use MetastoreEventFactory instead
+     */
+    private BatchPartitionEvent(CatalogServiceCatalog catalog, Metrics metrics,
+        List<MetastoreTableEvent> events) {
+      super(catalog, metrics, events.get(events.size() - 1).metastoreNotificationEvent_);
+      Preconditions.checkArgument(events.size() > 1);
+      batchedEvents_ = events;
+      msTbl_ = events.get(events.size() - 1).msTbl_;
+    }
+
+    /**
+     * Returns true if 'event' only refreshes a single partition of a non-transactional
+     * table and can hence be merged with similar events of the same table.
+     */
+    static boolean canBeBatched(MetastoreEvent event) {
+      if (event instanceof AlterPartitionEvent) {
+        AlterPartitionEvent alterPartitionEvent = (AlterPartitionEvent) event;
+        return !AcidUtils.isTransactionalTable(
+            alterPartitionEvent.msTbl_.getParameters());
+      }
+      if (event instanceof InsertEvent) {
+        InsertEvent insertEvent = (InsertEvent) event;
+        return insertEvent.insertPartition_ != null
+            && !AcidUtils.isTransactionalTable(insertEvent.msTbl_.getParameters());
+      }
+      return false;
+    }
+
+    @VisibleForTesting
+    List<MetastoreTableEvent> getBatchedEvents() { return batchedEvents_; }
+
+    @Override
+    protected void discardSelfEvent() throws CatalogException {
+      for (MetastoreTableEvent event : batchedEvents_) event.discardSelfEvent();
+    }
+
+    @Override
+    public void process() throws MetastoreNotificationException, CatalogException {
+      // Partition specs to refresh by partition name, in the order of the events.
+      Map<String, List<TPartitionKeyValue>> tPartSpecs = new LinkedHashMap<>();
+      for (MetastoreTableEvent event : batchedEvents_) {
+        Partition partition;
+        if (event instanceof AlterPartitionEvent) {
+          AlterPartitionEvent alterPartitionEvent = (AlterPartitionEvent) event;
+          if (alterPartitionEvent.isSelfEvent()) {
+            event.infoLog("Not processing the event as it is a self-event");
+            continue;
+          }
+          if (alterPartitionEvent.canBeSkipped()) {
+            event.infoLog("Not processing this event as it only modifies some "
+                + "partition parameters which can be ignored.");
+            continue;
+          }
+          partition = alterPartitionEvent.partitionAfter_;
+        } else {
+          InsertEvent insertEvent = (InsertEvent) event;
+          if (insertEvent.isSelfInsert()) {
+            event.infoLog("Not processing the event as it is a self-event");
+            continue;
+          }
+          partition = insertEvent.insertPartition_;
+        }
+        List<TPartitionKeyValue> tPartSpec =
+            getTPartitionSpecFromHmsPartition(event.msTbl_, partition);
+        tPartSpecs.put(constructPartitionStringFromTPartitionSpec(tPartSpec), tPartSpec);
+      }
+      if (tPartSpecs.isEmpty()) return;
+      try {
+        // Ignore event if table or database is not in catalog. Throw exception if
+        // refresh fails. Partitions which do not exist in metastore anymore are
+        // removed from the catalog.
+        if (!catalog_.reloadPartitionsIfExist(dbName_, tblName_,
+            new ArrayList<>(tPartSpecs.values()),
+            "processing " + batchedEvents_.size() + " partition events from HMS")) {
+          debugLog("Refresh of {} partitions of table {} failed as the table is not "
+              + "present in the catalog.", tPartSpecs.size(), getFullyQualifiedTblName());
+        } else {
+          infoLog("{} partitions of table {} have been refreshed after {} events.",
+              tPartSpecs.size(), getFullyQualifiedTblName(), batchedEvents_.size());
+        }
+      } catch (DatabaseNotFoundException e) {
+        debugLog("Refresh of {} partitions of table {} failed as the database is not "
+            + "present in the catalog.", tPartSpecs.size(), getFullyQualifiedTblName());
+      } catch (CatalogException e) {
+        throw new MetastoreNotificationNeedsInvalidateException(debugString("Refresh "
+                + "of %d partitions of table %s failed. Event processing cannot "
+                + "continue. Issue and invalidate command to reset the event processor "
+                + "state.", tPartSpecs.size(), getFullyQualifiedTblName()), e);
+      }
+    }
   }
 
   public static class DropPartitionEvent extends TableInvalidatingEvent {
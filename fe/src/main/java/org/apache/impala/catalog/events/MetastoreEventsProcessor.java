@@ -27,10 +27,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.CurrentNotificationEventId;
 import org.apache.hadoop.hive.metastore.api.NotificationEvent;
@@ -38,14 +45,18 @@ import org.apache.hadoop.hive.metastore.api.NotificationEventResponse;
 import org.apache.hadoop.hive.metastore.messaging.MessageDeserializer;
 import org.apache.impala.catalog.CatalogException;
 import org.apache.impala.catalog.CatalogServiceCatalog;
+import org.apache.impala.catalog.FileListingExecutor;
 import org.apache.impala.catalog.MetaStoreClientPool.MetaStoreClient;
 import org.apache.impala.catalog.events.ConfigValidator.ValidationResult;
+import org.apache.impala.catalog.events.MetastoreEvents.IgnoredEvent;
 import org.apache.impala.catalog.events.MetastoreEvents.MetastoreEvent;
 import org.apache.impala.catalog.events.MetastoreEvents.MetastoreEventFactory;
 import org.apache.impala.common.Metrics;
 import org.apache.impala.compat.MetastoreShim;
+import org.apache.impala.service.BackendConfig;
 import org.apache.impala.thrift.TEventProcessorMetrics;
 import org.apache.impala.thrift.TEventProcessorMetricsSummaryResponse;
+import org.apache.impala.thrift.TEventProcessorWorkerMetrics;
 import org.apache.impala.util.MetaStoreUtil;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
@@ -198,6 +209,8 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
   public static final String EVENTS_RECEIVED_METRIC = "events-received";
   // total number of events which are skipped because of the flag setting
   public static final String EVENTS_SKIPPED_METRIC = "events-skipped";
+  // total number of partition events which are merged into batch events
+  public static final String EVENTS_MERGED_METRIC = "events-merged";
   // name of the event processor status metric
   public static final String STATUS_METRIC = "status";
   // last synced event id
@@ -206,6 +219,10 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
   public static final String NUMBER_OF_SELF_EVENTS = "self-events-skipped";
   // metric name for number of tables which are invalidated by event processor so far
   public static final String NUMBER_OF_TABLE_INVALIDATES = "tables-invalidated";
+  // metric name for number of tables which are updated in place instead of being
+  // invalidated by alter table events
+  public static final String NUMBER_OF_TABLES_UPDATED_IN_PLACE =
+      "tables-updated-in-place";
 
   // possible status of event processor
   public enum EventProcessorStatus {
@@ -243,6 +260,26 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
   // have to pass it around as a argument in constructor in MetastoreEvents
   private final Metrics metrics_ = new Metrics();
 
+  // Number of threads applying events of different tables concurrently, see
+  // --hms_event_processing_threads.
+  private final int numWorkers_;
+
+  // Runs the workers, null if events are applied on the scheduler thread only.
+  private final ExecutorService workerPool_;
+
+  // Per worker, the number of events of the current batch which were not applied yet
+  // and the event time (in seconds) of the oldest of them, 0 if there is none.
+  private final AtomicInteger[] workerQueueDepths_;
+  private final AtomicLong[] workerOldestEventTimes_;
+
+  // The latest event id in metastore, as of the last poll
+  private final AtomicLong latestEventId_ = new AtomicLong(-1);
+
+  // Events are applied while holding the read lock, status changes take the write lock.
+  // Hence, a status change waits for the events currently being applied and no event
+  // is applied once the status is not ACTIVE anymore.
+  private final ReentrantReadWriteLock applyLock_ = new ReentrantReadWriteLock();
+
   @VisibleForTesting
   MetastoreEventsProcessor(CatalogServiceCatalog catalog, long startSyncFromId,
       long pollingFrequencyInSec) throws CatalogException {
@@ -252,6 +289,16 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
     lastSyncedEventId_.set(startSyncFromId);
     metastoreEventFactory_ = new MetastoreEventFactory(catalog_, metrics_);
     pollingFrequencyInSec_ = pollingFrequencyInSec;
+    numWorkers_ = Math.max(1, BackendConfig.INSTANCE.getHMSEventProcessingThreads());
+    workerPool_ = numWorkers_ == 1 ? null : Executors.newFixedThreadPool(numWorkers_,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("MetastoreEventsProcessor-worker-%d").build());
+    workerQueueDepths_ = new AtomicInteger[numWorkers_];
+    workerOldestEventTimes_ = new AtomicLong[numWorkers_];
+    for (int i = 0; i < numWorkers_; i++) {
+      workerQueueDepths_[i] = new AtomicInteger();
+      workerOldestEventTimes_[i] = new AtomicLong();
+    }
     initMetrics();
   }
 
@@ -306,12 +353,14 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
     metrics_.addTimer(EVENTS_PROCESS_DURATION_METRIC);
     metrics_.addMeter(EVENTS_RECEIVED_METRIC);
     metrics_.addCounter(EVENTS_SKIPPED_METRIC);
+    metrics_.addCounter(EVENTS_MERGED_METRIC);
     metrics_.addGauge(STATUS_METRIC,
         (Gauge<String>) () -> getStatus().toString());
     metrics_.addGauge(LAST_SYNCED_ID_METRIC,
         (Gauge<Long>) () -> lastSyncedEventId_.get());
     metrics_.addCounter(NUMBER_OF_SELF_EVENTS);
     metrics_.addCounter(NUMBER_OF_TABLE_INVALIDATES);
+    metrics_.addCounter(NUMBER_OF_TABLES_UPDATED_IN_PLACE);
   }
 
   /**
@@ -326,6 +375,7 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
   public synchronized void start() {
     Preconditions.checkState(eventProcessorStatus_ != EventProcessorStatus.ACTIVE);
     startScheduler();
+    catalog_.getSelfEventFingerprints().clear();
     updateStatus(EventProcessorStatus.ACTIVE);
     LOG.info(String.format("Successfully started metastore event processing."
         + " Polling interval: %d seconds.", pollingFrequencyInSec_));
@@ -407,6 +457,9 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
         "Event processing start called when it is already active");
     long prevLastSyncedEventId = lastSyncedEventId_.get();
     lastSyncedEventId_.set(fromEventId);
+    // The events of the changes registered so far may be skipped, their fingerprints
+    // must not match the events seen from now on.
+    catalog_.getSelfEventFingerprints().clear();
     updateStatus(EventProcessorStatus.ACTIVE);
     LOG.info(String.format(
         "Metastore event processing restarted. Last synced event id was updated "
@@ -435,6 +488,7 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
    * within timeout, does a force shutdown which might interrupt currently running tasks.
    */
   private synchronized void shutdownAndAwaitTermination() {
+    if (workerPool_ != null) workerPool_.shutdown();
     scheduler_.shutdown(); // disable new tasks from being submitted
     try {
       // wait for 10 secs for scheduler to complete currently running tasks
@@ -469,6 +523,7 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
       CurrentNotificationEventId currentNotificationEventId =
           msClient.getHiveClient().getCurrentNotificationEventId();
       long currentEventId = currentNotificationEventId.getEventId();
+      latestEventId_.set(currentEventId);
 
       // no new events since we last polled
       if (currentEventId <= lastSyncedEventId) {
@@ -498,6 +553,9 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
   @Override
   public void processEvents() {
     NotificationEvent lastProcessedEvent = null;
+    // No query or statement waits for the tables reloaded by events.
+    FileListingExecutor.Priority prevPriority =
+        FileListingExecutor.setThreadPriority(FileListingExecutor.Priority.LOW);
     try {
       EventProcessorStatus currentStatus = eventProcessorStatus_;
       if (currentStatus != EventProcessorStatus.ACTIVE) {
@@ -524,6 +582,8 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
       updateStatus(EventProcessorStatus.ERROR);
       LOG.error("Unexpected exception received while processing event", ex);
       dumpEventInfoToLog(lastProcessedEvent);
+    } finally {
+      FileListingExecutor.setThreadPriority(prevPriority);
     }
   }
 
@@ -539,8 +599,21 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
     eventProcessorMetrics.setLast_synced_event_id(getLastSyncedEventId());
     if (currentStatus != EventProcessorStatus.ACTIVE) return eventProcessorMetrics;
 
+    eventProcessorMetrics.setEvents_lag(
+        Math.max(0, latestEventId_.get() - getLastSyncedEventId()));
+    long nowS = System.currentTimeMillis() / 1000;
+    List<TEventProcessorWorkerMetrics> workerMetrics = new ArrayList<>(numWorkers_);
+    for (int i = 0; i < numWorkers_; i++) {
+      long oldestEventTime = workerOldestEventTimes_[i].get();
+      workerMetrics.add(new TEventProcessorWorkerMetrics(workerQueueDepths_[i].get(),
+          oldestEventTime == 0 ? 0 : Math.max(0, nowS - oldestEventTime)));
+    }
+    eventProcessorMetrics.setWorker_metrics(workerMetrics);
+
     long eventsReceived = metrics_.getMeter(EVENTS_RECEIVED_METRIC).getCount();
     long eventsSkipped = metrics_.getCounter(EVENTS_SKIPPED_METRIC).getCount();
+    long eventsMerged = metrics_.getCounter(EVENTS_MERGED_METRIC).getCount();
+    long selfEventsSkipped = metrics_.getCounter(NUMBER_OF_SELF_EVENTS).getCount();
     double avgFetchDuration =
         metrics_.getTimer(EVENTS_FETCH_DURATION_METRIC).getMeanRate();
     double avgProcessDuration =
@@ -555,6 +628,8 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
 
     eventProcessorMetrics.setEvents_received(eventsReceived);
     eventProcessorMetrics.setEvents_skipped(eventsSkipped);
+    eventProcessorMetrics.setEvents_merged(eventsMerged);
+    eventProcessorMetrics.setSelf_events_skipped(selfEventsSkipped);
     eventProcessorMetrics.setEvents_fetch_duration_mean(avgFetchDuration);
     eventProcessorMetrics.setEvents_process_duration_mean(avgProcessDuration);
     eventProcessorMetrics.setEvents_received_1min_rate(avgNumberOfEventsReceived1Min);
@@ -583,12 +658,11 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
 
   /**
    * Process the given list of notification events. Useful for tests which provide a list
-   * of events
+   * of events. See applyEvents() for how the events are applied.
    */
   @VisibleForTesting
   protected void processEvents(List<NotificationEvent> events)
       throws MetastoreNotificationException {
-    NotificationEvent lastProcessedEvent = null;
     // update the events received metric before returning
     metrics_.getMeter(EVENTS_RECEIVED_METRIC).mark(events.size());
     if (events.isEmpty()) return;
@@ -601,25 +675,177 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
         lastSyncedEventId_.set(events.get(events.size() - 1).getEventId());
         return;
       }
-      for (MetastoreEvent event : filteredEvents) {
-        // synchronizing each event processing reduces the scope of the lock so the a
-        // potential reset() during event processing is not blocked for longer than
-        // necessary
-        synchronized (this) {
-          if (eventProcessorStatus_ != EventProcessorStatus.ACTIVE) {
-            break;
+      applyEvents(filteredEvents);
+    } finally {
+      context.stop();
+    }
+  }
+
+  /**
+   * Applies the given events, which must not be empty, in the order of their event ids.
+   *
+   * Events of different tables are applied concurrently by up to numWorkers_ workers,
+   * while the events of one table are applied in order by the same worker, see
+   * MetastoreEvent.getTableKey(). Events which are not confined to a single table, e.g.
+   * database events or table renames, act as barriers: they are applied on this thread
+   * once all preceding events were applied and before any following event. The
+   * lastSyncedEventId_ only advances to an event once it and all preceding events
+   * were applied. Returns once all events were applied or processing stopped.
+   */
+  @VisibleForTesting
+  void applyEvents(List<MetastoreEvent> events) throws MetastoreNotificationException {
+    AppliedEvents appliedEvents = new AppliedEvents(events);
+    // Indexes of the events since the last barrier.
+    List<Integer> segment = new ArrayList<>();
+    for (int i = 0; i < events.size(); i++) {
+      MetastoreEvent event = events.get(i);
+      // Ignored events have no effect and need not wait for other events.
+      if (event.getTableKey() != null || event instanceof IgnoredEvent) {
+        segment.add(i);
+        continue;
+      }
+      if (!applyConcurrently(segment, appliedEvents)) return;
+      segment.clear();
+      if (!applyEvent(i, appliedEvents)) return;
+    }
+    applyConcurrently(segment, appliedEvents);
+  }
+
+  /**
+   * Applies the events with the indexes 'eventIdxs' in 'appliedEvents' on the workers,
+   * or on this thread if there is a single worker or event. Returns false if event
+   * processing stopped before all of them were applied.
+   */
+  private boolean applyConcurrently(List<Integer> eventIdxs, AppliedEvents appliedEvents)
+      throws MetastoreNotificationException {
+    if (workerPool_ == null || eventIdxs.size() <= 1) {
+      for (int idx : eventIdxs) {
+        if (!applyEvent(idx, appliedEvents)) return false;
+      }
+      return true;
+    }
+    // Assign the events to the workers by table, keeping their order.
+    List<List<Integer>> queues = new ArrayList<>(numWorkers_);
+    for (int i = 0; i < numWorkers_; i++) queues.add(new ArrayList<>());
+    for (int idx : eventIdxs) {
+      String key = appliedEvents.getEvent(idx).getTableKey();
+      int worker = key == null ? 0 : Math.floorMod(key.hashCode(), numWorkers_);
+      queues.get(worker).add(idx);
+    }
+    AtomicBoolean stopped = new AtomicBoolean(false);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < numWorkers_; i++) {
+      List<Integer> queue = queues.get(i);
+      if (queue.isEmpty()) continue;
+      int worker = i;
+      workerQueueDepths_[worker].set(queue.size());
+      workerOldestEventTimes_[worker].set(
+          appliedEvents.getEvent(queue.get(0)).metastoreNotificationEvent_
+              .getEventTime());
+      futures.add(workerPool_.submit(() -> {
+        boolean completed = false;
+        try {
+          for (int j = 0; j < queue.size(); j++) {
+            if (stopped.get() || !applyEvent(queue.get(j), appliedEvents)) return;
+            workerQueueDepths_[worker].decrementAndGet();
+            workerOldestEventTimes_[worker].set(j + 1 < queue.size() ?
+                appliedEvents.getEvent(queue.get(j + 1)).metastoreNotificationEvent_
+                    .getEventTime() : 0);
           }
-          lastProcessedEvent = event.metastoreNotificationEvent_;
-          event.processIfEnabled();
-          lastSyncedEventId_.set(event.eventId_);
+          completed = true;
+        } catch (Throwable t) {
+          error.compareAndSet(null, t);
+        } finally {
+          // Stop the other workers if this one stopped early.
+          if (!completed) stopped.set(true);
+          workerQueueDepths_[worker].set(0);
+          workerOldestEventTimes_[worker].set(0);
         }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        stopped.set(true);
+        Thread.currentThread().interrupt();
+        throw new MetastoreNotificationException("Interrupted while waiting for the "
+            + "event processing threads", e);
+      } catch (ExecutionException e) {
+        error.compareAndSet(null, e.getCause());
       }
+    }
+    Throwable t = error.get();
+    if (t instanceof MetastoreNotificationException) {
+      throw (MetastoreNotificationException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new MetastoreNotificationException("Error while processing events", t);
+    }
+    return appliedEvents.allApplied(eventIdxs);
+  }
+
+  /**
+   * Applies the event with the index 'idx' in 'appliedEvents' unless event processing
+   * is not active anymore, in which case false is returned.
+   */
+  private boolean applyEvent(int idx, AppliedEvents appliedEvents)
+      throws MetastoreNotificationException {
+    MetastoreEvent event = appliedEvents.getEvent(idx);
+    // holding the lock only while processing a single event reduces the scope of the
+    // lock so the a potential reset() during event processing is not blocked for longer
+    // than necessary
+    applyLock_.readLock().lock();
+    try {
+      if (eventProcessorStatus_ != EventProcessorStatus.ACTIVE) return false;
+      event.processIfEnabled();
+      appliedEvents.markApplied(idx);
+      return true;
     } catch (CatalogException e) {
       throw new MetastoreNotificationException(String.format(
           "Unable to process event %d of type %s. Event processing will be stopped.",
-          lastProcessedEvent.getEventId(), lastProcessedEvent.getEventType()), e);
+          event.metastoreNotificationEvent_.getEventId(),
+          event.metastoreNotificationEvent_.getEventType()), e);
     } finally {
-      context.stop();
+      applyLock_.readLock().unlock();
+    }
+  }
+
+  /**
+   * Tracks which events of a batch were applied and advances lastSyncedEventId_ to the
+   * last event which was applied along with all preceding events.
+   */
+  private class AppliedEvents {
+    private final List<MetastoreEvent> events_;
+    private final boolean[] applied_;
+    // Index of the first event which was not applied.
+    private int firstNotApplied_ = 0;
+
+    AppliedEvents(List<MetastoreEvent> events) {
+      events_ = events;
+      applied_ = new boolean[events.size()];
+    }
+
+    MetastoreEvent getEvent(int idx) { return events_.get(idx); }
+
+    synchronized void markApplied(int idx) {
+      applied_[idx] = true;
+      if (idx != firstNotApplied_) return;
+      while (firstNotApplied_ < applied_.length && applied_[firstNotApplied_]) {
+        ++firstNotApplied_;
+      }
+      lastSyncedEventId_.set(events_.get(firstNotApplied_ - 1).eventId_);
+    }
+
+    synchronized boolean allApplied(List<Integer> idxs) {
+      for (int idx : idxs) {
+        if (!applied_[idx]) return false;
+      }
+      return true;
     }
   }
 
@@ -627,7 +853,12 @@ public class MetastoreEventsProcessor implements ExternalEventsProcessor {
    * Updates the current states to the given status.
    */
   private synchronized void updateStatus(EventProcessorStatus toStatus) {
-    eventProcessorStatus_ = toStatus;
+    applyLock_.writeLock().lock();
+    try {
+      eventProcessorStatus_ = toStatus;
+    } finally {
+      applyLock_.writeLock().unlock();
+    }
   }
 
   private void dumpEventInfoToLog(NotificationEvent event) {
@@ -0,0 +1,185 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.Table;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Remembers fingerprints of the changes which this catalog service makes in the Hive
+ * Metastore, so that the metastore events generated by these changes can be recognized
+ * as self-events and skipped by the MetastoreEventsProcessor. See
+ * MetastoreEvent.isSelfEvent().
+ *
+ * The fingerprint of a DDL consists of the catalog service id and the catalog version
+ * which are set in the parameters of the altered database, table or partition, and the
+ * name of that object. The fingerprint of an insert consists of the name of the table
+ * and partition and of the files which were added. Unlike the in-flight versions kept
+ * by tables and databases, fingerprints do not need to be seen in the order of their
+ * versions, one DDL may register a fingerprint for each of the partitions it changes,
+ * and fingerprints are kept if the table is invalidated in the meantime.
+ *
+ * Each time a fingerprint is added it matches one event. Fingerprints are removed if
+ * the HMS operation fails, if their event is skipped without being processed and when
+ * the events processor is (re)started. Any other fingerprints of changes which never
+ * generate an event are eventually evicted, oldest first, once MAX_FINGERPRINTS is
+ * exceeded. Thread-safe.
+ */
+public class SelfEventFingerprints {
+  // Maximum number of distinct fingerprints which are remembered.
+  @VisibleForTesting
+  static final int MAX_FINGERPRINTS = 100000;
+
+  // Separator of the files and checksums in the files of insert events.
+  private static final String FILE_CHECKSUM_SEPARATOR = "###";
+
+  // Number of events which are expected for each fingerprint, in the order in which
+  // the fingerprints were first added.
+  private final Map<String, Integer> fingerprints_ =
+      new LinkedHashMap<String, Integer>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+          return size() > MAX_FINGERPRINTS;
+        }
+      };
+
+  /**
+   * Adds 'fingerprint' so that it matches one more event.
+   */
+  public synchronized void add(String fingerprint) {
+    Preconditions.checkNotNull(fingerprint);
+    fingerprints_.merge(fingerprint, 1, Integer::sum);
+  }
+
+  /**
+   * Removes one occurrence of each of 'fingerprints' if all of them are present.
+   * Returns true if they were removed, i.e. if the event with these fingerprints is a
+   * self-event. Returns false and removes nothing otherwise.
+   */
+  public synchronized boolean removeAll(Collection<String> fingerprints) {
+    if (fingerprints.isEmpty()) return false;
+    Map<String, Integer> needed = new HashMap<>();
+    for (String fingerprint : fingerprints) needed.merge(fingerprint, 1, Integer::sum);
+    for (Map.Entry<String, Integer> entry : needed.entrySet()) {
+      Integer count = fingerprints_.get(entry.getKey());
+      if (count == null || count < entry.getValue()) return false;
+    }
+    for (Map.Entry<String, Integer> entry : needed.entrySet()) {
+      int remaining = fingerprints_.get(entry.getKey()) - entry.getValue();
+      if (remaining == 0) {
+        fingerprints_.remove(entry.getKey());
+      } else {
+        fingerprints_.put(entry.getKey(), remaining);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes one occurrence of 'fingerprint'. Returns true if it was present.
+   */
+  public boolean remove(String fingerprint) {
+    return removeAll(Collections.singletonList(fingerprint));
+  }
+
+  /**
+   * Removes all fingerprints, e.g. when the events processor starts syncing from a new
+   * event id and the events of the registered changes may never be seen.
+   */
+  public synchronized void clear() { fingerprints_.clear(); }
+
+  /**
+   * Returns the number of distinct fingerprints.
+   */
+  public synchronized int size() { return fingerprints_.size(); }
+
+  /**
+   * Returns the fingerprint of a DDL on the object 'objectName', see getObjectName(),
+   * which set the catalog service id 'serviceId' and the catalog version 'version' in
+   * the parameters of the object.
+   */
+  public static String forDdl(String serviceId, long version, String objectName) {
+    return serviceId + ":" + version + ":" + objectName;
+  }
+
+  /**
+   * Returns the fingerprint of an insert into the table 'dbName.tblName', or into its
+   * partition 'partName' if not null, which added the files 'files'. 'files' may be
+   * paths or file names and may have the checksums appended by the HMS.
+   */
+  public static String forInsert(String dbName, String tblName,
+      @Nullable String partName, Iterable<String> files) {
+    List<String> fileNames = new ArrayList<>();
+    for (String file : files) {
+      int checksumIdx = file.indexOf(FILE_CHECKSUM_SEPARATOR);
+      if (checksumIdx >= 0) file = file.substring(0, checksumIdx);
+      fileNames.add(file.substring(file.lastIndexOf('/') + 1));
+    }
+    Collections.sort(fileNames);
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (String fileName : fileNames) {
+      hasher.putUnencodedChars(fileName).putChar('\0');
+    }
+    return "insert:" + getObjectName(dbName, tblName, partName) + ":" +
+        fileNames.size() + ":" + hasher.hash();
+  }
+
+  /**
+   * Returns the name of the database 'dbName' as used in fingerprints.
+   */
+  public static String getObjectName(String dbName) {
+    return dbName.toLowerCase();
+  }
+
+  /**
+   * Returns the name of the table 'dbName.tblName', or of its partition 'partName' if
+   * not null, as used in fingerprints.
+   */
+  public static String getObjectName(String dbName, String tblName,
+      @Nullable String partName) {
+    String name = (dbName + "." + tblName).toLowerCase();
+    return partName == null ? name : name + "/" + partName;
+  }
+
+  /**
+   * Returns the name of the partition of 'msTbl' with the values 'partVals'.
+   */
+  public static String getPartitionName(Table msTbl, List<String> partVals) {
+    List<String> partColNames = new ArrayList<>();
+    for (FieldSchema partKey : msTbl.getPartitionKeys()) {
+      partColNames.add(partKey.getName().toLowerCase());
+    }
+    return FileUtils.makePartName(partColNames, partVals);
+  }
+}
@@ -20,8 +20,11 @@ package org.apache.impala.catalog.local;
 import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,18 +32,25 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.apache.hadoop.hive.metastore.api.UnknownDBException;
+import org.apache.impala.analysis.TableName;
 import org.apache.impala.authorization.AuthorizationChecker;
 import org.apache.impala.authorization.AuthorizationPolicy;
 import org.apache.impala.catalog.AuthzCacheInvalidation;
@@ -69,9 +79,13 @@ import org.apache.impala.thrift.TFunction;
 import org.apache.impala.thrift.TFunctionName;
 import org.apache.impala.thrift.TGetPartialCatalogObjectRequest;
 import org.apache.impala.thrift.TGetPartialCatalogObjectResponse;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsRequest;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsResponse;
 import org.apache.impala.thrift.THdfsFileDesc;
 import org.apache.impala.thrift.TNetworkAddress;
+import org.apache.impala.thrift.TPartialFetchPriority;
 import org.apache.impala.thrift.TPartialPartitionInfo;
+import org.apache.impala.thrift.TRuntimeProfileNode;
 import org.apache.impala.thrift.TTable;
 import org.apache.impala.thrift.TTableInfoSelector;
 import org.apache.impala.thrift.TUniqueId;
@@ -93,13 +107,13 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.errorprone.annotations.Immutable;
@@ -152,6 +166,14 @@ import com.google.errorprone.annotations.concurrent.GuardedBy;
  * it is no longer "linked". Over time, the old entries will naturally age out of the
  * cache.
  *
+ * Tables with the TBL_PROP_MAX_STALENESS_S table property, e.g. tables which are only
+ * appended to, do not lose their top-level table entry when a catalog topic update
+ * invalidates them. The entry is marked stale instead, and queries keep using the
+ * previous version of the table, along with its granular metadata, for up to the
+ * configured number of seconds while the new version is loaded in the background.
+ * Invalidations in response to DDLs issued by this coordinator, dropped tables and
+ * queries which require fresh metadata (see requireFreshMetadata()) are not affected.
+ *
  *
  * Metadata that is _not_ fetched on demand
  * ================================================
@@ -164,9 +186,24 @@ import com.google.errorprone.annotations.concurrent.GuardedBy;
  * to the table metadata, it's not too expensive to maintain the full replica.
  *
  *
+ * Overload handling
+ * ==================
+ * The catalogd admits a limited number of fetches at a time and queues the others. It
+ * serves the fetches which planning is blocked on before prefetches, and shares its
+ * capacity fairly between the coordinators. When too many fetches are queued, it
+ * rejects further fetches with lookup status CATALOG_OVERLOADED instead of queueing
+ * them. Rejected fetches are retried with randomized exponential backoff, so that many
+ * coordinators which start at the same time spread out their fetches rather than all
+ * waiting in catalogd's queue. A fetch that could not be admitted within
+ * --local_catalog_fetch_overload_timeout_ms (60s by default) fails with an error that
+ * asks to retry the query. If the flag is set to zero, fetches are retried until they
+ * succeed.
+ * Rejected partition prefetches are not retried, since the partitions are fetched again
+ * when they are needed. The batched fetches of prefetchTables() are not retried either,
+ * since the tables which could not be fetched are fetched again one by one.
+ *
  * TODO(todd): expose statistics on a per-query and per-daemon level about cache
  * hit rates, number of outbound RPCs, etc.
- * TODO(todd): handle retry/backoff to ride over short catalog interruptions
  */
 public class CatalogdMetaProvider implements MetaProvider {
 
@@ -204,6 +241,8 @@ public class CatalogdMetaProvider implements MetaProvider {
   private static final String TABLE_METADATA_CACHE_CATEGORY = "Tables";
   private static final String PARTITION_LIST_STATS_CATEGORY = "PartitionLists";
   private static final String PARTITIONS_STATS_CATEGORY = "Partitions";
+  private static final String PARTITIONS_UNCHANGED =
+      CATALOG_FETCH_PREFIX + "." + PARTITIONS_STATS_CATEGORY + ".Unchanged";
   private static final String COLUMN_STATS_STATS_CATEGORY = "ColumnStats";
   private static final String GLOBAL_CONFIGURATION_STATS_CATEGORY = "Config";
   private static final String FUNCTION_LIST_STATS_CATEGORY = "FunctionLists";
@@ -216,6 +255,63 @@ public class CatalogdMetaProvider implements MetaProvider {
       CATALOG_FETCH_PREFIX + "." + RPC_STATS_CATEGORY + ".Bytes";
   private static final String RPC_TIME =
       CATALOG_FETCH_PREFIX + "." + RPC_STATS_CATEGORY + ".Time";
+  private static final String RPC_REJECTED =
+      CATALOG_FETCH_PREFIX + "." + RPC_STATS_CATEGORY + ".Rejected";
+  private static final String RPC_BACKOFF_TIME =
+      CATALOG_FETCH_PREFIX + "." + RPC_STATS_CATEGORY + ".BackoffTime";
+  private static final String TABLES_PREFETCHED =
+      CATALOG_FETCH_PREFIX + "." + TABLE_METADATA_CACHE_CATEGORY + ".Prefetched";
+  private static final String PARTITIONS_PREFETCHED =
+      CATALOG_FETCH_PREFIX + "." + PARTITIONS_STATS_CATEGORY + ".Prefetched";
+  private static final String PARTITIONS_PREFETCH_WAIT_TIME =
+      CATALOG_FETCH_PREFIX + "." + PARTITIONS_STATS_CATEGORY + ".PrefetchWaitTime";
+  private static final String PARTITIONS_PREFETCH_HIDDEN_TIME =
+      CATALOG_FETCH_PREFIX + "." + PARTITIONS_STATS_CATEGORY + ".PrefetchHiddenTime";
+  private static final String CACHE_KIND_PREFIX = CATALOG_FETCH_PREFIX + ".Cache";
+  private static final String TABLES_STALE =
+      CATALOG_FETCH_PREFIX + "." + TABLE_METADATA_CACHE_CATEGORY + ".Stale";
+
+  /**
+   * Table property with the number of seconds for which queries may keep using the
+   * metadata of the table after a catalog topic update invalidated it, while it is
+   * reloaded in the background. Stale metadata is not used if the property is not set
+   * or not positive.
+   */
+  public static final String TBL_PROP_MAX_STALENESS_S = "impala.metadata.max.staleness.s";
+
+  // Maximum number of background reloads of stale tables running concurrently.
+  private static final int MAX_TABLE_RELOAD_THREADS = 4;
+
+  // Set while the current thread plans a query which must not use stale table
+  // metadata, see requireFreshMetadata().
+  private static final ThreadLocal<Boolean> requireFreshMetadata_ =
+      ThreadLocal.withInitial(() -> false);
+
+  // Set while the current thread prefetches partitions, see prefetchPartitionsByRefs().
+  // The fetches of such threads are sent to catalogd with priority PREFETCH.
+  private static final ThreadLocal<Boolean> prefetching_ =
+      ThreadLocal.withInitial(() -> false);
+
+  // Identifies this coordinator to catalogd, which shares its capacity fairly between
+  // coordinators. The name of the JVM consists of its process ID and host name.
+  private static final String REQUESTER = ManagementFactory.getRuntimeMXBean().getName();
+
+  // Bounds of the backoff before a fetch that catalogd rejected is retried.
+  private static final long MIN_OVERLOAD_BACKOFF_MS = 50;
+  private static final long MAX_OVERLOAD_BACKOFF_MS = 5000;
+
+  // The kinds of the cache entries of the stats categories, other than Kind.TABLE.
+  private static final Map<String, MetadataCache.Kind> STATS_CATEGORY_KINDS =
+      ImmutableMap.of(
+          PARTITION_LIST_STATS_CATEGORY, MetadataCache.Kind.PARTITION,
+          PARTITIONS_STATS_CATEGORY, MetadataCache.Kind.PARTITION,
+          COLUMN_STATS_STATS_CATEGORY, MetadataCache.Kind.COLUMN_STATS);
+
+  // Maximum number of partition prefetches running concurrently, see
+  // prefetchPartitionsByRefs().
+  private static final int MAX_PARTITION_PREFETCH_THREADS = 8;
+  // Idle prefetch threads are shut down after this many seconds.
+  private static final long PARTITION_PREFETCH_KEEP_ALIVE_S = 60;
 
   /**
    * File descriptors store replicas using a compressed format that references hosts
@@ -236,6 +332,23 @@ public class CatalogdMetaProvider implements MetaProvider {
   // to the "direct" provider for now and circumvent catalogd.
   private DirectMetaProvider directProvider_ = new DirectMetaProvider();
 
+  /**
+   * Runs the partition loads started by prefetchPartitionsByRefs().
+   */
+  private final ThreadPoolExecutor partitionPrefetchPool_;
+
+  /**
+   * Runs the background reloads of stale tables, see reloadStaleTable().
+   */
+  private final ThreadPoolExecutor tableReloadPool_;
+
+  /**
+   * Maximum time for which fetches that catalogd rejected because it is overloaded are
+   * retried, see --local_catalog_fetch_overload_timeout_ms. If zero or less, which must
+   * be configured explicitly, they are retried until they succeed.
+   */
+  private final long overloadTimeoutMs_;
+
   /**
    * Number of requests which piggy-backed on a concurrent request for the same key,
    * and resulted in success. Used only for test assertions.
@@ -261,8 +374,11 @@ public class CatalogdMetaProvider implements MetaProvider {
    *
    * For details of the usage of Futures within the cache, see
    * {@link #loadWithCaching(String, String, Object, Callable).
+   *
+   * Each kind of entry has its own share of the capacity, see getCacheKind() and
+   * MetadataCache.
    */
-  final Cache<Object,Object> cache_;
+  final MetadataCache cache_;
 
   /**
    * The last catalog version seen in an update from the catalogd.
@@ -330,23 +446,92 @@ public class CatalogdMetaProvider implements MetaProvider {
       cacheSizeBytes = flags.local_catalog_cache_mb * 1024 * 1024;
     }
     int expirationSecs = flags.local_catalog_cache_expiration_s;
-    LOG.info("Metadata cache configuration: capacity={} MB, expiration={} sec",
-        cacheSizeBytes/1024/1024, expirationSecs);
+    overloadTimeoutMs_ = flags.local_catalog_fetch_overload_timeout_ms;
+    Map<MetadataCache.Kind, Double> capacitySplit =
+        MetadataCache.parseCapacitySplit(flags.local_catalog_cache_capacity_split);
+    LOG.info("Metadata cache configuration: capacity={} MB, expiration={} sec, " +
+        "capacity split={}", cacheSizeBytes/1024/1024, expirationSecs,
+        capacitySplit == null ? "shared" : capacitySplit);
 
     // TODO(todd) add end-to-end test cases which stress cache eviction (both time
     // and size-triggered) and make sure results are still correct.
-    cache_ = CacheBuilder.newBuilder()
-        .maximumWeight(cacheSizeBytes)
-        .expireAfterAccess(expirationSecs, TimeUnit.SECONDS)
-        .weigher(new SizeOfWeigher())
-        .recordStats()
-        .build();
+    cache_ = new MetadataCache(cacheSizeBytes, expirationSecs, new SizeOfWeigher(),
+        CatalogdMetaProvider::getCacheKind, capacitySplit);
+
+    partitionPrefetchPool_ = new ThreadPoolExecutor(MAX_PARTITION_PREFETCH_THREADS,
+        MAX_PARTITION_PREFETCH_THREADS, PARTITION_PREFETCH_KEEP_ALIVE_S,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("partition-prefetch-%d")
+            .build());
+    partitionPrefetchPool_.allowCoreThreadTimeOut(true);
+
+    tableReloadPool_ = new ThreadPoolExecutor(MAX_TABLE_RELOAD_THREADS,
+        MAX_TABLE_RELOAD_THREADS, PARTITION_PREFETCH_KEEP_ALIVE_S, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("stale-table-reload-%d")
+            .build());
+    tableReloadPool_.allowCoreThreadTimeOut(true);
   }
 
+  /**
+   * Makes the current thread ignore stale table metadata, see TBL_PROP_MAX_STALENESS_S,
+   * if 'required' is true, until the returned scope is closed. Used when planning
+   * queries with SYNC_DDL, which expect to see the effects of all DDLs that finished
+   * before they were issued, even if they were issued through another coordinator.
+   */
+  public static FreshMetadataScope requireFreshMetadata(boolean required) {
+    return new FreshMetadataScope(required);
+  }
+
+  /**
+   * Restores the previous requirement of fresh metadata of the current thread when
+   * closed.
+   */
+  public static class FreshMetadataScope implements AutoCloseable {
+    private final boolean oldValue_;
+
+    private FreshMetadataScope(boolean required) {
+      oldValue_ = requireFreshMetadata_.get();
+      requireFreshMetadata_.set(oldValue_ || required);
+    }
+
+    @Override
+    public void close() {
+      requireFreshMetadata_.set(oldValue_);
+    }
+  }
+
+  /**
+   * Returns the stats of all cache entries.
+   */
   public CacheStats getCacheStats() {
     return cache_.stats();
   }
 
+  /**
+   * Returns the stats of the cache entries of kind 'kind'.
+   */
+  public CacheStats getCacheStats(MetadataCache.Kind kind) {
+    return cache_.stats(kind);
+  }
+
+  /**
+   * Returns the kind of the cache entry of 'key'. Only the kinds whose keys embed the
+   * version of their table, or whose values record it, may use the admission policy
+   * of MetadataCache, since entries of other keys are invalidated by removing them.
+   */
+  private static MetadataCache.Kind getCacheKind(Object key) {
+    if (key instanceof PartitionCacheKey || key instanceof PartitionListCacheKey) {
+      return MetadataCache.Kind.PARTITION;
+    }
+    if (key instanceof ColStatsCacheKey) return MetadataCache.Kind.COLUMN_STATS;
+    return MetadataCache.Kind.TABLE;
+  }
+
   @Override
   public AuthorizationPolicy getAuthPolicy() {
     return authPolicy_;
@@ -365,11 +550,26 @@ public class CatalogdMetaProvider implements MetaProvider {
   /**
    * Send a GetPartialCatalogObject request to catalogd. This handles converting
    * non-OK status responses back to exceptions, performing various generic sanity
-   * checks, etc.
+   * checks, retrying requests that catalogd rejected because it is overloaded, etc.
    */
   private TGetPartialCatalogObjectResponse sendRequest(
       TGetPartialCatalogObjectRequest req)
       throws TException {
+    if (prefetching_.get()) req.setPriority(TPartialFetchPriority.PREFETCH);
+    long deadlineNs =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(overloadTimeoutMs_);
+    for (int attempt = 0; ; ++attempt) {
+      setAdmissionFields(req, deadlineNs);
+      TGetPartialCatalogObjectResponse resp = sendRequestOnce(req);
+      if (resp.lookup_status != CatalogLookupStatus.CATALOG_OVERLOADED ||
+          !backOffAfterRejection(req, resp, attempt, deadlineNs)) {
+        return checkResponseStatus(req, resp);
+      }
+    }
+  }
+
+  private TGetPartialCatalogObjectResponse sendRequestOnce(
+      TGetPartialCatalogObjectRequest req) throws TException {
     TGetPartialCatalogObjectResponse resp;
     byte[] ret = null;
     Stopwatch sw = new Stopwatch().start();
@@ -379,15 +579,128 @@ public class CatalogdMetaProvider implements MetaProvider {
       throw new TException(e);
     } finally {
       sw.stop();
-      FrontendProfile profile = FrontendProfile.getCurrentOrNull();
-      if (profile != null) {
-        profile.addToCounter(RPC_REQUESTS, TUnit.NONE, 1);
-        profile.addToCounter(RPC_BYTES, TUnit.BYTES, ret == null ? 0 : ret.length);
-        profile.addToCounter(RPC_TIME, TUnit.TIME_MS, sw.elapsed(TimeUnit.MILLISECONDS));
-      }
+      addRpcStatsToProfile(ret, sw);
     }
     resp = new TGetPartialCatalogObjectResponse();
     new TDeserializer().deserialize(resp, ret);
+    if (resp.lookup_status == CatalogLookupStatus.CATALOG_OVERLOADED) {
+      addRejectionToProfile();
+    }
+    return resp;
+  }
+
+  /**
+   * Sets the fields of 'req' which catalogd uses to decide whether and when to admit it:
+   * the requester and how long it may be queued, which is the time left until
+   * 'deadlineNs'. If no overload timeout is configured, the queue timeout of catalogd
+   * applies.
+   */
+  private void setAdmissionFields(TGetPartialCatalogObjectRequest req,
+      long deadlineNs) {
+    req.setRequester(REQUESTER);
+    if (overloadTimeoutMs_ <= 0) return;
+    req.setQueue_timeout_ms(Math.max(0,
+        TimeUnit.NANOSECONDS.toMillis(deadlineNs - System.nanoTime())));
+  }
+
+  /**
+   * Waits before 'req' is sent again after catalogd rejected it in 'resp' because it is
+   * overloaded. The wait grows exponentially with 'attempt', is at least the time after
+   * which catalogd suggested to retry, and is randomized so that the retries of many
+   * coordinators spread out. Returns false without waiting if 'req' should not be
+   * retried: prefetches are not retried, and if an overload timeout is configured, no
+   * request is retried after 'deadlineNs'.
+   */
+  private boolean backOffAfterRejection(TGetPartialCatalogObjectRequest req,
+      TGetPartialCatalogObjectResponse resp, int attempt, long deadlineNs)
+      throws TException {
+    if (req.getPriority() == TPartialFetchPriority.PREFETCH) return false;
+    long backoffMs = Math.max(MIN_OVERLOAD_BACKOFF_MS << Math.min(attempt, 16),
+        resp.isSetRetry_after_ms() ? resp.retry_after_ms : 0);
+    backoffMs = Math.min(backoffMs, MAX_OVERLOAD_BACKOFF_MS);
+    backoffMs = ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1);
+    if (overloadTimeoutMs_ > 0 &&
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs) >= deadlineNs) {
+      return false;
+    }
+    LOG.debug("Catalogd rejected fetching {} because it is overloaded, retrying in {} ms",
+        req.object_desc, backoffMs);
+    try {
+      Thread.sleep(backoffMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TException("Interrupted while waiting to retry a catalog fetch", e);
+    }
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile != null) {
+      profile.addToCounter(RPC_BACKOFF_TIME, TUnit.TIME_MS, backoffMs);
+    }
+    return true;
+  }
+
+  private void addRejectionToProfile() {
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile == null) return;
+    profile.addToCounter(RPC_REJECTED, TUnit.NONE, 1);
+  }
+
+  /**
+   * Send a batch of GetPartialCatalogObject requests to catalogd in a single RPC and
+   * return the responses in the same order. The responses are not checked, callers
+   * should pass each of them to checkResponseStatus().
+   */
+  private List<TGetPartialCatalogObjectResponse> sendRequests(
+      List<TGetPartialCatalogObjectRequest> reqs) throws TException {
+    long deadlineNs =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(overloadTimeoutMs_);
+    for (TGetPartialCatalogObjectRequest objReq: reqs) {
+      setAdmissionFields(objReq, deadlineNs);
+    }
+    TGetPartialCatalogObjectsRequest req = new TGetPartialCatalogObjectsRequest();
+    req.setRequests(reqs);
+    byte[] ret = null;
+    Stopwatch sw = new Stopwatch().start();
+    try {
+      ret = FeSupport.GetPartialCatalogObjects(new TSerializer().serialize(req));
+    } catch (InternalException e) {
+      throw new TException(e);
+    } finally {
+      sw.stop();
+      addRpcStatsToProfile(ret, sw);
+    }
+    TGetPartialCatalogObjectsResponse resp = new TGetPartialCatalogObjectsResponse();
+    new TDeserializer().deserialize(resp, ret);
+    if (resp.status.status_code != TErrorCode.OK) {
+      throw new TException(resp.status.toString());
+    }
+    if (resp.responses == null || resp.responses.size() != reqs.size()) {
+      throw new TException(String.format("Invalid response from catalogd: expected " +
+          "%d responses, got %d", reqs.size(),
+          resp.responses == null ? 0 : resp.responses.size()));
+    }
+    for (TGetPartialCatalogObjectResponse objResp: resp.responses) {
+      if (objResp.lookup_status == CatalogLookupStatus.CATALOG_OVERLOADED) {
+        addRejectionToProfile();
+      }
+    }
+    return resp.responses;
+  }
+
+  private void addRpcStatsToProfile(byte[] ret, Stopwatch sw) {
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile == null) return;
+    profile.addToCounter(RPC_REQUESTS, TUnit.NONE, 1);
+    profile.addToCounter(RPC_BYTES, TUnit.BYTES, ret == null ? 0 : ret.length);
+    profile.addToCounter(RPC_TIME, TUnit.TIME_MS, sw.elapsed(TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Converts a non-OK status of the response 'resp' to 'req' back to an exception and
+   * performs various generic sanity checks. Returns 'resp' if it is fine.
+   */
+  private TGetPartialCatalogObjectResponse checkResponseStatus(
+      TGetPartialCatalogObjectRequest req, TGetPartialCatalogObjectResponse resp)
+      throws TException {
     if (resp.status.status_code != TErrorCode.OK) {
       // TODO(todd) do reasonable error handling
       throw new TException(resp.toString());
@@ -409,6 +722,12 @@ public class CatalogdMetaProvider implements MetaProvider {
         throw new InconsistentMetadataFetchException(
             String.format("Fetching %s failed. Could not find %s",
                 req.object_desc.type.name(), req.object_desc.toString()));
+      case CATALOG_OVERLOADED:
+        throw new TException(String.format("Fetching %s failed because catalogd is " +
+            "overloaded. Please retry the query. If this persists, check the metric " +
+            "'catalog.partial-fetch-rpc.queue-len' of catalogd and consider increasing " +
+            "its 'catalog_max_parallel_partial_fetch_rpc' and/or " +
+            "'catalog_partial_fetch_rpc_max_queue_len'", req.object_desc.toString()));
       default: break;
     }
     Preconditions.checkState(resp.lookup_status == CatalogLookupStatus.OK);
@@ -488,6 +807,10 @@ public class CatalogdMetaProvider implements MetaProvider {
       // an existing value or inserting our own. Only one thread can think it is the
       // "loader" at a time.
       Object inCache = cache_.get(key, () -> f);
+      if (inCache instanceof StaleTableMetaRef) {
+        inCache = useOrClaimStaleTable(key, (StaleTableMetaRef) inCache, f,
+            loadCallable);
+      }
       if (!(inCache instanceof Future)) {
         hit = true;
         return (ValueType)inCache;
@@ -508,11 +831,11 @@ public class CatalogdMetaProvider implements MetaProvider {
         // as a plain-old object. This is important to get the proper weight in the
         // map. If someone invalidated this load concurrently, this 'replace' will
         // fail because 'f' will not be the current value.
-        cache_.asMap().replace(key, f, f.get());
+        cache_.replace(key, f, f.get());
       } catch (Exception e) {
         // If there was an exception, remove it from the map so that any later loads
         // retry.
-        cache_.asMap().remove(key, f);
+        cache_.remove(key, f);
         // Ensure any piggy-backed loaders get the exception. 'f.get()' below will
         // throw to this caller.
         f.completeExceptionally(e);
@@ -553,6 +876,62 @@ public class CatalogdMetaProvider implements MetaProvider {
         stopwatch.elapsed(TimeUnit.MILLISECONDS));
     profile.addToCounter(prefix + "Hits", TUnit.NONE, numHits);
     profile.addToCounter(prefix + "Misses", TUnit.NONE, numMisses);
+    // Also account the hits and misses to the kind of the cache entries, which is what
+    // the cache capacity is split by.
+    MetadataCache.Kind kind = STATS_CATEGORY_KINDS.getOrDefault(statsCategory,
+        MetadataCache.Kind.TABLE);
+    final String kindPrefix = CACHE_KIND_PREFIX + "." + kind.getName() + ".";
+    profile.addToCounter(kindPrefix + "Hits", TUnit.NONE, numHits);
+    profile.addToCounter(kindPrefix + "Misses", TUnit.NONE, numMisses);
+  }
+
+  /**
+   * Handles the stale table entry 'stale' which was found in the cache for 'key'.
+   * Returns the stale table if it may still be used, and starts reloading it in the
+   * background unless that already happened. Otherwise, replaces the stale entry with
+   * 'f', which the caller then completes by loading the table synchronously, or returns
+   * whatever replaced the stale entry in the meantime.
+   */
+  private Object useOrClaimStaleTable(Object key, StaleTableMetaRef stale,
+      CompletableFuture<Object> f, Callable<?> loadCallable) {
+    Object inCache = stale;
+    while (inCache instanceof StaleTableMetaRef) {
+      stale = (StaleTableMetaRef) inCache;
+      if (!requireFreshMetadata_.get() && System.nanoTime() < stale.deadlineNs_) {
+        reloadStaleTable(key, stale, loadCallable);
+        FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+        if (profile != null) profile.addToCounter(TABLES_STALE, TUnit.NONE, 1);
+        return stale.ref_;
+      }
+      if (cache_.replace(key, stale, f)) return f;
+      Object existing = cache_.putIfAbsent(key, f);
+      inCache = existing != null ? existing : f;
+    }
+    return inCache;
+  }
+
+  /**
+   * Loads the table of the stale entry 'stale' for 'key' with 'loadCallable' in the
+   * background, unless that already happened, and replaces the stale entry with the
+   * result. If the table is invalidated again in the meantime, the entry is replaced
+   * by another stale entry and the result is discarded, since it may predate the
+   * invalidation. If loading fails, the stale entry is removed so that the next query
+   * loads the table synchronously and sees the error.
+   */
+  private void reloadStaleTable(Object key, StaleTableMetaRef stale,
+      Callable<?> loadCallable) {
+    if (!stale.reloadStarted_.compareAndSet(false, true)) return;
+    tableReloadPool_.execute(() -> {
+      try {
+        Object value = loadCallable.call();
+        if (cache_.replace(key, stale, value)) {
+          LOG.debug("Reloaded stale {}", stale.ref_);
+        }
+      } catch (Exception e) {
+        LOG.warn("Failed to reload stale {} in the background", stale.ref_, e);
+        cache_.remove(key, stale);
+      }
+    });
   }
 
   /**
@@ -569,6 +948,16 @@ public class CatalogdMetaProvider implements MetaProvider {
        TimeUnit.MILLISECONDS.convert(storageLoadTimeNano, TimeUnit.NANOSECONDS));
   }
 
+  /**
+   * Adds the number of partitions that were reused from the cache because catalogd
+   * reported them as unchanged to the query's profile.
+   */
+  private void addPartitionsUnchangedToProfile(int numUnchanged) {
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile == null) return;
+    profile.addToCounter(PARTITIONS_UNCHANGED, TUnit.NONE, numUnchanged);
+  }
+
   @Override
   public ImmutableList<String> loadDbList() throws TException {
     return loadWithCaching("database list", DB_LIST_STATS_CATEGORY, DB_LIST_CACHE_KEY,
@@ -698,6 +1087,135 @@ public class CatalogdMetaProvider implements MetaProvider {
     return Pair.create(ref.msTable_, (TableMetaRef)ref);
   }
 
+  /**
+   * Fetches the metadata of those of 'tableNames' that are not cached yet in a single
+   * RPC to the catalogd: the HMS table, the stats of all columns and the partition
+   * list. The metadata is stored in the cache, where subsequent calls to loadTable(),
+   * loadTableColumnStatistics() and loadPartitionList() find it. Tables that failed to
+   * be fetched are left uncached, so that these calls fetch them again and report the
+   * failure.
+   */
+  @Override
+  public void prefetchTables(Collection<TableName> tableNames) throws TException {
+    // Claim the cache entries of the tables to fetch. As in loadWithCaching(), a Future
+    // is inserted so that concurrent loads piggy-back on this one, and so that a
+    // concurrent invalidation causes the fetched value to be discarded.
+    Map<TableName, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+    for (TableName tblName: tableNames) {
+      TableCacheKey key = new TableCacheKey(tblName.getDb(), tblName.getTbl());
+      CompletableFuture<Object> f = new CompletableFuture<Object>();
+      if (cache_.putIfAbsent(key, f) == null) futures.put(tblName, f);
+    }
+    if (futures.isEmpty()) return;
+
+    Stopwatch sw = new Stopwatch().start();
+    int numPrefetched = 0;
+    TException rpcError = null;
+    try {
+      List<TGetPartialCatalogObjectRequest> reqs =
+          Lists.newArrayListWithCapacity(futures.size());
+      for (TableName tblName: futures.keySet()) {
+        TGetPartialCatalogObjectRequest req = newReqForTable(tblName.getDb(),
+            tblName.getTbl());
+        req.table_info_selector.want_hms_table = true;
+        req.table_info_selector.want_stats_for_all_columns = true;
+        req.table_info_selector.want_partition_names = true;
+        reqs.add(req);
+      }
+      List<TGetPartialCatalogObjectResponse> resps = sendRequests(reqs);
+      int i = 0;
+      for (Map.Entry<TableName, CompletableFuture<Object>> e: futures.entrySet()) {
+        TableName tblName = e.getKey();
+        TableCacheKey key = new TableCacheKey(tblName.getDb(), tblName.getTbl());
+        CompletableFuture<Object> f = e.getValue();
+        TGetPartialCatalogObjectRequest req = reqs.get(i);
+        TGetPartialCatalogObjectResponse resp = resps.get(i);
+        ++i;
+        try {
+          TableMetaRefImpl ref = storePrefetchedTable(tblName, req,
+              checkResponseStatus(req, resp));
+          f.complete(ref);
+          cache_.replace(key, f, ref);
+          ++numPrefetched;
+        } catch (Exception ex) {
+          LOG.debug("Could not prefetch table {}", tblName, ex);
+          cache_.remove(key, f);
+          f.completeExceptionally(ex);
+        }
+      }
+    } catch (TException e) {
+      rpcError = e;
+      throw e;
+    } finally {
+      // Release the entries that were not filled, e.g. because the RPC failed.
+      for (Map.Entry<TableName, CompletableFuture<Object>> e: futures.entrySet()) {
+        CompletableFuture<Object> f = e.getValue();
+        if (f.isDone()) continue;
+        cache_.remove(
+            new TableCacheKey(e.getKey().getDb(), e.getKey().getTbl()), f);
+        f.completeExceptionally(rpcError != null ? rpcError :
+            new TException("Prefetching table " + e.getKey() + " failed"));
+      }
+      sw.stop();
+      FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+      if (profile != null) {
+        profile.addToCounter(TABLES_PREFETCHED, TUnit.NONE, numPrefetched);
+      }
+      LOG.trace("Prefetched {}/{} tables in {}ms", numPrefetched, futures.size(),
+          sw.elapsed(TimeUnit.MILLISECONDS));
+    }
+  }
+
+  /**
+   * Stores the column stats and the partition list of a table fetched by
+   * prefetchTables() in the cache and returns the reference to the table.
+   */
+  private TableMetaRefImpl storePrefetchedTable(TableName tblName,
+      TGetPartialCatalogObjectRequest req, TGetPartialCatalogObjectResponse resp)
+      throws TException {
+    checkResponse(resp.table_info != null && resp.table_info.hms_table != null,
+        req, "missing expected HMS table");
+    addTableMetadatStorageLoadTimeToProfile(
+        resp.table_info.storage_metadata_load_time_ns);
+    Table msTable = resp.table_info.hms_table;
+    TableMetaRefImpl ref = new TableMetaRefImpl(tblName.getDb(), tblName.getTbl(),
+        msTable, resp.object_version_number);
+
+    // Cache the returned column stats and negative entries for the other columns, as
+    // loadTableColumnStatistics() does.
+    if (resp.table_info.column_stats != null) {
+      Set<String> colsWithoutStats = new HashSet<>();
+      for (FieldSchema col: msTable.getPartitionKeys()) {
+        colsWithoutStats.add(col.getName());
+      }
+      if (msTable.getSd() != null) {
+        for (FieldSchema col: msTable.getSd().getCols()) {
+          colsWithoutStats.add(col.getName());
+        }
+      }
+      for (ColumnStatisticsObj stats: resp.table_info.column_stats) {
+        cache_.put(new ColStatsCacheKey(ref, stats.getColName()), stats);
+        colsWithoutStats.remove(stats.getColName());
+      }
+      for (String colName: colsWithoutStats) {
+        cache_.put(new ColStatsCacheKey(ref, colName), NEGATIVE_COLUMN_STATS_SENTINEL);
+      }
+    }
+
+    // Only HDFS tables return a partition list.
+    if (resp.table_info.partitions != null) {
+      List<PartitionRef> partitionRefs =
+          Lists.newArrayListWithCapacity(resp.table_info.partitions.size());
+      for (TPartialPartitionInfo p : resp.table_info.partitions) {
+        checkResponse(
+            p.isSetId(), req, "response missing partition IDs for partition %s", p);
+        partitionRefs.add(new PartitionRefImpl(p));
+      }
+      cache_.put(new PartitionListCacheKey(ref), partitionRefs);
+    }
+    return ref;
+  }
+
   @Override
   public List<ColumnStatisticsObj> loadTableColumnStatistics(final TableMetaRef table,
       List<String> colNames) throws TException {
@@ -799,9 +1317,12 @@ public class CatalogdMetaProvider implements MetaProvider {
     Preconditions.checkArgument(table instanceof TableMetaRefImpl);
     TableMetaRefImpl refImpl = (TableMetaRefImpl)table;
     Stopwatch sw = new Stopwatch().start();
-    // Load what we can from the cache.
+    // Load what we can from the cache. Partitions cached for an older version of the
+    // table are collected in 'staleMetas', their metadata is reused if catalogd reports
+    // them as unchanged.
+    Map<PartitionRef, PartitionMetadataImpl> staleMetas = new HashMap<>();
     Map<PartitionRef, PartitionMetadata> refToMeta = loadPartitionsFromCache(refImpl,
-        hostIndex, partitionRefs);
+        hostIndex, partitionRefs, staleMetas);
 
     final int numHits = refToMeta.size();
     final int numMisses = partitionRefs.size() - numHits;
@@ -813,7 +1334,7 @@ public class CatalogdMetaProvider implements MetaProvider {
     }
     if (!missingRefs.isEmpty()) {
       Map<PartitionRef, PartitionMetadata> fromCatalogd = loadPartitionsFromCatalogd(
-          refImpl, hostIndex, missingRefs);
+          refImpl, hostIndex, missingRefs, staleMetas);
       refToMeta.putAll(fromCatalogd);
       // Write back to the cache.
       storePartitionsInCache(refImpl, hostIndex, fromCatalogd);
@@ -832,20 +1353,129 @@ public class CatalogdMetaProvider implements MetaProvider {
     return nameToMeta;
   }
 
+  /**
+   * Runs loadPartitionsByRefs() on the partition prefetch pool. The load is accounted to
+   * the profile of the thread that consumes the prefetch, if any.
+   */
+  @Override
+  public Future<Map<String, PartitionMetadata>> prefetchPartitionsByRefs(
+      final TableMetaRef table, final List<String> partitionColumnNames,
+      final ListMap<TNetworkAddress> hostIndex, final List<PartitionRef> partitionRefs) {
+    // The query may finish, and its profile may be emitted, before the prefetch
+    // finishes. The load therefore collects its counters in a profile of its own, which
+    // is merged into the query's profile by the planning thread when it consumes the
+    // prefetch.
+    final AtomicReference<TRuntimeProfileNode> loadProfile = new AtomicReference<>();
+    PartitionPrefetch prefetch = new PartitionPrefetch(partitionRefs.size(),
+        loadProfile, new Callable<Map<String, PartitionMetadata>>() {
+          @Override
+          public Map<String, PartitionMetadata> call() throws Exception {
+            try (FrontendProfile.Scope scope = FrontendProfile.createNewWithScope()) {
+              FrontendProfile profile = FrontendProfile.getCurrent();
+              try {
+                prefetching_.set(true);
+                return loadPartitionsByRefs(table, partitionColumnNames, hostIndex,
+                    partitionRefs);
+              } finally {
+                prefetching_.remove();
+                loadProfile.set(profile.emitAsThrift());
+              }
+            }
+          }
+        });
+    partitionPrefetchPool_.execute(prefetch);
+    return prefetch;
+  }
+
+  /**
+   * A background load of partitions started by prefetchPartitionsByRefs(). The first
+   * get() adds the counters of the load to the profile of the calling thread, along with
+   * how long the caller had to wait for the load to finish, and how much of the load's
+   * latency was hidden from it because the load ran while the caller did other work.
+   */
+  private static class PartitionPrefetch
+      extends FutureTask<Map<String, PartitionMetadata>> {
+    private final int numPartitions_;
+    // Counters of the load, set before the load finishes.
+    private final AtomicReference<TRuntimeProfileNode> loadProfile_;
+    private final long submitTimeNs_ = System.nanoTime();
+    private volatile long doneTimeNs_;
+    private final AtomicBoolean accounted_ = new AtomicBoolean();
+
+    PartitionPrefetch(int numPartitions,
+        AtomicReference<TRuntimeProfileNode> loadProfile,
+        Callable<Map<String, PartitionMetadata>> callable) {
+      super(callable);
+      numPartitions_ = numPartitions;
+      loadProfile_ = loadProfile;
+    }
+
+    @Override
+    protected void done() {
+      doneTimeNs_ = System.nanoTime();
+    }
+
+    @Override
+    public Map<String, PartitionMetadata> get()
+        throws InterruptedException, ExecutionException {
+      long waitStartNs = System.nanoTime();
+      try {
+        return super.get();
+      } finally {
+        if (isDone() && accounted_.compareAndSet(false, true)) {
+          addToProfile(System.nanoTime() - waitStartNs);
+        }
+      }
+    }
+
+    private void addToProfile(long waitTimeNs) {
+      FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+      if (profile == null) return;
+      TRuntimeProfileNode loadProfile = loadProfile_.get();
+      if (loadProfile != null) profile.mergeCounters(loadProfile);
+      long hiddenTimeNs = Math.max(0, doneTimeNs_ - submitTimeNs_ - waitTimeNs);
+      profile.addToCounter(PARTITIONS_PREFETCHED, TUnit.NONE, numPartitions_);
+      profile.addToCounter(PARTITIONS_PREFETCH_WAIT_TIME, TUnit.TIME_MS,
+          TimeUnit.NANOSECONDS.toMillis(waitTimeNs));
+      profile.addToCounter(PARTITIONS_PREFETCH_HIDDEN_TIME, TUnit.TIME_MS,
+          TimeUnit.NANOSECONDS.toMillis(hiddenTimeNs));
+    }
+  }
+
   /**
    * Load the specified partitions 'prefs' from catalogd. The partitions are made
    * relative to the given 'hostIndex' before being returned.
+   *
+   * 'staleMetas' contains the cached metadata, relative to 'cacheHostIndex_', of those
+   * partitions that were cached for an older version of the table. Their versions are
+   * passed to catalogd, which only returns the partitions that changed since. The
+   * cached metadata is returned for the unchanged ones.
    */
   private Map<PartitionRef, PartitionMetadata> loadPartitionsFromCatalogd(
       TableMetaRefImpl table, ListMap<TNetworkAddress> hostIndex,
-      List<PartitionRef> partRefs) throws TException {
+      List<PartitionRef> partRefs, Map<PartitionRef, PartitionMetadataImpl> staleMetas)
+      throws TException {
     List<Long> ids = Lists.newArrayListWithCapacity(partRefs.size());
+    Map<Long, PartitionRef> idToRef = Maps.newHashMapWithExpectedSize(partRefs.size());
+    Map<Long, Long> knownVersions = new HashMap<>();
     for (PartitionRef partRef: partRefs) {
-      ids.add(((PartitionRefImpl)partRef).getId());
+      long id = ((PartitionRefImpl)partRef).getId();
+      ids.add(id);
+      idToRef.put(id, partRef);
+      PartitionMetadataImpl staleMeta = staleMetas.get(partRef);
+      // The HMS partition of an unpartitioned table is derived from the HMS table,
+      // which may have changed even if the partition did not.
+      if (staleMeta != null && staleMeta.getVersion() >= 0 &&
+          table.msTable_.getPartitionKeysSize() > 0) {
+        knownVersions.put(id, staleMeta.getVersion());
+      }
     }
 
     TGetPartialCatalogObjectRequest req = newReqForTable(table);
     req.table_info_selector.partition_ids = ids;
+    if (!knownVersions.isEmpty()) {
+      req.table_info_selector.known_partition_versions = knownVersions;
+    }
     req.table_info_selector.want_partition_metadata = true;
     req.table_info_selector.want_partition_files = true;
     // TODO(todd): fetch incremental stats on-demand for compute-incremental-stats.
@@ -855,15 +1485,29 @@ public class CatalogdMetaProvider implements MetaProvider {
         req, "missing partition list result");
     checkResponse(resp.table_info.network_addresses != null,
         req, "missing network addresses");
-    checkResponse(resp.table_info.partitions.size() == ids.size(),
-        req, "returned %d partitions instead of expected %d",
-        resp.table_info.partitions.size(), ids.size());
+    List<Long> unchangedIds = resp.table_info.isSetUnchanged_partition_ids() ?
+        resp.table_info.unchanged_partition_ids : Collections.<Long>emptyList();
+    checkResponse(resp.table_info.partitions.size() + unchangedIds.size() == ids.size(),
+        req, "returned %d partitions and %d unchanged partitions instead of expected %d",
+        resp.table_info.partitions.size(), unchangedIds.size(), ids.size());
     addTableMetadatStorageLoadTimeToProfile(
         resp.table_info.storage_metadata_load_time_ns);
     Map<PartitionRef, PartitionMetadata> ret = new HashMap<>();
-    for (int i = 0; i < ids.size(); i++) {
-      PartitionRef partRef = partRefs.get(i);
-      TPartialPartitionInfo part = resp.table_info.partitions.get(i);
+    for (long id: unchangedIds) {
+      PartitionRef partRef = idToRef.get(id);
+      checkResponse(partRef != null && knownVersions.containsKey(id), req,
+          "returned unexpected unchanged partition id %s", id);
+      // The cached metadata is relative to the cache's host index.
+      PartitionMetadata oldVal = ret.put(partRef,
+          staleMetas.get(partRef).cloneRelativeToHostIndex(cacheHostIndex_, hostIndex));
+      if (oldVal != null) {
+        throw new RuntimeException("catalogd returned partition " + id +
+            " multiple times");
+      }
+    }
+    addPartitionsUnchangedToProfile(unchangedIds.size());
+    for (TPartialPartitionInfo part: resp.table_info.partitions) {
+      PartitionRef partRef = idToRef.get(part.id);
       Partition msPart = part.getHms_partition();
       if (msPart == null) {
         checkResponse(table.msTable_.getPartitionKeysSize() == 0, req,
@@ -887,7 +1531,7 @@ public class CatalogdMetaProvider implements MetaProvider {
       }
       PartitionMetadataImpl metaImpl = new PartitionMetadataImpl(msPart,
           ImmutableList.copyOf(fds), part.getPartition_stats(),
-          part.has_incremental_stats);
+          part.has_incremental_stats, part.isSetVersion() ? part.getVersion() : -1);
 
       checkResponse(partRef != null, req, "returned unexpected partition id %s", part.id);
 
@@ -901,27 +1545,35 @@ public class CatalogdMetaProvider implements MetaProvider {
   }
 
   /**
-   * Load all partitions from 'partitionRefs' that are currently present in the cache.
-   * Any partitions that miss the cache are left unset in the resulting map.
+   * Load all partitions from 'partitionRefs' that are currently present in the cache
+   * for the version of 'table'. Any partitions that miss the cache are left unset in the
+   * resulting map. Partitions that are only cached for another version of the table
+   * are left unset as well, but their cached metadata is added to 'staleMetas'.
    *
    * The FileDescriptors of the resulting partitions are copied and made relative to
-   * the provided hostIndex.
+   * the provided hostIndex. Those in 'staleMetas' are left relative to the cache's host
+   * index.
    */
   private Map<PartitionRef, PartitionMetadata> loadPartitionsFromCache(
       TableMetaRefImpl table, ListMap<TNetworkAddress> hostIndex,
-      List<PartitionRef> partitionRefs) throws TException {
+      List<PartitionRef> partitionRefs,
+      Map<PartitionRef, PartitionMetadataImpl> staleMetas) throws TException {
 
     Map<PartitionRef, PartitionMetadata> ret = Maps.newHashMapWithExpectedSize(
         partitionRefs.size());
     for (PartitionRef ref: partitionRefs) {
       PartitionRefImpl prefImpl = (PartitionRefImpl)ref;
       PartitionCacheKey cacheKey = new PartitionCacheKey(table, prefImpl.getId());
-      PartitionMetadataImpl val = (PartitionMetadataImpl)getIfPresent(cacheKey);
+      CachedPartitionMetadata val = (CachedPartitionMetadata)getIfPresent(cacheKey);
       if (val == null) continue;
+      if (val.tableVersion_ != table.catalogVersion_) {
+        staleMetas.put(ref, val.meta_);
+        continue;
+      }
 
       // The entry in the cache has file descriptors that are relative to the cache's
       // host index, rather than the caller's host index. So, we need to transform them.
-      ret.put(ref, val.cloneRelativeToHostIndex(cacheHostIndex_, hostIndex));
+      ret.put(ref, val.meta_.cloneRelativeToHostIndex(cacheHostIndex_, hostIndex));
     }
     return ret;
   }
@@ -939,7 +1591,7 @@ public class CatalogdMetaProvider implements MetaProvider {
       PartitionCacheKey cacheKey = new PartitionCacheKey(table, prefImpl.getId());
       PartitionMetadataImpl cacheVal = metaImpl.cloneRelativeToHostIndex(hostIndex,
           cacheHostIndex_);
-      cache_.put(cacheKey, cacheVal);
+      cache_.put(cacheKey, new CachedPartitionMetadata(table.catalogVersion_, cacheVal));
     }
   }
 
@@ -1059,7 +1711,11 @@ public class CatalogdMetaProvider implements MetaProvider {
         continue;
       }
 
-      invalidateCacheForObject(obj);
+      // Only the statestore topic updates may leave stale tables usable. Updates from
+      // DDLs issued by this coordinator, which set the catalog service id, and dropped
+      // tables are always invalidated right away.
+      invalidateCacheForObject(obj,
+          /*allowStale=*/!isDelete && !req.isSetCatalog_service_id());
 
       // The sequencing of updates to authorization objects is important since they
       // may be cross-referential. So, just add them to the sequencer which ensures
@@ -1209,11 +1865,21 @@ public class CatalogdMetaProvider implements MetaProvider {
    */
   @VisibleForTesting
   void invalidateCacheForObject(TCatalogObject obj) {
+    invalidateCacheForObject(obj, /*allowStale=*/false);
+  }
+
+  /**
+   * Same as above. If 'allowStale' is true, tables with the TBL_PROP_MAX_STALENESS_S
+   * property are marked stale instead of being removed from the cache.
+   */
+  @VisibleForTesting
+  void invalidateCacheForObject(TCatalogObject obj, boolean allowStale) {
     List<String> invalidated = new ArrayList<>();
     switch (obj.type) {
     case TABLE:
     case VIEW:
-      invalidateCacheForTable(obj.table.db_name, obj.table.tbl_name, invalidated);
+      invalidateCacheForTable(obj.table.db_name, obj.table.tbl_name, allowStale,
+          invalidated);
 
       // Currently adding or dropping a table doesn't send an invalidation for the
       // DB, so we'll be coarse-grained here and invalidate the DB table list when
@@ -1239,7 +1905,7 @@ public class CatalogdMetaProvider implements MetaProvider {
       }
       break;
     case DATABASE:
-      if (cache_.asMap().remove(DB_LIST_CACHE_KEY) != null) {
+      if (cache_.remove(DB_LIST_CACHE_KEY) != null) {
         invalidated.add("list of database names");
       }
       invalidateCacheForDb(obj.db.db_name, ImmutableList.of(
@@ -1266,7 +1932,7 @@ public class CatalogdMetaProvider implements MetaProvider {
     // TODO(todd) check whether we need to lower-case/canonicalize dbName?
     for (DbCacheKey.DbInfoType type: types) {
       DbCacheKey key = new DbCacheKey(dbName, type);
-      if (cache_.asMap().remove(key) != null) {
+      if (cache_.remove(key) != null) {
         invalidated.add(type + " for DB " + dbName);
       }
     }
@@ -1274,17 +1940,64 @@ public class CatalogdMetaProvider implements MetaProvider {
 
   /**
    * Invalidate cached metadata for the given table. If anything was invalidated, adds
-   * a human-readable string to 'invalidated' indicating the invalidated metadata.
+   * a human-readable string to 'invalidated' indicating the invalidated metadata. If
+   * 'allowStale' is true, the table is only marked stale if it has the
+   * TBL_PROP_MAX_STALENESS_S property.
    */
   private void invalidateCacheForTable(String dbName, String tblName,
-      List<String> invalidated) {
+      boolean allowStale, List<String> invalidated) {
     // TODO(todd) check whether we need to lower-case/canonicalize dbName and tblName?
     TableCacheKey key = new TableCacheKey(dbName, tblName);
-    if (cache_.asMap().remove(key) != null) {
+    if (allowStale && markTableStale(key)) {
+      invalidated.add("table " + dbName + "." + tblName + " (marked stale)");
+      return;
+    }
+    if (cache_.remove(key) != null) {
       invalidated.add("table " + dbName + "." + tblName);
     }
   }
 
+  /**
+   * Replaces the cached table of 'key' with a stale entry if the table has the
+   * TBL_PROP_MAX_STALENESS_S property. A table which is already stale stays usable
+   * until its original deadline. Returns false if the table was not cached, is still
+   * being loaded or does not have the property.
+   */
+  private boolean markTableStale(TableCacheKey key) {
+    Object cached = cache_.peek(key);
+    TableMetaRefImpl ref;
+    if (cached instanceof TableMetaRefImpl) {
+      ref = (TableMetaRefImpl) cached;
+    } else if (cached instanceof StaleTableMetaRef) {
+      ref = ((StaleTableMetaRef) cached).ref_;
+    } else {
+      return false;
+    }
+    long maxStalenessS = getMaxStalenessS(ref.msTable_);
+    if (maxStalenessS <= 0) return false;
+    long deadlineNs = cached instanceof StaleTableMetaRef ?
+        ((StaleTableMetaRef) cached).deadlineNs_ :
+        System.nanoTime() + TimeUnit.SECONDS.toNanos(maxStalenessS);
+    return cache_.replace(key, cached, new StaleTableMetaRef(ref, deadlineNs));
+  }
+
+  /**
+   * Returns the value of the TBL_PROP_MAX_STALENESS_S property of 'msTable', or 0 if it
+   * is not set or invalid.
+   */
+  private static long getMaxStalenessS(Table msTable) {
+    if (msTable == null || msTable.getParameters() == null) return 0;
+    String value = msTable.getParameters().get(TBL_PROP_MAX_STALENESS_S);
+    if (value == null) return 0;
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      LOG.warn("Ignoring invalid value of table property {} of table {}.{}: {}",
+          TBL_PROP_MAX_STALENESS_S, msTable.getDbName(), msTable.getTableName(), value);
+      return 0;
+    }
+  }
+
   /**
    * Invalidate cached metadata for the given function. If anything was invalidated, adds
    * a human-readable string to 'invalidated' indicating the invalidated metadata.
@@ -1293,7 +2006,7 @@ public class CatalogdMetaProvider implements MetaProvider {
       List<String> invalidated) {
     // TODO(todd) check whether we need to lower-case/canonicalize names?
     FunctionsCacheKey key = new FunctionsCacheKey(dbName, functionName);
-    if (cache_.asMap().remove(key) != null) {
+    if (cache_.remove(key) != null) {
       invalidated.add("function " + dbName + "." + functionName);
     }
   }
@@ -1328,13 +2041,21 @@ public class CatalogdMetaProvider implements MetaProvider {
     private final ImmutableList<FileDescriptor> fds_;
     private final byte[] partitionStats_;
     private final boolean hasIncrementalStats_;
+    // Version of the partition in catalogd, or -1 if unknown.
+    private final long version_;
 
     public PartitionMetadataImpl(Partition msPartition, ImmutableList<FileDescriptor> fds,
         byte[] partitionStats, boolean hasIncrementalStats) {
+      this(msPartition, fds, partitionStats, hasIncrementalStats, -1);
+    }
+
+    public PartitionMetadataImpl(Partition msPartition, ImmutableList<FileDescriptor> fds,
+        byte[] partitionStats, boolean hasIncrementalStats, long version) {
       this.msPartition_ = Preconditions.checkNotNull(msPartition);
       this.fds_ = fds;
       this.partitionStats_ = partitionStats;
       this.hasIncrementalStats_ = hasIncrementalStats;
+      this.version_ = version;
     }
 
     /**
@@ -1349,9 +2070,11 @@ public class CatalogdMetaProvider implements MetaProvider {
         fds.add(fd.cloneWithNewHostIndex(origIndex.getList(), dstIndex));
       }
       return new PartitionMetadataImpl(msPartition_, ImmutableList.copyOf(fds),
-          partitionStats_, hasIncrementalStats_);
+          partitionStats_, hasIncrementalStats_, version_);
     }
 
+    public long getVersion() { return version_; }
+
     @Override
     public Partition getHmsPartition() {
       return msPartition_;
@@ -1400,6 +2123,9 @@ public class CatalogdMetaProvider implements MetaProvider {
       this.catalogVersion_ = catalogVersion;
     }
 
+    @Override
+    public long getCatalogVersion() { return catalogVersion_; }
+
     @Override
     public String toString() {
       return String.format("TableMetaRef %s.%s@%d", dbName_, tableName_, catalogVersion_);
@@ -1531,19 +2257,19 @@ public class CatalogdMetaProvider implements MetaProvider {
   /**
    * Key for caching information about a single partition.
    *
-   * TODO(todd): currently this inherits from VersionedTableCacheKey. This means that, if
-   * a table's version number changes, all of its partitions must be reloaded. However,
-   * since partition IDs are globally unique within a catalogd instance, we could
-   * optimize this to just key based on the partition ID. However, currently, there are
-   * some cases where partitions are mutated in place rather than replaced with a new ID.
-   * We need to eliminate those or add a partition sequence number before we can make
-   * this optimization.
+   * Unlike other table metadata, this is not keyed by the version of the table, since
+   * most changes of a table leave most of its partitions untouched. Instead, values are
+   * 'CachedPartitionMetadata' objects which record the version of the table they were
+   * cached for. If that version is outdated, the partition's own version is used to ask
+   * catalogd whether the partition changed since (see loadPartitionsFromCatalogd()).
+   * Since partition IDs are globally unique within a catalogd instance, and the cache is
+   * cleared if the catalogd restarts, stale entries never alias other partitions.
    */
-  private static class PartitionCacheKey extends VersionedTableCacheKey {
+  private static class PartitionCacheKey extends TableCacheKey {
     private final long partId_;
 
     PartitionCacheKey(TableMetaRefImpl table, long partId) {
-      super(table);
+      super(table.dbName_, table.tableName_);
       partId_ = partId;
     }
 
@@ -1562,6 +2288,37 @@ public class CatalogdMetaProvider implements MetaProvider {
     }
   }
 
+  /**
+   * Value of a TableCacheKey whose table was invalidated by a catalog topic update, but
+   * which may still be used until 'deadlineNs_', as returned by System.nanoTime(). See
+   * TBL_PROP_MAX_STALENESS_S.
+   */
+  private static class StaleTableMetaRef {
+    final TableMetaRefImpl ref_;
+    final long deadlineNs_;
+    // Set once a background reload of the table was started.
+    final AtomicBoolean reloadStarted_ = new AtomicBoolean();
+
+    StaleTableMetaRef(TableMetaRefImpl ref, long deadlineNs) {
+      ref_ = Preconditions.checkNotNull(ref);
+      deadlineNs_ = deadlineNs;
+    }
+  }
+
+  /**
+   * Value of a PartitionCacheKey: the metadata of a partition, relative to
+   * 'cacheHostIndex_', along with the version of the table it was loaded for.
+   */
+  private static class CachedPartitionMetadata {
+    final long tableVersion_;
+    final PartitionMetadataImpl meta_;
+
+    CachedPartitionMetadata(long tableVersion, PartitionMetadataImpl meta) {
+      tableVersion_ = tableVersion;
+      meta_ = Preconditions.checkNotNull(meta);
+    }
+  }
+
   /**
    * Cache key for metadata about databases.
    */
@@ -19,10 +19,12 @@ package org.apache.impala.catalog.local;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
@@ -32,7 +34,9 @@ import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.apache.hadoop.hive.metastore.api.UnknownDBException;
+import org.apache.impala.analysis.TableName;
 import org.apache.impala.authorization.AuthorizationPolicy;
+import org.apache.impala.catalog.Catalog;
 import org.apache.impala.catalog.FileMetadataLoader;
 import org.apache.impala.catalog.Function;
 import org.apache.impala.catalog.HdfsPartition.FileDescriptor;
@@ -125,6 +129,11 @@ class DirectMetaProvider implements MetaProvider {
     return Pair.create(msTable, ref);
   }
 
+  @Override
+  public void prefetchTables(Collection<TableName> tableNames) {
+    // No-op: there is no cache to fill ahead of loadTable().
+  }
+
   @Override
   public String loadNullPartitionKeyValue() throws MetaException, TException {
     try (MetaStoreClient c = msClientPool_.getClient()) {
@@ -224,6 +233,15 @@ class DirectMetaProvider implements MetaProvider {
     return ret;
   }
 
+  @Override
+  public Future<Map<String, PartitionMetadata>> prefetchPartitionsByRefs(
+      TableMetaRef table, List<String> partitionColumnNames,
+      ListMap<TNetworkAddress> hostIndex, List<PartitionRef> partitionRefs) {
+    // Not supported: this provider is only used for testing and has no cache which
+    // a background load could fill.
+    return null;
+  }
+
   /**
    * We model partitions slightly differently to Hive. So, in the case of an
    * unpartitioned table, we have to create a fake Partition object which has the
@@ -377,5 +395,8 @@ class DirectMetaProvider implements MetaProvider {
     private boolean isPartitioned() {
       return msTable_.getPartitionKeysSize() != 0;
     }
+
+    @Override
+    public long getCatalogVersion() { return Catalog.INITIAL_CATALOG_VERSION; }
   }
 }
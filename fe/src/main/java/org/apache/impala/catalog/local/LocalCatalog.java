@@ -17,6 +17,7 @@
 
 package org.apache.impala.catalog.local;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +50,9 @@ import org.apache.impala.thrift.TUniqueId;
 import org.apache.impala.util.PatternMatcher;
 import org.apache.thrift.TException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 
@@ -68,6 +72,8 @@ import com.google.common.base.Preconditions;
  * returned from its methods.
  */
 public class LocalCatalog implements FeCatalog {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalCatalog.class);
+
   private final MetaProvider metaProvider_;
   private Map<String, FeDb> dbs_ = new HashMap<>();
   private String nullPartitionKeyValue_;
@@ -221,6 +227,27 @@ public class LocalCatalog implements FeCatalog {
     // No-op for local catalog.
   }
 
+  @Override
+  public void prefetchTables(Set<TableName> tableNames) {
+    // Only prefetch tables that exist and are not loaded by this catalog instance yet.
+    List<TableName> toFetch = new ArrayList<>();
+    for (TableName tblName: tableNames) {
+      FeDb db = getDb(tblName.getDb());
+      if (!(db instanceof LocalDb)) continue;
+      String tbl = tblName.getTbl().toLowerCase();
+      if (!(((LocalDb) db).getTableIfCached(tbl) instanceof LocalIncompleteTable)) {
+        continue;
+      }
+      toFetch.add(new TableName(db.getName(), tbl));
+    }
+    if (toFetch.isEmpty()) return;
+    try {
+      metaProvider_.prefetchTables(toFetch);
+    } catch (TException e) {
+      LOG.warn("Could not prefetch tables " + toFetch, e);
+    }
+  }
+
   @Override
   public TGetPartitionStatsResponse getPartitionStats(
       TableName table) throws InternalException {
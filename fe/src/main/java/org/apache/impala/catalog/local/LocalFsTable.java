@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.avro.Schema;
 import org.apache.hadoop.fs.Path;
@@ -64,14 +66,20 @@ import org.apache.impala.util.AvroSchemaConverter;
 import org.apache.impala.util.AvroSchemaUtils;
 import org.apache.impala.util.ListMap;
 import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 public class LocalFsTable extends LocalTable implements FeFsTable {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalFsTable.class);
+
   /**
    * Map from partition ID to partition spec.
    *
@@ -106,6 +114,14 @@ public class LocalFsTable extends LocalTable implements FeFsTable {
    */
   private final ListMap<TNetworkAddress> hostIndex_ = new ListMap<>();
 
+  /**
+   * The IDs of the partitions which are being loaded in the background after a call to
+   * prefetchPartitions(), and the future of their metadata. Null if no partitions are
+   * being prefetched.
+   */
+  private Set<Long> prefetchedIds_;
+  private Future<Map<String, PartitionMetadata>> prefetch_;
+
   /**
    * The Avro schema for this table. Non-null if this table is an Avro table.
    * If this table is not an Avro table, this is usually null, but may be
@@ -395,20 +411,19 @@ public class LocalFsTable extends LocalTable implements FeFsTable {
     // Possible in the case that all partitions were pruned.
     if (ids.isEmpty()) return Collections.emptyList();
 
-    List<PartitionRef> refs = new ArrayList<>();
-    for (Long id : ids) {
-      LocalPartitionSpec spec = partitionSpecs_.get(id);
-      Preconditions.checkArgument(spec != null, "Invalid partition ID for table %s: %s",
-          getFullName(), id);
-      refs.add(Preconditions.checkNotNull(spec.getRef()));
+    List<PartitionRef> refs = getPartitionRefs(ids);
+    Map<String, PartitionMetadata> partsByName = null;
+    if (prefetch_ != null && prefetchedIds_.containsAll(ids)) {
+      partsByName = getPrefetchedPartitions();
     }
-    Map<String, PartitionMetadata> partsByName;
-    try {
-      partsByName = db_.getCatalog().getMetaProvider().loadPartitionsByRefs(
-          ref_, getClusteringColumnNames(), hostIndex_, refs);
-    } catch (TException e) {
-      throw new LocalCatalogException(
-          "Could not load partitions for table " + getFullName(), e);
+    if (partsByName == null) {
+      try {
+        partsByName = db_.getCatalog().getMetaProvider().loadPartitionsByRefs(
+            ref_, getClusteringColumnNames(), hostIndex_, refs);
+      } catch (TException e) {
+        throw new LocalCatalogException(
+            "Could not load partitions for table " + getFullName(), e);
+      }
     }
     List<FeFsPartition> ret = Lists.newArrayListWithCapacity(ids.size());
     for (Long id : ids) {
@@ -430,6 +445,46 @@ public class LocalFsTable extends LocalTable implements FeFsTable {
     return ret;
   }
 
+  @Override
+  public void prefetchPartitions(Collection<Long> ids) {
+    Preconditions.checkState(partitionSpecs_ != null,
+        "Cannot prefetch partitions without having fetched partition IDs " +
+        "from the same LocalFsTable instance");
+    if (ids.isEmpty()) return;
+    // A previous prefetch which covers the partitions is good enough.
+    if (prefetch_ != null && prefetchedIds_.containsAll(ids)) return;
+    prefetch_ = db_.getCatalog().getMetaProvider().prefetchPartitionsByRefs(
+        ref_, getClusteringColumnNames(), hostIndex_, getPartitionRefs(ids));
+    prefetchedIds_ = prefetch_ == null ? null : ImmutableSet.copyOf(ids);
+  }
+
+  /**
+   * Waits for the partitions started by prefetchPartitions() and returns their metadata.
+   * Returns null if prefetching failed, in which case the caller should load the
+   * partitions itself to surface the error.
+   */
+  private Map<String, PartitionMetadata> getPrefetchedPartitions() {
+    try {
+      return Uninterruptibles.getUninterruptibly(prefetch_);
+    } catch (ExecutionException e) {
+      LOG.warn("Failed to prefetch partitions of table " + getFullName(), e.getCause());
+      prefetch_ = null;
+      prefetchedIds_ = null;
+      return null;
+    }
+  }
+
+  private List<PartitionRef> getPartitionRefs(Collection<Long> ids) {
+    List<PartitionRef> refs = Lists.newArrayListWithCapacity(ids.size());
+    for (Long id : ids) {
+      LocalPartitionSpec spec = partitionSpecs_.get(id);
+      Preconditions.checkArgument(spec != null, "Invalid partition ID for table %s: %s",
+          getFullName(), id);
+      refs.add(Preconditions.checkNotNull(spec.getRef()));
+    }
+    return refs;
+  }
+
   private List<String> getClusteringColumnNames() {
     List<String> names = Lists.newArrayListWithCapacity(getNumClusteringCols());
     for (Column c : getClusteringColumns()) {
@@ -30,6 +30,7 @@ import org.apache.hadoop.hive.metastore.api.SQLPrimaryKey;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.apache.impala.analysis.TableName;
 import org.apache.impala.catalog.ArrayType;
+import org.apache.impala.catalog.Catalog;
 import org.apache.impala.catalog.Column;
 import org.apache.impala.catalog.DataSourceTable;
 import org.apache.impala.catalog.FeCatalogUtils;
@@ -279,6 +280,11 @@ abstract class LocalTable implements FeTable {
     return tableStats_;
   }
 
+  @Override
+  public long getCatalogVersion() {
+    return ref_ == null ? Catalog.INITIAL_CATALOG_VERSION : ref_.getCatalogVersion();
+  }
+
   @Override
   public long getWriteId() {
     return -1l;
@@ -17,8 +17,12 @@
 
 package org.apache.impala.catalog.local;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Database;
@@ -27,6 +31,7 @@ import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.apache.hadoop.hive.metastore.api.UnknownDBException;
+import org.apache.impala.analysis.TableName;
 import org.apache.impala.authorization.AuthorizationPolicy;
 import org.apache.impala.catalog.Function;
 import org.apache.impala.catalog.HdfsPartition.FileDescriptor;
@@ -67,6 +72,13 @@ public interface MetaProvider {
   Pair<Table, TableMetaRef> loadTable(String dbName, String tableName)
       throws NoSuchObjectException, MetaException, TException;
 
+  /**
+   * Hint that the given tables are about to be loaded, e.g. because they are referenced
+   * by a statement. Implementations may fetch their metadata in bulk ahead of the
+   * individual loadTable() calls. Non-existent tables are ignored.
+   */
+  void prefetchTables(Collection<TableName> tableNames) throws TException;
+
   String loadNullPartitionKeyValue()
       throws MetaException, TException;
 
@@ -101,6 +113,21 @@ public interface MetaProvider {
       List<PartitionRef> partitionRefs)
       throws MetaException, TException;
 
+  /**
+   * Start loading the given partitions from the specified table in the background.
+   * The returned future yields the same result as a loadPartitionsByRefs() call with
+   * the same arguments. Returns null if the implementation does not support loading
+   * partitions in the background, in which case callers should simply call
+   * loadPartitionsByRefs() once they need the partitions.
+   *
+   * 'hostIndex' is updated concurrently with the caller, so it must not be used in
+   * ways that depend on its size until the returned future is done.
+   */
+  @Nullable
+  Future<Map<String, PartitionMetadata>> prefetchPartitionsByRefs(TableMetaRef table,
+      List<String> partitionColumnNames, ListMap<TNetworkAddress> hostIndex,
+      List<PartitionRef> partitionRefs);
+
   /**
    * Load statistics for the given columns from the given table.
    *
@@ -117,6 +144,11 @@ public interface MetaProvider {
    * in order to perform concurrency control checks, etc.
    */
   interface TableMetaRef {
+    /**
+     * Returns the catalog version of the table when it was loaded, or
+     * Catalog.INITIAL_CATALOG_VERSION if this provider does not track versions.
+     */
+    long getCatalogVersion();
   }
 
   /**
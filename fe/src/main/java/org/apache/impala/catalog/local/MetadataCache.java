@@ -0,0 +1,526 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog.local;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.cache.AbstractCache.SimpleStatsCounter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+
+/**
+ * The cache underlying CatalogdMetaProvider.
+ *
+ * Entries are split by their Kind into segments. By default, all segments share one
+ * weight-bounded LRU cache with the total capacity. Optionally, each kind is given its
+ * own cache with a fixed share of the capacity, see parseCapacitySplit(). This way a
+ * burst of one kind of entries, e.g. the partitions of a large table, cannot evict the
+ * other kinds, at the cost of capacity that one kind leaves unused not being available
+ * to the others.
+ *
+ * The segments of kinds which are loaded in bulk, i.e. partitions and column stats,
+ * are additionally protected against scans with an admission policy similar to
+ * W-TinyLFU: new entries are placed in a small "window" cache and only move on to the
+ * main cache once they are accessed again. A frequency sketch remembers how often keys
+ * were looked up recently, even after their entries have been evicted, so that entries
+ * which are reloaded after being evicted from the window are admitted to the main cache
+ * right away. Entries of a one-off scan are thus only ever cached in the window.
+ *
+ * Since entries are moved between the window and the main cache, the admission policy
+ * is only used for kinds whose entries are never invalidated by removing individual
+ * keys; see the NOTE in CatalogdMetaProvider.loadWithCaching().
+ *
+ * The methods mirror those of Guava's Cache and its asMap() view. Hits, misses, loads
+ * and evictions are recorded per kind.
+ */
+public class MetadataCache {
+  /**
+   * The kinds of cache entries.
+   */
+  public enum Kind {
+    // Databases, tables, functions and global configuration.
+    TABLE("Table", false),
+    // Partition lists and partitions, including their file descriptors.
+    PARTITION("Partition", true),
+    COLUMN_STATS("ColumnStats", true);
+
+    // Name of the kind in the query profile.
+    private final String name_;
+    // Whether new entries have to pass the admission policy.
+    private final boolean useAdmission_;
+
+    Kind(String name, boolean useAdmission) {
+      name_ = name;
+      useAdmission_ = useAdmission;
+    }
+
+    public String getName() { return name_; }
+  }
+
+  // Share of the capacity of a kind which is used for the window of new entries, if
+  // the kind uses the admission policy.
+  @VisibleForTesting
+  static final double WINDOW_FRACTION = 0.2;
+
+  // Number of recent lookups of a key after which its entry is admitted to the main
+  // cache.
+  @VisibleForTesting
+  static final int ADMISSION_FREQUENCY = 2;
+
+  // Bytes of capacity per counter in each row of the frequency sketches. Entries are
+  // typically larger, so the sketches have more counters than there are entries.
+  private static final long BYTES_PER_SKETCH_COUNTER = 256;
+
+  private final Map<Kind, Segment> segments_ = new EnumMap<>(Kind.class);
+  private final Function<Object, Kind> kindOfKey_;
+
+  /**
+   * Creates a cache with a total capacity of 'capacityBytes', as measured by 'weigher',
+   * whose entries expire 'expirationSecs' after they were last accessed. 'kindOfKey'
+   * returns the kind of the entry of a key. All kinds share the capacity.
+   */
+  MetadataCache(long capacityBytes, long expirationSecs, Weigher<Object, Object> weigher,
+      Function<Object, Kind> kindOfKey) {
+    this(capacityBytes, expirationSecs, weigher, kindOfKey, null);
+  }
+
+  /**
+   * Like above, but if 'capacitySplit' is not null, each kind gets its share of the
+   * capacity from 'capacitySplit' instead, see parseCapacitySplit().
+   */
+  MetadataCache(long capacityBytes, long expirationSecs, Weigher<Object, Object> weigher,
+      Function<Object, Kind> kindOfKey, @Nullable Map<Kind, Double> capacitySplit) {
+    kindOfKey_ = Preconditions.checkNotNull(kindOfKey);
+    if (capacitySplit == null) {
+      // A single main cache, window and sketch for all kinds.
+      long windowBytes = (long) (capacityBytes * WINDOW_FRACTION);
+      Cache<Object, Object> main =
+          buildCache(capacityBytes - windowBytes, expirationSecs, weigher);
+      Cache<Object, Object> window = buildCache(windowBytes, expirationSecs, weigher);
+      FrequencySketch sketch =
+          new FrequencySketch(capacityBytes / BYTES_PER_SKETCH_COUNTER);
+      ReadWriteLock admissionLock = new ReentrantReadWriteLock();
+      for (Kind kind : Kind.values()) {
+        segments_.put(kind, kind.useAdmission_ ?
+            new Segment(main, window, sketch, admissionLock) :
+            new Segment(main, null, null, admissionLock));
+      }
+      return;
+    }
+    for (Kind kind : Kind.values()) {
+      long kindBytes = (long) (capacityBytes * capacitySplit.get(kind));
+      if (!kind.useAdmission_) {
+        segments_.put(kind, new Segment(buildCache(kindBytes, expirationSecs, weigher),
+            null, null, new ReentrantReadWriteLock()));
+        continue;
+      }
+      long windowBytes = (long) (kindBytes * WINDOW_FRACTION);
+      segments_.put(kind, new Segment(
+          buildCache(kindBytes - windowBytes, expirationSecs, weigher),
+          buildCache(windowBytes, expirationSecs, weigher),
+          new FrequencySketch(kindBytes / BYTES_PER_SKETCH_COUNTER),
+          new ReentrantReadWriteLock()));
+    }
+  }
+
+  /**
+   * Parses the value of --local_catalog_cache_capacity_split, a comma-separated list of
+   * <kind>:<percent> pairs with an entry for each kind, whose percentages add up to
+   * 100. Returns the share of the capacity by kind, or null if 'split' is null or
+   * empty, in which case all kinds share the capacity.
+   * @throws IllegalArgumentException if 'split' is not valid.
+   */
+  @Nullable
+  static Map<Kind, Double> parseCapacitySplit(@Nullable String split) {
+    if (split == null || split.trim().isEmpty()) return null;
+    Map<Kind, Double> fractions = new EnumMap<>(Kind.class);
+    int totalPercent = 0;
+    for (String entry : Splitter.on(',').trimResults().split(split)) {
+      List<String> parts =
+          Lists.newArrayList(Splitter.on(':').trimResults().split(entry));
+      Preconditions.checkArgument(parts.size() == 2,
+          "Invalid catalog cache capacity split entry: '%s'", entry);
+      Kind kind;
+      int percent;
+      try {
+        kind = Kind.valueOf(parts.get(0).toUpperCase());
+        percent = Integer.parseInt(parts.get(1));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format(
+            "Invalid catalog cache capacity split entry: '%s'", entry), e);
+      }
+      Preconditions.checkArgument(
+          percent > 0 && fractions.put(kind, percent / 100.0) == null,
+          "Invalid catalog cache capacity split entry: '%s'", entry);
+      totalPercent += percent;
+    }
+    Preconditions.checkArgument(
+        fractions.size() == Kind.values().length && totalPercent == 100,
+        "Catalog cache capacity split must have an entry for each kind and add up to " +
+        "100: '%s'", split);
+    return fractions;
+  }
+
+  private Cache<Object, Object> buildCache(long capacityBytes, long expirationSecs,
+      Weigher<Object, Object> weigher) {
+    return CacheBuilder.newBuilder()
+        .maximumWeight(capacityBytes)
+        .expireAfterAccess(expirationSecs, TimeUnit.SECONDS)
+        .weigher(weigher)
+        .removalListener((RemovalListener<Object, Object>) notification -> {
+          if (notification.wasEvicted()) {
+            segmentFor(notification.getKey()).stats_.recordEviction();
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Returns the value of 'key' if present. Otherwise loads a value with 'loader',
+   * caches it and returns it, unless another thread cached a value in the meantime, in
+   * which case that value is returned. Like Cache.get(), exceptions of 'loader' are
+   * wrapped in an ExecutionException.
+   */
+  Object get(Object key, Callable<?> loader) throws ExecutionException {
+    return segmentFor(key).get(key, loader);
+  }
+
+  /**
+   * Returns the value of 'key', or null if it is not present.
+   */
+  Object getIfPresent(Object key) { return segmentFor(key).getIfPresent(key); }
+
+  /**
+   * Returns the value of 'key', or null if it is not present, without recording the
+   * lookup in the stats or for the admission policy.
+   */
+  Object peek(Object key) { return segmentFor(key).peek(key); }
+
+  void put(Object key, Object value) { segmentFor(key).put(key, value); }
+
+  /**
+   * Caches 'value' for 'key' unless 'key' already has a value. Returns the existing
+   * value, or null if 'value' was cached.
+   */
+  Object putIfAbsent(Object key, Object value) {
+    return segmentFor(key).putIfAbsent(key, value);
+  }
+
+  /**
+   * Replaces the value of 'key' with 'newValue' if it is currently 'oldValue'. Returns
+   * true if the value was replaced.
+   */
+  boolean replace(Object key, Object oldValue, Object newValue) {
+    return segmentFor(key).replace(key, oldValue, newValue);
+  }
+
+  /**
+   * Removes the entry of 'key' if its value is 'value'. Returns true if it was removed.
+   */
+  boolean remove(Object key, Object value) {
+    return segmentFor(key).remove(key, value);
+  }
+
+  /**
+   * Removes the entry of 'key'. Returns its value, or null if it was not present.
+   */
+  Object remove(Object key) { return segmentFor(key).remove(key); }
+
+  void invalidateAll() {
+    for (Segment segment : segments_.values()) segment.invalidateAll();
+  }
+
+  /**
+   * Returns the stats of all kinds of entries.
+   */
+  CacheStats stats() {
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    for (Segment segment : segments_.values()) stats = stats.plus(segment.stats());
+    return stats;
+  }
+
+  /**
+   * Returns the stats of the entries of kind 'kind'.
+   */
+  CacheStats stats(Kind kind) { return segments_.get(kind).stats(); }
+
+  private Segment segmentFor(Object key) {
+    return segments_.get(kindOfKey_.apply(Preconditions.checkNotNull(key)));
+  }
+
+  /**
+   * The entries of one kind. The caches may be shared with the segments of other kinds.
+   */
+  private static class Segment {
+    // Entries which were admitted, or all entries if the kind does not use the
+    // admission policy.
+    private final Cache<Object, Object> main_;
+    // Entries which were not admitted yet. Null if the kind does not use the admission
+    // policy.
+    private final Cache<Object, Object> window_;
+    private final FrequencySketch sketch_;
+    // Taken for reading to move an entry from the window to the main cache, and for
+    // writing to remove entries, so that removed entries cannot be moved back into
+    // the main cache concurrently. Shared by the segments which share the caches.
+    private final ReadWriteLock admissionLock_;
+    private final SimpleStatsCounter stats_ = new SimpleStatsCounter();
+
+    Segment(Cache<Object, Object> main, @Nullable Cache<Object, Object> window,
+        @Nullable FrequencySketch sketch, ReadWriteLock admissionLock) {
+      Preconditions.checkArgument((window == null) == (sketch == null));
+      main_ = main;
+      window_ = window;
+      sketch_ = sketch;
+      admissionLock_ = admissionLock;
+    }
+
+    Object get(Object key, Callable<?> loader) throws ExecutionException {
+      Object value = lookup(key);
+      if (value != null) {
+        stats_.recordHits(1);
+        return value;
+      }
+      stats_.recordMisses(1);
+      long startNs = System.nanoTime();
+      try {
+        value = Preconditions.checkNotNull(loader.call());
+      } catch (Exception e) {
+        stats_.recordLoadException(System.nanoTime() - startNs);
+        throw new ExecutionException(e);
+      }
+      stats_.recordLoadSuccess(System.nanoTime() - startNs);
+      Object existing = putIfAbsent(key, value);
+      return existing != null ? existing : value;
+    }
+
+    Object getIfPresent(Object key) {
+      Object value = lookup(key);
+      if (value != null) {
+        stats_.recordHits(1);
+      } else {
+        stats_.recordMisses(1);
+      }
+      return value;
+    }
+
+    /**
+     * Returns the value of 'key' or null, without recording a hit or miss. Records the
+     * lookup in the frequency sketch and admits the entry to the main cache if it is
+     * in the window and was looked up often enough.
+     */
+    private Object lookup(Object key) {
+      if (window_ == null) return main_.asMap().get(key);
+      sketch_.increment(key);
+      Object value = main_.asMap().get(key);
+      if (value != null) return value;
+      value = window_.asMap().get(key);
+      // Entries which are still loading are admitted once they are loaded, see
+      // replace().
+      if (value != null && !(value instanceof Future) && isFrequent(key)) {
+        admissionLock_.readLock().lock();
+        try {
+          if (window_.asMap().remove(key, value)) main_.put(key, value);
+        } finally {
+          admissionLock_.readLock().unlock();
+        }
+      }
+      return value;
+    }
+
+    Object peek(Object key) {
+      Object value = main_.asMap().get(key);
+      if (value != null || window_ == null) return value;
+      return window_.asMap().get(key);
+    }
+
+    private boolean isFrequent(Object key) {
+      return sketch_.frequency(key) >= ADMISSION_FREQUENCY;
+    }
+
+    void put(Object key, Object value) {
+      if (window_ == null) {
+        main_.put(key, value);
+      } else if (isFrequent(key) || main_.asMap().containsKey(key)) {
+        main_.put(key, value);
+        window_.invalidate(key);
+      } else {
+        window_.put(key, value);
+      }
+    }
+
+    Object putIfAbsent(Object key, Object value) {
+      if (window_ == null) return main_.asMap().putIfAbsent(key, value);
+      Object existing = main_.asMap().get(key);
+      if (existing != null) return existing;
+      // New entries always start in the window, so that concurrent callers agree on
+      // the cache which holds the entry.
+      return window_.asMap().putIfAbsent(key, value);
+    }
+
+    boolean replace(Object key, Object oldValue, Object newValue) {
+      if (main_.asMap().replace(key, oldValue, newValue)) return true;
+      if (window_ == null) return false;
+      if (!isFrequent(key)) return window_.asMap().replace(key, oldValue, newValue);
+      admissionLock_.readLock().lock();
+      try {
+        if (!window_.asMap().remove(key, oldValue)) return false;
+        main_.put(key, newValue);
+        return true;
+      } finally {
+        admissionLock_.readLock().unlock();
+      }
+    }
+
+    boolean remove(Object key, Object value) {
+      if (main_.asMap().remove(key, value)) return true;
+      return window_ != null && window_.asMap().remove(key, value);
+    }
+
+    Object remove(Object key) {
+      if (window_ == null) return main_.asMap().remove(key);
+      admissionLock_.writeLock().lock();
+      try {
+        Object mainValue = main_.asMap().remove(key);
+        Object windowValue = window_.asMap().remove(key);
+        return mainValue != null ? mainValue : windowValue;
+      } finally {
+        admissionLock_.writeLock().unlock();
+      }
+    }
+
+    void invalidateAll() {
+      if (window_ == null) {
+        main_.invalidateAll();
+        return;
+      }
+      admissionLock_.writeLock().lock();
+      try {
+        main_.invalidateAll();
+        window_.invalidateAll();
+      } finally {
+        admissionLock_.writeLock().unlock();
+      }
+    }
+
+    CacheStats stats() { return stats_.snapshot(); }
+  }
+
+  /**
+   * A count-min sketch which estimates how often keys were looked up recently. Uses
+   * 4-bit saturating counters, packed into longs, and halves all counters once the
+   * number of increments reaches a quarter of the width of the sketch, so that the
+   * estimates favor recent lookups. Keeping the counters sparse makes it unlikely that
+   * a key which was looked up once is estimated to be frequent because of collisions.
+   * Thread-safe; concurrent aging may lose increments, which only affects the accuracy
+   * of the estimates.
+   */
+  @VisibleForTesting
+  static class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L};
+    private static final int BITS_PER_COUNTER = 4;
+    private static final int COUNTERS_PER_LONG = Long.SIZE / BITS_PER_COUNTER;
+    private static final long MAX_COUNT = (1L << BITS_PER_COUNTER) - 1;
+    // Mask which clears the highest bit of each counter after shifting right by one.
+    private static final long HALVE_MASK = 0x7777777777777777L;
+    private static final int MIN_WIDTH = 1 << 10;
+    private static final int MAX_WIDTH = 1 << 24;
+
+    // Number of counters per row, a power of two.
+    private final int width_;
+    // SEEDS.length rows of 'width_' counters each.
+    private final AtomicLongArray counters_;
+    private final int sampleSize_;
+    private final AtomicInteger numIncrements_ = new AtomicInteger();
+
+    /**
+     * Creates a sketch with at least 'width' counters per row.
+     */
+    FrequencySketch(long width) {
+      width = Math.max(MIN_WIDTH, Math.min(MAX_WIDTH, width));
+      width_ = Integer.highestOneBit((int) width - 1) << 1;
+      counters_ = new AtomicLongArray(SEEDS.length * width_ / COUNTERS_PER_LONG);
+      sampleSize_ = width_ / 4;
+    }
+
+    void increment(Object key) {
+      int hash = key.hashCode();
+      for (int row = 0; row < SEEDS.length; row++) {
+        int counter = indexOf(hash, row);
+        int idx = counter / COUNTERS_PER_LONG;
+        int shift = (counter % COUNTERS_PER_LONG) * BITS_PER_COUNTER;
+        long value;
+        do {
+          value = counters_.get(idx);
+        } while (((value >>> shift) & MAX_COUNT) < MAX_COUNT &&
+            !counters_.compareAndSet(idx, value, value + (1L << shift)));
+      }
+      if (numIncrements_.incrementAndGet() >= sampleSize_) age();
+    }
+
+    int frequency(Object key) {
+      int hash = key.hashCode();
+      long frequency = MAX_COUNT;
+      for (int row = 0; row < SEEDS.length; row++) {
+        int counter = indexOf(hash, row);
+        long value = counters_.get(counter / COUNTERS_PER_LONG);
+        int shift = (counter % COUNTERS_PER_LONG) * BITS_PER_COUNTER;
+        frequency = Math.min(frequency, (value >>> shift) & MAX_COUNT);
+      }
+      return (int) frequency;
+    }
+
+    /**
+     * Returns the index of the counter of 'hash' in the row 'row'.
+     */
+    private int indexOf(int hash, int row) {
+      long h = (hash + SEEDS[row]) * SEEDS[row];
+      h += h >>> 32;
+      return row * width_ + ((int) h & (width_ - 1));
+    }
+
+    private synchronized void age() {
+      if (numIncrements_.get() < sampleSize_) return;
+      for (int i = 0; i < counters_.length(); i++) {
+        counters_.set(i, (counters_.get(i) >>> 1) & HALVE_MASK);
+      }
+      numIncrements_.set(0);
+    }
+  }
+}
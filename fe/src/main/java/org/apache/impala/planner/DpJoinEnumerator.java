@@ -0,0 +1,349 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.planner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.impala.analysis.Analyzer;
+import org.apache.impala.analysis.Expr;
+import org.apache.impala.analysis.ExprId;
+import org.apache.impala.analysis.JoinOperator;
+import org.apache.impala.analysis.SlotDescriptor;
+import org.apache.impala.analysis.SlotId;
+import org.apache.impala.analysis.TableRef;
+import org.apache.impala.analysis.TupleId;
+import org.apache.impala.common.ImpalaException;
+import org.apache.impala.common.Pair;
+import org.apache.impala.planner.JoinNode.DistributionMode;
+import org.apache.impala.service.FrontendProfile;
+import org.apache.impala.thrift.TUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Sets;
+
+/**
+ * Finds the cheapest join order of a join block with dynamic programming over the
+ * connected subgraphs of its join graph (DPccp, Moerkotte and Neumann: "Analysis of
+ * Two Existing and One New Dynamic Programming Algorithm for the Generation of Optimal
+ * Bushy Join Trees without Cross Products"). The nodes of the join graph are the table
+ * refs of the join block, and two table refs are connected if there is an equi-join
+ * predicate between them. Unlike SingleNodePlanner.createCheapestJoinPlan(), this also
+ * considers bushy join trees, i.e. joins whose build side is itself a join.
+ *
+ * Each pair of connected subgraphs is joined with SingleNodePlanner.createJoinNode(),
+ * so join cardinalities are estimated exactly as for the greedy heuristic. The cost of
+ * a plan is the number of rows produced by all of its joins plus the number of rows
+ * inserted into their hash tables. The larger input of each join is placed on the
+ * probe side.
+ *
+ * Only join blocks of inner joins without join hints, subplans or missing stats are
+ * supported. For other join blocks createPlan() returns null and the caller falls back
+ * to the greedy heuristic.
+ */
+class DpJoinEnumerator {
+  private final static Logger LOG = LoggerFactory.getLogger(DpJoinEnumerator.class);
+
+  // Profile counters.
+  private static final String NUM_DP_JOIN_BLOCKS = "JoinEnumeration.DpJoinBlocks";
+  private static final String NUM_GREEDY_FALLBACKS = "JoinEnumeration.GreedyFallbacks";
+  private static final String NUM_JOIN_CANDIDATES = "JoinEnumeration.JoinCandidates";
+  private static final String DP_TIME = "JoinEnumeration.DpTime";
+  // Estimated cost of the plans chosen by dynamic programming.
+  private static final String DP_PLAN_COST = "JoinEnumeration.DpPlanCost";
+  // Estimated cost of the cheapest left-deep plans of the same join blocks.
+  private static final String LEFT_DEEP_PLAN_COST = "JoinEnumeration.LeftDeepPlanCost";
+
+  // The best plan found so far for a set of table refs.
+  private static class Entry {
+    PlanNode plan;
+    // Cost of 'plan'.
+    double cost;
+    // Cost of the cheapest left-deep plan for the same set of table refs.
+    double leftDeepCost;
+
+    Entry(PlanNode plan, double cost, double leftDeepCost) {
+      this.plan = plan;
+      this.cost = cost;
+      this.leftDeepCost = leftDeepCost;
+    }
+  }
+
+  private final SingleNodePlanner planner_;
+  private final PlannerContext ctx_;
+  private final Analyzer analyzer_;
+  private final List<Pair<TableRef, PlanNode>> refPlans_;
+  private final int numRefs_;
+
+  // Bitmask of the table refs connected to the table ref with the same index in
+  // 'refPlans_'.
+  private final long[] neighbors_;
+
+  // Best plans by bitmask of the table refs they join.
+  private final Map<Long, Entry> memo_ = new HashMap<>();
+
+  private long numJoinCandidates_ = 0;
+
+  DpJoinEnumerator(SingleNodePlanner planner, PlannerContext ctx, Analyzer analyzer,
+      List<Pair<TableRef, PlanNode>> refPlans) {
+    planner_ = planner;
+    ctx_ = ctx;
+    analyzer_ = analyzer;
+    refPlans_ = refPlans;
+    numRefs_ = refPlans.size();
+    neighbors_ = new long[numRefs_];
+  }
+
+  /**
+   * Returns true if the join order of the table refs in 'refPlans' with the given
+   * subplan refs may be found with dynamic programming, based on the
+   * JOIN_ORDER_DP_THRESHOLD query option.
+   */
+  static boolean isApplicable(Analyzer analyzer, List<Pair<TableRef, PlanNode>> refPlans,
+      List<?> subplanRefs) {
+    int threshold = analyzer.getQueryOptions().getJoin_order_dp_threshold();
+    if (threshold <= 0 || refPlans.size() < 3) return false;
+    if (refPlans.size() > threshold || !subplanRefs.isEmpty()) {
+      addToProfile(NUM_GREEDY_FALLBACKS, TUnit.UNIT, 1);
+      return false;
+    }
+    for (Pair<TableRef, PlanNode> entry: refPlans) {
+      JoinOperator joinOp = entry.first.getJoinOp();
+      if ((!joinOp.isInnerJoin() && !joinOp.isCrossJoin())
+          || entry.first.getDistributionMode() != DistributionMode.NONE
+          || entry.second.getCardinality() < 0) {
+        addToProfile(NUM_GREEDY_FALLBACKS, TUnit.UNIT, 1);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the cheapest plan joining all table refs, or null if there is none without
+   * cross joins. Leaves the conjunct assignment of the analyzer in an undefined state
+   * if null is returned.
+   */
+  PlanNode createPlan() throws ImpalaException {
+    Preconditions.checkState(numRefs_ < Long.SIZE);
+    Stopwatch sw = new Stopwatch().start();
+    // Save the join ops because createJoinNode() changes cross joins with equi-join
+    // predicates into inner joins.
+    List<JoinOperator> joinOps = new ArrayList<>();
+    for (Pair<TableRef, PlanNode> entry: refPlans_) {
+      joinOps.add(entry.first.getJoinOp());
+    }
+    buildJoinGraph();
+    for (int i = 0; i < numRefs_; ++i) {
+      memo_.put(1L << i, new Entry(refPlans_.get(i).second, 0, 0));
+    }
+    // Enumerate the connected subgraphs in the order that guarantees that the best
+    // plans of all subsets of a subgraph are known before it is joined.
+    for (int i = numRefs_ - 1; i >= 0; --i) {
+      long vertex = 1L << i;
+      emitCsg(vertex);
+      enumerateCsgRec(vertex, lowerOrEqual(i));
+    }
+    Entry result = memo_.get(lowerOrEqual(numRefs_ - 1));
+    sw.stop();
+
+    addToProfile(DP_TIME, TUnit.TIME_NS, sw.elapsed(TimeUnit.NANOSECONDS));
+    addToProfile(NUM_JOIN_CANDIDATES, TUnit.UNIT, numJoinCandidates_);
+    if (result == null) {
+      // The join graph is not connected.
+      for (int i = 0; i < numRefs_; ++i) refPlans_.get(i).first.setJoinOp(joinOps.get(i));
+      addToProfile(NUM_GREEDY_FALLBACKS, TUnit.UNIT, 1);
+      return null;
+    }
+    addToProfile(NUM_DP_JOIN_BLOCKS, TUnit.UNIT, 1);
+    addToProfile(DP_PLAN_COST, TUnit.UNIT, (long) result.cost);
+    addToProfile(LEFT_DEEP_PLAN_COST, TUnit.UNIT, (long) result.leftDeepCost);
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("DP join plan cost=" + result.cost + " left-deep cost="
+          + result.leftDeepCost + " #candidates=" + numJoinCandidates_);
+    }
+
+    // Assign node ids bottom-up to end up with a dense sequence of node ids.
+    Set<PlanNode> basePlans = Sets.newIdentityHashSet();
+    for (Pair<TableRef, PlanNode> entry: refPlans_) basePlans.add(entry.second);
+    assignNodeIds(result.plan, basePlans);
+    analyzer_.setAssignedConjuncts(result.plan.getAssignedConjuncts());
+    return result.plan;
+  }
+
+  /**
+   * Computes 'neighbors_' from the equi-join predicates between the table refs.
+   */
+  private void buildJoinGraph() {
+    for (int i = 0; i < numRefs_; ++i) {
+      for (int j = i + 1; j < numRefs_; ++j) {
+        if (hasEqJoinConjuncts(refPlans_.get(i).second.getTblRefIds(),
+            refPlans_.get(j).second.getTblRefIds())) {
+          neighbors_[i] |= 1L << j;
+          neighbors_[j] |= 1L << i;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns true if the tuples in 'lhsIds' and 'rhsIds' may be joined with an equi-join
+   * predicate, either given in the query or derived from slot equivalences. Does not
+   * change the conjunct assignment.
+   */
+  private boolean hasEqJoinConjuncts(List<TupleId> lhsIds, List<TupleId> rhsIds) {
+    for (Expr e: analyzer_.getEqJoinConjuncts(lhsIds, rhsIds)) {
+      if (SingleNodePlanner.getNormalizedEqPred(e, lhsIds, rhsIds, analyzer_) != null) {
+        return true;
+      }
+    }
+    Set<TupleId> lhsIdSet = new HashSet<>(lhsIds);
+    for (TupleId rhsId: rhsIds) {
+      for (SlotDescriptor slotDesc: analyzer_.getTupleDesc(rhsId).getSlots()) {
+        for (SlotId sid: analyzer_.getEquivClass(slotDesc.getId())) {
+          if (lhsIdSet.contains(analyzer_.getTupleId(sid))) return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void enumerateCsgRec(long subgraph, long excluded) throws ImpalaException {
+    long neighborhood = getNeighborhood(subgraph) & ~excluded;
+    if (neighborhood == 0) return;
+    for (long s = neighborhood; s != 0; s = (s - 1) & neighborhood) {
+      emitCsg(subgraph | s);
+    }
+    for (long s = neighborhood; s != 0; s = (s - 1) & neighborhood) {
+      enumerateCsgRec(subgraph | s, excluded | neighborhood);
+    }
+  }
+
+  /**
+   * Joins the connected subgraph 's1' with all connected subgraphs that are connected
+   * to it and only contain table refs with a higher index than the lowest one in 's1'.
+   */
+  private void emitCsg(long s1) throws ImpalaException {
+    long excluded = lowerOrEqual(Long.numberOfTrailingZeros(s1)) | s1;
+    long neighborhood = getNeighborhood(s1) & ~excluded;
+    for (int i = numRefs_ - 1; i >= 0; --i) {
+      long vertex = 1L << i;
+      if ((neighborhood & vertex) == 0) continue;
+      emitCsgCmp(s1, vertex);
+      enumerateCmpRec(s1, vertex, excluded | (neighborhood & lowerOrEqual(i)));
+    }
+  }
+
+  private void enumerateCmpRec(long s1, long s2, long excluded) throws ImpalaException {
+    long neighborhood = getNeighborhood(s2) & ~excluded;
+    if (neighborhood == 0) return;
+    for (long s = neighborhood; s != 0; s = (s - 1) & neighborhood) {
+      emitCsgCmp(s1, s2 | s);
+    }
+    for (long s = neighborhood; s != 0; s = (s - 1) & neighborhood) {
+      enumerateCmpRec(s1, s2 | s, excluded | neighborhood);
+    }
+  }
+
+  /**
+   * Joins the best plans of the connected subgraphs 's1' and 's2' and records the
+   * result if it is the best plan for their union.
+   */
+  private void emitCsgCmp(long s1, long s2) throws ImpalaException {
+    Entry e1 = memo_.get(s1);
+    Entry e2 = memo_.get(s2);
+    if (e1 == null || e2 == null) return;
+    PlanNode outer = e1.plan;
+    PlanNode inner = e2.plan;
+    long innerSet = s2;
+    if (getMaterializedSize(inner) > getMaterializedSize(outer)) {
+      outer = e2.plan;
+      inner = e1.plan;
+      innerSet = s1;
+    }
+    TableRef innerRef = refPlans_.get(Long.numberOfTrailingZeros(innerSet)).first;
+    Set<ExprId> assignedConjuncts = Sets.newHashSet(outer.getAssignedConjuncts());
+    assignedConjuncts.addAll(inner.getAssignedConjuncts());
+    analyzer_.setAssignedConjuncts(assignedConjuncts);
+    PlanNode join = planner_.createJoinNode(outer, inner, innerRef, analyzer_);
+    ++numJoinCandidates_;
+    // Always prefer Hash Join over Nested-Loop Join due to limited costing
+    // infrastructure.
+    if (!(join instanceof HashJoinNode) || join.getCardinality() < 0) return;
+
+    double joinCost = join.getCardinality() + inner.getCardinality();
+    double cost = e1.cost + e2.cost + joinCost;
+    // A join with a single table ref on one side extends a left-deep plan of the
+    // other side.
+    double leftDeepCost = Double.MAX_VALUE;
+    if (Long.bitCount(s2) == 1) leftDeepCost = e1.leftDeepCost + joinCost;
+    if (Long.bitCount(s1) == 1) {
+      leftDeepCost = Math.min(leftDeepCost, e2.leftDeepCost + joinCost);
+    }
+
+    long s = s1 | s2;
+    Entry entry = memo_.get(s);
+    if (entry == null) {
+      memo_.put(s, new Entry(join, cost, leftDeepCost));
+      return;
+    }
+    if (cost < entry.cost) {
+      entry.plan = join;
+      entry.cost = cost;
+    }
+    entry.leftDeepCost = Math.min(entry.leftDeepCost, leftDeepCost);
+  }
+
+  private long getNeighborhood(long subgraph) {
+    long result = 0;
+    for (long s = subgraph; s != 0; s &= s - 1) {
+      result |= neighbors_[Long.numberOfTrailingZeros(s)];
+    }
+    return result & ~subgraph;
+  }
+
+  /**
+   * Returns the bitmask of all table refs with an index of at most 'i'.
+   */
+  private static long lowerOrEqual(int i) {
+    return i >= Long.SIZE - 1 ? -1L : (1L << (i + 1)) - 1;
+  }
+
+  private static double getMaterializedSize(PlanNode plan) {
+    return plan.getAvgRowSize() * (double) plan.getCardinality();
+  }
+
+  private void assignNodeIds(PlanNode node, Set<PlanNode> basePlans) {
+    if (basePlans.contains(node)) return;
+    for (PlanNode child: node.getChildren()) assignNodeIds(child, basePlans);
+    node.setId(ctx_.getNextNodeId());
+  }
+
+  private static void addToProfile(String name, TUnit unit, long delta) {
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile != null) profile.addToCounter(name, unit, delta);
+  }
+}
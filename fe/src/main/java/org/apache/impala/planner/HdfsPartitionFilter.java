@@ -57,6 +57,10 @@ public class HdfsPartitionFilter {
   // indices into Table.getColumnNames()
   private final List<Integer> refdKeys_ = new ArrayList<>();
 
+  // Evaluates predicate_ in the frontend. Null if the predicate has to be evaluated in
+  // the backend.
+  private final PartitionPredicateEvaluator evaluator_;
+
   public HdfsPartitionFilter(Expr predicate, FeFsTable tbl, Analyzer analyzer) {
     predicate_ = predicate;
 
@@ -78,6 +82,22 @@ public class HdfsPartitionFilter {
       }
     }
     Preconditions.checkState(lhsSlotRefs_.size() == refdKeys_.size());
+    evaluator_ = PartitionPredicateEvaluator.create(predicate, tbl);
+  }
+
+  /**
+   * Returns true if the filter can be evaluated in the frontend with evaluate().
+   */
+  public boolean canEvaluateInFe() { return evaluator_ != null; }
+
+  /**
+   * Evaluates the filter against a partition in the frontend. Returns null if the
+   * filter has to be evaluated for this partition in the backend with
+   * getMatchingPartitionIds(). Thread-safe.
+   */
+  public Boolean evaluate(PrunablePartition partition) {
+    Preconditions.checkState(evaluator_ != null);
+    return evaluator_.evaluate(partition.getPartitionValues());
   }
 
   /**
@@ -25,6 +25,10 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.impala.analysis.Analyzer;
 import org.apache.impala.analysis.BetweenPredicate;
@@ -39,14 +43,19 @@ import org.apache.impala.analysis.NullLiteral;
 import org.apache.impala.analysis.SlotId;
 import org.apache.impala.analysis.SlotRef;
 import org.apache.impala.analysis.TupleDescriptor;
+import org.apache.impala.analysis.TupleId;
 import org.apache.impala.catalog.FeFsPartition;
 import org.apache.impala.catalog.FeFsTable;
 import org.apache.impala.catalog.PrunablePartition;
 import org.apache.impala.common.AnalysisException;
 import org.apache.impala.common.ImpalaException;
+import org.apache.impala.common.InternalException;
 import org.apache.impala.common.Pair;
+import org.apache.impala.common.PrintUtils;
 import org.apache.impala.rewrite.BetweenToCompoundRule;
 import org.apache.impala.rewrite.ExprRewriter;
+import org.apache.impala.service.FrontendProfile;
+import org.apache.impala.thrift.TUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +65,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
 /**
@@ -73,6 +83,11 @@ import com.google.common.collect.Sets;
  * not all users of this class require the resulting partitions to be serialized, e.g.,
  * DDL commands.
  * It is up to the user of this class to mark referenced partitions as needed.
+ *
+ * Conjuncts that cannot be evaluated from the partition key values are evaluated by
+ * HdfsPartitionFilters. Where possible they are evaluated in the frontend, in parallel
+ * over chunks of the candidate partitions. Only the filters, or the partitions, that
+ * the frontend cannot evaluate exactly are sent to the BE.
  */
 public class HdfsPartitionPruner {
 
@@ -81,7 +96,26 @@ public class HdfsPartitionPruner {
   // Partition batch size used during partition pruning.
   private final static int PARTITION_PRUNING_BATCH_SIZE = 1024;
 
+  // Maximum number of candidate partitions that are speculatively prefetched before
+  // the partition filters are evaluated in the BE. Beyond this, the filters might
+  // prune most of the partitions and the prefetch would mostly be wasted.
+  private final static int MAX_SPECULATIVE_PREFETCH_PARTITIONS = 1024;
+
+  // Names of the frontend profile counters that aggregate the pruning work over all
+  // scans of a query.
+  private final static String PRUNING_TIME = "PartitionPruning.Time";
+  private final static String NUM_BE_PARTITIONS = "PartitionPruning.NumBePartitions";
+
+  // Threads that evaluate partition filters in the frontend. Shared by all queries.
+  private final static ExecutorService PRUNING_POOL = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(),
+      new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("partition-pruning-%d")
+          .build());
+
   private final FeFsTable tbl_;
+  private final TupleId tupleId_;
   private final List<SlotId> partitionSlots_;
 
   // For converting BetweenPredicates to CompoundPredicates so they can be
@@ -92,8 +126,8 @@ public class HdfsPartitionPruner {
   public HdfsPartitionPruner(TupleDescriptor tupleDesc) {
     Preconditions.checkState(tupleDesc.getTable() instanceof FeFsTable);
     tbl_ = (FeFsTable)tupleDesc.getTable();
+    tupleId_ = tupleDesc.getId();
     partitionSlots_ = tupleDesc.getPartitionSlots();
-
   }
 
   /**
@@ -107,6 +141,8 @@ public class HdfsPartitionPruner {
   public Pair<List<? extends FeFsPartition>, List<Expr>> prunePartitions(
       Analyzer analyzer, List<Expr> conjuncts, boolean allowEmpty)
       throws ImpalaException {
+    long startTime = System.nanoTime();
+    int numPartitions = tbl_.getPartitionIds().size();
     // Start with creating a collection of partition filters for the applicable conjuncts.
     List<HdfsPartitionFilter> partitionFilters = new ArrayList<>();
     // Conjuncts that can be evaluated from the partition key values.
@@ -159,8 +195,21 @@ public class HdfsPartitionPruner {
       matchingPartitionIds = Sets.newHashSet(tbl_.getPartitionIds());
     }
 
-    // Evaluate the 'complex' partition filters in the BE.
-    evalPartitionFiltersInBe(partitionFilters, matchingPartitionIds, analyzer);
+    // Evaluating the 'complex' partition filters in the BE may take a while. Start
+    // loading the candidate partitions in the meantime, which is a superset of the
+    // partitions that will be returned.
+    if (!partitionFilters.isEmpty() &&
+        matchingPartitionIds.size() <= MAX_SPECULATIVE_PREFETCH_PARTITIONS) {
+      tbl_.prefetchPartitions(matchingPartitionIds);
+    }
+
+    // Evaluate the 'complex' partition filters.
+    int numBePartitions =
+        evalPartitionFilters(partitionFilters, matchingPartitionIds, analyzer);
+    if (!partitionConjuncts.isEmpty()) {
+      addPruningToProfile(System.nanoTime() - startTime, matchingPartitionIds.size(),
+          numPartitions, partitionFilters, numBePartitions);
+    }
 
     // Populate the list of valid, non-empty partitions to process
     List<? extends FeFsPartition> results = tbl_.loadPartitions(
@@ -455,39 +504,129 @@ public class HdfsPartitionPruner {
   }
 
   /**
-   * Evaluate a list of HdfsPartitionFilters in the BE. These are 'complex'
-   * filters that could not be evaluated from the partition key values.
+   * Evaluate a list of HdfsPartitionFilters. These are 'complex' filters that could not
+   * be evaluated from the partition key values. Removes the ids of the partitions that
+   * do not pass all filters from 'matchingPartitionIds'. Returns the number of
+   * partitions for which a filter was evaluated in the BE.
    */
-  private void evalPartitionFiltersInBe(List<HdfsPartitionFilter> filters,
+  private int evalPartitionFilters(List<HdfsPartitionFilter> filters,
       Set<Long> matchingPartitionIds, Analyzer analyzer) throws ImpalaException {
     Map<Long, ? extends PrunablePartition> partitionMap = tbl_.getPartitionMap();
-    // Set of partition ids that pass a filter
-    Set<Long> matchingIds = new HashSet<>();
-    // Batch of partitions
-    List<PrunablePartition> partitionBatch = new ArrayList<>();
-    // Identify the partitions that pass all filters.
+    int numBePartitions = 0;
     for (HdfsPartitionFilter filter: filters) {
-      // Iterate through the currently valid partitions
+      // Collect the currently valid partitions
+      List<PrunablePartition> partitions = new ArrayList<>(matchingPartitionIds.size());
       for (Long id: matchingPartitionIds) {
         PrunablePartition p = partitionMap.get(id);
         Preconditions.checkState(
             p.getPartitionValues().size() == tbl_.getNumClusteringCols());
-        // Add the partition to the current batch
-        partitionBatch.add(partitionMap.get(id));
-        if (partitionBatch.size() == PARTITION_PRUNING_BATCH_SIZE) {
-          // Batch is full. Evaluate the predicates of this batch in the BE.
-          matchingIds.addAll(filter.getMatchingPartitionIds(partitionBatch, analyzer));
-          partitionBatch.clear();
-        }
+        partitions.add(p);
       }
-      // Check if there are any unprocessed partitions.
-      if (!partitionBatch.isEmpty()) {
-        matchingIds.addAll(filter.getMatchingPartitionIds(partitionBatch, analyzer));
-        partitionBatch.clear();
+      // Set of partition ids that pass the filter
+      Set<Long> matchingIds = new HashSet<>();
+      List<PrunablePartition> bePartitions = partitions;
+      if (filter.canEvaluateInFe()) {
+        bePartitions = new ArrayList<>();
+        evalPartitionFilterInFe(filter, partitions, matchingIds, bePartitions);
       }
+      matchingIds.addAll(evalPartitionFilterInBe(filter, bePartitions, analyzer));
+      numBePartitions += bePartitions.size();
       // Prune the partitions ids that didn't pass the filter
       matchingPartitionIds.retainAll(matchingIds);
-      matchingIds.clear();
     }
+    return numBePartitions;
+  }
+
+  /**
+   * Evaluates 'filter' in the frontend against 'partitions', which are split into
+   * chunks that are evaluated in parallel. Adds the ids of the matching partitions to
+   * 'matchingIds' and the partitions the frontend could not evaluate to
+   * 'bePartitions'.
+   */
+  private void evalPartitionFilterInFe(final HdfsPartitionFilter filter,
+      List<PrunablePartition> partitions, Set<Long> matchingIds,
+      List<PrunablePartition> bePartitions) throws ImpalaException {
+    List<List<PrunablePartition>> chunks =
+        Lists.partition(partitions, PARTITION_PRUNING_BATCH_SIZE);
+    if (chunks.size() <= 1) {
+      for (List<PrunablePartition> chunk: chunks) {
+        evalChunkInFe(filter, chunk, matchingIds, bePartitions);
+      }
+      return;
+    }
+    List<Future<Pair<Set<Long>, List<PrunablePartition>>>> futures =
+        new ArrayList<>(chunks.size());
+    for (final List<PrunablePartition> chunk: chunks) {
+      futures.add(PRUNING_POOL.submit(() -> {
+        Pair<Set<Long>, List<PrunablePartition>> result =
+            new Pair<>(new HashSet<>(), new ArrayList<>());
+        evalChunkInFe(filter, chunk, result.first, result.second);
+        return result;
+      }));
+    }
+    try {
+      for (Future<Pair<Set<Long>, List<PrunablePartition>>> future: futures) {
+        Pair<Set<Long>, List<PrunablePartition>> result = future.get();
+        matchingIds.addAll(result.first);
+        bePartitions.addAll(result.second);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalException("Interrupted while pruning partitions", e);
+    } catch (ExecutionException e) {
+      throw new InternalException("Error pruning partitions: " + e.getMessage(),
+          e.getCause());
+    } finally {
+      for (Future<?> future: futures) future.cancel(true);
+    }
+  }
+
+  private static void evalChunkInFe(HdfsPartitionFilter filter,
+      List<PrunablePartition> chunk, Set<Long> matchingIds,
+      List<PrunablePartition> bePartitions) {
+    for (PrunablePartition p: chunk) {
+      Boolean result = filter.evaluate(p);
+      if (result == null) {
+        bePartitions.add(p);
+      } else if (result) {
+        matchingIds.add(p.getId());
+      }
+    }
+  }
+
+  /**
+   * Evaluates 'filter' in the BE against 'partitions' in batches and returns the ids
+   * of the matching partitions.
+   */
+  private Set<Long> evalPartitionFilterInBe(HdfsPartitionFilter filter,
+      List<PrunablePartition> partitions, Analyzer analyzer) throws ImpalaException {
+    Set<Long> matchingIds = new HashSet<>();
+    for (List<PrunablePartition> batch:
+        Lists.partition(partitions, PARTITION_PRUNING_BATCH_SIZE)) {
+      matchingIds.addAll(filter.getMatchingPartitionIds(batch, analyzer));
+    }
+    return matchingIds;
+  }
+
+  /**
+   * Records the pruning of this scan in the frontend profile, if there is one. DDL
+   * statements also prune partitions without a profile.
+   */
+  private void addPruningToProfile(long timeNs, int numSelected, int numPartitions,
+      List<HdfsPartitionFilter> filters, int numBePartitions) {
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile == null) return;
+    int numFeFilters = 0;
+    for (HdfsPartitionFilter filter: filters) {
+      if (filter.canEvaluateInFe()) ++numFeFilters;
+    }
+    profile.addInfoString(
+        String.format("Partition pruning %s (tuple %s)", tbl_.getFullName(), tupleId_),
+        String.format("%s, selected %d of %d partitions, %d FE filters, %d BE filters, " +
+            "%d partitions evaluated in the BE", PrintUtils.printTimeNs(timeNs),
+            numSelected, numPartitions, numFeFilters, filters.size() - numFeFilters,
+            numBePartitions));
+    profile.addToCounter(PRUNING_TIME, TUnit.TIME_NS, timeNs);
+    profile.addToCounter(NUM_BE_PARTITIONS, TUnit.UNIT, numBePartitions);
   }
 }
@@ -0,0 +1,568 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.apache.impala.analysis.ArithmeticExpr;
+import org.apache.impala.analysis.BinaryPredicate;
+import org.apache.impala.analysis.BoolLiteral;
+import org.apache.impala.analysis.CastExpr;
+import org.apache.impala.analysis.CompoundPredicate;
+import org.apache.impala.analysis.Expr;
+import org.apache.impala.analysis.FunctionCallExpr;
+import org.apache.impala.analysis.InPredicate;
+import org.apache.impala.analysis.IsNullPredicate;
+import org.apache.impala.analysis.LikePredicate;
+import org.apache.impala.analysis.LiteralExpr;
+import org.apache.impala.analysis.NullLiteral;
+import org.apache.impala.analysis.NumericLiteral;
+import org.apache.impala.analysis.SlotRef;
+import org.apache.impala.analysis.StringLiteral;
+import org.apache.impala.catalog.Column;
+import org.apache.impala.catalog.FeFsTable;
+import org.apache.impala.catalog.Function;
+import org.apache.impala.catalog.PrimitiveType;
+import org.apache.impala.catalog.Type;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Evaluates a predicate on the partition columns of an HDFS table in the frontend,
+ * without serializing it to the backend. Supports the common shapes of partition
+ * predicates: comparisons, [NOT] IN, IS [NOT] NULL, AND/OR/NOT, [I]LIKE, arithmetic,
+ * casts between integer and string types, and the string functions substr(), length(),
+ * lower(), upper(), trim(), ltrim(), rtrim() and concat() over integer, DOUBLE, STRING
+ * and BOOLEAN values.
+ *
+ * The result must be exactly the one of the backend. For values for which the Java
+ * semantics may differ, e.g. non-ASCII strings or integer overflows, evaluate() returns
+ * null and the caller has to evaluate the predicate for the partition in the backend.
+ *
+ * Instances are immutable and may be used by several threads at the same time.
+ */
+public class PartitionPredicateEvaluator {
+  // Result of a node whose value may differ from the backend's.
+  private static final Object UNKNOWN = new Object();
+
+  // Compiled expr. Returns the value of the expr for the given partition key values, with
+  // SQL NULL represented as null. Values of integer types are Longs, DOUBLE values are
+  // Doubles, STRING values are Strings and BOOLEAN values are Booleans.
+  private interface Node {
+    Object eval(List<LiteralExpr> partitionValues);
+  }
+
+  private final Node root_;
+
+  private PartitionPredicateEvaluator(Node root) { root_ = root; }
+
+  /**
+   * Returns an evaluator for 'predicate' on the partition columns of 'tbl', or null if
+   * the predicate contains exprs that are not supported.
+   */
+  public static PartitionPredicateEvaluator create(Expr predicate, FeFsTable tbl) {
+    Preconditions.checkState(predicate.getType().isBoolean());
+    Node root = compile(predicate, tbl);
+    return root == null ? null : new PartitionPredicateEvaluator(root);
+  }
+
+  /**
+   * Returns true if the predicate is true for a partition with the given partition key
+   * values, false if it is false or NULL, or null if the predicate has to be evaluated
+   * in the backend.
+   */
+  public Boolean evaluate(List<LiteralExpr> partitionValues) {
+    Object result = root_.eval(partitionValues);
+    if (result == UNKNOWN) return null;
+    return result == Boolean.TRUE;
+  }
+
+  private static boolean isSupportedType(Type type) {
+    return type.isIntegerType() || type.isBoolean()
+        || type.isScalarType(PrimitiveType.DOUBLE)
+        || type.isScalarType(PrimitiveType.STRING);
+  }
+
+  private static Node compile(Expr expr, FeFsTable tbl) {
+    if (!isSupportedType(expr.getType())) return null;
+    List<Node> children = new ArrayList<>();
+    for (Expr child: expr.getChildren()) {
+      // Functions may take types that are not supported as return types, e.g. the
+      // pattern of LIKE, but all supported exprs only have children of supported types.
+      Node node = compile(child, tbl);
+      if (node == null) return null;
+      children.add(node);
+    }
+    if (expr instanceof LiteralExpr) {
+      final Object value = toValue((LiteralExpr) expr, expr.getType());
+      if (value == UNKNOWN) return null;
+      return new Node() {
+        @Override
+        public Object eval(List<LiteralExpr> partitionValues) { return value; }
+      };
+    } else if (expr instanceof SlotRef) {
+      return compileSlotRef((SlotRef) expr, tbl);
+    } else if (expr instanceof CastExpr) {
+      return compileCast(expr.getChild(0).getType(), expr.getType(), children.get(0));
+    } else if (expr instanceof BinaryPredicate) {
+      return compileComparison(
+          ((BinaryPredicate) expr).getOp(), children.get(0), children.get(1));
+    } else if (expr instanceof CompoundPredicate) {
+      return compileCompound((CompoundPredicate) expr, children);
+    } else if (expr instanceof IsNullPredicate) {
+      final boolean isNotNull = ((IsNullPredicate) expr).isNotNull();
+      final Node child = children.get(0);
+      return new Node() {
+        @Override
+        public Object eval(List<LiteralExpr> partitionValues) {
+          Object value = child.eval(partitionValues);
+          if (value == UNKNOWN) return UNKNOWN;
+          return (value == null) != isNotNull;
+        }
+      };
+    } else if (expr instanceof InPredicate) {
+      return compileIn(((InPredicate) expr).isNotIn(), children);
+    } else if (expr instanceof LikePredicate) {
+      return compileLike((LikePredicate) expr, children.get(0));
+    } else if (expr instanceof ArithmeticExpr) {
+      return compileArithmetic((ArithmeticExpr) expr, children);
+    } else if (expr instanceof FunctionCallExpr) {
+      return compileFunctionCall((FunctionCallExpr) expr, children);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the value of 'literal' as seen by the backend, or UNKNOWN if its type is not
+   * supported.
+   */
+  private static Object toValue(LiteralExpr literal, Type type) {
+    if (literal instanceof NullLiteral) return null;
+    if (type.isIntegerType() && literal instanceof NumericLiteral) {
+      return ((NumericLiteral) literal).getLongValue();
+    }
+    if (type.isScalarType(PrimitiveType.DOUBLE) && literal instanceof NumericLiteral) {
+      return ((NumericLiteral) literal).getDoubleValue();
+    }
+    if (type.isScalarType(PrimitiveType.STRING) && literal instanceof StringLiteral) {
+      return ((StringLiteral) literal).getBackendValue();
+    }
+    if (type.isBoolean() && literal instanceof BoolLiteral) {
+      return ((BoolLiteral) literal).getValue();
+    }
+    return UNKNOWN;
+  }
+
+  private static Node compileSlotRef(SlotRef slotRef, FeFsTable tbl) {
+    if (slotRef.getDesc() == null) return null;
+    Column col = slotRef.getDesc().getColumn();
+    if (col == null || col.getPosition() >= tbl.getNumClusteringCols()) return null;
+    final int pos = col.getPosition();
+    final Type type = slotRef.getType();
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        return toValue(partitionValues.get(pos), type);
+      }
+    };
+  }
+
+  private static Node compileCast(Type fromType, final Type toType, final Node child) {
+    if (fromType.equals(toType)) return child;
+    if (fromType.isIntegerType() && (toType.isIntegerType()
+        || toType.isScalarType(PrimitiveType.DOUBLE)
+        || toType.isScalarType(PrimitiveType.STRING))) {
+      return new Node() {
+        @Override
+        public Object eval(List<LiteralExpr> partitionValues) {
+          Object value = child.eval(partitionValues);
+          if (value == null || value == UNKNOWN) return value;
+          long v = (Long) value;
+          switch (toType.getPrimitiveType()) {
+            // Narrowing casts truncate the value like the backend.
+            case TINYINT: return (long) (byte) v;
+            case SMALLINT: return (long) (short) v;
+            case INT: return (long) (int) v;
+            case BIGINT: return v;
+            case DOUBLE: return (double) v;
+            case STRING: return Long.toString(v);
+            default: return UNKNOWN;
+          }
+        }
+      };
+    }
+    if (fromType.isScalarType(PrimitiveType.STRING) && toType.isIntegerType()) {
+      return new Node() {
+        @Override
+        public Object eval(List<LiteralExpr> partitionValues) {
+          Object value = child.eval(partitionValues);
+          if (value == null || value == UNKNOWN) return value;
+          return parseInteger((String) value, toType);
+        }
+      };
+    }
+    return null;
+  }
+
+  // Strings that are converted to integers in Java. Leading and trailing whitespace and
+  // values that may overflow a BIGINT are left to the backend.
+  private static final Pattern INTEGER_PATTERN = Pattern.compile("[+-]?[0-9]{1,18}");
+
+  private static Object parseInteger(String str, Type type) {
+    if (!INTEGER_PATTERN.matcher(str).matches()) return UNKNOWN;
+    long v = Long.parseLong(str);
+    long minValue;
+    long maxValue;
+    switch (type.getPrimitiveType()) {
+      case TINYINT: minValue = Byte.MIN_VALUE; maxValue = Byte.MAX_VALUE; break;
+      case SMALLINT: minValue = Short.MIN_VALUE; maxValue = Short.MAX_VALUE; break;
+      case INT: minValue = Integer.MIN_VALUE; maxValue = Integer.MAX_VALUE; break;
+      default: return v;
+    }
+    return v >= minValue && v <= maxValue ? v : UNKNOWN;
+  }
+
+  /**
+   * Compares two non-null values of the same type. Returns null if the comparison may
+   * differ from the backend, which compares strings byte-wise.
+   */
+  private static Integer compare(Object lhs, Object rhs) {
+    if (lhs instanceof String) {
+      if (!isAscii((String) lhs) || !isAscii((String) rhs)) return null;
+      return Integer.signum(((String) lhs).compareTo((String) rhs));
+    }
+    if (lhs instanceof Double) {
+      double l = (Double) lhs;
+      double r = (Double) rhs;
+      // NaN is left to the backend, see compileComparison().
+      if (Double.isNaN(l) || Double.isNaN(r)) return null;
+      return l < r ? -1 : (l > r ? 1 : 0);
+    }
+    if (lhs instanceof Long) return Long.compare((Long) lhs, (Long) rhs);
+    return Boolean.compare((Boolean) lhs, (Boolean) rhs);
+  }
+
+  /**
+   * Returns true if two non-null values of the same type are equal. Equal strings have
+   * equal bytes, so unlike compare() this also works for non-ASCII strings.
+   */
+  private static boolean valueEquals(Object lhs, Object rhs) {
+    // Double.equals() would tell 0.0 and -0.0 apart.
+    if (lhs instanceof Double) return ((Double) lhs).doubleValue() == (Double) rhs;
+    return lhs.equals(rhs);
+  }
+
+  private static boolean isAscii(String str) {
+    for (int i = 0; i < str.length(); ++i) {
+      if (str.charAt(i) > 127) return false;
+    }
+    return true;
+  }
+
+  private static Node compileComparison(final BinaryPredicate.Operator op,
+      final Node lhs, final Node rhs) {
+    switch (op) {
+      case EQ: case NE: case LT: case LE: case GT: case GE: case DISTINCT_FROM:
+      case NOT_DISTINCT:
+        break;
+      default: return null;
+    }
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        Object l = lhs.eval(partitionValues);
+        Object r = rhs.eval(partitionValues);
+        if (l == UNKNOWN || r == UNKNOWN) return UNKNOWN;
+        if (l == null || r == null) {
+          if (op == BinaryPredicate.Operator.NOT_DISTINCT) return l == r;
+          if (op == BinaryPredicate.Operator.DISTINCT_FROM) return l != r;
+          return null;
+        }
+        if (l instanceof Double
+            && (Double.isNaN((Double) l) || Double.isNaN((Double) r))) {
+          // Leave the IEEE semantics of NaN to the backend.
+          return UNKNOWN;
+        }
+        if (op == BinaryPredicate.Operator.EQ || op == BinaryPredicate.Operator.NE
+            || op == BinaryPredicate.Operator.NOT_DISTINCT
+            || op == BinaryPredicate.Operator.DISTINCT_FROM) {
+          boolean equal = valueEquals(l, r);
+          return op == BinaryPredicate.Operator.EQ
+              || op == BinaryPredicate.Operator.NOT_DISTINCT ? equal : !equal;
+        }
+        Integer cmp = compare(l, r);
+        if (cmp == null) return UNKNOWN;
+        switch (op) {
+          case LT: return cmp < 0;
+          case LE: return cmp <= 0;
+          case GT: return cmp > 0;
+          case GE: return cmp >= 0;
+          default: return UNKNOWN;
+        }
+      }
+    };
+  }
+
+  private static Node compileCompound(CompoundPredicate pred, final List<Node> children) {
+    final CompoundPredicate.Operator op = pred.getOp();
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        Object lhs = children.get(0).eval(partitionValues);
+        if (op == CompoundPredicate.Operator.NOT) {
+          if (lhs == null || lhs == UNKNOWN) return lhs;
+          return !((Boolean) lhs);
+        }
+        // Short-circuit like the backend.
+        boolean isAnd = op == CompoundPredicate.Operator.AND;
+        if (lhs == Boolean.valueOf(!isAnd)) return lhs;
+        Object rhs = children.get(1).eval(partitionValues);
+        if (rhs == Boolean.valueOf(!isAnd)) return rhs;
+        if (lhs == UNKNOWN || rhs == UNKNOWN) return UNKNOWN;
+        if (lhs == null || rhs == null) return null;
+        return isAnd;
+      }
+    };
+  }
+
+  private static Node compileIn(final boolean isNotIn, final List<Node> children) {
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        Object value = children.get(0).eval(partitionValues);
+        if (value == null || value == UNKNOWN) return value;
+        if (value instanceof Double && Double.isNaN((Double) value)) return UNKNOWN;
+        boolean hasNull = false;
+        for (int i = 1; i < children.size(); ++i) {
+          Object v = children.get(i).eval(partitionValues);
+          if (v == UNKNOWN) return UNKNOWN;
+          if (v == null) {
+            hasNull = true;
+          } else if (valueEquals(value, v)) {
+            return !isNotIn;
+          }
+        }
+        return hasNull ? null : isNotIn;
+      }
+    };
+  }
+
+  private static Node compileLike(LikePredicate pred, final Node child) {
+    boolean caseInsensitive;
+    switch (pred.getOp()) {
+      case LIKE: caseInsensitive = false; break;
+      case ILIKE: caseInsensitive = true; break;
+      // The regex dialects of Java and the backend differ.
+      default: return null;
+    }
+    if (!(pred.getChild(1) instanceof StringLiteral)) return null;
+    String likePattern = ((StringLiteral) pred.getChild(1)).getBackendValue();
+    if (!isAscii(likePattern)) return null;
+    int flags = Pattern.DOTALL | (caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+    final Pattern pattern = Pattern.compile(convertLikePattern(likePattern), flags);
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        Object value = child.eval(partitionValues);
+        if (value == null || value == UNKNOWN) return value;
+        if (!isAscii((String) value)) return UNKNOWN;
+        return pattern.matcher((String) value).matches();
+      }
+    };
+  }
+
+  /**
+   * Converts a LIKE pattern into a Java regex like LikePredicate::ConvertLikePattern()
+   * in the backend: '%' and '_' are wildcards unless escaped by a backslash, and all
+   * other characters match themselves.
+   */
+  static String convertLikePattern(String likePattern) {
+    StringBuilder sb = new StringBuilder();
+    boolean isEscaped = false;
+    for (int i = 0; i < likePattern.length(); ++i) {
+      char c = likePattern.charAt(i);
+      if (!isEscaped && c == '%') {
+        sb.append(".*");
+      } else if (!isEscaped && c == '_') {
+        sb.append('.');
+      } else if (!isEscaped && c == '\\') {
+        isEscaped = true;
+      } else {
+        // A backslash before a non-alphanumeric character matches that character.
+        if (!Character.isLetterOrDigit(c)) sb.append('\\');
+        sb.append(c);
+        isEscaped = false;
+      }
+    }
+    return sb.toString();
+  }
+
+  private static Node compileArithmetic(ArithmeticExpr expr, final List<Node> children) {
+    if (children.size() != 2) return null;
+    final ArithmeticExpr.Operator op = expr.getOp();
+    final Type type = expr.getType();
+    if (type.isIntegerType()) {
+      switch (op) {
+        case ADD: case SUBTRACT: case MULTIPLY: case INT_DIVIDE: case MOD: break;
+        default: return null;
+      }
+    } else if (type.isScalarType(PrimitiveType.DOUBLE)) {
+      switch (op) {
+        case ADD: case SUBTRACT: case MULTIPLY: case DIVIDE: break;
+        default: return null;
+      }
+    } else {
+      return null;
+    }
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        Object lhs = children.get(0).eval(partitionValues);
+        Object rhs = children.get(1).eval(partitionValues);
+        if (lhs == UNKNOWN || rhs == UNKNOWN) return UNKNOWN;
+        if (lhs == null || rhs == null) return null;
+        if (lhs instanceof Double) {
+          double l = (Double) lhs;
+          double r = (Double) rhs;
+          switch (op) {
+            case ADD: return l + r;
+            case SUBTRACT: return l - r;
+            case MULTIPLY: return l * r;
+            // Division by zero is left to the backend.
+            case DIVIDE: return r == 0 ? UNKNOWN : l / r;
+            default: return UNKNOWN;
+          }
+        }
+        long l = (Long) lhs;
+        long r = (Long) rhs;
+        long result;
+        try {
+          switch (op) {
+            case ADD: result = Math.addExact(l, r); break;
+            case SUBTRACT: result = Math.subtractExact(l, r); break;
+            case MULTIPLY: result = Math.multiplyExact(l, r); break;
+            case INT_DIVIDE:
+              if (r == 0 || (l == Long.MIN_VALUE && r == -1)) return UNKNOWN;
+              result = l / r;
+              break;
+            case MOD:
+              if (r == 0 || r == -1) return UNKNOWN;
+              result = l % r;
+              break;
+            default: return UNKNOWN;
+          }
+        } catch (ArithmeticException e) {
+          // The backend wraps around on overflow.
+          return UNKNOWN;
+        }
+        // Results that overflow the result type are left to the backend.
+        return parseInteger(Long.toString(result), type);
+      }
+    };
+  }
+
+  private static Node compileFunctionCall(FunctionCallExpr expr,
+      final List<Node> children) {
+    Function fn = expr.getFn();
+    if (fn == null || !fn.getFunctionName().isBuiltin()) return null;
+    for (Expr child: expr.getChildren()) {
+      if (!child.getType().isScalarType(PrimitiveType.STRING)
+          && !child.getType().isScalarType(PrimitiveType.BIGINT)) {
+        return null;
+      }
+    }
+    final String name = fn.functionName();
+    switch (name) {
+      case "substr": case "substring":
+        if (children.size() != 2 && children.size() != 3) return null;
+        break;
+      case "length": case "lower": case "lcase": case "upper": case "ucase":
+      case "trim": case "ltrim": case "rtrim":
+        if (children.size() != 1) return null;
+        break;
+      case "concat":
+        break;
+      default: return null;
+    }
+    return new Node() {
+      @Override
+      public Object eval(List<LiteralExpr> partitionValues) {
+        List<Object> args = new ArrayList<>(children.size());
+        for (Node child: children) {
+          Object arg = child.eval(partitionValues);
+          if (arg == UNKNOWN) return UNKNOWN;
+          // All supported functions return NULL if an argument is NULL.
+          if (arg == null) return null;
+          // The backend works on bytes, so only ASCII strings have the same result.
+          if (arg instanceof String && !isAscii((String) arg)) return UNKNOWN;
+          args.add(arg);
+        }
+        String str = (String) args.get(0);
+        switch (name) {
+          case "substr": case "substring":
+            return substring(str, (Long) args.get(1),
+                args.size() == 3 ? (Long) args.get(2) : Integer.MAX_VALUE);
+          case "length": return (long) str.length();
+          case "lower": case "lcase": return str.toLowerCase(Locale.ROOT);
+          case "upper": case "ucase": return str.toUpperCase(Locale.ROOT);
+          case "trim": return trim(str, true, true);
+          case "ltrim": return trim(str, true, false);
+          case "rtrim": return trim(str, false, true);
+          case "concat": {
+            StringBuilder sb = new StringBuilder();
+            for (Object arg: args) sb.append((String) arg);
+            return sb.toString();
+          }
+          default: return UNKNOWN;
+        }
+      }
+    };
+  }
+
+  /**
+   * Same as StringFunctions::Substring() in the backend.
+   */
+  private static Object substring(String str, long pos, long len) {
+    if (pos < Integer.MIN_VALUE || pos > Integer.MAX_VALUE) return UNKNOWN;
+    long fixedPos = pos < 0 ? str.length() + pos + 1 : pos;
+    long fixedLen = Math.min(len, str.length() - fixedPos + 1);
+    if (fixedPos > 0 && fixedPos <= str.length() && fixedLen > 0) {
+      return str.substring((int) fixedPos - 1, (int) (fixedPos - 1 + fixedLen));
+    }
+    return "";
+  }
+
+  /**
+   * Removes leading and/or trailing spaces. Other whitespace is kept, like in the
+   * backend.
+   */
+  private static String trim(String str, boolean leading, boolean trailing) {
+    int begin = 0;
+    int end = str.length();
+    if (leading) {
+      while (begin < end && str.charAt(begin) == ' ') ++begin;
+    }
+    if (trailing) {
+      while (end > begin && str.charAt(end - 1) == ' ') --end;
+    }
+    return str.substring(begin, end);
+  }
+}
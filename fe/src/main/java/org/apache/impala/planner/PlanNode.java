@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.impala.analysis.Analyzer;
+import org.apache.impala.analysis.BinaryPredicate;
 import org.apache.impala.analysis.Expr;
 import org.apache.impala.analysis.ExprId;
 import org.apache.impala.analysis.ExprSubstitutionMap;
@@ -580,15 +581,35 @@ abstract public class PlanNode extends TreeNode<PlanNode> {
    * The first issue is addressed by using a single default selectivity that is
    * representative of all conjuncts with unknown selectivities.
    * The second issue is addressed by an exponential backoff when multiplying each
-   * additional selectivity into the final result.
+   * additional selectivity into the final result. Pairs of range conjuncts that bound
+   * the same column from opposite sides are first combined into the selectivity of
+   * the range based on the histogram of the column, if there is one.
    */
   static protected double computeCombinedSelectivity(List<Expr> conjuncts) {
     // Collect all estimated selectivities.
     List<Double> selectivities = new ArrayList<>();
-    for (Expr e: conjuncts) {
-      if (e.hasSelectivity()) selectivities.add(e.getSelectivity());
+    boolean hasUnknownSelectivity = false;
+    boolean[] isCombined = new boolean[conjuncts.size()];
+    for (int i = 0; i < conjuncts.size(); ++i) {
+      if (isCombined[i]) continue;
+      Expr e = conjuncts.get(i);
+      if (!e.hasSelectivity()) {
+        hasUnknownSelectivity = true;
+        continue;
+      }
+      double selectivity = e.getSelectivity();
+      for (int j = i + 1; j < conjuncts.size(); ++j) {
+        if (isCombined[j]) continue;
+        double rangeSelectivity =
+            BinaryPredicate.computeRangeSelectivity(e, conjuncts.get(j));
+        if (rangeSelectivity < 0) continue;
+        selectivity = rangeSelectivity;
+        isCombined[j] = true;
+        break;
+      }
+      selectivities.add(selectivity);
     }
-    if (selectivities.size() != conjuncts.size()) {
+    if (hasUnknownSelectivity) {
       // Some conjuncts have no estimated selectivity. Use a single default
       // representative selectivity for all those conjuncts.
       selectivities.add(Expr.DEFAULT_SELECTIVITY);
@@ -849,7 +849,13 @@ public class SingleNodePlanner {
     PlanNode root = null;
     if (!analyzer.isStraightJoin()) {
       Set<ExprId> assignedConjuncts = analyzer.getAssignedConjuncts();
-      root = createCheapestJoinPlan(analyzer, parentRefPlans, subplanRefs);
+      if (DpJoinEnumerator.isApplicable(analyzer, parentRefPlans, subplanRefs)) {
+        root = new DpJoinEnumerator(this, ctx_, analyzer, parentRefPlans).createPlan();
+        if (root == null) analyzer.setAssignedConjuncts(assignedConjuncts);
+      }
+      if (root == null) {
+        root = createCheapestJoinPlan(analyzer, parentRefPlans, subplanRefs);
+      }
       // If createCheapestJoinPlan() failed to produce an executable plan, then we need
       // to restore the original state of conjunct assignment for the straight-join plan
       // to not incorrectly miss conjuncts.
@@ -1387,6 +1393,20 @@ public class SingleNodePlanner {
     }
   }
 
+  /**
+   * Returns true if one of 'conjuncts' compares a column with a constant outside of the
+   * min/max values in the column stats of the scanned table.
+   */
+  private static boolean contradictsMinMaxStats(List<Expr> conjuncts) {
+    for (Expr conjunct: conjuncts) {
+      if (conjunct instanceof BinaryPredicate
+          && ((BinaryPredicate) conjunct).contradictsMinMaxStats()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Looks for a filesystem-based partition in 'partitions' with no DATE support and
    * returns the first one it finds. Right now, scanning DATE values is only supported for
@@ -1439,6 +1459,14 @@ public class SingleNodePlanner {
       Expr.removeDuplicates(conjuncts);
     }
 
+    if (analyzer.getQueryOptions().isPrune_scans_with_min_max_stats()
+        && contradictsMinMaxStats(conjuncts)) {
+      // The conjuncts are false for all rows of the table; convert to EmptySetNode
+      EmptySetNode node = new EmptySetNode(ctx_.getNextNodeId(), tid.asList());
+      node.init(analyzer);
+      return node;
+    }
+
     // TODO(todd) introduce FE interfaces for DataSourceTable, HBaseTable, KuduTable
     FeTable table = tblRef.getTable();
     if (table instanceof FeFsTable) {
@@ -1546,7 +1574,7 @@ public class SingleNodePlanner {
    * as well as regular conjuncts. Calls init() on the new join node.
    * Throws if the JoinNode.init() fails.
    */
-  private PlanNode createJoinNode(PlanNode outer, PlanNode inner,
+  PlanNode createJoinNode(PlanNode outer, PlanNode inner,
       TableRef innerRef, Analyzer analyzer) throws ImpalaException {
     // get eq join predicates for the TableRefs' ids (not the PlanNodes' ids, which
     // are materialized)
@@ -82,6 +82,22 @@ public class BackendConfig {
     return backendCfg_.max_nonhdfs_partitions_parallel_load;
   }
 
+  public int maxHdfsFileListingThreads() {
+    return backendCfg_.max_hdfs_file_listing_threads;
+  }
+
+  public int maxNonHdfsFileListingThreads() {
+    return backendCfg_.max_nonhdfs_file_listing_threads;
+  }
+
+  public int maxHmsPartitionFetchThreads() {
+    return backendCfg_.max_hms_partition_fetch_threads;
+  }
+
+  public int maxTotalHmsPartitionFetchThreads() {
+    return backendCfg_.max_total_hms_partition_fetch_threads;
+  }
+
   public double getMaxFilterErrorRate() { return backendCfg_.max_filter_error_rate; }
 
   public long getMinBufferSize() { return backendCfg_.min_buffer_size; }
@@ -110,6 +126,10 @@ public class BackendConfig {
     return backendCfg_.invalidate_tables_fraction_on_memory_pressure;
   }
 
+  public String getInvalidateTablesEvictionPolicy() {
+    return backendCfg_.invalidate_tables_eviction_policy;
+  }
+
   public int getLocalCatalogMaxFetchRetries() {
     return backendCfg_.local_catalog_max_fetch_retries;
   }
@@ -122,10 +142,46 @@ public class BackendConfig {
     return backendCfg_.catalog_partial_fetch_rpc_queue_timeout_s;
   }
 
+  public int getCatalogPartialFetchRpcMaxQueueLen() {
+    return backendCfg_.catalog_partial_fetch_rpc_max_queue_len;
+  }
+
+  public int getLocalCatalogFetchOverloadTimeoutMs() {
+    return backendCfg_.local_catalog_fetch_overload_timeout_ms;
+  }
+
+  public int getQueryPlanCacheCapacity() {
+    return backendCfg_.query_plan_cache_capacity;
+  }
+
   public long getHMSPollingIntervalInSeconds() {
     return backendCfg_.hms_event_polling_interval_s;
   }
 
+  public int getHMSEventProcessingThreads() {
+    return backendCfg_.hms_event_processing_threads;
+  }
+
+  public String getCatalogSnapshotDir() {
+    return backendCfg_.catalog_snapshot_dir;
+  }
+
+  public int getCatalogSnapshotIntervalS() {
+    return backendCfg_.catalog_snapshot_interval_s;
+  }
+
+  public boolean skipUnchangedDirsOnRefresh() {
+    return backendCfg_.skip_unchanged_dirs_on_refresh;
+  }
+
+  public boolean storeFileDescriptorsOffHeap() {
+    return backendCfg_.store_file_descriptors_off_heap;
+  }
+
+  public int getNumCatalogUpdateThreads() {
+    return backendCfg_.num_catalog_update_threads;
+  }
+
   public boolean isOrcScannerEnabled() {
     return backendCfg_.enable_orc_scanner;
   }
@@ -72,6 +72,7 @@ import org.apache.impala.catalog.CatalogException;
 import org.apache.impala.catalog.CatalogServiceCatalog;
 import org.apache.impala.catalog.Column;
 import org.apache.impala.catalog.ColumnNotFoundException;
+import org.apache.impala.catalog.ColumnHistogram;
 import org.apache.impala.catalog.ColumnStats;
 import org.apache.impala.catalog.DataSource;
 import org.apache.impala.catalog.Db;
@@ -98,6 +99,7 @@ import org.apache.impala.catalog.Transaction;
 import org.apache.impala.catalog.Type;
 import org.apache.impala.catalog.View;
 import org.apache.impala.catalog.events.MetastoreEvents.MetastoreEventPropertyKey;
+import org.apache.impala.catalog.events.SelfEventFingerprints;
 import org.apache.impala.common.FileSystemUtil;
 import org.apache.impala.common.ImpalaException;
 import org.apache.impala.common.ImpalaRuntimeException;
@@ -934,7 +936,8 @@ public class CatalogOpExecutor {
 
   /**
    * Adds the catalog service id and the given catalog version to the table
-   * parameters. No-op if event processing is disabled
+   * parameters and registers the fingerprint of the resulting ALTER_TABLE event as a
+   * self-event. No-op if event processing is disabled
    */
   private void addCatalogServiceIdentifiers(Table tbl, String catalogServiceId,
       long newCatalogVersion) {
@@ -946,6 +949,39 @@ public class CatalogOpExecutor {
     msTbl.putToParameters(
         MetastoreEventPropertyKey.CATALOG_VERSION.getKey(),
         String.valueOf(newCatalogVersion));
+    catalog_.getSelfEventFingerprints().add(SelfEventFingerprints.forDdl(
+        catalogServiceId, newCatalogVersion,
+        SelfEventFingerprints.getObjectName(tbl.getDb().getName(), tbl.getName(),
+            null)));
+  }
+
+  /**
+   * Removes the self-event fingerprint which addCatalogServiceIdentifiers() registered
+   * for the object 'objectName' with the parameters 'params'. Called if changing the
+   * object in the metastore failed: no event consumes the fingerprint then, and it
+   * could match a later external change which keeps the parameters of the object.
+   */
+  private void removeSelfEventFingerprint(Map<String, String> params,
+      String objectName) {
+    if (!catalog_.isExternalEventProcessingEnabled() || params == null) return;
+    String serviceId = params.get(MetastoreEventPropertyKey.CATALOG_SERVICE_ID.getKey());
+    String version = params.get(MetastoreEventPropertyKey.CATALOG_VERSION.getKey());
+    if (!catalog_.getCatalogServiceId().equals(serviceId) || version == null) return;
+    catalog_.getSelfEventFingerprints().remove(
+        SelfEventFingerprints.forDdl(serviceId, Long.parseLong(version), objectName));
+  }
+
+  /**
+   * Removes the self-event fingerprints of the partitions 'hmsPartitions' of 'msTbl',
+   * see removeSelfEventFingerprint().
+   */
+  private void removeSelfEventFingerprints(
+      org.apache.hadoop.hive.metastore.api.Table msTbl, List<Partition> hmsPartitions) {
+    for (Partition partition : hmsPartitions) {
+      removeSelfEventFingerprint(partition.getParameters(),
+          SelfEventFingerprints.getObjectName(msTbl.getDbName(), msTbl.getTableName(),
+              SelfEventFingerprints.getPartitionName(msTbl, partition.getValues())));
+    }
   }
 
   /**
@@ -1030,6 +1066,7 @@ public class CatalogOpExecutor {
         }
       }
       numUpdatedColumns.setRef((long) colStats.getStatsObjSize());
+      updateColumnHistograms(params, table, msTbl);
     }
 
     // Update partition-level row counts and incremental column stats for
@@ -1111,7 +1148,7 @@ public class CatalogOpExecutor {
       partition.putToParameters(StatsSetupConst.ROW_COUNT, String.valueOf(numRows));
       // HMS requires this param for stats changes to take effect.
       partition.putToParameters(MetastoreShim.statsGeneratedViaStatsTaskParam());
-      partition.getParameters().remove(StatsSetupConst.COLUMN_STATS_ACCURATE);
+      partition.removeFromParameters(StatsSetupConst.COLUMN_STATS_ACCURATE);
       modifiedParts.add(partition);
     }
     return modifiedParts;
@@ -1136,6 +1173,29 @@ public class CatalogOpExecutor {
     msTbl.putToParameters(statsTaskParam.first, statsTaskParam.second);
   }
 
+  /**
+   * Stores the column histograms of the given update stats parameters as table
+   * properties of the given HMS table. Removes the stale histograms of columns whose
+   * stats were updated without a histogram. Missing or new columns as a result of
+   * concurrent table alterations are ignored.
+   */
+  private static void updateColumnHistograms(TAlterTableUpdateStatsParams params,
+      Table table, org.apache.hadoop.hive.metastore.api.Table msTbl) {
+    Preconditions.checkState(params.isSetColumn_stats());
+    for (Map.Entry<String, TColumnStats> entry: params.getColumn_stats().entrySet()) {
+      Column tableCol = table.getColumn(entry.getKey());
+      if (tableCol == null) continue;
+      String key = Table.TBL_PROP_COLUMN_HISTOGRAM_PREFIX + tableCol.getName();
+      ColumnHistogram histogram =
+          ColumnHistogram.parse(entry.getValue().getHistogram());
+      if (histogram != null) {
+        msTbl.putToParameters(key, histogram.toString());
+      } else if (msTbl.getParameters() != null) {
+        msTbl.getParameters().remove(key);
+      }
+    }
+  }
+
   /**
    * Create HMS column statistics for the given table based on the give map from column
    * name to column stats. Missing or new columns as a result of concurrent table
@@ -1481,8 +1541,11 @@ public class CatalogOpExecutor {
         msTbl.getParameters().remove(StatsSetupConst.ROW_COUNT) != null;
     boolean droppedTotalSize =
         msTbl.getParameters().remove(StatsSetupConst.TOTAL_SIZE) != null;
+    // Also delete the column histograms, which are stored as table properties.
+    boolean droppedHistograms = msTbl.getParameters().keySet().removeIf(
+        key -> key.startsWith(Table.TBL_PROP_COLUMN_HISTOGRAM_PREFIX));
 
-    if (droppedRowCount || droppedTotalSize) {
+    if (droppedRowCount || droppedTotalSize || droppedHistograms) {
       applyAlterTable(msTbl, false, null);
       ++numTargetedPartitions;
     }
@@ -1511,7 +1574,7 @@ public class CatalogOpExecutor {
       }
 
       // Remove the ROW_COUNT parameter if it has been set.
-      if (part.getParameters().remove(StatsSetupConst.ROW_COUNT) != null) {
+      if (part.removeFromParameters(StatsSetupConst.ROW_COUNT) != null) {
         isModified = true;
       }
 
@@ -1839,7 +1902,8 @@ public class CatalogOpExecutor {
       for (FeFsPartition part: parts) {
         if (part.isMarkedCached()) {
           try {
-            HdfsCachingUtil.removePartitionCacheDirective(part);
+            // TODO(todd): avoid downcast
+            HdfsCachingUtil.removePartitionCacheDirective((HdfsPartition) part);
           } catch (Exception e) {
             LOG.error("Unable to uncache partition: " + part.getPartitionName(), e);
           }
@@ -2713,6 +2777,8 @@ public class CatalogOpExecutor {
           addedHmsPartitions.addAll(msClient.getHiveClient().add_partitions(hmsSublist,
               ifNotExists, true));
         } catch (TException e) {
+          removeSelfEventFingerprints(msTbl, computeDifference(allHmsPartitionsToAdd,
+              addedHmsPartitions));
           throw new ImpalaRuntimeException(
               String.format(HMS_RPC_ERROR_FORMAT_STR, "add_partitions"), e);
         }
@@ -2728,6 +2794,8 @@ public class CatalogOpExecutor {
       if (allHmsPartitionsToAdd.size() != addedHmsPartitions.size()) {
         List<Partition> difference = computeDifference(allHmsPartitionsToAdd,
             addedHmsPartitions);
+        // No events are generated for the partitions which already existed.
+        removeSelfEventFingerprints(msTbl, difference);
         addedHmsPartitions.addAll(
             getPartitionsFromHms(msTbl, msClient, tableName, difference));
       }
@@ -3146,6 +3214,7 @@ public class CatalogOpExecutor {
             throw new UnsupportedOperationException(
                 "Unknown target TTablePropertyType: " + params.getTarget());
         }
+        partition.markChanged();
         modifiedParts.add(partition);
       }
       try {
@@ -3508,7 +3577,8 @@ public class CatalogOpExecutor {
 
   /**
    * Adds this catalog service id and the given catalog version to the partition
-   * parameters from table parameters. No-op if event processing is disabled
+   * parameters from table parameters and registers the fingerprint of the resulting
+   * partition event as a self-event. No-op if event processing is disabled
    */
   private void addCatalogServiceIdentifiers(
       org.apache.hadoop.hive.metastore.api.Table msTbl, Partition partition) {
@@ -3532,6 +3602,12 @@ public class CatalogOpExecutor {
     partition.putToParameters(
         MetastoreEventPropertyKey.CATALOG_VERSION.getKey(),
         tblParams.get(MetastoreEventPropertyKey.CATALOG_VERSION.getKey()));
+    catalog_.getSelfEventFingerprints().add(SelfEventFingerprints.forDdl(
+        tblParams.get(MetastoreEventPropertyKey.CATALOG_SERVICE_ID.getKey()),
+        Long.parseLong(
+            tblParams.get(MetastoreEventPropertyKey.CATALOG_VERSION.getKey())),
+        SelfEventFingerprints.getObjectName(msTbl.getDbName(), msTbl.getTableName(),
+            SelfEventFingerprints.getPartitionName(msTbl, partition.getValues()))));
   }
 
   /**
@@ -3588,6 +3664,8 @@ public class CatalogOpExecutor {
     try (MetaStoreClient msClient = catalog_.getMetaStoreClient()) {
       msClient.getHiveClient().alterDatabase(msDb.getName(), msDb);
     } catch (TException e) {
+      removeSelfEventFingerprint(msDb.getParameters(),
+          SelfEventFingerprints.getObjectName(msDb.getName()));
       throw new ImpalaRuntimeException(
           String.format(HMS_RPC_ERROR_FORMAT_STR, "alterDatabase"), e);
     }
@@ -3642,6 +3720,10 @@ public class CatalogOpExecutor {
               String.format(HMS_RPC_ERROR_FORMAT_STR, "alter_table"), e);
         }
       }
+    } catch (ImpalaRuntimeException e) {
+      removeSelfEventFingerprint(msTbl.getParameters(), SelfEventFingerprints
+          .getObjectName(msTbl.getDbName(), msTbl.getTableName(), null));
+      throw e;
     }
   }
 
@@ -3662,6 +3744,7 @@ public class CatalogOpExecutor {
       MetastoreShim.alterPartitions(
           msClient.getHiveClient(), tableName.getDb(), tableName.getTbl(), hmsPartitions);
     } catch (TException e) {
+      removeSelfEventFingerprints(msTbl, hmsPartitions);
       throw new ImpalaRuntimeException(
           String.format(HMS_RPC_ERROR_FORMAT_STR, "alter_partitions"), e);
     }
@@ -3803,6 +3886,7 @@ public class CatalogOpExecutor {
 
     String dbName = tbl.getDb().getName();
     String tableName = tbl.getName();
+    int numAltered = 0;
     try (MetaStoreClient msClient = catalog_.getMetaStoreClient()) {
       // Apply the updates in batches of 'MAX_PARTITION_UPDATES_PER_RPC'.
       for (List<Partition> hmsPartitionsSubList :
@@ -3828,7 +3912,11 @@ public class CatalogOpExecutor {
               continue;
             }
           }
+          numAltered += hmsPartitionsSubList.size();
         } catch (TException e) {
+          // Neither this batch nor the following ones were altered.
+          removeSelfEventFingerprints(tbl.getMetaStoreTable(),
+              hmsPartitions.subList(numAltered, hmsPartitions.size()));
           throw new ImpalaRuntimeException(
               String.format(HMS_RPC_ERROR_FORMAT_STR, "alter_partitions"), e);
         }
@@ -4327,11 +4415,19 @@ public class CatalogOpExecutor {
             filesPostInsert.size(), table.getTableName(), part.getPartitionName());
       }
       if (deltaFiles != null || isInsertOverwrite) {
+        // The table was already refreshed by this insert. Register the insert before
+        // firing the event so that the events processor skips it as a self-event.
+        String fingerprint = SelfEventFingerprints.forInsert(table.getDb().getName(),
+            table.getName(), partVals == null ? null :
+                SelfEventFingerprints.getPartitionName(table.getMetaStoreTable(),
+                    partVals), deltaFiles);
+        catalog_.getSelfEventFingerprints().add(fingerprint);
         try (MetaStoreClient metaStoreClient = catalog_.getMetaStoreClient()) {
           MetaStoreUtil
               .fireInsertEvent(metaStoreClient.getHiveClient(), table.getDb().getName(),
                   table.getName(), partVals, deltaFiles, isInsertOverwrite);
         } catch (Exception e) {
+          catalog_.getSelfEventFingerprints().remove(fingerprint);
           LOG.error("Failed to fire insert event. Some tables might not be"
               + " refreshed on other impala clusters.", e);
         }
@@ -4485,7 +4581,8 @@ public class CatalogOpExecutor {
   }
 
   /**
-   * Adds the catalog service id and the given catalog version to the database parameters.
+   * Adds the catalog service id and the given catalog version to the database parameters
+   * and registers the fingerprint of the resulting ALTER_DATABASE event as a self-event.
    * No-op if event processing is disabled
    */
   private void addCatalogServiceIdentifiers(
@@ -4496,6 +4593,9 @@ public class CatalogOpExecutor {
         catalogServiceId);
     msDb.putToParameters(MetastoreEventPropertyKey.CATALOG_VERSION.getKey(),
         String.valueOf(newCatalogVersion));
+    catalog_.getSelfEventFingerprints().add(SelfEventFingerprints.forDdl(
+        catalogServiceId, newCatalogVersion,
+        SelfEventFingerprints.getObjectName(db.getName())));
   }
 
   private void addDbToCatalogUpdate(Db db, TCatalogUpdateResult result) {
@@ -85,10 +85,12 @@ public class FeSupport {
   public native static byte[] NativeCacheJar(byte[] thriftCacheJar);
 
   // Adds a topic item to the backend's pending metadata-topic update.
-  // 'serializationBuffer' is a serialized TCatalogObject.
+  // The first 'size' bytes of the direct buffer 'serializationBuffer' are a serialized
+  // TCatalogObject, which is copied or compressed by the backend before returning.
   // The return value is true if the operation succeeds and false otherwise.
   public native static boolean NativeAddPendingTopicItem(long nativeCatalogServerPtr,
-      String key, long version, byte[] serializationBuffer, boolean deleted);
+      String key, long version, ByteBuffer serializationBuffer, int size,
+      boolean deleted);
 
   // Get a catalog object update from the backend. A pair of isDeletion flag and
   // serialized TCatalogObject is returned.
@@ -110,6 +112,11 @@ public class FeSupport {
   public native static byte[] NativeGetPartialCatalogObject(byte[] thriftReq)
       throws InternalException;
 
+  // Does an RPC to the Catalog Server to fetch partial information about several
+  // catalog objects at once.
+  public native static byte[] NativeGetPartialCatalogObjects(byte[] thriftReq)
+      throws InternalException;
+
   // Does an RPC to the Catalog Server to fetch specified table partition statistics.
   public native static byte[] NativeGetPartitionStats(byte[] thriftReq);
 
@@ -444,6 +451,16 @@ public class FeSupport {
     return NativeGetPartialCatalogObject(thriftReq);
   }
 
+  public static byte[] GetPartialCatalogObjects(byte[] thriftReq)
+      throws InternalException {
+    try {
+      return NativeGetPartialCatalogObjects(thriftReq);
+    } catch (UnsatisfiedLinkError e) {
+      loadLibrary();
+    }
+    return NativeGetPartialCatalogObjects(thriftReq);
+  }
+
   public static byte[] CheckSentryAdmin(byte[] thriftReq) {
     try {
       return NativeSentryAdminCheck(thriftReq);
@@ -99,6 +99,7 @@ import org.apache.impala.catalog.ImpaladTableUsageTracker;
 import org.apache.impala.catalog.MetaStoreClientPool;
 import org.apache.impala.catalog.MetaStoreClientPool.MetaStoreClient;
 import org.apache.impala.catalog.Type;
+import org.apache.impala.catalog.local.CatalogdMetaProvider;
 import org.apache.impala.catalog.local.InconsistentMetadataFetchException;
 import org.apache.impala.common.FileSystemUtil;
 import org.apache.impala.common.ImpalaException;
@@ -271,6 +272,9 @@ public class Frontend {
 
   private final TransactionKeepalive transactionKeepalive_;
 
+  // Cache of query plans, null if disabled.
+  private final PlanCache planCache_;
+
   public Frontend(AuthorizationFactory authzFactory) throws ImpalaException {
     this(authzFactory, FeCatalogManager.createFromBackendConfig());
   }
@@ -310,6 +314,8 @@ public class Frontend {
     } else {
       transactionKeepalive_ = null;
     }
+    planCache_ = PlanCache.createFromConfig(BackendConfig.INSTANCE,
+        impaladTableUsageTracker_);
   }
 
   /**
@@ -348,6 +354,8 @@ public class Frontend {
       // itself, and we need to reset the AuthorizationChecker accordingly.
       authzChecker_.set(authzFactory_.newAuthorizationChecker(
           getCatalog().getAuthPolicy()));
+      // The catalog versions of the tables in the cached plans may have been reused.
+      if (planCache_ != null) planCache_.invalidateAll();
     }
     return resp;
   }
@@ -1335,9 +1343,14 @@ public class Frontend {
    */
   public TExecRequest createExecRequest(PlanCtx planCtx)
       throws ImpalaException {
+    // Queries with SYNC_DDL must see the effects of all DDLs that finished before,
+    // so they cannot use stale table metadata.
+    boolean syncDdl = planCtx.getQueryContext().client_request.query_options.isSync_ddl();
     // Timeline of important events in the planning process, used for debugging
     // and profiling.
-    try (FrontendProfile.Scope scope = FrontendProfile.createNewWithScope()) {
+    try (FrontendProfile.Scope scope = FrontendProfile.createNewWithScope();
+        CatalogdMetaProvider.FreshMetadataScope freshScope =
+            CatalogdMetaProvider.requireFreshMetadata(syncDdl)) {
       EventSequence timeline = new EventSequence("Query Compilation");
       TExecRequest result = getTExecRequest(planCtx, timeline);
       timeline.markEvent("Planning finished");
@@ -1389,9 +1402,34 @@ public class Frontend {
     }
   }
 
+  /**
+   * Returns the key under which the plan of the query in 'planCtx' is cached, or null if
+   * the plan cache is disabled or does not cache the plan. With authorization, the plans
+   * are cached per user.
+   */
+  private PlanCache.Key getPlanCacheKey(PlanCtx planCtx) {
+    if (planCache_ == null || !planCtx.serializeDescTbl() ||
+        planCtx.planCaptureRequested()) {
+      return null;
+    }
+    return PlanCache.createKey(planCtx.getQueryContext(),
+        ExecutorMembershipSnapshot.getCluster().numExecutors(),
+        authzFactory_.getAuthorizationConfig().isEnabled());
+  }
+
   private TExecRequest doCreateExecRequest(PlanCtx planCtx,
       EventSequence timeline) throws ImpalaException {
     TQueryCtx queryCtx = planCtx.getQueryContext();
+    PlanCache.Key planCacheKey = getPlanCacheKey(planCtx);
+    boolean authzEnabled = authzFactory_.getAuthorizationConfig().isEnabled();
+    // Without authorization, a cached plan is reused without analyzing the query.
+    if (planCacheKey != null && !authzEnabled) {
+      TExecRequest result = planCache_.lookup(planCacheKey, getCatalog(), queryCtx);
+      if (result != null) {
+        timeline.markEvent("Reused cached plan");
+        return result;
+      }
+    }
     // Parse stmt and collect/load metadata to populate a stmt-local table cache
     StatementBase stmt = Parser.parse(
         queryCtx.client_request.stmt, queryCtx.client_request.query_options);
@@ -1406,6 +1444,17 @@ public class Frontend {
         authzChecker_.get());
     LOG.info("Analysis and authorization finished.");
     Preconditions.checkNotNull(analysisResult.getStmt());
+    // With authorization, a cached plan is only reused once the query passed the
+    // authorization checks, which also produce the access events to audit.
+    if (planCacheKey != null && authzEnabled && analysisResult.isQueryStmt()) {
+      TExecRequest result = planCache_.lookup(planCacheKey, getCatalog(), queryCtx);
+      if (result != null) {
+        result.setAccess_events(Lists.newArrayList(analysisResult.getAccessEvents()));
+        result.setUser_has_profile_access(analysisResult.userHasProfileAccess());
+        timeline.markEvent("Reused cached plan");
+        return result;
+      }
+    }
     TExecRequest result = createBaseExecRequest(queryCtx, analysisResult);
 
     try {
@@ -1499,6 +1548,10 @@ public class Frontend {
         result.query_exec_request.stmt_type = result.stmt_type;
         // fill in the metadata
         result.setResult_set_metadata(createQueryResultSetMetadata(analysisResult));
+        // Plans with lineage cannot be reused, the lineage identifies the query.
+        if (planCacheKey != null && !queryExecRequest.isSetLineage_graph()) {
+          planCache_.insert(planCacheKey, result, stmtTableCache.tables.values());
+        }
       } else if (analysisResult.isInsertStmt() ||
           analysisResult.isCreateTableAsSelectStmt()) {
         // For CTAS the overall TExecRequest statement type is DDL, but the
@@ -144,6 +144,17 @@ public class FrontendProfile {
     counter.value += delta;
   }
 
+  /**
+   * Adds the counters of 'other' to the counters of this profile. Used to account the
+   * work of background tasks, which collect their counters in a profile of their own, to
+   * the profile of the query that consumes their result.
+   */
+  public synchronized void mergeCounters(TRuntimeProfileNode other) {
+    for (TCounter counter: other.getCounters()) {
+      addToCounter(counter.getName(), counter.getUnit(), counter.getValue());
+    }
+  }
+
 
   public static class Scope implements AutoCloseable {
     private final FrontendProfile oldThreadLocalValue_;
@@ -32,14 +32,19 @@ import org.apache.impala.authorization.User;
 import org.apache.impala.authorization.sentry.SentryCatalogdAuthorizationManager;
 import org.apache.impala.catalog.CatalogException;
 import org.apache.impala.catalog.CatalogServiceCatalog;
+import org.apache.impala.catalog.CatalogdTableInvalidator;
 import org.apache.impala.catalog.Db;
 import org.apache.impala.catalog.FeDb;
+import org.apache.impala.catalog.FileListingExecutor;
 import org.apache.impala.catalog.Function;
+import org.apache.impala.catalog.PartialFetchAdmissionController;
+import org.apache.impala.catalog.TopicUpdateLog;
 import org.apache.impala.compat.MetastoreShim;
 import org.apache.impala.common.ImpalaException;
 import org.apache.impala.common.InternalException;
 import org.apache.impala.common.JniUtil;
 import org.apache.impala.thrift.TCatalogObject;
+import org.apache.impala.thrift.TCatalogObjectType;
 import org.apache.impala.thrift.TDatabase;
 import org.apache.impala.thrift.TDdlExecRequest;
 import org.apache.impala.thrift.TErrorCode;
@@ -52,12 +57,14 @@ import org.apache.impala.thrift.TGetDbsResult;
 import org.apache.impala.thrift.TGetFunctionsRequest;
 import org.apache.impala.thrift.TGetFunctionsResponse;
 import org.apache.impala.thrift.TGetPartialCatalogObjectRequest;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsRequest;
 import org.apache.impala.thrift.TGetPartitionStatsRequest;
 import org.apache.impala.thrift.TGetPartitionStatsResponse;
 import org.apache.impala.thrift.TGetTablesParams;
 import org.apache.impala.thrift.TGetTableMetricsParams;
 import org.apache.impala.thrift.TGetTablesResult;
 import org.apache.impala.thrift.TLogLevel;
+import org.apache.impala.thrift.TPartialFetchPriority;
 import org.apache.impala.thrift.TPrioritizeLoadRequest;
 import org.apache.impala.thrift.TResetMetadataRequest;
 import org.apache.impala.thrift.TSentryAdminCheckRequest;
@@ -135,6 +142,7 @@ public class JniCatalog {
     } catch (CatalogException e) {
       LOG.error("Error initializing Catalog. Please run 'invalidate metadata'", e);
     }
+    catalog_.initFromSnapshot();
     catalogOpExecutor_ = new CatalogOpExecutor(catalog_, authzConfig, authzManager_);
   }
 
@@ -246,6 +254,14 @@ public class JniCatalog {
     return serializer.serialize(catalog_.getPartialCatalogObject(req));
   }
 
+  public byte[] getPartialCatalogObjects(byte[] thriftParams) throws ImpalaException,
+      TException {
+    TGetPartialCatalogObjectsRequest req = new TGetPartialCatalogObjectsRequest();
+    JniUtil.deserializeThrift(protocolFactory_, req, thriftParams);
+    TSerializer serializer = new TSerializer(protocolFactory_);
+    return serializer.serialize(catalog_.getPartialCatalogObjects(req));
+  }
+
   /**
    * See comment in CatalogServiceCatalog.
    */
@@ -346,6 +362,42 @@ public class JniCatalog {
     response.setCatalog_partial_fetch_rpc_queue_len(
         catalog_.getPartialFetchRpcQueueLength());
     response.setEvent_metrics(catalog_.getEventProcessorMetrics());
+    FileListingExecutor fileListingExecutor = FileListingExecutor.get();
+    response.setFile_listing_queue_len(fileListingExecutor.getQueueLength());
+    response.setFile_listing_num_tasks(fileListingExecutor.getNumTasks());
+    response.setFile_listing_total_wait_time_ns(
+        fileListingExecutor.getTotalWaitTimeNs());
+    TopicUpdateLog topicUpdateLog = catalog_.getTopicUpdateLog();
+    response.setTopic_update_num_items(topicUpdateLog.getLastUpdateNumItems());
+    response.setTopic_update_bytes(topicUpdateLog.getLastUpdateBytes());
+    response.setTopic_update_total_bytes(topicUpdateLog.getTotalBytes());
+    response.setTopic_update_partitions_skipped(
+        topicUpdateLog.getNumPartitionsSkipped());
+    CatalogdTableInvalidator tableInvalidator = catalog_.getCatalogdTableInvalidator();
+    boolean hasInvalidator = tableInvalidator != null;
+    response.setTable_invalidator_last_round_bytes_freed(
+        hasInvalidator ? tableInvalidator.getLastRoundBytesFreed() : 0);
+    response.setTable_invalidator_total_bytes_freed(
+        hasInvalidator ? tableInvalidator.getTotalBytesFreed() : 0);
+    response.setTable_invalidator_num_tables_invalidated(
+        hasInvalidator ? tableInvalidator.getNumTablesInvalidated() : 0);
+    response.setVersion_lock_read_waits(catalog_.getVersionLockReadWaits().toThrift());
+    response.setVersion_lock_write_waits(catalog_.getVersionLockWriteWaits().toThrift());
+    response.setPartial_fetch_table_latency(
+        catalog_.getPartialFetchLatencies(TCatalogObjectType.TABLE).toThrift());
+    response.setPartial_fetch_db_latency(
+        catalog_.getPartialFetchLatencies(TCatalogObjectType.DATABASE).toThrift());
+    response.setPartial_fetch_catalog_latency(
+        catalog_.getPartialFetchLatencies(TCatalogObjectType.CATALOG).toThrift());
+    response.setPartial_fetch_function_latency(
+        catalog_.getPartialFetchLatencies(TCatalogObjectType.FUNCTION).toThrift());
+    PartialFetchAdmissionController partialFetchAdmission =
+        catalog_.getPartialFetchAdmission();
+    response.setPartial_fetch_planning_queue_waits(partialFetchAdmission
+        .getQueueWaits(TPartialFetchPriority.PLANNING).toThrift());
+    response.setPartial_fetch_prefetch_queue_waits(partialFetchAdmission
+        .getQueueWaits(TPartialFetchPriority.PREFETCH).toThrift());
+    response.setPartial_fetch_num_rejected(partialFetchAdmission.getNumRejected());
     TSerializer serializer = new TSerializer(protocolFactory_);
     return serializer.serialize(response);
   }
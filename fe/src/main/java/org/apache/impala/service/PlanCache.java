@@ -0,0 +1,379 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.impala.analysis.SqlParserSymbols;
+import org.apache.impala.analysis.SqlScanner;
+import org.apache.impala.analysis.TableName;
+import org.apache.impala.catalog.BuiltinsDb;
+import org.apache.impala.catalog.Catalog;
+import org.apache.impala.catalog.FeCatalog;
+import org.apache.impala.catalog.FeFsTable;
+import org.apache.impala.catalog.FeTable;
+import org.apache.impala.catalog.FeView;
+import org.apache.impala.catalog.ImpaladTableUsageTracker;
+import org.apache.impala.thrift.TExecRequest;
+import org.apache.impala.thrift.TQueryCtx;
+import org.apache.impala.thrift.TQueryOptions;
+import org.apache.impala.thrift.TUnit;
+import org.apache.impala.util.AcidUtils;
+import org.apache.impala.util.TSessionStateUtil;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java_cup.runtime.Symbol;
+
+/**
+ * Cache of the TExecRequests which the frontend created for queries, so that a query
+ * which is submitted again, as BI tools and dashboards tend to do, is not parsed,
+ * analyzed and planned again.
+ *
+ * This is an exact-text cache. A cached plan is reused for a query with the same
+ * statement, ignoring whitespace and comments, the same session database, query options
+ * and local time zone, while the same number of executors is registered. Literals are
+ * part of the key and are not parameterized: the planner folds them into expressions,
+ * prunes partitions and computes the scan ranges based on them, so a plan cannot be
+ * reused for other literals. Only queries that are repeated verbatim, e.g. by
+ * dashboards, hit the cache.
+ *
+ * When authorization is enabled, the plans are also cached per effective user, see
+ * createKey(), and the frontend only reuses a plan after the query passed the
+ * authorization checks again.
+ *
+ * A plan is cached together with the catalog versions of the tables and views which the
+ * query referenced, and is only reused while all of them still have these versions.
+ * The frontend invalidates the whole cache when it receives a full catalog update.
+ *
+ * Only plans which depend on nothing else are cached: those of SELECT statements which
+ * only reference non-transactional filesystem tables and views, only call deterministic
+ * builtin functions which do not depend on the session or the time, and only sample
+ * tables with a REPEATABLE seed. This also applies to the definitions of the views. The
+ * frontend further only caches plans which are created without lineage.
+ *
+ * A cached plan includes the query options as the planner set them, e.g. after the
+ * small query optimization, and these are used for the queries which reuse it. Reusing
+ * a plan counts as a use of its tables for the ImpaladTableUsageTracker. Thread-safe.
+ */
+public class PlanCache {
+  // Frontend profile counters.
+  private static final String HITS = "PlanCache.Hits";
+  private static final String MISSES = "PlanCache.Misses";
+
+  // Builtins whose result depends on the time, the session or the query, or which are
+  // nondeterministic. Constant folding may bake their result into the plan.
+  private static final Set<String> UNCACHEABLE_FNS = ImmutableSet.of("appx_median",
+      "coordinator", "current_date", "current_session", "current_sid",
+      "current_timestamp", "current_user", "effective_user", "logged_in_user", "now",
+      "pid", "rand", "random", "sample", "session_user", "sleep", "timeofday",
+      "unix_timestamp", "user", "utc_timestamp", "uuid");
+
+  private final Cache<Key, Entry> cache_;
+
+  // Receives the tables of reused plans. May be null.
+  private final ImpaladTableUsageTracker tableUsageTracker_;
+
+  /**
+   * Key of a cached plan. Created by createKey().
+   */
+  public static class Key {
+    private final String stmt_;
+    private final String sessionDb_;
+    private final TQueryOptions queryOptions_;
+    private final String localTimeZone_;
+    private final int numExecutors_;
+    // The effective user if the plans are cached per user, otherwise null.
+    private final String user_;
+    private final int hashCode_;
+
+    private Key(String stmt, TQueryCtx queryCtx, int numExecutors, String user) {
+      stmt_ = stmt;
+      sessionDb_ = queryCtx.session.database;
+      // Planning sets some query options, so the key keeps a copy of the original ones.
+      queryOptions_ = queryCtx.client_request.query_options.deepCopy();
+      localTimeZone_ = queryCtx.local_time_zone;
+      numExecutors_ = numExecutors;
+      user_ = user;
+      hashCode_ = Objects.hash(stmt_, sessionDb_, queryOptions_, localTimeZone_,
+          numExecutors_, user_);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return hashCode_ == other.hashCode_ && stmt_.equals(other.stmt_) &&
+          Objects.equals(sessionDb_, other.sessionDb_) &&
+          queryOptions_.equals(other.queryOptions_) &&
+          Objects.equals(localTimeZone_, other.localTimeZone_) &&
+          numExecutors_ == other.numExecutors_ && Objects.equals(user_, other.user_);
+    }
+
+    @Override
+    public int hashCode() { return hashCode_; }
+  }
+
+  /**
+   * A cached plan and the versions of the tables it was created for.
+   */
+  private static class Entry {
+    final TExecRequest request;
+    final List<TableVersion> tableVersions;
+
+    Entry(TExecRequest request, List<TableVersion> tableVersions) {
+      this.request = request;
+      this.tableVersions = tableVersions;
+    }
+
+    List<TableName> getTableNames() {
+      List<TableName> result = new ArrayList<>(tableVersions.size());
+      for (TableVersion tableVersion : tableVersions) {
+        result.add(new TableName(tableVersion.dbName, tableVersion.tableName));
+      }
+      return result;
+    }
+
+    /**
+     * Returns true if all tables still have the versions the plan was created for.
+     */
+    boolean isValid(FeCatalog catalog) {
+      for (TableVersion tableVersion : tableVersions) {
+        FeTable table = catalog.getTableNoThrow(tableVersion.dbName,
+            tableVersion.tableName);
+        if (table == null || table.getCatalogVersion() != tableVersion.version) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class TableVersion {
+    final String dbName;
+    final String tableName;
+    final long version;
+
+    TableVersion(FeTable table) {
+      dbName = table.getDb().getName();
+      tableName = table.getName();
+      version = table.getCatalogVersion();
+    }
+  }
+
+  public PlanCache(int capacity, ImpaladTableUsageTracker tableUsageTracker) {
+    Preconditions.checkArgument(capacity > 0);
+    cache_ = CacheBuilder.newBuilder().maximumSize(capacity).build();
+    tableUsageTracker_ = tableUsageTracker;
+  }
+
+  /**
+   * Returns a PlanCache of the configured capacity, or null if the cache is disabled.
+   */
+  public static PlanCache createFromConfig(BackendConfig config,
+      ImpaladTableUsageTracker tableUsageTracker) {
+    int capacity = config.getQueryPlanCacheCapacity();
+    return capacity > 0 ? new PlanCache(capacity, tableUsageTracker) : null;
+  }
+
+  /**
+   * Returns the key of the plan of the query in 'queryCtx', or null if the statement of
+   * the query cannot be cached. 'numExecutors' is the number of registered executors.
+   */
+  public static Key createKey(TQueryCtx queryCtx, int numExecutors) {
+    return createKey(queryCtx, numExecutors, false);
+  }
+
+  /**
+   * Same as above, but if 'perUser' is true, the key also contains the effective user of
+   * the session, so that the plans of different users are cached separately. The
+   * frontend uses this when authorization is enabled.
+   */
+  public static Key createKey(TQueryCtx queryCtx, int numExecutors, boolean perUser) {
+    String stmt = normalizeStmt(queryCtx.client_request.stmt);
+    if (stmt == null) return null;
+    return new Key(stmt, queryCtx, numExecutors,
+        perUser ? TSessionStateUtil.getEffectiveUser(queryCtx.session) : null);
+  }
+
+  /**
+   * Returns the cached plan for 'key', adapted to the query in 'queryCtx', or null if
+   * there is no plan for 'key' or it is outdated. The planner's additions to the
+   * query context, including the query options as the planner set them, are copied
+   * into 'queryCtx'. Adds to the hit and miss counters of the current frontend profile
+   * and records the use of the plan's tables.
+   */
+  public TExecRequest lookup(Key key, FeCatalog catalog, TQueryCtx queryCtx) {
+    Entry entry = cache_.getIfPresent(key);
+    if (entry != null && !entry.isValid(catalog)) {
+      cache_.asMap().remove(key, entry);
+      entry = null;
+    }
+    FrontendProfile profile = FrontendProfile.getCurrentOrNull();
+    if (profile != null) {
+      profile.addToCounter(entry != null ? HITS : MISSES, TUnit.NONE, 1);
+    }
+    if (entry == null) return null;
+    if (tableUsageTracker_ != null) {
+      tableUsageTracker_.recordTableUsage(entry.getTableNames());
+    }
+
+    TExecRequest result = entry.request.deepCopy();
+    TQueryCtx plannedCtx = result.query_exec_request.query_ctx;
+    if (plannedCtx.isSetTables_missing_stats()) {
+      queryCtx.setTables_missing_stats(plannedCtx.tables_missing_stats);
+    }
+    if (plannedCtx.isSetTables_with_corrupt_stats()) {
+      queryCtx.setTables_with_corrupt_stats(plannedCtx.tables_with_corrupt_stats);
+    }
+    if (plannedCtx.isSetTables_missing_diskids()) {
+      queryCtx.setTables_missing_diskids(plannedCtx.tables_missing_diskids);
+    }
+    if (plannedCtx.isSetDisable_spilling()) {
+      queryCtx.setDisable_spilling(plannedCtx.disable_spilling);
+    }
+    if (plannedCtx.isSetDisable_codegen_hint()) {
+      queryCtx.setDisable_codegen_hint(plannedCtx.disable_codegen_hint);
+    }
+    if (plannedCtx.isSetDesc_tbl_serialized()) {
+      queryCtx.setDesc_tbl_serialized(plannedCtx.desc_tbl_serialized);
+    }
+    if (plannedCtx.isSetDesc_tbl_testonly()) {
+      queryCtx.setDesc_tbl_testonly(plannedCtx.desc_tbl_testonly);
+    }
+    // The planner may have changed the query options, e.g. mt_dop or num_nodes, and
+    // the plan relies on these changes.
+    queryCtx.client_request.setQuery_options(result.query_options);
+    result.query_exec_request.setQuery_ctx(queryCtx);
+    return result;
+  }
+
+  /**
+   * Caches a copy of the plan 'request' under 'key'. 'tables' are the tables and views
+   * which the query referenced. Returns false and caches nothing if the plan depends on
+   * tables whose changes are not tracked by their catalog version, or on views whose
+   * definition cannot be cached, see normalizeStmt().
+   */
+  public boolean insert(Key key, TExecRequest request, Collection<FeTable> tables) {
+    Preconditions.checkState(request.isSetQuery_exec_request());
+    List<TableVersion> tableVersions = new ArrayList<>(tables.size());
+    for (FeTable table : tables) {
+      if (!isCacheable(table)) return false;
+      tableVersions.add(new TableVersion(table));
+    }
+    cache_.put(key, new Entry(request.deepCopy(), ImmutableList.copyOf(tableVersions)));
+    return true;
+  }
+
+  public void invalidateAll() { cache_.invalidateAll(); }
+
+  @VisibleForTesting
+  long size() { return cache_.size(); }
+
+  private static boolean isCacheable(FeTable table) {
+    if (!(table instanceof FeFsTable) && !(table instanceof FeView)) return false;
+    if (table.getCatalogVersion() <= Catalog.INITIAL_CATALOG_VERSION) return false;
+    if (table.getMetaStoreTable() == null ||
+        AcidUtils.isTransactionalTable(table.getMetaStoreTable().getParameters())) {
+      return false;
+    }
+    // The statement of the query does not show the functions and samples of views.
+    return !(table instanceof FeView) ||
+        normalizeStmt(((FeView) table).getQueryStmt().toSql()) != null;
+  }
+
+  /**
+   * Returns the tokens of 'stmt' in a form which only differs for statements which
+   * differ by more than whitespace and comments. Returns null if 'stmt' cannot be
+   * cached: if it is not a SELECT statement, calls a function which is not a builtin
+   * or is a builtin in UNCACHEABLE_FNS, or samples a table without a REPEATABLE seed,
+   * in which case the planner picks the sample with a seed based on the time.
+   */
+  @VisibleForTesting
+  static String normalizeStmt(String stmt) {
+    List<Symbol> tokens = new ArrayList<>();
+    SqlScanner scanner = new SqlScanner(new StringReader(stmt));
+    try {
+      for (Symbol token = scanner.next_token(); token.sym != SqlParserSymbols.EOF;
+           token = scanner.next_token()) {
+        tokens.add(token);
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    if (tokens.isEmpty()) return null;
+    int firstSym = tokens.get(0).sym;
+    if (firstSym != SqlParserSymbols.KW_SELECT && firstSym != SqlParserSymbols.KW_WITH) {
+      return null;
+    }
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < tokens.size(); ++i) {
+      Symbol token = tokens.get(i);
+      if (isFunctionCall(tokens, i) && !isCacheableFunction(tokens, i)) return null;
+      if (token.sym == SqlParserSymbols.KW_TABLESAMPLE &&
+          !isRepeatableSample(tokens, i)) {
+        return null;
+      }
+      // Prefix values with their length, so that the tokens cannot run into each other.
+      String value = token.value == null ? "" : token.value.toString();
+      result.append(token.sym).append(':').append(value.length()).append(':')
+          .append(value).append(' ');
+    }
+    return result.toString();
+  }
+
+  private static boolean isFunctionCall(List<Symbol> tokens, int i) {
+    return i + 1 < tokens.size() && tokens.get(i + 1).sym == SqlParserSymbols.LPAREN &&
+        (tokens.get(i).sym == SqlParserSymbols.IDENT ||
+         (i > 0 && tokens.get(i - 1).sym == SqlParserSymbols.DOT));
+  }
+
+  /**
+   * Returns true if the TABLESAMPLE clause starting at tokens[i] has a REPEATABLE seed.
+   */
+  private static boolean isRepeatableSample(List<Symbol> tokens, int i) {
+    // TABLESAMPLE SYSTEM(<percent>) REPEATABLE(<seed>)
+    int j = i + 1;
+    while (j < tokens.size() && tokens.get(j).sym != SqlParserSymbols.RPAREN) ++j;
+    return j + 1 < tokens.size() &&
+        tokens.get(j + 1).sym == SqlParserSymbols.KW_REPEATABLE;
+  }
+
+  private static boolean isCacheableFunction(List<Symbol> tokens, int i) {
+    // Functions qualified with a database are UDFs, unless they are explicitly qualified
+    // with the builtins database, which is not worth handling.
+    if (i > 0 && tokens.get(i - 1).sym == SqlParserSymbols.DOT) return false;
+    String fnName = tokens.get(i).value.toString().toLowerCase();
+    // Unqualified function names resolve to builtins before functions of the session
+    // database.
+    return !UNCACHEABLE_FNS.contains(fnName) &&
+        BuiltinsDb.getInstance().containsFunction(fnName);
+  }
+}
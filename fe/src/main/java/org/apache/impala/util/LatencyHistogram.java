@@ -0,0 +1,119 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.impala.thrift.TLatencyHistogram;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Histogram of latencies in nanoseconds since the histogram was created. Unlike the
+ * histograms of the codahale metrics, recording a latency takes no lock, so that it can
+ * be used on hot paths, e.g. to measure the time spent waiting for a contended lock.
+ *
+ * Latencies are counted in buckets of logarithmic size, SUB_BUCKETS buckets for each
+ * power of two, so percentiles are accurate to within 1 / SUB_BUCKETS of their value.
+ * Thread-safe.
+ */
+public class LatencyHistogram {
+  // Number of bits and buckets which split each power of two.
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets_ = new AtomicLongArray(NUM_BUCKETS);
+  private final LongAdder count_ = new LongAdder();
+  private final LongAdder totalNs_ = new LongAdder();
+  private final LongAccumulator maxNs_ = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records a latency of 'latencyNs'. Negative latencies, e.g. if the clock went
+   * backwards, are recorded as 0.
+   */
+  public void record(long latencyNs) {
+    latencyNs = Math.max(0, latencyNs);
+    buckets_.incrementAndGet(getBucket(latencyNs));
+    count_.increment();
+    totalNs_.add(latencyNs);
+    maxNs_.accumulate(latencyNs);
+  }
+
+  public long getCount() { return count_.sum(); }
+  public long getTotalNs() { return totalNs_.sum(); }
+  public long getMaxNs() { return maxNs_.get(); }
+
+  /**
+   * Returns the latency below which 'percentile' percent of the recorded latencies lie,
+   * rounded up to the upper bound of its bucket but not above the largest recorded
+   * latency. Returns 0 if no latency was recorded.
+   */
+  public long getPercentileNs(double percentile) {
+    Preconditions.checkArgument(percentile > 0 && percentile <= 100);
+    long[] counts = new long[NUM_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      counts[i] = buckets_.get(i);
+      total += counts[i];
+    }
+    if (total == 0) return 0;
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) return Math.min(getUpperBound(i), getMaxNs());
+    }
+    return getMaxNs();
+  }
+
+  public TLatencyHistogram toThrift() {
+    TLatencyHistogram result = new TLatencyHistogram();
+    result.setCount(getCount());
+    result.setTotal_ns(getTotalNs());
+    result.setP50_ns(getPercentileNs(50));
+    result.setP95_ns(getPercentileNs(95));
+    result.setP99_ns(getPercentileNs(99));
+    result.setMax_ns(getMaxNs());
+    return result;
+  }
+
+  /**
+   * Returns the bucket of the non-negative latency 'latencyNs'. Latencies below
+   * SUB_BUCKETS have a bucket of their own, the other ones are bucketed by their most
+   * significant bit and the SUB_BUCKET_BITS bits which follow it.
+   */
+  private static int getBucket(long latencyNs) {
+    if (latencyNs < SUB_BUCKETS) return (int) latencyNs;
+    int msb = Long.SIZE - 1 - Long.numberOfLeadingZeros(latencyNs);
+    int subBucket = (int) (latencyNs >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the largest latency of the bucket 'bucket'.
+   */
+  private static long getUpperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) return bucket;
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+}
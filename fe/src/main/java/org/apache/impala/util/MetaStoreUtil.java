@@ -119,6 +119,11 @@ public class MetaStoreUtil {
         DEFAULT_HIVE_METASTORE_URIS);
   }
 
+  /**
+   * Returns the maximum number of partitions to fetch from the metastore in one RPC.
+   */
+  public static int getMaxPartitionsPerRpc() { return maxPartitionsPerRpc_; }
+
   /**
    * Return the value that Hive is configured to use for NULL partition key values.
    */
@@ -143,41 +148,6 @@ public class MetaStoreUtil {
     return client.getConfigValue(config, defaultVal);
   }
 
-  /**
-   * Fetches all partitions for a table in batches, with each batch containing at most
-   * 'maxPartsPerRpc' partitions. Returns a List containing all fetched Partitions.
-   * Will throw a MetaException if existing partitions are dropped while a fetch is in
-   * progress. To help protect against this, the operation can be retried if there is
-   * a MetaException by setting the "numRetries" parameter.
-   * Failures due to thrift exceptions (TExceptions) are not retried because they
-   * generally mean the connection is broken or has timed out. The HiveClient supports
-   * configuring retires at the connection level so it can be enabled independently.
-   */
-  public static List<org.apache.hadoop.hive.metastore.api.Partition> fetchAllPartitions(
-      IMetaStoreClient client, String dbName, String tblName, int numRetries)
-      throws MetaException, TException {
-    Preconditions.checkArgument(numRetries >= 0);
-    int retryAttempt = 0;
-    while (true) {
-      try {
-        // First, get all partition names that currently exist.
-        List<String> partNames = client.listPartitionNames(dbName, tblName, (short) -1);
-        return MetaStoreUtil.fetchPartitionsByName(client, partNames, dbName, tblName);
-      } catch (MetaException e) {
-        // Only retry for MetaExceptions, since TExceptions could indicate a broken
-        // connection which we can't recover from by retrying.
-        if (retryAttempt < numRetries) {
-          LOG.error(String.format("Error fetching partitions for table: %s.%s. " +
-              "Retry attempt: %d/%d", dbName, tblName, retryAttempt, numRetries), e);
-          ++retryAttempt;
-          // TODO: Sleep for a bit?
-        } else {
-          throw e;
-        }
-      }
-    }
-  }
-
   /**
    * Given a List of partition names, fetches the matching Partitions from the HMS
    * in batches. Each batch will contain at most 'maxPartsPerRpc' partitions.
@@ -0,0 +1,111 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.util;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Serializes thrift objects into a reusable direct ByteBuffer, which can be handed to
+ * the backend without copying it. Unlike TSerializer, no byte array of the size of the
+ * serialized object is allocated on the Java heap for each object, so serializing many
+ * large objects does not cause allocation spikes. The buffer grows as needed, and is
+ * replaced by a buffer of the initial capacity before the next object is serialized if
+ * it grew larger than 'retainedCapacity'. Not thread-safe.
+ */
+public class TDirectBufferSerializer {
+  private final int initialCapacity_;
+  private final int retainedCapacity_;
+  private final DirectBufferTransport transport_ = new DirectBufferTransport();
+  private final TProtocol protocol_;
+
+  public TDirectBufferSerializer(TProtocolFactory protocolFactory, int initialCapacity,
+      int retainedCapacity) {
+    Preconditions.checkArgument(initialCapacity > 0);
+    Preconditions.checkArgument(retainedCapacity >= initialCapacity);
+    initialCapacity_ = initialCapacity;
+    retainedCapacity_ = retainedCapacity;
+    transport_.buffer_ = ByteBuffer.allocateDirect(initialCapacity);
+    protocol_ = protocolFactory.getProtocol(transport_);
+  }
+
+  /**
+   * Serializes 'obj' and returns the buffer holding it, from position 0 to its limit.
+   * The buffer is only valid until the next call.
+   */
+  public ByteBuffer serialize(TBase<?, ?> obj) throws TException {
+    if (transport_.buffer_.capacity() > retainedCapacity_) {
+      transport_.buffer_ = ByteBuffer.allocateDirect(initialCapacity_);
+    }
+    transport_.buffer_.clear();
+    obj.write(protocol_);
+    transport_.buffer_.flip();
+    return transport_.buffer_;
+  }
+
+  /**
+   * Write-only transport which appends to 'buffer_' and grows it when it is full.
+   */
+  private static class DirectBufferTransport extends TTransport {
+    private ByteBuffer buffer_;
+
+    @Override
+    public boolean isOpen() { return true; }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws TTransportException {
+      throw new TTransportException("Read is not supported by TDirectBufferSerializer");
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws TTransportException {
+      if (buffer_.remaining() < len) grow(len);
+      buffer_.put(buf, off, len);
+    }
+
+    /**
+     * Replaces 'buffer_' with a copy that has room for at least 'len' more bytes.
+     */
+    private void grow(int len) throws TTransportException {
+      long minCapacity = (long) buffer_.position() + len;
+      if (minCapacity > Integer.MAX_VALUE) {
+        throw new TTransportException("Serialized object is larger than 2GB");
+      }
+      long newCapacity = Math.max(minCapacity, 2L * buffer_.capacity());
+      ByteBuffer newBuffer =
+          ByteBuffer.allocateDirect((int) Math.min(newCapacity, Integer.MAX_VALUE));
+      buffer_.flip();
+      newBuffer.put(buffer_);
+      buffer_ = newBuffer;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.util;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ReentrantReadWriteLock which records how long lock() and lockInterruptibly() of its
+ * read and write locks waited in a LatencyHistogram for each lock mode. Timed and
+ * non-blocking tryLock() calls are not recorded. Otherwise behaves exactly like a
+ * ReentrantReadWriteLock, so it can replace one without changing its callers.
+ */
+public class TimedReentrantReadWriteLock extends ReentrantReadWriteLock {
+  private final LatencyHistogram readLockWaits_ = new LatencyHistogram();
+  private final LatencyHistogram writeLockWaits_ = new LatencyHistogram();
+  private final TimedReadLock readLock_ = new TimedReadLock(this);
+  private final TimedWriteLock writeLock_ = new TimedWriteLock(this);
+
+  public TimedReentrantReadWriteLock(boolean fair) { super(fair); }
+
+  @Override
+  public ReentrantReadWriteLock.ReadLock readLock() { return readLock_; }
+
+  @Override
+  public ReentrantReadWriteLock.WriteLock writeLock() { return writeLock_; }
+
+  public LatencyHistogram getReadLockWaits() { return readLockWaits_; }
+  public LatencyHistogram getWriteLockWaits() { return writeLockWaits_; }
+
+  private static class TimedReadLock extends ReentrantReadWriteLock.ReadLock {
+    private final LatencyHistogram waits_;
+
+    TimedReadLock(TimedReentrantReadWriteLock lock) {
+      super(lock);
+      waits_ = lock.readLockWaits_;
+    }
+
+    @Override
+    public void lock() {
+      long startNs = System.nanoTime();
+      super.lock();
+      waits_.record(System.nanoTime() - startNs);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      long startNs = System.nanoTime();
+      super.lockInterruptibly();
+      waits_.record(System.nanoTime() - startNs);
+    }
+  }
+
+  private static class TimedWriteLock extends ReentrantReadWriteLock.WriteLock {
+    private final LatencyHistogram waits_;
+
+    TimedWriteLock(TimedReentrantReadWriteLock lock) {
+      super(lock);
+      waits_ = lock.writeLockWaits_;
+    }
+
+    @Override
+    public void lock() {
+      long startNs = System.nanoTime();
+      super.lock();
+      waits_.record(System.nanoTime() - startNs);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      long startNs = System.nanoTime();
+      super.lockInterruptibly();
+      waits_.record(System.nanoTime() - startNs);
+    }
+  }
+}
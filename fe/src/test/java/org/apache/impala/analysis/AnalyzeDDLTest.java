@@ -1622,6 +1622,25 @@ public class AnalyzeDDLTest extends FrontendTestBase {
         "'boolean1' of type 'BOOLEAN' at position '0'.\nPlease re-create the table " +
         "with column definitions, e.g., using the result of 'SHOW CREATE TABLE'");
 
+    // Histograms are only computed for numeric columns if requested.
+    String histogramQuery = checkComputeStatsStmt("compute stats functional.alltypes")
+        .getColStatsQuery().toUpperCase();
+    Assert.assertTrue(!histogramQuery.contains("HISTOGRAM("));
+    TQueryOptions histogramOpts = new TQueryOptions();
+    histogramOpts.setCompute_column_histograms(true);
+    histogramQuery = checkComputeStatsStmt("compute stats functional.alltypes",
+        createAnalysisCtx(histogramOpts)).getColStatsQuery().toUpperCase();
+    Assert.assertTrue(histogramQuery.contains("HISTOGRAM(INT_COL)"));
+    Assert.assertTrue(histogramQuery.contains("HISTOGRAM(DOUBLE_COL)"));
+    Assert.assertTrue(!histogramQuery.contains("HISTOGRAM(STRING_COL)"));
+    histogramQuery = checkComputeStatsStmt("compute stats functional.decimal_tbl",
+        createAnalysisCtx(histogramOpts)).getColStatsQuery().toUpperCase();
+    Assert.assertTrue(histogramQuery.contains("HISTOGRAM(CAST(D1 AS DOUBLE))"));
+    histogramQuery = checkComputeStatsStmt(
+        "compute incremental stats functional.alltypes",
+        createAnalysisCtx(histogramOpts)).getColStatsQuery().toUpperCase();
+    Assert.assertTrue(!histogramQuery.contains("HISTOGRAM("));
+
     // Test tablesample clause with extrapolation enabled/disabled. Replace/restore the
     // static backend config for this test to control stats extrapolation.
     TBackendGflags gflags = BackendConfig.INSTANCE.getBackendCfg();
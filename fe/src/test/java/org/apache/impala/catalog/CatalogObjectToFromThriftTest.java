@@ -21,8 +21,12 @@ import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.impala.analysis.LiteralExpr;
 import org.apache.impala.common.ImpalaException;
 import org.apache.impala.common.SqlCastException;
@@ -123,6 +127,70 @@ public class CatalogObjectToFromThriftTest {
     }
   }
 
+  /**
+   * Verifies that toThriftForTopicUpdate() only returns the partitions that changed
+   * since they were last published and that impalads reuse the other partitions from
+   * their cached instance of the table.
+   */
+  @Test
+  public void TestTopicUpdatePartitions() throws CatalogException {
+    HdfsTable table =
+        (HdfsTable) catalog_.getOrLoadTable("functional", "alltypes", "test");
+    Db db = catalog_.getDb("functional");
+
+    // Nothing was published yet, all partitions are returned.
+    List<HdfsPartition> changed = new ArrayList<>();
+    TTable thriftTable = table.toThriftForTopicUpdate(Collections.emptyMap(), changed);
+    THdfsTable hdfsTable = thriftTable.getHdfs_table();
+    Assert.assertTrue(hdfsTable.getPartitions().isEmpty());
+    Map<Long, Long> versions = hdfsTable.getPartition_versions();
+    Assert.assertEquals(24, versions.size());
+    Assert.assertEquals(24, changed.size());
+    for (HdfsPartition part: changed) {
+      Assert.assertTrue(versions.containsKey(part.getId()));
+      hdfsTable.getPartitions().put(part.getId(),
+          table.partitionToThriftForTopicUpdate(part));
+    }
+    HdfsTable first = (HdfsTable) Table.fromThrift(db, thriftTable);
+    first.addUnchangedPartitions(null, versions);
+    Assert.assertEquals(24, first.getPartitions().size());
+    Assert.assertEquals(table.getTotalHdfsBytes(), first.getTotalHdfsBytes());
+
+    // Only the changed partition is serialized, the others are reused.
+    HdfsPartition changedPart =
+        (HdfsPartition) Iterables.getFirst(table.getPartitions(), null);
+    changedPart.markChanged();
+    changed = new ArrayList<>();
+    thriftTable = table.toThriftForTopicUpdate(versions, changed);
+    hdfsTable = thriftTable.getHdfs_table();
+    Assert.assertEquals(Collections.singletonList(changedPart), changed);
+    THdfsPartition changedThriftPart = table.partitionToThriftForTopicUpdate(changedPart);
+    Assert.assertEquals(changedPart.getVersion(), changedThriftPart.getVersion());
+    hdfsTable.getPartitions().put(changedPart.getId(), changedThriftPart);
+    HdfsTable second = (HdfsTable) Table.fromThrift(db, thriftTable);
+    second.addUnchangedPartitions(first, hdfsTable.getPartition_versions());
+    Assert.assertEquals(24, second.getPartitions().size());
+    Assert.assertEquals(table.getTotalHdfsBytes(), second.getTotalHdfsBytes());
+    for (PrunablePartition p: second.getPartitions()) {
+      HdfsPartition part = (HdfsPartition) p;
+      HdfsPartition origPart = (HdfsPartition) table.getPartitionMap().get(part.getId());
+      Assert.assertSame(second, part.getTable());
+      Assert.assertEquals(origPart.getVersion(), part.getVersion());
+      Assert.assertEquals(origPart.getLocation(), part.getLocation());
+      Assert.assertEquals(origPart.getFileDescriptors().size(),
+          part.getFileDescriptors().size());
+    }
+
+    // The partitions that were not sent must be cached.
+    HdfsTable third = (HdfsTable) Table.fromThrift(db, thriftTable);
+    try {
+      third.addUnchangedPartitions(null, hdfsTable.getPartition_versions());
+      fail("Expected PartitionNotFoundException");
+    } catch (PartitionNotFoundException e) {
+      // Expected.
+    }
+  }
+
   /**
    * Validates proper to/fromThrift behavior for a table whose column definition does not
    * match its Avro schema definition. The expected behavior is that the Avro schema
@@ -259,6 +327,46 @@ public class CatalogObjectToFromThriftTest {
     Assert.assertTrue(thriftTable.isSetMetastore_table());
   }
 
+  /**
+   * Verifies that a table restored from a catalog snapshot entry is usable by the
+   * catalog server, i.e. its partitions keep their HMS descriptors, file descriptors and
+   * stats, and get ids which don't collide with the ones of the original table.
+   */
+  @Test
+  public void TestTableFromSnapshot() throws CatalogException {
+    HdfsTable table =
+        (HdfsTable) catalog_.getOrLoadTable("functional", "alltypes", "test");
+    TTable thriftTable = getThriftTable(table);
+    Map<Long, Partition> msPartitions = new HashMap<>();
+    for (PrunablePartition p: table.getPartitions()) {
+      HdfsPartition part = (HdfsPartition) p;
+      msPartitions.put(part.getId(), part.toHmsPartition());
+    }
+
+    Table newTable = Table.fromMetastoreTable(catalog_.getDb("functional"),
+        thriftTable.getMetastore_table());
+    Assert.assertTrue(newTable instanceof HdfsTable);
+    HdfsTable newHdfsTable = (HdfsTable) newTable;
+    newHdfsTable.loadFromSnapshot(thriftTable, msPartitions);
+    Assert.assertEquals(7300, newHdfsTable.getNumRows());
+    Assert.assertEquals(24, newHdfsTable.getPartitions().size());
+    Assert.assertEquals(table.getHostIndex().getList(),
+        newHdfsTable.getHostIndex().getList());
+    for (PrunablePartition p: newHdfsTable.getPartitions()) {
+      HdfsPartition part = (HdfsPartition) p;
+      Assert.assertFalse(table.getPartitionIds().contains(part.getId()));
+      Assert.assertNotNull(part.toHmsPartition());
+      HdfsPartition origPart = table.getPartitionsForNames(
+          Lists.newArrayList(part.getPartitionName())).get(0);
+      Assert.assertEquals(origPart.getLocation(), part.getLocation());
+      Assert.assertEquals(origPart.getNumRows(), part.getNumRows());
+      Assert.assertEquals(origPart.getFileDescriptors().size(),
+          part.getFileDescriptors().size());
+      Assert.assertEquals(origPart.getFileDescriptors().get(0).toString(),
+          part.getFileDescriptors().get(0).toString());
+    }
+  }
+
   private TTable getThriftTable(Table table) {
     TTable thriftTable = null;
     table.getLock().lock();
@@ -0,0 +1,186 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.impala.catalog.MetaStoreClientPool.MetaStoreClient;
+import org.apache.impala.catalog.events.ExternalEventsProcessor;
+import org.apache.impala.catalog.events.MetastoreEventsProcessor.EventProcessorStatus;
+import org.apache.impala.testutil.CatalogServiceTestCatalog;
+import org.apache.impala.thrift.TEventProcessorMetrics;
+import org.apache.impala.thrift.TEventProcessorMetricsSummaryResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests writing catalog snapshots and restoring them into a new catalog.
+ */
+public class CatalogSnapshotTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private CatalogServiceCatalog catalog_;
+  private TestEventsProcessor eventsProcessor_;
+  private File snapshotDir_;
+
+  /**
+   * An events processor which is always in sync with the current event id of the
+   * metastore and records from which event id it was restarted.
+   */
+  private static class TestEventsProcessor implements ExternalEventsProcessor {
+    private final long eventId_;
+    private long restartEventId_ = -1;
+
+    TestEventsProcessor(long eventId) { eventId_ = eventId; }
+
+    @Override
+    public void start() {}
+    @Override
+    public long getCurrentEventId() { return eventId_; }
+    @Override
+    public void pause() {}
+    @Override
+    public void start(long fromEventId) { restartEventId_ = fromEventId; }
+    @Override
+    public void shutdown() {}
+    @Override
+    public void processEvents() {}
+
+    @Override
+    public TEventProcessorMetrics getEventProcessorMetrics() {
+      TEventProcessorMetrics metrics = new TEventProcessorMetrics();
+      metrics.setStatus(EventProcessorStatus.ACTIVE.toString());
+      metrics.setLast_synced_event_id(eventId_);
+      return metrics;
+    }
+
+    @Override
+    public TEventProcessorMetricsSummaryResponse getEventProcessorSummary() {
+      return new TEventProcessorMetricsSummaryResponse();
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    catalog_ = createCatalog();
+    eventsProcessor_ = (TestEventsProcessor) catalog_.getMetastoreEventProcessor();
+    snapshotDir_ = tempFolder.newFolder("snapshot");
+  }
+
+  @After
+  public void cleanUp() { catalog_.close(); }
+
+  private static CatalogServiceCatalog createCatalog() throws Exception {
+    CatalogServiceCatalog catalog = CatalogServiceTestCatalog.create();
+    long eventId;
+    try (MetaStoreClient msClient = catalog.getMetaStoreClient()) {
+      eventId = msClient.getHiveClient().getCurrentNotificationEventId().getEventId();
+    }
+    catalog.setMetastoreEventProcessor(new TestEventsProcessor(eventId));
+    return catalog;
+  }
+
+  /**
+   * Returns the number of file descriptors of each partition of 'tbl' by name.
+   */
+  private static Map<String, Integer> getFileCounts(HdfsTable tbl) {
+    Map<String, Integer> fileCounts = new HashMap<>();
+    for (PrunablePartition p: tbl.getPartitions()) {
+      HdfsPartition part = (HdfsPartition) p;
+      fileCounts.put(part.getPartitionName(), part.getNumFileDescriptors());
+    }
+    return fileCounts;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    HdfsTable tbl =
+        (HdfsTable) catalog_.getOrLoadTable("functional", "alltypes", "test");
+    assertTrue(new CatalogSnapshot(catalog_, snapshotDir_.getPath(), 1).write() > 0);
+
+    CatalogServiceCatalog restoreCatalog = createCatalog();
+    try {
+      assertFalse(restoreCatalog.getTable("functional", "alltypes").isLoaded());
+      TestEventsProcessor restoreEvents =
+          (TestEventsProcessor) restoreCatalog.getMetastoreEventProcessor();
+      CatalogSnapshot snapshot =
+          new CatalogSnapshot(restoreCatalog, snapshotDir_.getPath(), 1);
+      assertTrue(snapshot.restore() > 0);
+      // Event processing catches up from the event id of the snapshot.
+      assertEquals(eventsProcessor_.eventId_, restoreEvents.restartEventId_);
+
+      Table restored = restoreCatalog.getTable("functional", "alltypes");
+      assertTrue(restored instanceof HdfsTable);
+      HdfsTable restoredTbl = (HdfsTable) restored;
+      assertEquals(24, restoredTbl.getPartitions().size());
+      assertEquals(getFileCounts(tbl), getFileCounts(restoredTbl));
+      assertEquals(tbl.getNumRows(), restoredTbl.getNumRows());
+      // Tables which were not in the snapshot are still loaded on demand.
+      assertFalse(restoreCatalog.getTable("functional", "alltypessmall").isLoaded());
+    } finally {
+      restoreCatalog.close();
+    }
+  }
+
+  @Test
+  public void testTruncatedSnapshot() throws Exception {
+    catalog_.getOrLoadTable("functional", "alltypes", "test");
+    assertTrue(new CatalogSnapshot(catalog_, snapshotDir_.getPath(), 1).write() > 0);
+    File snapshotFile = snapshotDir_.listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+      file.setLength(file.length() / 2);
+    }
+    assertRestoresNothing();
+  }
+
+  @Test
+  public void testCorruptSnapshot() throws Exception {
+    File snapshotFile = new File(snapshotDir_, "catalogd.snapshot");
+    com.google.common.io.Files.write(new byte[] {1, 2, 3, 4}, snapshotFile);
+    assertRestoresNothing();
+  }
+
+  /**
+   * Checks that restoring the snapshot in 'snapshotDir_' into a new catalog does not
+   * fail and leaves the tables to be loaded from the metastore.
+   */
+  private void assertRestoresNothing() throws Exception {
+    CatalogServiceCatalog restoreCatalog = createCatalog();
+    try {
+      CatalogSnapshot snapshot =
+          new CatalogSnapshot(restoreCatalog, snapshotDir_.getPath(), 1);
+      assertEquals(0, snapshot.restore());
+      assertFalse(restoreCatalog.getTable("functional", "alltypes").isLoaded());
+      assertTrue(restoreCatalog.getOrLoadTable("functional", "alltypes", "test")
+          instanceof HdfsTable);
+    } finally {
+      restoreCatalog.close();
+    }
+  }
+}
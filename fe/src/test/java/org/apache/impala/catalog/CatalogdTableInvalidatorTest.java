@@ -21,11 +21,14 @@ import com.google.common.base.Ticker;
 import org.apache.impala.common.Reference;
 import org.apache.impala.testutil.CatalogServiceTestCatalog;
 import org.apache.impala.thrift.TTableName;
+import org.apache.impala.thrift.TTableUsage;
+import org.apache.impala.thrift.TUpdateTableUsageRequest;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.Thread.sleep;
@@ -80,6 +83,54 @@ public class CatalogdTableInvalidatorTest {
     Assert.assertFalse(catalog_.getTable(dbName, tblName).isLoaded());
   }
 
+  /**
+   * Test the order in which the cost-aware eviction policy invalidates tables and the
+   * accounting of the freed bytes.
+   */
+  @Test
+  public void testCostAwareEvictionPolicy() throws CatalogException {
+    MockTicker ticker = new MockTicker();
+    CatalogdTableInvalidator.TIME_SOURCE = ticker;
+    CatalogdTableInvalidator invalidator = new CatalogdTableInvalidator(catalog_,
+        /*unusedTableTtlSec=*/TimeUnit.DAYS.toSeconds(100),
+        /*invalidateTablesOnMemoryPressure=*/false,
+        /*oldGenFullThreshold=*/0.6, /*gcInvalidationFraction=*/0.1,
+        TableEvictionPolicy.create("cost"));
+    catalog_.setCatalogdTableInvalidator(invalidator);
+    TableEvictionPolicy policy = TableEvictionPolicy.create("cost");
+
+    // A large table which takes 5 minutes to load and a small one which loads quickly.
+    Table expensive = catalog_.getOrLoadTable("functional", "alltypes", "test");
+    Table cheap = catalog_.getOrLoadTable("functional", "alltypestiny", "test");
+    // Loading a table is not a usage, only the accesses reported by impalads are.
+    Assert.assertEquals(0, expensive.getAccessFrequency(ticker.read()), 0);
+    catalog_.updateTableUsage(new TUpdateTableUsageRequest(Arrays.asList(
+        new TTableUsage(new TTableName("functional", "alltypes"), 1),
+        new TTableUsage(new TTableName("functional", "alltypestiny"), 1))));
+    Assert.assertEquals(1, expensive.getAccessFrequency(ticker.read()), 0);
+    expensive.getMetrics().getTimer(Table.LOAD_DURATION_METRIC)
+        .update(5, TimeUnit.MINUTES);
+    expensive.setEstimatedMetadataSize(100L * 1024 * 1024);
+    cheap.setEstimatedMetadataSize(1024L * 1024);
+    Assert.assertTrue(policy.getRetentionScore(expensive, ticker.read()) >
+        policy.getRetentionScore(cheap, ticker.read()));
+
+    // The usages of the expensive table decay while the cheap one is still used.
+    ticker.set(TimeUnit.HOURS.toNanos(10));
+    cheap.refreshLastUsedTime(10);
+    Assert.assertTrue(expensive.getAccessFrequency(ticker.read()) < 0.01);
+    Assert.assertTrue(policy.getRetentionScore(expensive, ticker.read()) <
+        policy.getRetentionScore(cheap, ticker.read()));
+
+    invalidator.invalidateSome(1.0);
+    Assert.assertFalse(catalog_.getTable("functional", "alltypes").isLoaded());
+    Assert.assertFalse(catalog_.getTable("functional", "alltypestiny").isLoaded());
+    Assert.assertTrue(invalidator.getLastRoundBytesFreed() >= 101L * 1024 * 1024);
+    Assert.assertEquals(invalidator.getLastRoundBytesFreed(),
+        invalidator.getTotalBytesFreed());
+    Assert.assertTrue(invalidator.getNumTablesInvalidated() >= 2);
+  }
+
   @After
   public void cleanUp() {
     catalog_.getCatalogdTableInvalidator().stop();
@@ -0,0 +1,86 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.impala.thrift.TColumnStats;
+import org.junit.Test;
+
+public class ColumnHistogramTest {
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void testParse() {
+    assertNull(ColumnHistogram.parse(null));
+    assertNull(ColumnHistogram.parse(""));
+    assertNull(ColumnHistogram.parse("1, abc, 3"));
+    assertNull(ColumnHistogram.parse("1, inf"));
+    assertNull(ColumnHistogram.parse("1, nan"));
+    // Bounds must be sorted.
+    assertNull(ColumnHistogram.parse("3, 2, 1"));
+
+    ColumnHistogram histogram = ColumnHistogram.parse("-5, 1, 1, 2.5, 1.5e+06");
+    assertEquals(5, histogram.getNumBuckets());
+    assertEquals("-5, 1, 1, 2.5, 1500000", histogram.toString());
+    assertEquals(histogram, ColumnHistogram.parse(histogram.toString()));
+  }
+
+  @Test
+  public void testSelectivity() {
+    // Ten buckets. The value 5 fills at least four of them.
+    ColumnHistogram histogram = ColumnHistogram.parse("1, 2, 5, 5, 5, 5, 5, 6, 8, 10");
+    assertEquals(0.4, histogram.getEqualFraction(5), DELTA);
+    // Values that are the upper bound of at most one bucket are not frequent.
+    assertEquals(0, histogram.getEqualFraction(6), DELTA);
+    assertEquals(0, histogram.getEqualFraction(7), DELTA);
+
+    assertEquals(0, histogram.getLessFraction(0, true), DELTA);
+    assertEquals(0, histogram.getLessFraction(1, false), DELTA);
+    assertEquals(0.1, histogram.getLessFraction(1, true), DELTA);
+    assertEquals(0.2, histogram.getLessFraction(5, false), DELTA);
+    assertEquals(0.7, histogram.getLessFraction(5, true), DELTA);
+    // Interpolates within the bucket (8, 10].
+    assertEquals(0.95, histogram.getLessFraction(9, true), DELTA);
+    assertEquals(1, histogram.getLessFraction(10, true), DELTA);
+    assertEquals(1, histogram.getLessFraction(100, false), DELTA);
+
+    assertEquals(0.3, histogram.getGreaterFraction(5, false), DELTA);
+    assertEquals(0.8, histogram.getGreaterFraction(5, true), DELTA);
+    assertEquals(0, histogram.getGreaterFraction(10, false), DELTA);
+  }
+
+  @Test
+  public void testColumnStats() {
+    ColumnStats stats = new ColumnStats(Type.INT);
+    TColumnStats colStats = stats.toThrift();
+    colStats.setNum_distinct_values(10);
+    colStats.setHistogram("1, 2, 3");
+    stats.update(Type.INT, colStats);
+    assertEquals(ColumnHistogram.parse("1, 2, 3"), stats.getHistogram());
+    assertEquals(ColumnHistogram.parse("1, 2, 3"), stats.clone().getHistogram());
+    assertEquals("1, 2, 3", stats.toThrift().getHistogram());
+
+    // Stats without a histogram clear the histogram.
+    colStats.unsetHistogram();
+    stats.update(Type.INT, colStats);
+    assertNull(stats.getHistogram());
+    assertNull(stats.toThrift().getHistogram());
+  }
+}
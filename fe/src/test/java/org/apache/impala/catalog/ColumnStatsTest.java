@@ -0,0 +1,112 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
+import org.apache.hadoop.hive.metastore.api.Date;
+import org.apache.hadoop.hive.metastore.api.DateColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.Decimal;
+import org.apache.hadoop.hive.metastore.api.DecimalColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
+import org.apache.impala.thrift.TColumnStats;
+import org.junit.Test;
+
+public class ColumnStatsTest {
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void testMinMaxValues() {
+    LongColumnStatsData longStats = new LongColumnStatsData(0, 10);
+    longStats.setLowValue(-5);
+    longStats.setHighValue(100);
+    ColumnStatisticsData statsData = new ColumnStatisticsData();
+    statsData.setLongStats(longStats);
+    ColumnStats stats = new ColumnStats(Type.INT);
+    assertTrue(stats.update(Type.INT, statsData));
+    assertEquals(-5, stats.getMinValue(), DELTA);
+    assertEquals(100, stats.getMaxValue(), DELTA);
+
+    // The min/max values are shipped to the impalads.
+    ColumnStats copy = new ColumnStats(Type.INT);
+    copy.update(Type.INT, stats.toThrift());
+    assertEquals(-5, copy.getMinValue(), DELTA);
+    assertEquals(100, copy.getMaxValue(), DELTA);
+    assertEquals(100, stats.clone().getMaxValue(), DELTA);
+
+    // TIMESTAMP bounds are ignored.
+    stats = new ColumnStats(Type.TIMESTAMP);
+    assertTrue(stats.update(Type.TIMESTAMP, statsData));
+    assertFalse(stats.hasMinValue());
+    assertFalse(stats.hasMaxValue());
+    assertFalse(stats.toThrift().isSetMin_value());
+
+    // DATE bounds are given as days since the epoch.
+    DateColumnStatsData dateStats = new DateColumnStatsData(0, 10);
+    dateStats.setHighValue(new Date(18000));
+    statsData = new ColumnStatisticsData();
+    statsData.setDateStats(dateStats);
+    stats = new ColumnStats(Type.DATE);
+    assertTrue(stats.update(Type.DATE, statsData));
+    assertFalse(stats.hasMinValue());
+    assertEquals(18000, stats.getMaxValue(), DELTA);
+
+    // DECIMAL bounds are converted to double.
+    DecimalColumnStatsData decimalStats = new DecimalColumnStatsData(0, 10);
+    decimalStats.setLowValue(createDecimal(-1234, 2));
+    decimalStats.setHighValue(createDecimal(99999, 2));
+    statsData = new ColumnStatisticsData();
+    statsData.setDecimalStats(decimalStats);
+    Type decimalType = ScalarType.createDecimalType(10, 2);
+    stats = new ColumnStats(decimalType);
+    assertTrue(stats.update(decimalType, statsData));
+    assertEquals(-12.34, stats.getMinValue(), DELTA);
+    assertEquals(999.99, stats.getMaxValue(), DELTA);
+  }
+
+  private static Decimal createDecimal(long unscaled, int scale) {
+    Decimal result = new Decimal();
+    result.setUnscaled(BigInteger.valueOf(unscaled).toByteArray());
+    result.setScale((short) scale);
+    return result;
+  }
+
+  @Test
+  public void testAddMinMaxValues() {
+    ColumnStats stats = new ColumnStats(Type.INT);
+    stats.setMinMaxValues(1, 10);
+    ColumnStats other = new ColumnStats(Type.INT);
+    other.setMinMaxValues(-3, 5);
+    stats.add(other);
+    assertEquals(-3, stats.getMinValue(), DELTA);
+    assertEquals(10, stats.getMaxValue(), DELTA);
+
+    // Unknown bounds stay unknown.
+    stats.add(new ColumnStats(Type.INT));
+    assertFalse(stats.hasMinValue());
+    assertFalse(stats.hasMaxValue());
+    TColumnStats colStats = stats.toThrift();
+    assertFalse(colStats.isSetMin_value());
+    assertFalse(colStats.isSetMax_value());
+  }
+}
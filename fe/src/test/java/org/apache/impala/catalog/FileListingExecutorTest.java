@@ -0,0 +1,111 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.impala.catalog.FileListingExecutor.Priority;
+import org.apache.impala.common.FileSystemUtil.FsType;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class FileListingExecutorTest {
+
+  @Test
+  public void testPriorityOrder() throws Exception {
+    FileListingExecutor executor = new FileListingExecutor(1, 1);
+    assertEquals(1, executor.getMaxThreads(FsType.HDFS));
+
+    // Occupy the only thread so that all following tasks are queued.
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(FsType.HDFS, Priority.LOW, () -> {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+    List<String> order = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(4);
+    executor.execute(FsType.HDFS, Priority.LOW, () -> {
+      order.add("low1:" + FileListingExecutor.getThreadPriority());
+      done.countDown();
+    });
+    executor.execute(FsType.HDFS, Priority.HIGH, () -> {
+      order.add("high1:" + FileListingExecutor.getThreadPriority());
+      done.countDown();
+    });
+    executor.execute(FsType.HDFS, Priority.LOW, () -> {
+      order.add("low2:" + FileListingExecutor.getThreadPriority());
+      done.countDown();
+    });
+    executor.execute(FsType.HDFS, Priority.HIGH, () -> {
+      order.add("high2:" + FileListingExecutor.getThreadPriority());
+      done.countDown();
+    });
+    assertEquals(4, executor.getQueueLength());
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(ImmutableList.of("high1:HIGH", "high2:HIGH", "low1:LOW", "low2:LOW"),
+        order);
+    assertEquals(0, executor.getQueueLength());
+    assertEquals(5, executor.getNumTasks());
+    assertTrue(executor.getTotalWaitTimeNs() > 0);
+  }
+
+  @Test
+  public void testThreadPriority() {
+    assertEquals(Priority.HIGH, FileListingExecutor.getThreadPriority());
+    Priority prev = FileListingExecutor.setThreadPriority(Priority.LOW);
+    try {
+      assertEquals(Priority.HIGH, prev);
+      assertEquals(Priority.LOW, FileListingExecutor.getThreadPriority());
+    } finally {
+      FileListingExecutor.setThreadPriority(prev);
+    }
+    assertEquals(Priority.HIGH, FileListingExecutor.getThreadPriority());
+  }
+
+  @Test
+  public void testGetFsType() {
+    assertEquals(FsType.HDFS,
+        FileListingExecutor.getFsType(new Path("hdfs://localhost:20500/a/b")));
+    assertEquals(FsType.S3, FileListingExecutor.getFsType(new Path("s3a://bucket/a")));
+    assertEquals(FsType.HDFS,
+        FileListingExecutor.getFsType(new Path("viewfs://cluster/a/b")));
+    assertNull(FileListingExecutor.getFsType(new Path("o3fs://bucket.vol/a")));
+    // Paths without a scheme are on the default filesystem.
+    FsType defaultFsType = FsType.getFsType(
+        FileSystem.getDefaultUri(new Configuration()).getScheme());
+    assertEquals(defaultFsType, FileListingExecutor.getFsType(new Path("/a/b")));
+  }
+}
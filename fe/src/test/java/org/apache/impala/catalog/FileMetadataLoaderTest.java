@@ -74,6 +74,59 @@ public class FileMetadataLoaderTest {
     assertEquals(1, refreshFml.getStats().loadedFiles);
   }
 
+  @Test
+  public void testSkipUnchangedDirectory() throws IOException {
+    // Work on a copy of a partition, the test changes the directory's mtime.
+    Path sourcePath = new Path(
+        "hdfs://localhost:20500/test-warehouse/alltypes/year=2009/month=1/");
+    Path partPath = new Path("hdfs://localhost:20500/tmp/test-skip-unchanged-dir");
+    Configuration conf = new Configuration();
+    FileSystem fs = partPath.getFileSystem(conf);
+    fs.delete(partPath, true);
+    FileUtil.copy(sourcePath.getFileSystem(conf), sourcePath, fs, partPath, false,
+        true, conf);
+    fs.deleteOnExit(partPath);
+    // Only modification times that are old enough are recorded.
+    long oldMtime = System.currentTimeMillis() - 60000;
+    fs.setTimes(partPath, oldMtime, /* atime= */-1);
+
+    ListMap<TNetworkAddress> hostIndex = new ListMap<>();
+    FileMetadataLoader fml = new FileMetadataLoader(partPath, /* recursive=*/true,
+        /* oldFds = */Collections.emptyList(), hostIndex, null, null);
+    fml.setSkipIfDirUnchanged(-1);
+    fml.load();
+    // Listing with locations does not reveal subdirectories, so the modification time
+    // can't be relied upon yet.
+    assertEquals(-1, fml.getDirModificationTime());
+
+    FileMetadataLoader refreshFml = new FileMetadataLoader(partPath,
+        /* recursive=*/true, /* oldFds = */fml.getLoadedFds(), hostIndex, null, null);
+    refreshFml.setSkipIfDirUnchanged(fml.getDirModificationTime());
+    refreshFml.load();
+    assertEquals(0, refreshFml.getStats().skippedDirs);
+    long dirMtime = refreshFml.getDirModificationTime();
+    assertEquals(oldMtime, dirMtime);
+
+    // The directory is not listed again if it did not change.
+    refreshFml = new FileMetadataLoader(partPath, /* recursive=*/true,
+        /* oldFds = */fml.getLoadedFds(), hostIndex, null, null);
+    refreshFml.setSkipIfDirUnchanged(dirMtime);
+    refreshFml.load();
+    assertEquals(1, refreshFml.getStats().skippedDirs);
+    assertEquals(1, refreshFml.getStats().skippedFiles);
+    assertEquals(dirMtime, refreshFml.getDirModificationTime());
+    assertEquals(fml.getLoadedFds(), refreshFml.getLoadedFds());
+
+    // Touch the directory and make sure that it is listed again.
+    fs.setTimes(partPath, dirMtime + 1, /* atime= */-1);
+    refreshFml = new FileMetadataLoader(partPath, /* recursive=*/true,
+        /* oldFds = */fml.getLoadedFds(), hostIndex, null, null);
+    refreshFml.setSkipIfDirUnchanged(dirMtime);
+    refreshFml.load();
+    assertEquals(0, refreshFml.getStats().skippedDirs);
+    assertEquals(dirMtime + 1, refreshFml.getDirModificationTime());
+  }
+
   @Test
   public void testLoadMissingDirectory() throws IOException {
     for (boolean recursive : ImmutableList.of(false, true)) {
@@ -170,4 +170,34 @@ public class HdfsPartitionTest {
 
     assertEquals(origAddresses, newAddresses);
   }
+
+  @Test
+  public void testOffHeapFileDescriptors() throws Exception {
+    Path p = new Path("hdfs://localhost:20500/test-warehouse/schemas");
+    ListMap<TNetworkAddress> hostIndex = new ListMap<>();
+    FileMetadataLoader fml = new FileMetadataLoader(p, /* recursive= */false,
+        Collections.emptyList(), hostIndex, /*validTxnList=*/null, /*writeIds=*/null);
+    fml.load();
+    List<FileDescriptor> fileDescriptors = fml.getLoadedFds();
+    assertTrue(!fileDescriptors.isEmpty());
+
+    // Store the FDs twice so that the second region starts in the middle of the slab.
+    long size = FileDescriptorSlabAllocator.getEncodedSize(fileDescriptors);
+    FileDescriptorSlabAllocator allocator = new FileDescriptorSlabAllocator(2 * size);
+    allocator.store(fileDescriptors);
+    List<FileDescriptor> offHeapFds = allocator.store(fileDescriptors);
+    assertEquals(fileDescriptors.size(), offHeapFds.size());
+    for (int i = 0; i < fileDescriptors.size(); i++) {
+      FileDescriptor fd = fileDescriptors.get(i);
+      FileDescriptor offHeapFd = offHeapFds.get(i);
+      assertEquals(fd.toString(), offHeapFd.toString());
+      assertEquals(getAllReplicaAddresses(fd, hostIndex),
+          getAllReplicaAddresses(offHeapFd, hostIndex));
+      // Converting to thrift or to a byte[] copies the off-heap FD to the heap.
+      assertEquals(fd.toString(),
+          FileDescriptor.fromThrift(offHeapFd.toThrift()).toString());
+      assertEquals(fd.toString(), FileDescriptor.FROM_BYTES.apply(
+          FileDescriptor.TO_BYTES.apply(offHeapFd)).toString());
+    }
+  }
 }
@@ -0,0 +1,174 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.impala.common.Pair;
+import org.apache.impala.service.FeSupport;
+import org.apache.impala.thrift.TCatalog;
+import org.apache.impala.thrift.TCatalogObject;
+import org.apache.impala.thrift.TCatalogObjectType;
+import org.apache.impala.thrift.TDatabase;
+import org.apache.impala.thrift.TTable;
+import org.apache.impala.thrift.TUniqueId;
+import org.apache.impala.thrift.TUpdateCatalogCacheResponse;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.junit.Test;
+
+/**
+ * Tests applying catalog topic updates to an ImpaladCatalog.
+ */
+public class ImpaladCatalogTest {
+  static {
+    FeSupport.loadLibrary();
+  }
+
+  // Enough tables for the update to be deserialized and loaded in parallel.
+  private static final int NUM_TABLES = 500;
+
+  private final ImpaladCatalog catalog_ = new ImpaladCatalog("127.0.0.1", null);
+
+  private final List<Pair<Boolean, ByteBuffer>> update_ = new ArrayList<>();
+
+  private void add(TCatalogObject obj) throws TException { addToUpdate(obj, false); }
+  private void delete(TCatalogObject obj) throws TException { addToUpdate(obj, true); }
+
+  private void addToUpdate(TCatalogObject obj, boolean deleted) throws TException {
+    byte[] bytes = new TSerializer(new TBinaryProtocol.Factory()).serialize(obj);
+    update_.add(Pair.create(deleted, ByteBuffer.wrap(bytes)));
+  }
+
+  /**
+   * Applies the objects added to 'update_' in order and clears it.
+   */
+  private TUpdateCatalogCacheResponse applyUpdate() throws Exception {
+    Iterator<Pair<Boolean, ByteBuffer>> it = new ArrayList<>(update_).iterator();
+    update_.clear();
+    return catalog_.applyUpdate(() -> it.hasNext() ? it.next() : null);
+  }
+
+  private static TCatalogObject catalogObject(long version) {
+    TCatalogObject obj = new TCatalogObject(TCatalogObjectType.CATALOG, version);
+    obj.setCatalog(new TCatalog(new TUniqueId(1, 1), 0));
+    return obj;
+  }
+
+  private static TCatalogObject dbObject(String dbName, long version) {
+    TDatabase db = new TDatabase(dbName);
+    db.setMetastore_db(new Database(dbName, "", "/test-warehouse/" + dbName,
+        new HashMap<>()));
+    TCatalogObject obj = new TCatalogObject(TCatalogObjectType.DATABASE, version);
+    obj.setDb(db);
+    return obj;
+  }
+
+  private static TCatalogObject tableObject(String dbName, String tblName,
+      long version) {
+    TCatalogObject obj = new TCatalogObject(TCatalogObjectType.TABLE, version);
+    obj.setTable(new TTable(dbName, tblName));
+    return obj;
+  }
+
+  /**
+   * Tables are applied after their database, even if they come first in the update.
+   */
+  @Test
+  public void testUpdateOrdering() throws Exception {
+    for (int i = 0; i < NUM_TABLES; ++i) {
+      add(tableObject("db" + (i % 3), "tbl" + i, 5));
+    }
+    for (int i = 0; i < 3; ++i) add(dbObject("db" + i, 4));
+    add(catalogObject(5));
+    TUpdateCatalogCacheResponse resp = applyUpdate();
+    assertEquals(5, resp.getNew_catalog_version());
+    assertTrue(catalog_.isReady());
+    for (int i = 0; i < NUM_TABLES; ++i) {
+      Table tbl = catalog_.getDb("db" + (i % 3)).getTable("tbl" + i);
+      assertNotNull(tbl);
+      assertEquals(5, tbl.getCatalogVersion());
+    }
+  }
+
+  /**
+   * Deletions are applied after the additions of the same update, and objects are
+   * removed before their database.
+   */
+  @Test
+  public void testDeletionsAndAdditions() throws Exception {
+    add(dbObject("db1", 1));
+    add(dbObject("db2", 1));
+    add(tableObject("db1", "t1", 2));
+    add(tableObject("db2", "t2", 2));
+    add(catalogObject(2));
+    applyUpdate();
+    assertNotNull(catalog_.getDb("db1").getTable("t1"));
+
+    delete(tableObject("db1", "t1", 3));
+    delete(dbObject("db2", 3));
+    delete(tableObject("db2", "t2", 3));
+    add(tableObject("db1", "t3", 3));
+    add(catalogObject(3));
+    applyUpdate();
+    assertNull(catalog_.getDb("db1").getTable("t1"));
+    assertNotNull(catalog_.getDb("db1").getTable("t3"));
+    assertNull(catalog_.getDb("db2"));
+
+    // A table that is re-added in a later update replaces the dropped one.
+    add(tableObject("db1", "t1", 4));
+    add(catalogObject(4));
+    applyUpdate();
+    assertEquals(4, catalog_.getDb("db1").getTable("t1").getCatalogVersion());
+  }
+
+  /**
+   * An object that fails to deserialize on the update pool fails the whole update.
+   */
+  @Test
+  public void testErrorPropagation() throws Exception {
+    add(dbObject("db1", 1));
+    for (int i = 0; i < NUM_TABLES; ++i) add(tableObject("db1", "tbl" + i, 1));
+    // Truncate the serialized form of one of the tables.
+    ByteBuffer buffer = update_.get(NUM_TABLES / 2).second;
+    buffer.limit(buffer.limit() / 2);
+    add(catalogObject(1));
+    try {
+      applyUpdate();
+      fail("Expected the update to fail");
+    } catch (TException e) {
+      // Expected.
+    }
+    // Nothing of the update was applied.
+    assertNull(catalog_.getDb("db1"));
+    assertFalse(catalog_.isReady());
+  }
+}
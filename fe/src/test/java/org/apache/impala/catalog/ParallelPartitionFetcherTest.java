@@ -0,0 +1,201 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.impala.catalog.ParallelPartitionFetcher.BatchFetcher;
+import org.apache.impala.catalog.ParallelPartitionFetcher.BatchSizer;
+import org.apache.thrift.TException;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelPartitionFetcherTest {
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int NUM_PARTS = 40;
+  private static final int BATCH_SIZE = 5;
+
+  private final ExecutorService pool_ = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdownPool() { pool_.shutdownNow(); }
+
+  /**
+   * Fake HMS that returns a partition with a single value for each requested name.
+   * Earlier batches take longer so that later batches complete first. The first
+   * 'numFailures' fetches of the batch that contains 'failingName' fail with a
+   * MetaException.
+   */
+  private static class FakeHms implements BatchFetcher {
+    private final String failingName_;
+    private final AtomicInteger failuresLeft_;
+    private final AtomicInteger numFetches_ = new AtomicInteger();
+    private final AtomicInteger inFlight_ = new AtomicInteger();
+    private final AtomicInteger maxInFlight_ = new AtomicInteger();
+
+    FakeHms() { this(null, 0); }
+
+    FakeHms(String failingName, int numFailures) {
+      failingName_ = failingName;
+      failuresLeft_ = new AtomicInteger(numFailures);
+    }
+
+    @Override
+    public List<Partition> fetch(List<String> partNames) throws TException {
+      numFetches_.incrementAndGet();
+      maxInFlight_.accumulateAndGet(inFlight_.incrementAndGet(), Math::max);
+      try {
+        if (partNames.contains(failingName_) && failuresLeft_.getAndDecrement() > 0) {
+          throw new MetaException("Injected failure");
+        }
+        int firstPart = Integer.parseInt(partNames.get(0).substring(2));
+        Thread.sleep(NUM_PARTS - firstPart);
+        List<Partition> batch = new ArrayList<>();
+        for (String name : partNames) {
+          Partition part = new Partition();
+          part.setValues(Collections.singletonList(name));
+          batch.add(part);
+        }
+        return batch;
+      } catch (InterruptedException e) {
+        throw new TException(e);
+      } finally {
+        inFlight_.decrementAndGet();
+      }
+    }
+  }
+
+  private static List<String> partNames() {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < NUM_PARTS; ++i) names.add("p=" + i);
+    return names;
+  }
+
+  /**
+   * Fetches all partitions with 'fetcher' and returns their values in the order they
+   * were returned.
+   */
+  private static List<String> fetchAll(ParallelPartitionFetcher fetcher)
+      throws TException {
+    List<String> values = new ArrayList<>();
+    List<Partition> batch;
+    while ((batch = fetcher.next()) != null) {
+      for (Partition part : batch) values.add(part.getValues().get(0));
+    }
+    return values;
+  }
+
+  @Test
+  public void testPipelinedFetchOrder() throws Exception {
+    FakeHms hms = new FakeHms();
+    try (ParallelPartitionFetcher fetcher = new ParallelPartitionFetcher("db", "tbl",
+        partNames(), pool_, 3, BATCH_SIZE, hms)) {
+      // Batches are returned in the order of the names even though later batches
+      // complete first.
+      assertEquals(partNames(), fetchAll(fetcher));
+      assertEquals(NUM_PARTS / BATCH_SIZE, fetcher.getNumBatches());
+    }
+    assertEquals(NUM_PARTS / BATCH_SIZE, hms.numFetches_.get());
+    assertTrue(hms.maxInFlight_.get() <= 3);
+  }
+
+  @Test
+  public void testSerialFetch() throws Exception {
+    FakeHms hms = new FakeHms();
+    try (ParallelPartitionFetcher fetcher = new ParallelPartitionFetcher("db", "tbl",
+        partNames(), null, 3, BATCH_SIZE, hms)) {
+      assertEquals(partNames(), fetchAll(fetcher));
+    }
+    assertEquals(1, hms.maxInFlight_.get());
+  }
+
+  @Test
+  public void testRetryFailedBatch() throws Exception {
+    // The batch with p=17 fails twice, only that batch is fetched again.
+    FakeHms hms = new FakeHms("p=17", 2);
+    try (ParallelPartitionFetcher fetcher = new ParallelPartitionFetcher("db", "tbl",
+        partNames(), pool_, 3, BATCH_SIZE, hms)) {
+      assertEquals(partNames(), fetchAll(fetcher));
+    }
+    assertEquals(NUM_PARTS / BATCH_SIZE + 2, hms.numFetches_.get());
+
+    // A batch that keeps failing fails the fetch once the retries are exhausted.
+    hms = new FakeHms("p=17", ParallelPartitionFetcher.NUM_BATCH_FETCH_RETRIES + 1);
+    try (ParallelPartitionFetcher fetcher = new ParallelPartitionFetcher("db", "tbl",
+        partNames(), pool_, 3, BATCH_SIZE, hms)) {
+      fetchAll(fetcher);
+      fail("Expected the fetch to fail");
+    } catch (MetaException e) {
+      assertEquals("Injected failure", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBatchSizeGrowsWhenFast() {
+    BatchSizer sizer = new BatchSizer(1000);
+    // The first batch is small.
+    assertEquals(100, sizer.getBatchSize());
+    // Fast batches grow the batch size by at most 2x at a time.
+    sizer.update(100, 10 * MS, 100);
+    assertEquals(200, sizer.getBatchSize());
+    sizer.update(200, 20 * MS, 100);
+    assertEquals(400, sizer.getBatchSize());
+    sizer.update(400, 40 * MS, 100);
+    assertEquals(800, sizer.getBatchSize());
+    // The HMS limit is never exceeded.
+    sizer.update(800, 80 * MS, 100);
+    assertEquals(1000, sizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizeShrinksWhenSlow() {
+    BatchSizer sizer = new BatchSizer(1000);
+    // 100ms per partition, batches of about 10 partitions take the target latency.
+    sizer.update(100, 10000 * MS, 100);
+    assertEquals(10, sizer.getBatchSize());
+    // The batch size never drops below the minimum.
+    sizer.update(10, 10000 * MS, 100);
+    assertEquals(10, sizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizeLimitedByPayload() {
+    BatchSizer sizer = new BatchSizer(1000);
+    // Fast but large partitions: 1MB per partition allows 64 per batch.
+    sizer.update(100, 1 * MS, 1024 * 1024);
+    assertEquals(64, sizer.getBatchSize());
+  }
+
+  @Test
+  public void testSmallMaxBatchSize() {
+    BatchSizer sizer = new BatchSizer(5);
+    assertEquals(5, sizer.getBatchSize());
+    sizer.update(5, 10000 * MS, 100);
+    assertEquals(5, sizer.getBatchSize());
+  }
+}
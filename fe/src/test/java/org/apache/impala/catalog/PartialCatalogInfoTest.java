@@ -32,6 +32,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.impala.common.InternalException;
 import org.apache.impala.service.BackendConfig;
 import org.apache.impala.testutil.CatalogServiceTestCatalog;
@@ -41,8 +42,11 @@ import org.apache.impala.thrift.TCatalogObject;
 import org.apache.impala.thrift.TCatalogObjectType;
 import org.apache.impala.thrift.TDatabase;
 import org.apache.impala.thrift.TDbInfoSelector;
+import org.apache.impala.thrift.TErrorCode;
 import org.apache.impala.thrift.TGetPartialCatalogObjectRequest;
 import org.apache.impala.thrift.TGetPartialCatalogObjectResponse;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsRequest;
+import org.apache.impala.thrift.TGetPartialCatalogObjectsResponse;
 import org.apache.impala.thrift.TPartialPartitionInfo;
 import org.apache.impala.thrift.TTable;
 import org.apache.impala.thrift.TTableInfoSelector;
@@ -54,6 +58,7 @@ import org.junit.Test;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 public class PartialCatalogInfoTest {
   private static CatalogServiceCatalog catalog_ =
@@ -171,6 +176,88 @@ public class PartialCatalogInfoTest {
     // a lot of redundant info in partition descriptors.
   }
 
+  @Test
+  public void testFetchUnchangedPartitions() throws Exception {
+    TGetPartialCatalogObjectRequest req = new TGetPartialCatalogObjectRequest();
+    req.object_desc = new TCatalogObject();
+    req.object_desc.setType(TCatalogObjectType.TABLE);
+    req.object_desc.table = new TTable("functional", "alltypes");
+    req.table_info_selector = new TTableInfoSelector();
+    req.table_info_selector.want_partition_names = true;
+    TGetPartialCatalogObjectResponse resp = sendRequest(req);
+    long id1 = resp.table_info.partitions.get(1).id;
+    long id3 = resp.table_info.partitions.get(3).id;
+
+    // Fetch the metadata of two partitions. Each is returned with its version.
+    req.table_info_selector.clear();
+    req.table_info_selector.want_partition_metadata = true;
+    req.table_info_selector.partition_ids = ImmutableList.of(id1, id3);
+    resp = sendRequest(req);
+    assertEquals(2, resp.table_info.partitions.size());
+    assertNull(resp.table_info.unchanged_partition_ids);
+    long version1 = resp.table_info.partitions.get(0).version;
+    long version3 = resp.table_info.partitions.get(1).version;
+
+    // Pass the current version of the first partition and an outdated version of the
+    // second one. Only the second one should be returned.
+    req.table_info_selector.known_partition_versions =
+        ImmutableMap.of(id1, version1, id3, version3 - 1);
+    resp = sendRequest(req);
+    assertEquals(1, resp.table_info.partitions.size());
+    assertEquals(id3, resp.table_info.partitions.get(0).id);
+    assertEquals(version3, resp.table_info.partitions.get(0).version);
+    assertEquals(ImmutableList.of(id1), resp.table_info.unchanged_partition_ids);
+
+    // A schema change invalidates all partitions, since their HMS partitions embed the
+    // columns of the table.
+    HdfsTable tbl = (HdfsTable) catalog_.getOrLoadTable("functional", "alltypes",
+        "test");
+    tbl.markPartitionsChangedOnSchemaChange(
+        new ArrayList<>(tbl.getNonPartitionFieldSchemas()),
+        tbl.getMetaStoreTable().getSd().getSerdeInfo());
+    resp = sendRequest(req);
+    assertEquals(1, resp.table_info.partitions.size());
+    tbl.markPartitionsChangedOnSchemaChange(
+        ImmutableList.of(new FieldSchema("c", "int", null)),
+        tbl.getMetaStoreTable().getSd().getSerdeInfo());
+    resp = sendRequest(req);
+    assertEquals(2, resp.table_info.partitions.size());
+    assertNull(resp.table_info.unchanged_partition_ids);
+  }
+
+  @Test
+  public void testFetchBatch() throws Exception {
+    List<TGetPartialCatalogObjectRequest> reqs = new ArrayList<>();
+    for (String tblName: ImmutableList.of("alltypes", "no_such_table", "alltypestiny")) {
+      TGetPartialCatalogObjectRequest req = new TGetPartialCatalogObjectRequest();
+      req.object_desc = new TCatalogObject();
+      req.object_desc.setType(TCatalogObjectType.TABLE);
+      req.object_desc.table = new TTable("functional", tblName);
+      req.table_info_selector = new TTableInfoSelector();
+      req.table_info_selector.want_hms_table = true;
+      req.table_info_selector.want_partition_names = true;
+      req.table_info_selector.want_stats_for_all_columns = true;
+      reqs.add(req);
+    }
+    TGetPartialCatalogObjectsResponse resp = catalog_.getPartialCatalogObjects(
+        new TGetPartialCatalogObjectsRequest(reqs));
+    assertEquals(3, resp.responses.size());
+
+    TGetPartialCatalogObjectResponse alltypes = resp.responses.get(0);
+    assertEquals(TErrorCode.OK, alltypes.status.status_code);
+    assertEquals("alltypes", alltypes.table_info.hms_table.getTableName());
+    assertEquals(24, alltypes.table_info.partitions.size());
+    // The stats of all columns except for the 2 clustering columns are returned.
+    assertEquals(11, alltypes.table_info.column_stats.size());
+
+    assertEquals(CatalogLookupStatus.TABLE_NOT_FOUND,
+        resp.responses.get(1).lookup_status);
+
+    TGetPartialCatalogObjectResponse alltypestiny = resp.responses.get(2);
+    assertEquals(TErrorCode.OK, alltypestiny.status.status_code);
+    assertEquals("alltypestiny", alltypestiny.table_info.hms_table.getTableName());
+  }
+
   @Test
   public void testFetchMissingPartId() throws Exception {
     TGetPartialCatalogObjectRequest req = new TGetPartialCatalogObjectRequest();
@@ -0,0 +1,163 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.impala.catalog.PartialFetchAdmissionController.Admission;
+import org.apache.impala.catalog.PartialFetchAdmissionController.RejectedException;
+import org.apache.impala.thrift.TPartialFetchPriority;
+import org.junit.After;
+import org.junit.Test;
+
+public class PartialFetchAdmissionControllerTest {
+  private static final long TIMEOUT_NS = TimeUnit.MINUTES.toNanos(1);
+
+  private final ExecutorService pool_ = Executors.newCachedThreadPool();
+  // The fetches in the order in which they were admitted.
+  private final List<String> admitted_ = Collections.synchronizedList(new ArrayList<>());
+
+  @After
+  public void shutdown() { pool_.shutdownNow(); }
+
+  /**
+   * Starts a fetch of 'priority' from 'requester' in the background, which records
+   * 'name' in 'admitted_' once it is admitted and finishes right away. Waits until the
+   * fetch is queued.
+   */
+  private Future<Void> queueFetch(PartialFetchAdmissionController controller,
+      TPartialFetchPriority priority, String requester, String name) throws Exception {
+    int queueLength = controller.getQueueLength();
+    Future<Void> f = pool_.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        try (Admission admission = controller.admit(priority, requester, TIMEOUT_NS)) {
+          admitted_.add(name);
+        }
+        return null;
+      }
+    });
+    while (controller.getQueueLength() == queueLength) Thread.sleep(1);
+    return f;
+  }
+
+  @Test
+  public void testPriority() throws Exception {
+    PartialFetchAdmissionController controller =
+        new PartialFetchAdmissionController(1, 10);
+    Admission running = controller.admit(TPartialFetchPriority.PLANNING, "a", TIMEOUT_NS);
+    List<Future<Void>> fetches = Arrays.asList(
+        queueFetch(controller, TPartialFetchPriority.PREFETCH, "a", "prefetch"),
+        queueFetch(controller, TPartialFetchPriority.PLANNING, "b", "planning"));
+    running.close();
+    for (Future<Void> f : fetches) f.get();
+    // The planning fetch overtook the prefetch which was queued before it.
+    assertEquals(Arrays.asList("planning", "prefetch"), admitted_);
+    assertEquals(0, controller.getNumRunning());
+    assertEquals(3, controller.getQueueWaits(TPartialFetchPriority.PLANNING).getCount() +
+        controller.getQueueWaits(TPartialFetchPriority.PREFETCH).getCount());
+  }
+
+  @Test
+  public void testFairness() throws Exception {
+    PartialFetchAdmissionController controller =
+        new PartialFetchAdmissionController(1, 10);
+    Admission running = controller.admit(TPartialFetchPriority.PLANNING, "a", TIMEOUT_NS);
+    List<Future<Void>> fetches = Arrays.asList(
+        queueFetch(controller, TPartialFetchPriority.PLANNING, "a", "a1"),
+        queueFetch(controller, TPartialFetchPriority.PLANNING, "a", "a2"),
+        queueFetch(controller, TPartialFetchPriority.PLANNING, "a", "a3"),
+        queueFetch(controller, TPartialFetchPriority.PLANNING, "b", "b1"));
+    running.close();
+    for (Future<Void> f : fetches) f.get();
+    // The fetch of 'b' did not have to wait for all the fetches of 'a'.
+    assertEquals(Arrays.asList("a1", "b1", "a2", "a3"), admitted_);
+  }
+
+  @Test
+  public void testPrefetchConcurrency() throws Exception {
+    // Prefetches may only use 3 of the 4 slots.
+    PartialFetchAdmissionController controller =
+        new PartialFetchAdmissionController(4, 10);
+    List<Admission> running = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      running.add(controller.admit(TPartialFetchPriority.PREFETCH, "a", TIMEOUT_NS));
+    }
+    try {
+      controller.admit(TPartialFetchPriority.PREFETCH, "a", 0);
+      fail("Expected the prefetch to be rejected");
+    } catch (RejectedException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("not admitted within"));
+    }
+    running.add(controller.admit(TPartialFetchPriority.PLANNING, "a", 0));
+    assertEquals(4, controller.getNumRunning());
+    assertEquals(0, controller.getQueueLength());
+    for (Admission admission : running) admission.close();
+    assertEquals(0, controller.getNumRunning());
+  }
+
+  @Test
+  public void testRejection() throws Exception {
+    PartialFetchAdmissionController controller =
+        new PartialFetchAdmissionController(1, 1);
+    // Let a fetch hold its slot for a while, so that the controller expects fetches to
+    // take at least that long.
+    try (Admission admission =
+        controller.admit(TPartialFetchPriority.PLANNING, "a", TIMEOUT_NS)) {
+      Thread.sleep(100);
+    }
+    Admission running = controller.admit(TPartialFetchPriority.PLANNING, "a", TIMEOUT_NS);
+
+    // The fetch cannot be admitted before its timeout, so it is rejected right away.
+    try {
+      controller.admit(TPartialFetchPriority.PLANNING, "b",
+          TimeUnit.MILLISECONDS.toNanos(1));
+      fail("Expected the fetch to be rejected");
+    } catch (RejectedException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("not expected to be admitted"));
+      assertTrue(e.getRetryAfterMs() >= 100);
+    }
+
+    // Once the queue is full, further fetches are rejected.
+    Future<Void> queued =
+        queueFetch(controller, TPartialFetchPriority.PLANNING, "b", "b1");
+    try {
+      controller.admit(TPartialFetchPriority.PLANNING, "c", TIMEOUT_NS);
+      fail("Expected the fetch to be rejected");
+    } catch (RejectedException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("queue is full"));
+    }
+    running.close();
+    queued.get();
+    assertEquals(Arrays.asList("b1"), admitted_);
+    assertEquals(2, controller.getNumRejected());
+    assertEquals(0, controller.getQueueLength());
+  }
+}
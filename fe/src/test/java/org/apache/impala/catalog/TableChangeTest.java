@@ -0,0 +1,85 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package org.apache.impala.catalog;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.junit.Test;
+
+public class TableChangeTest {
+
+  private static org.apache.hadoop.hive.metastore.api.Table createTable() {
+    StorageDescriptor sd = new StorageDescriptor();
+    sd.setCols(new ArrayList<>());
+    sd.addToCols(new FieldSchema("c1", "int", null));
+    sd.setLocation("hdfs://localhost/test-warehouse/tbl");
+    org.apache.hadoop.hive.metastore.api.Table tbl =
+        new org.apache.hadoop.hive.metastore.api.Table();
+    tbl.setDbName("db");
+    tbl.setTableName("tbl");
+    tbl.setOwner("user");
+    tbl.setSd(sd);
+    tbl.setParameters(new HashMap<>());
+    tbl.putToParameters("prop", "val");
+    return tbl;
+  }
+
+  @Test
+  public void testGetTableChanges() {
+    org.apache.hadoop.hive.metastore.api.Table before = createTable();
+    assertEquals(EnumSet.noneOf(TableChange.class),
+        TableChange.getChanges(before, createTable()));
+
+    org.apache.hadoop.hive.metastore.api.Table after = createTable();
+    after.putToParameters("prop", "newVal");
+    after.setOwner("newUser");
+    assertEquals(EnumSet.of(TableChange.PROPERTIES),
+        TableChange.getChanges(before, after));
+
+    after.putToParameters(StatsSetupConst.ROW_COUNT, "10");
+    assertEquals(EnumSet.of(TableChange.PROPERTIES, TableChange.STATS),
+        TableChange.getChanges(before, after));
+
+    after = createTable();
+    after.getSd().setLocation("hdfs://localhost/other");
+    assertEquals(EnumSet.of(TableChange.LOCATION),
+        TableChange.getChanges(before, after));
+
+    after = createTable();
+    after.getSd().addToCols(new FieldSchema("c2", "string", null));
+    after.getParameters().remove("prop");
+    assertEquals(EnumSet.of(TableChange.SCHEMA, TableChange.PROPERTIES),
+        TableChange.getChanges(before, after));
+
+    // Properties which affect how the table is loaded count as schema changes.
+    after = createTable();
+    after.putToParameters("avro.schema.literal", "{}");
+    assertEquals(EnumSet.of(TableChange.SCHEMA),
+        TableChange.getChanges(before, after));
+    after = createTable();
+    after.putToParameters("serialization.null.format", "\\N");
+    assertEquals(EnumSet.of(TableChange.SCHEMA),
+        TableChange.getChanges(before, after));
+  }
+}
@@ -36,7 +36,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -79,6 +81,7 @@ import org.apache.impala.catalog.Table;
 import org.apache.impala.catalog.Type;
 import org.apache.impala.catalog.events.ConfigValidator.ValidationResult;
 import org.apache.impala.catalog.events.MetastoreEvents.AlterTableEvent;
+import org.apache.impala.catalog.events.MetastoreEvents.BatchPartitionEvent;
 import org.apache.impala.catalog.events.MetastoreEvents.MetastoreEvent;
 import org.apache.impala.catalog.events.MetastoreEvents.MetastoreEventPropertyKey;
 import org.apache.impala.catalog.events.MetastoreEvents.MetastoreEventType;
@@ -88,6 +91,7 @@ import org.apache.impala.common.FileSystemUtil;
 import org.apache.impala.common.ImpalaException;
 import org.apache.impala.common.Pair;
 import org.apache.impala.compat.MetastoreShim;
+import org.apache.impala.service.BackendConfig;
 import org.apache.impala.service.CatalogOpExecutor;
 import org.apache.impala.service.FeSupport;
 import org.apache.impala.testutil.CatalogServiceTestCatalog;
@@ -107,6 +111,7 @@ import org.apache.impala.thrift.TAlterTableSetLocationParams;
 import org.apache.impala.thrift.TAlterTableSetRowFormatParams;
 import org.apache.impala.thrift.TAlterTableSetTblPropertiesParams;
 import org.apache.impala.thrift.TAlterTableType;
+import org.apache.impala.thrift.TBackendGflags;
 import org.apache.impala.thrift.TColumn;
 import org.apache.impala.thrift.TColumnType;
 import org.apache.impala.thrift.TCreateDbParams;
@@ -118,6 +123,7 @@ import org.apache.impala.thrift.TDropDbParams;
 import org.apache.impala.thrift.TDropFunctionParams;
 import org.apache.impala.thrift.TDropTableOrViewParams;
 import org.apache.impala.thrift.TEventProcessorMetrics;
+import org.apache.impala.thrift.TEventProcessorWorkerMetrics;
 import org.apache.impala.thrift.TEventProcessorMetricsSummaryResponse;
 import org.apache.impala.thrift.TFunctionBinaryType;
 import org.apache.impala.thrift.THdfsFileFormat;
@@ -891,13 +897,21 @@ public class MetastoreEventsProcessorTest {
     // clean up
     dropDatabaseCascadeFromImpala("new_db");
 
-    // check invalidate after alter table add parameter
+    // check that alter table add parameter updates the loaded table in place
     loadTable(testTblName);
+    long numberOfInPlaceUpdatesBefore = eventsProcessor_.getMetrics()
+        .getCounter(MetastoreEventsProcessor.NUMBER_OF_TABLES_UPDATED_IN_PLACE)
+        .getCount();
     alterTableAddParameter(testTblName, "somekey", "someval");
     eventsProcessor_.processEvents();
-    assertTrue("Table should be incomplete after alter table add parameter",
-        catalog_.getTable(TEST_DB_NAME, testTblName)
-                instanceof IncompleteTable);
+    Table tblAfterAddParameter = catalog_.getTable(TEST_DB_NAME, testTblName);
+    assertTrue("Table should not be invalidated after alter table add parameter",
+        tblAfterAddParameter instanceof HdfsTable);
+    assertEquals("someval",
+        tblAfterAddParameter.getMetaStoreTable().getParameters().get("somekey"));
+    assertEquals(numberOfInPlaceUpdatesBefore + 1, eventsProcessor_.getMetrics()
+        .getCounter(MetastoreEventsProcessor.NUMBER_OF_TABLES_UPDATED_IN_PLACE)
+        .getCount());
     // check invalidate after alter table add col
     loadTable(testTblName);
     alterTableAddCol(testTblName, "newCol", "int", "null");
@@ -919,11 +933,12 @@ public class MetastoreEventsProcessorTest {
     assertTrue("Table should have been invalidated after removing a column",
         catalog_.getTable(TEST_DB_NAME, testTblName)
                 instanceof IncompleteTable);
-    // 5 alters above. Each one of them except rename should increment the counter by 1
+    // 5 alters above. Each one of them except rename and add parameter should increment
+    // the counter by 1
     long numberOfInvalidatesAfter = eventsProcessor_.getMetrics()
         .getCounter(MetastoreEventsProcessor.NUMBER_OF_TABLE_INVALIDATES).getCount();
     assertEquals("Unexpected number of table invalidates",
-        numberOfInvalidatesBefore + 4, numberOfInvalidatesAfter);
+        numberOfInvalidatesBefore + 3, numberOfInvalidatesAfter);
     // Check if trivial alters are ignored.
     loadTable(testTblName);
     alterTableChangeTrivialProperties(testTblName);
@@ -931,7 +946,7 @@ public class MetastoreEventsProcessorTest {
     long numberOfInvalidatesAfterTrivialAlter = eventsProcessor_.getMetrics()
         .getCounter(MetastoreEventsProcessor.NUMBER_OF_TABLE_INVALIDATES).getCount();
     assertEquals("Unexpected number of table invalidates after trivial alter",
-        numberOfInvalidatesBefore + 4, numberOfInvalidatesAfterTrivialAlter);
+        numberOfInvalidatesBefore + 3, numberOfInvalidatesAfterTrivialAlter);
 
     // Simulate rename and drop sequence for table/db.
     String tblName = "alter_drop_test";
@@ -1614,6 +1629,197 @@ public class MetastoreEventsProcessorTest {
         catalog_.getEventProcessorSummary();
     assertNotNull(summaryResponse);
     assertTrue(response.getLast_synced_event_id() > lastEventSyncId);
+    assertEquals(0, response.getEvents_lag());
+    assertTrue(response.isSetWorker_metrics());
+    for (TEventProcessorWorkerMetrics worker : response.getWorker_metrics()) {
+      assertEquals(0, worker.getQueue_depth());
+      assertEquals(0, worker.getLag_s());
+    }
+  }
+
+  /**
+   * Events of several tables are applied concurrently, while the events of each table
+   * are applied in order and database events act as barriers.
+   */
+  @Test
+  public void testParallelEventProcessing() throws TException, ImpalaException {
+    createDatabase(TEST_DB_NAME, null);
+    final int numTables = 8;
+    for (int i = 0; i < numTables; i++) {
+      createTable("testParallelEventProcessing" + i, true);
+    }
+    eventsProcessor_.processEvents();
+    for (int i = 0; i < numTables; i++) loadTable("testParallelEventProcessing" + i);
+
+    for (int i = 0; i < numTables; i++) {
+      String tblName = "testParallelEventProcessing" + i;
+      List<List<String>> partVals = new ArrayList<>();
+      partVals.add(Arrays.asList("1"));
+      partVals.add(Arrays.asList("2"));
+      addPartitions(TEST_DB_NAME, tblName, partVals);
+      partVals.remove(0);
+      dropPartitions(tblName, partVals);
+    }
+    // A database event between table events.
+    createDatabase(TEST_DB_NAME + "_2", null);
+    addPartitions(TEST_DB_NAME, "testParallelEventProcessing0",
+        Arrays.asList(Arrays.asList("3")));
+    eventsProcessor_.processEvents();
+
+    assertEquals(EventProcessorStatus.ACTIVE, eventsProcessor_.getStatus());
+    assertEquals(eventsProcessor_.getCurrentEventId(),
+        eventsProcessor_.getLastSyncedEventId());
+    assertNotNull(catalog_.getDb(TEST_DB_NAME + "_2"));
+    for (int i = 0; i < numTables; i++) {
+      Table tbl = catalog_.getTable(TEST_DB_NAME, "testParallelEventProcessing" + i);
+      // The partition events were applied to the loaded tables in place.
+      assertTrue("Table was invalidated: " + tbl.getFullName(), tbl instanceof HdfsTable);
+      assertEquals(i == 0 ? 2 : 1, ((HdfsTable) tbl).getPartitions().size());
+    }
+    dropDatabaseCascade(TEST_DB_NAME + "_2");
+    eventsProcessor_.processEvents();
+  }
+
+  /**
+   * An ALTER_TABLE event of the table 'tblKey', or a barrier if 'tblKey' is null, which
+   * records the order in which the events are applied and the threads applying them.
+   */
+  private static class RecordingEvent extends MetastoreEvent {
+    private final String tblKey_;
+    private final List<RecordingEvent> applied_;
+    private final Set<String> threads_;
+    private final Random random_;
+
+    RecordingEvent(MetastoreEventsProcessor processor, long eventId, String tblKey,
+        List<RecordingEvent> applied, Set<String> threads, Random random) {
+      super(MetastoreEventsProcessorTest.catalog_, processor.getMetrics(),
+          new NotificationEvent(eventId, 0, ALTER_TABLE.toString(), ""));
+      tblKey_ = tblKey;
+      applied_ = applied;
+      threads_ = threads;
+      random_ = random;
+    }
+
+    @Override
+    public String getTableKey() { return tblKey_; }
+
+    @Override
+    protected boolean isEventProcessingDisabled() { return false; }
+
+    @Override
+    protected void process() {
+      // Give the events of other tables a chance to overtake this one.
+      int sleepMs;
+      synchronized (random_) { sleepMs = random_.nextInt(5); }
+      try {
+        sleep(sleepMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      threads_.add(Thread.currentThread().getName());
+      applied_.add(this);
+    }
+  }
+
+  /**
+   * Applies events of several tables with barriers in between using multiple workers.
+   * The events of each table must be applied in order, and each barrier must be applied
+   * after all preceding events and before all following ones.
+   */
+  @Test
+  public void testParallelEventOrdering() throws Exception {
+    TBackendGflags cfg = BackendConfig.INSTANCE.getBackendCfg();
+    int numThreads = cfg.getHms_event_processing_threads();
+    cfg.setHms_event_processing_threads(4);
+    MetastoreEventsProcessor processor;
+    try {
+      processor = new SynchronousHMSEventProcessorForTests(catalog_, 0, 10L);
+    } finally {
+      cfg.setHms_event_processing_threads(numThreads);
+    }
+    processor.start();
+    try {
+      List<RecordingEvent> applied = Collections.synchronizedList(new ArrayList<>());
+      Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+      Random random = new Random(42);
+      List<MetastoreEvent> events = new ArrayList<>();
+      List<Integer> barriers = new ArrayList<>();
+      long eventId = 1;
+      for (int round = 0; round < 3; round++) {
+        for (int i = 0; i < 50; i++) {
+          events.add(new RecordingEvent(processor, eventId++,
+              "db.tbl" + random.nextInt(8), applied, threads, random));
+        }
+        barriers.add(events.size());
+        events.add(new RecordingEvent(processor, eventId++, null, applied, threads,
+            random));
+      }
+      processor.applyEvents(events);
+
+      assertEquals(events.size(), applied.size());
+      assertEquals(eventId - 1, processor.getLastSyncedEventId());
+      assertTrue("Events were not applied concurrently: " + threads,
+          threads.size() > 1);
+      // Barriers are applied exactly at their position in the event order.
+      for (int barrier : barriers) {
+        assertEquals(events.get(barrier), applied.get(barrier));
+      }
+      // The events of each table are applied in the order of their event ids.
+      Map<String, Long> lastEventIds = new HashMap<>();
+      for (RecordingEvent event : applied) {
+        if (event.getTableKey() == null) continue;
+        Long lastEventId = lastEventIds.put(event.getTableKey(), event.eventId_);
+        if (lastEventId != null) {
+          assertTrue("Event " + event.eventId_ + " applied after " + lastEventId,
+              lastEventId < event.eventId_);
+        }
+      }
+    } finally {
+      processor.shutdown();
+    }
+  }
+
+  /**
+   * Consecutive ALTER_PARTITION events of the same table are merged into a single
+   * BatchPartitionEvent which refreshes all their partitions.
+   */
+  @Test
+  public void testPartitionEventsMerged() throws TException, ImpalaException {
+    createDatabase(TEST_DB_NAME, null);
+    final String testTblName = "testPartitionEventsMerged";
+    createTable(testTblName, true);
+    List<List<String>> partVals = new ArrayList<>();
+    partVals.add(Arrays.asList("1"));
+    partVals.add(Arrays.asList("2"));
+    partVals.add(Arrays.asList("3"));
+    addPartitions(TEST_DB_NAME, testTblName, partVals);
+    eventsProcessor_.processEvents();
+    loadTable(testTblName);
+
+    String newLocation = "/path/to/location/";
+    alterPartitions(testTblName, partVals, newLocation);
+    List<NotificationEvent> events = eventsProcessor_.getNextMetastoreEvents();
+    assertEquals(3, events.size());
+    List<MetastoreEvent> filteredEvents =
+        eventsProcessor_.getMetastoreEventFactory().getFilteredEvents(events);
+    BatchPartitionEvent batchEvent =
+        (BatchPartitionEvent) Iterables.getOnlyElement(filteredEvents);
+    assertEquals(3, batchEvent.getBatchedEvents().size());
+    assertEquals(events.get(2).getEventId(), batchEvent.eventId_);
+
+    long numEventsMergedBefore =
+        eventsProcessor_.getEventProcessorMetrics().getEvents_merged();
+    eventsProcessor_.processEvents();
+    assertEquals(EventProcessorStatus.ACTIVE, eventsProcessor_.getStatus());
+    assertEquals(numEventsMergedBefore + 3,
+        eventsProcessor_.getEventProcessorMetrics().getEvents_merged());
+    // The table is refreshed, not invalidated.
+    Table tbl = catalog_.getTable(TEST_DB_NAME, testTblName);
+    assertTrue(tbl instanceof HdfsTable);
+    Collection<? extends FeFsPartition> parts =
+        FeCatalogUtils.loadAllPartitions((HdfsTable) tbl);
+    assertEquals(3, parts.size());
+    for (FeFsPartition part : parts) assertEquals(newLocation, part.getLocation());
   }
 
   /**
@@ -1941,6 +2147,38 @@ public class MetastoreEventsProcessorTest {
         catalog_.getTable(TEST_DB_NAME, testTblName));
   }
 
+  /**
+   * The fingerprint of a self-event which is skipped because event sync is disabled for
+   * the table must not match a later external ALTER_TABLE event, which keeps the catalog
+   * service identifiers of the skipped change in the table parameters.
+   */
+  @Test
+  public void testExternalAlterAfterSkippedSelfEvent() throws Exception {
+    createDatabase(TEST_DB_NAME, null);
+    final String testTblName = "testExternalAlterAfterSkippedSelfEvent";
+    createTable(testTblName, false);
+    eventsProcessor_.processEvents();
+    alterTableAddParameter(testTblName,
+        MetastoreEventPropertyKey.DISABLE_EVENT_HMS_SYNC.getKey(), "true");
+    eventsProcessor_.processEvents();
+
+    long numSkippedBefore = eventsProcessor_.getMetrics()
+        .getCounter(MetastoreEventsProcessor.EVENTS_SKIPPED_METRIC).getCount();
+    alterTableSetTblPropertiesFromImpala(testTblName);
+    eventsProcessor_.processEvents();
+    assertEquals(numSkippedBefore + 1, eventsProcessor_.getMetrics()
+        .getCounter(MetastoreEventsProcessor.EVENTS_SKIPPED_METRIC).getCount());
+    confirmTableIsLoaded(TEST_DB_NAME, testTblName);
+
+    // Turning event sync on from outside of Impala keeps the identifiers set above.
+    alterTableAddParameter(testTblName,
+        MetastoreEventPropertyKey.DISABLE_EVENT_HMS_SYNC.getKey(), "false");
+    eventsProcessor_.processEvents();
+    assertEquals(EventProcessorStatus.ACTIVE, eventsProcessor_.getStatus());
+    assertTrue("External ALTER_TABLE was skipped as a self-event",
+        catalog_.getTable(TEST_DB_NAME, testTblName) instanceof IncompleteTable);
+  }
+
   private void confirmTableIsLoaded(String dbName, String tblname)
       throws DatabaseNotFoundException {
     Table catalogTbl = catalog_.getTable(dbName, tblname);
@@ -2034,10 +2272,10 @@ public class MetastoreEventsProcessorTest {
 
     long selfEventsCountAfter = eventsProcessor_.getMetrics()
         .getCounter(MetastoreEventsProcessor.NUMBER_OF_SELF_EVENTS).getCount();
-    // 10 alter commands above. Everyone except alterRename should generate
-    // self-events so we expect the count to go up by 9
+    // 10 alter commands above. All of them generate self-events. The rename is detected
+    // by its fingerprint since the renamed table is not loaded.
     assertEquals("Unexpected number of self-events generated",
-        numberOfSelfEventsBefore + 9, selfEventsCountAfter);
+        numberOfSelfEventsBefore + 10, selfEventsCountAfter);
   }
 
   private abstract class AlterTableExecutor {
@@ -2189,6 +2427,21 @@ public class MetastoreEventsProcessorTest {
         catalog_.getHdfsPartition(TEST_DB_NAME, testTblName, partKeyVals);
     assertNotNull(hdfsPartition.getParameters());
     assertEquals("dummyValue1", hdfsPartition.getParameters().get("dummyKey1"));
+
+    // A single statement which alters several partitions generates one ALTER_PARTITION
+    // event for each of them with the same catalog version. All of them are
+    // self-events.
+    List<TPartitionKeyValue> partKeyVals2 = new ArrayList<>();
+    partKeyVals2.add(new TPartitionKeyValue("p1", "2"));
+    long numberOfSelfEventsBefore = eventsProcessor_.getMetrics()
+        .getCounter(MetastoreEventsProcessor.NUMBER_OF_SELF_EVENTS).getCount();
+    alterTableSetPartitionsPropertiesFromImpala(testTblName,
+        Arrays.asList(partKeyVals, partKeyVals2));
+    eventsProcessor_.processEvents();
+    assertEquals("Unexpected number of self-events generated",
+        numberOfSelfEventsBefore + 2, eventsProcessor_.getMetrics()
+            .getCounter(MetastoreEventsProcessor.NUMBER_OF_SELF_EVENTS).getCount());
+    confirmTableIsLoaded(TEST_DB_NAME, testTblName);
   }
 
   private void createDatabase(String dbName, Map<String, String> params)
@@ -2616,15 +2869,17 @@ public class MetastoreEventsProcessorTest {
    */
   private void alterTableSetPartitionPropertiesFromImpala(
       String tblName, List<TPartitionKeyValue> partKeyVal) throws ImpalaException {
+    alterTableSetPartitionsPropertiesFromImpala(tblName, Arrays.asList(partKeyVal));
+  }
+
+  private void alterTableSetPartitionsPropertiesFromImpala(String tblName,
+      List<List<TPartitionKeyValue>> partitionsToAlter) throws ImpalaException {
     TDdlExecRequest req = new TDdlExecRequest();
     req.setDdl_type(TDdlType.ALTER_TABLE);
     TAlterTableParams alterTableParams = new TAlterTableParams();
     alterTableParams.setTable_name(new TTableName(TEST_DB_NAME, tblName));
     TAlterTableSetTblPropertiesParams setTblPropertiesParams =
         new TAlterTableSetTblPropertiesParams();
-    List<List<TPartitionKeyValue>> partitionsToAlter = new ArrayList<>();
-    partitionsToAlter.add(partKeyVal);
-
     setTblPropertiesParams.setPartition_set(partitionsToAlter);
     setTblPropertiesParams.setTarget(TTablePropertyType.TBL_PROPERTY);
     Map<String, String> propertiesMap = new HashMap<String, String>() {
@@ -0,0 +1,84 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class SelfEventFingerprintsTest {
+
+  @Test
+  public void testAddRemove() {
+    SelfEventFingerprints fingerprints = new SelfEventFingerprints();
+    String part1 = SelfEventFingerprints.forDdl("id", 10,
+        SelfEventFingerprints.getObjectName("db", "tbl", "p=1"));
+    String part2 = SelfEventFingerprints.forDdl("id", 10,
+        SelfEventFingerprints.getObjectName("db", "tbl", "p=2"));
+    assertFalse(fingerprints.remove(part1));
+
+    // Fingerprints are matched in any order and once for each time they were added.
+    fingerprints.add(part1);
+    fingerprints.add(part2);
+    fingerprints.add(part2);
+    assertTrue(fingerprints.remove(part2));
+    assertTrue(fingerprints.remove(part1));
+    assertFalse(fingerprints.remove(part1));
+    assertEquals(1, fingerprints.size());
+
+    // Either all or none of the fingerprints of an event are removed.
+    assertFalse(fingerprints.removeAll(ImmutableList.of(part1, part2)));
+    fingerprints.add(part1);
+    assertTrue(fingerprints.removeAll(ImmutableList.of(part1, part2)));
+    assertEquals(0, fingerprints.size());
+
+    fingerprints.add(part1);
+    fingerprints.clear();
+    assertFalse(fingerprints.remove(part1));
+  }
+
+  @Test
+  public void testEviction() {
+    SelfEventFingerprints fingerprints = new SelfEventFingerprints();
+    for (int i = 0; i <= SelfEventFingerprints.MAX_FINGERPRINTS; i++) {
+      fingerprints.add(SelfEventFingerprints.forDdl("id", i, "db"));
+    }
+    assertEquals(SelfEventFingerprints.MAX_FINGERPRINTS, fingerprints.size());
+    assertFalse(fingerprints.remove(SelfEventFingerprints.forDdl("id", 0, "db")));
+    assertTrue(fingerprints.remove(SelfEventFingerprints.forDdl("id", 1, "db")));
+  }
+
+  @Test
+  public void testInsertFingerprint() {
+    // The files of the insert events fired by the catalog are fully qualified paths,
+    // the HMS may return them in a different order and with checksums.
+    String fired = SelfEventFingerprints.forInsert("db", "tbl", "p=1", ImmutableList.of(
+        "hdfs://nn/tbl/p=1/a.parq", "hdfs://nn/tbl/p=1/b.parq"));
+    assertEquals(fired, SelfEventFingerprints.forInsert("DB", "Tbl", "p=1",
+        ImmutableList.of("hdfs://nn/tbl/p=1/b.parq###123", "hdfs://nn/tbl/p=1/a.parq")));
+    assertNotEquals(fired, SelfEventFingerprints.forInsert("db", "tbl", "p=2",
+        ImmutableList.of("hdfs://nn/tbl/p=2/a.parq", "hdfs://nn/tbl/p=2/b.parq")));
+    assertNotEquals(fired, SelfEventFingerprints.forInsert("db", "tbl", "p=1",
+        ImmutableList.of("hdfs://nn/tbl/p=1/a.parq")));
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -43,6 +44,7 @@ import org.apache.impala.testutil.TestUtils;
 import org.apache.impala.thrift.TBackendGflags;
 import org.apache.impala.thrift.TCatalogObject;
 import org.apache.impala.thrift.TCatalogObjectType;
+import org.apache.impala.thrift.TCounter;
 import org.apache.impala.thrift.TDatabase;
 import org.apache.impala.thrift.TNetworkAddress;
 import org.apache.impala.thrift.TRuntimeProfileNode;
@@ -138,6 +140,53 @@ public class CatalogdMetaProviderTest {
     assertEquals(stats.hitCount(), partMapHit.size());
   }
 
+  @Test
+  public void testPrefetchPartitionsByRef() throws Exception {
+    List<PartitionRef> allRefs = provider_.loadPartitionList(tableRef_);
+    List<PartitionRef> partialRefs = allRefs.subList(10, 14);
+    ListMap<TNetworkAddress> hostIndex = new ListMap<>();
+    diffStats();
+
+    FrontendProfile profile;
+    try (FrontendProfile.Scope scope = FrontendProfile.createNewWithScope()) {
+      profile = FrontendProfile.getCurrent();
+      Future<Map<String, PartitionMetadata>> prefetch =
+          provider_.prefetchPartitionsByRefs(tableRef_,
+              /* partitionColumnNames unused by this impl */null, hostIndex,
+              partialRefs);
+      Map<String, PartitionMetadata> partMap = prefetch.get();
+      assertEquals(partialRefs.size(), partMap.size());
+      // A second get() returns the same result without being accounted again.
+      assertSame(partMap, prefetch.get());
+    }
+    CacheStats stats = diffStats();
+    assertEquals(0, stats.hitCount());
+
+    // The prefetched partitions are cached.
+    provider_.loadPartitionsByRefs(tableRef_, null, hostIndex, partialRefs);
+    stats = diffStats();
+    assertEquals(partialRefs.size(), stats.hitCount());
+
+    // The background load is accounted to the profile of the caller.
+    Map<String, Long> counters = new HashMap<>();
+    for (TCounter c : profile.emitAsThrift().counters) counters.put(c.name, c.value);
+    assertEquals(Long.valueOf(partialRefs.size()),
+        counters.get("CatalogFetch.Partitions.Prefetched"));
+    assertEquals(Long.valueOf(partialRefs.size()),
+        counters.get("CatalogFetch.Partitions.Misses"));
+    assertTrue(counters.containsKey("CatalogFetch.Partitions.PrefetchWaitTime"));
+    assertTrue(counters.containsKey("CatalogFetch.Partitions.PrefetchHiddenTime"));
+
+    // A prefetch may outlive the profile of the query that started it.
+    Future<Map<String, PartitionMetadata>> prefetch;
+    try (FrontendProfile.Scope scope = FrontendProfile.createNewWithScope()) {
+      prefetch = provider_.prefetchPartitionsByRefs(tableRef_, null, hostIndex,
+          allRefs.subList(0, 4));
+      FrontendProfile.getCurrent().emitAsThrift();
+    }
+    assertEquals(4, prefetch.get().size());
+  }
+
   @Test
   public void testCacheColumnStats() throws Exception {
     ImmutableList<String> colNames = ImmutableList.of("month", "id");
@@ -234,6 +283,45 @@ public class CatalogdMetaProviderTest {
     assertEquals(1, stats.missCount());
   }
 
+  @Test
+  public void testStaleTable() throws Exception {
+    // Opt the table in by setting the property on the cached HMS table.
+    Pair<Table, TableMetaRef> stale = provider_.loadTable("functional", "alltypes");
+    stale.first.putToParameters(CatalogdMetaProvider.TBL_PROP_MAX_STALENESS_S, "3600");
+    TCatalogObject obj = new TCatalogObject(TCatalogObjectType.TABLE, 0);
+    obj.setTable(new TTable("functional", "alltypes"));
+
+    // Invalidating it from a topic update keeps the table usable while it is reloaded
+    // in the background.
+    provider_.invalidateCacheForObject(obj, /*allowStale=*/true);
+    assertSame(stale.second, provider_.loadTable("functional", "alltypes").second);
+    Stopwatch sw = new Stopwatch().start();
+    Pair<Table, TableMetaRef> reloaded;
+    while ((reloaded = provider_.loadTable("functional", "alltypes")).second ==
+        stale.second) {
+      assertTrue("Stale table was not reloaded", sw.elapsed(TimeUnit.SECONDS) < 60);
+      Thread.sleep(10);
+    }
+
+    // Queries which require fresh metadata load the table synchronously.
+    reloaded.first.putToParameters(CatalogdMetaProvider.TBL_PROP_MAX_STALENESS_S, "3600");
+    provider_.invalidateCacheForObject(obj, /*allowStale=*/true);
+    Pair<Table, TableMetaRef> fresh;
+    try (CatalogdMetaProvider.FreshMetadataScope scope =
+        CatalogdMetaProvider.requireFreshMetadata(true)) {
+      fresh = provider_.loadTable("functional", "alltypes");
+    }
+    assertNotSame(reloaded.second, fresh.second);
+
+    // Other invalidations, e.g. from DDLs of this coordinator, remove the table right
+    // away.
+    fresh.first.putToParameters(CatalogdMetaProvider.TBL_PROP_MAX_STALENESS_S, "3600");
+    provider_.invalidateCacheForObject(obj);
+    diffStats();
+    provider_.loadTable("functional", "alltypes");
+    assertEquals(1, diffStats().missCount());
+  }
+
   @Test
   public void testProfile() throws Exception {
     FrontendProfile profile;
@@ -242,15 +330,19 @@ public class CatalogdMetaProviderTest {
       profile = FrontendProfile.getCurrent();
     }
     TRuntimeProfileNode prof = profile.emitAsThrift();
-    assertEquals(4, prof.counters.size());
+    assertEquals(6, prof.counters.size());
     Collections.sort(prof.counters);
-    assertEquals("TCounter(name:CatalogFetch.Tables.Hits, unit:NONE, value:1)",
+    assertEquals("TCounter(name:CatalogFetch.Cache.Table.Hits, unit:NONE, value:1)",
         prof.counters.get(0).toString());
-    assertEquals("TCounter(name:CatalogFetch.Tables.Misses, unit:NONE, value:0)",
+    assertEquals("TCounter(name:CatalogFetch.Cache.Table.Misses, unit:NONE, value:0)",
         prof.counters.get(1).toString());
-    assertEquals("TCounter(name:CatalogFetch.Tables.Requests, unit:NONE, value:1)",
+    assertEquals("TCounter(name:CatalogFetch.Tables.Hits, unit:NONE, value:1)",
         prof.counters.get(2).toString());
-    assertEquals("CatalogFetch.Tables.Time", prof.counters.get(3).name);
+    assertEquals("TCounter(name:CatalogFetch.Tables.Misses, unit:NONE, value:0)",
+        prof.counters.get(3).toString());
+    assertEquals("TCounter(name:CatalogFetch.Tables.Requests, unit:NONE, value:1)",
+        prof.counters.get(4).toString());
+    assertEquals("CatalogFetch.Tables.Time", prof.counters.get(5).name);
   }
 
   @Test
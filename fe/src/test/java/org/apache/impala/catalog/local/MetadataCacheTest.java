@@ -0,0 +1,162 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.catalog.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+
+import org.apache.impala.catalog.local.MetadataCache.Kind;
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+
+public class MetadataCacheTest {
+
+  /**
+   * Returns a cache for 10000 entries, which caches String keys as tables and all other
+   * keys as partitions.
+   */
+  private static MetadataCache createCache() { return createCache(null); }
+
+  private static MetadataCache createCache(String capacitySplit) {
+    return new MetadataCache(10000, 3600, (key, value) -> 1,
+        key -> key instanceof String ? Kind.TABLE : Kind.PARTITION,
+        MetadataCache.parseCapacitySplit(capacitySplit));
+  }
+
+  /**
+   * Caches 100 partitions and looks them up again, which admits them to the main cache.
+   */
+  private static void cacheFrequentPartitions(MetadataCache cache) {
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 100; i++) {
+        if (cache.getIfPresent(i) == null) cache.put(i, "part" + i);
+      }
+    }
+  }
+
+  @Test
+  public void testCapacitySplit() {
+    // With a shared capacity, many tables evict the partitions.
+    MetadataCache cache = createCache();
+    cacheFrequentPartitions(cache);
+    for (int i = 0; i < 20000; i++) cache.put("tbl" + i, "tblValue");
+    assertNull(cache.peek(0));
+    assertTrue(cache.stats(Kind.PARTITION).evictionCount() > 0);
+    assertTrue(cache.stats(Kind.TABLE).evictionCount() > 0);
+
+    // With a split capacity, they only evict other tables.
+    cache = createCache("table:30, partition:55, COLUMN_STATS:15");
+    cacheFrequentPartitions(cache);
+    for (int i = 0; i < 20000; i++) cache.put("tbl" + i, "tblValue");
+    for (int i = 0; i < 100; i++) assertEquals("part" + i, cache.peek(i));
+    assertEquals(0, cache.stats(Kind.PARTITION).evictionCount());
+    assertTrue(cache.stats(Kind.TABLE).evictionCount() > 0);
+  }
+
+  @Test
+  public void testParseCapacitySplit() {
+    assertNull(MetadataCache.parseCapacitySplit(""));
+    assertEquals(0.55, MetadataCache.parseCapacitySplit(
+        "table:30,partition:55,column_stats:15").get(Kind.PARTITION), 0.001);
+    for (String invalid : new String[] {"table:30,partition:70",
+        "table:30,partition:55,column_stats:20", "table:30,partition:55,foo:15",
+        "table:30,partition:55,column_stats:x", "table:100,partition:0,column_stats:0",
+        "table:30,table:55,column_stats:15", "table"}) {
+      try {
+        MetadataCache.parseCapacitySplit(invalid);
+        fail("Expected an exception for " + invalid);
+      } catch (IllegalArgumentException e) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void testScanResistance() {
+    MetadataCache cache = createCache();
+    cache.put("tbl", "tblValue");
+
+    cacheFrequentPartitions(cache);
+    CacheStats stats = cache.stats(Kind.PARTITION);
+    assertEquals(100, stats.hitCount());
+    assertEquals(100, stats.missCount());
+
+    // Scan many more partitions than fit into the cache, once each.
+    for (int i = 1000; i < 21000; i++) {
+      assertNull(cache.getIfPresent(i));
+      cache.put(i, "part" + i);
+    }
+    assertTrue(cache.stats(Kind.PARTITION).evictionCount() > 0);
+
+    // Neither the frequently used partitions nor the table were evicted.
+    for (int i = 0; i < 100; i++) assertEquals("part" + i, cache.getIfPresent(i));
+    assertEquals("tblValue", cache.getIfPresent("tbl"));
+    assertEquals(1, cache.stats(Kind.TABLE).hitCount());
+    assertEquals(0, cache.stats(Kind.TABLE).evictionCount());
+    assertEquals(201, cache.stats().hitCount());
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    MetadataCache cache = createCache();
+    assertEquals("v1", cache.get(1, () -> "v1"));
+    assertEquals("v1", cache.get(1, () -> "v2"));
+    // Failed loads are not cached.
+    try {
+      cache.get(2, () -> { throw new IllegalStateException("load failed"); });
+      fail("Expected an exception");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertNull(cache.getIfPresent(2));
+
+    CacheStats stats = cache.stats(Kind.PARTITION);
+    assertEquals(1, stats.hitCount());
+    assertEquals(3, stats.missCount());
+    assertEquals(1, stats.loadSuccessCount());
+    assertEquals(1, stats.loadExceptionCount());
+
+    // Values which are being loaded are replaced once they are loaded.
+    Object loading = new Object();
+    assertNull(cache.putIfAbsent(3, loading));
+    assertEquals(loading, cache.putIfAbsent(3, new Object()));
+    assertTrue(cache.replace(3, loading, "v3"));
+    assertEquals("v3", cache.getIfPresent(3));
+    cache.invalidateAll();
+    assertNull(cache.getIfPresent(3));
+  }
+
+  @Test
+  public void testFrequencySketch() {
+    MetadataCache.FrequencySketch sketch = new MetadataCache.FrequencySketch(1024);
+    assertEquals(0, sketch.frequency("key"));
+    for (int i = 0; i < 20; i++) sketch.increment("key");
+    // Counters saturate.
+    assertEquals(15, sketch.frequency("key"));
+
+    // Once enough other keys were looked up, the counters are halved.
+    for (int i = 0; i < 256; i++) sketch.increment(i);
+    int frequency = sketch.frequency("key");
+    assertTrue(String.valueOf(frequency), frequency >= 7 && frequency < 15);
+  }
+}
@@ -0,0 +1,118 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.impala.analysis.LiteralExpr;
+import org.apache.impala.analysis.NullLiteral;
+import org.apache.impala.analysis.NumericLiteral;
+import org.apache.impala.analysis.SelectStmt;
+import org.apache.impala.catalog.FeFsTable;
+import org.apache.impala.catalog.Type;
+import org.apache.impala.common.FrontendTestBase;
+import org.junit.Test;
+
+/**
+ * Tests the evaluation of partition predicates in the frontend. The expected results
+ * are the ones of the backend.
+ */
+public class PartitionPredicateEvaluatorTest extends FrontendTestBase {
+
+  /**
+   * Returns the evaluator for 'predicate' on the partition columns (year, month) of
+   * functional.alltypes, or null if the predicate is not supported.
+   */
+  private PartitionPredicateEvaluator createEvaluator(String predicate) {
+    SelectStmt stmt = (SelectStmt) AnalyzesOk(
+        "select * from functional.alltypes where " + predicate);
+    FeFsTable tbl = (FeFsTable) stmt.getTableRefs().get(0).getTable();
+    return PartitionPredicateEvaluator.create(stmt.getWhereClause(), tbl);
+  }
+
+  /**
+   * Evaluates 'predicate' for the partition (year, month). A null value stands for
+   * the NULL partition key value.
+   */
+  private Boolean eval(String predicate, Integer year, Integer month) {
+    PartitionPredicateEvaluator evaluator = createEvaluator(predicate);
+    assertNotNull(predicate, evaluator);
+    List<LiteralExpr> partitionValues = Arrays.asList(toLiteral(year), toLiteral(month));
+    return evaluator.evaluate(partitionValues);
+  }
+
+  private static LiteralExpr toLiteral(Integer value) {
+    if (value == null) return NullLiteral.create(Type.INT);
+    return NumericLiteral.create(value, Type.INT);
+  }
+
+  @Test
+  public void testPredicates() {
+    assertEquals(true, eval("year = 2009 and month > 6", 2009, 7));
+    assertEquals(false, eval("year = 2009 and month > 6", 2010, 7));
+    assertEquals(true, eval("month + 1 in (2, 13)", 2009, 12));
+    assertEquals(false, eval("month not in (1, 2)", 2009, 1));
+    // NULL is not true.
+    assertEquals(false, eval("year > 2000", null, 1));
+    assertEquals(false, eval("month not in (1, null)", 2009, 2));
+    assertEquals(true, eval("year is null or month = 1", null, 2));
+    assertEquals(true, eval("year is not distinct from null", null, 2));
+    assertEquals(false, eval("not (month < 5)", 2009, 4));
+    assertEquals(true, eval("month % 5 = 2 and year div 1000 = 2", 2009, 7));
+  }
+
+  @Test
+  public void testStringFunctions() {
+    assertEquals(true, eval("substr(cast(year as string), 3) = '09'", 2009, 1));
+    assertEquals(true, eval("substr(cast(year as string), -2, 1) = '0'", 2009, 1));
+    assertEquals(true, eval("length(cast(month as string)) = 2", 2009, 11));
+    String like =
+        "concat(cast(year as string), '-', cast(month as string)) like '2009-1_'";
+    assertEquals(true, eval(like, 2009, 11));
+    assertEquals(false, eval(like, 2009, 1));
+    assertEquals(true,
+        eval("upper(concat('a', cast(month as string))) ilike 'a1%'", 2009, 12));
+    assertEquals(true, eval("cast(cast(month as string) as tinyint) = 7", 2009, 7));
+    assertEquals(true, eval("trim(concat('  ', cast(month as string))) = '7'", 2009, 7));
+  }
+
+  @Test
+  public void testBackendFallback() {
+    // Values whose result may differ from the backend's are left to the backend.
+    assertNull(eval("year * 9223372036854775807 > 0", 2009, 1));
+    assertNull(eval("year div (month - month) = 0", 2009, 1));
+    // Unsupported exprs cannot be evaluated in the frontend at all.
+    assertNull(createEvaluator("cast(year as float) = 2009"));
+    assertNull(createEvaluator("year = 2009 or int_col = 1"));
+    assertNull(createEvaluator("cast(month as string) rlike '1.*'"));
+  }
+
+  @Test
+  public void testConvertLikePattern() {
+    assertEquals(".*a\\.b.", PartitionPredicateEvaluator.convertLikePattern("%a.b_"));
+    // Escaped wildcards match themselves.
+    assertEquals("\\%\\_", PartitionPredicateEvaluator.convertLikePattern("\\%\\_"));
+    // An escaped backslash matches a backslash.
+    assertEquals("a\\\\", PartitionPredicateEvaluator.convertLikePattern("a\\\\"));
+  }
+}
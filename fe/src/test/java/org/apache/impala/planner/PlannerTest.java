@@ -18,14 +18,18 @@
 package org.apache.impala.planner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 
 import org.apache.impala.catalog.Catalog;
+import org.apache.impala.catalog.ColumnHistogram;
 import org.apache.impala.catalog.ColumnStats;
 import org.apache.impala.catalog.Db;
 import org.apache.impala.catalog.FeHBaseTable;
 import org.apache.impala.catalog.HBaseColumn;
+import org.apache.impala.catalog.Table;
 import org.apache.impala.catalog.Type;
 import org.apache.impala.common.ImpalaException;
 import org.apache.impala.common.RuntimeEnv;
@@ -34,6 +38,7 @@ import org.apache.impala.service.BackendConfig;
 import org.apache.impala.service.Frontend.PlanCtx;
 import org.apache.impala.testutil.TestUtils;
 import org.apache.impala.testutil.TestUtils.IgnoreValueFilter;
+import org.apache.impala.thrift.TCounter;
 import org.apache.impala.thrift.TExecRequest;
 import org.apache.impala.thrift.TExplainLevel;
 import org.apache.impala.thrift.TJoinDistributionMode;
@@ -814,6 +819,135 @@ public class PlannerTest extends PlannerTestBase {
     Assert.assertNotNull(requestWithDisableSpillOn);
   }
 
+  /**
+   * Checks that the join order of inner join blocks is chosen with dynamic programming
+   * if JOIN_ORDER_DP_THRESHOLD allows it, and that other join blocks fall back to the
+   * greedy heuristic.
+   */
+  @Test
+  public void testDpJoinOrder() throws ImpalaException {
+    String joins = "select count(*) from tpch.lineitem l, tpch.orders o, " +
+        "tpch.customer c, tpch.nation n where l.l_orderkey = o.o_orderkey and " +
+        "o.o_custkey = c.c_custkey and c.c_nationkey = n.n_nationkey";
+    assertEquals(1, getDpJoinCounter(joins, 4, "JoinEnumeration.DpJoinBlocks"));
+    // Too many tables for the threshold.
+    assertEquals(0, getDpJoinCounter(joins, 3, "JoinEnumeration.DpJoinBlocks"));
+    assertEquals(1, getDpJoinCounter(joins, 3, "JoinEnumeration.GreedyFallbacks"));
+    // Disabled by default.
+    assertEquals(0, getDpJoinCounter(joins, 0, "JoinEnumeration.DpJoinBlocks"));
+    assertEquals(0, getDpJoinCounter(joins, 0, "JoinEnumeration.GreedyFallbacks"));
+    // Outer joins are not supported.
+    String outerJoins = joins.replace("tpch.nation n where",
+        "tpch.nation n left outer join tpch.region r on n.n_regionkey = " +
+        "r.r_regionkey where");
+    assertEquals(0, getDpJoinCounter(outerJoins, 5, "JoinEnumeration.DpJoinBlocks"));
+    assertEquals(1, getDpJoinCounter(outerJoins, 5, "JoinEnumeration.GreedyFallbacks"));
+  }
+
+  /**
+   * Checks the join orders chosen with dynamic programming, including bushy ones.
+   */
+  @Test
+  public void testDpJoinOrderPlans() {
+    TQueryOptions options = defaultQueryOptions();
+    options.setJoin_order_dp_threshold(12);
+    runPlannerTestFile("join-order-dp", options);
+  }
+
+  /**
+   * Plans 'stmt' with the given JOIN_ORDER_DP_THRESHOLD and returns the value of the
+   * frontend profile counter 'name', or 0 if it was not set.
+   */
+  private long getDpJoinCounter(String stmt, int threshold, String name)
+      throws ImpalaException {
+    TQueryCtx queryCtx = TestUtils.createQueryContext(Catalog.DEFAULT_DB,
+        System.getProperty("user.name"));
+    queryCtx.client_request.setStmt(stmt);
+    queryCtx.client_request.query_options = defaultQueryOptions();
+    queryCtx.client_request.query_options.setJoin_order_dp_threshold(threshold);
+    TExecRequest request = frontend_.createExecRequest(new PlanCtx(queryCtx));
+    for (TCounter counter: request.getProfile().getCounters()) {
+      if (counter.name.equals(name)) return counter.value;
+    }
+    return 0;
+  }
+
+  /**
+   * Checks that a scan is replaced by an EmptySetNode if PRUNE_SCANS_WITH_MIN_MAX_STATS
+   * is set and one of its conjuncts contradicts the min/max column stats, and that only
+   * then the min/max values make the selectivity of such conjuncts 0.
+   */
+  @Test
+  public void testMinMaxStatsScanPruning() throws ImpalaException {
+    Table table = catalog_.getOrLoadTable("functional", "alltypes");
+    ColumnStats stats = table.getColumn("int_col").getStats();
+    stats.setMinMaxValues(0, 9);
+    try {
+      String stmt = "select count(*) from functional.alltypes where ";
+      assertTrue(getMinMaxPrunedPlan(stmt + "int_col > 9", true).contains("EMPTYSET"));
+      assertTrue(getMinMaxPrunedPlan(stmt + "-1 = int_col", true).contains("EMPTYSET"));
+      assertFalse(getMinMaxPrunedPlan(stmt + "int_col >= 9", true).contains("EMPTYSET"));
+      assertFalse(getMinMaxPrunedPlan(stmt + "int_col > 9", false).contains("EMPTYSET"));
+      // Explicit casts may not preserve the order of values.
+      assertFalse(getMinMaxPrunedPlan(stmt + "cast(int_col as tinyint) < 0", true)
+          .contains("EMPTYSET"));
+      // Values outside of the min/max values keep their NDV-based selectivity unless
+      // the stats are trusted for pruning.
+      String selectStmt = "select int_col from functional.alltypes where ";
+      assertTrue(getMinMaxPrunedPlan(selectStmt + "int_col = 10", false)
+          .contains("cardinality=730"));
+      assertTrue(getMinMaxPrunedPlan(selectStmt + "int_col in (-1, 10)", false)
+          .contains("cardinality=1.46K"));
+      assertFalse(getMinMaxPrunedPlan(selectStmt + "int_col in (-1, 10)", true)
+          .contains("cardinality=1.46K"));
+      // Range comparisons are estimated to match at least one distinct value then.
+      assertTrue(getMinMaxPrunedPlan(selectStmt + "int_col > 9", false)
+          .contains("cardinality=730"));
+      assertTrue(getMinMaxPrunedPlan(selectStmt + "int_col < 0", false)
+          .contains("cardinality=730"));
+      assertTrue(getMinMaxPrunedPlan(selectStmt + "int_col >= 0", false)
+          .contains("cardinality=7.30K"));
+    } finally {
+      stats.setMinMaxValues(Double.NaN, Double.NaN);
+    }
+  }
+
+  /**
+   * Checks the cardinality estimates of predicates on a column with a histogram. The
+   * test data has no histograms, so the histogram and the number of NULLs are set in the
+   * catalog, see column-histograms.test.
+   */
+  @Test
+  public void testColumnHistograms() throws ImpalaException {
+    Table table = catalog_.getOrLoadTable("tpch", "customer");
+    ColumnStats stats = table.getColumn("c_nationkey").getStats();
+    long numNulls = stats.getNumNulls();
+    stats.setHistogram(ColumnHistogram.parse("0, 0, 0, 0, 0, 0, 0, 0, 10, 20"));
+    stats.setNumNulls(table.getNumRows() / 10);
+    try {
+      runPlannerTestFile("column-histograms",
+          ImmutableSet.of(PlannerTestOption.VALIDATE_CARDINALITY));
+    } finally {
+      stats.setHistogram(null);
+      stats.setNumNulls(numNulls);
+    }
+  }
+
+  /**
+   * Returns the explain string of 'stmt' with the given PRUNE_SCANS_WITH_MIN_MAX_STATS.
+   */
+  private String getMinMaxPrunedPlan(String stmt, boolean pruneScans)
+      throws ImpalaException {
+    TQueryCtx queryCtx = TestUtils.createQueryContext(Catalog.DEFAULT_DB,
+        System.getProperty("user.name"));
+    queryCtx.client_request.setStmt(stmt);
+    queryCtx.client_request.query_options = defaultQueryOptions();
+    queryCtx.client_request.query_options.setPrune_scans_with_min_max_stats(pruneScans);
+    PlanCtx planCtx = new PlanCtx(queryCtx);
+    frontend_.createExecRequest(planCtx);
+    return planCtx.getExplainString();
+  }
+
   @Test
   public void testMinMaxRuntimeFilters() {
     TQueryOptions options = defaultQueryOptions();
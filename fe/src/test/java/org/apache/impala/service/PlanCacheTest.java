@@ -0,0 +1,180 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.impala.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.impala.catalog.FeTable;
+import org.apache.impala.catalog.Table;
+import org.apache.impala.common.FrontendTestBase;
+import org.apache.impala.testutil.TestUtils;
+import org.apache.impala.thrift.TCounter;
+import org.apache.impala.thrift.TExecRequest;
+import org.apache.impala.thrift.TQueryCtx;
+import org.apache.impala.thrift.TQueryExecRequest;
+import org.apache.impala.thrift.TRuntimeProfileNode;
+import org.apache.impala.thrift.TStmtType;
+import org.apache.impala.thrift.TTableName;
+import org.apache.impala.thrift.TUniqueId;
+import org.junit.Test;
+
+public class PlanCacheTest extends FrontendTestBase {
+  private static final String STMT =
+      "select count(*) from functional.alltypestiny where int_col = 1";
+
+  private static TQueryCtx createQueryCtx(String stmt, long queryId) {
+    TQueryCtx queryCtx = TestUtils.createQueryContext("functional",
+        System.getProperty("user.name"));
+    queryCtx.client_request.setStmt(stmt);
+    queryCtx.setQuery_id(new TUniqueId(queryId, queryId));
+    return queryCtx;
+  }
+
+  private static PlanCache.Key createKey(String stmt) {
+    return PlanCache.createKey(createQueryCtx(stmt, 0), 3);
+  }
+
+  /**
+   * Returns a TExecRequest like the one the planner creates for the query in 'queryCtx'.
+   */
+  private static TExecRequest createExecRequest(TQueryCtx queryCtx) {
+    TQueryCtx plannedCtx = queryCtx.deepCopy();
+    plannedCtx.addToTables_missing_stats(new TTableName("functional", "alltypestiny"));
+    plannedCtx.setDisable_spilling(true);
+    // Like the small query optimization.
+    plannedCtx.client_request.query_options.setNum_nodes(1);
+    TQueryExecRequest queryExecRequest = new TQueryExecRequest();
+    queryExecRequest.setQuery_ctx(plannedCtx);
+    queryExecRequest.setStmt_type(TStmtType.QUERY);
+    TExecRequest result = new TExecRequest();
+    result.setStmt_type(TStmtType.QUERY);
+    result.setQuery_options(plannedCtx.client_request.query_options);
+    result.setQuery_exec_request(queryExecRequest);
+    return result;
+  }
+
+  private static Map<String, Long> getCounters(TRuntimeProfileNode profile) {
+    Map<String, Long> counters = new HashMap<>();
+    for (TCounter counter : profile.counters) counters.put(counter.name, counter.value);
+    return counters;
+  }
+
+  @Test
+  public void testKey() {
+    // Whitespace and comments do not matter.
+    assertEquals(createKey(STMT), createKey(STMT.replace(" from", "\n  -- comment\n" +
+        "from /* comment */")));
+    assertNotEquals(createKey(STMT), createKey(STMT.replace("= 1", "= 2")));
+
+    TQueryCtx queryCtx = createQueryCtx(STMT, 0);
+    assertEquals(createKey(STMT), PlanCache.createKey(queryCtx, 3));
+    assertNotEquals(createKey(STMT), PlanCache.createKey(queryCtx, 4));
+    queryCtx.client_request.query_options.setNum_nodes(1);
+    assertNotEquals(createKey(STMT), PlanCache.createKey(queryCtx, 3));
+    queryCtx = createQueryCtx(STMT, 0);
+    queryCtx.session.setDatabase("default");
+    assertNotEquals(createKey(STMT), PlanCache.createKey(queryCtx, 3));
+
+    // With authorization, the plans of different users are cached separately.
+    queryCtx = createQueryCtx(STMT, 0);
+    assertNotEquals(createKey(STMT), PlanCache.createKey(queryCtx, 3, true));
+    assertEquals(PlanCache.createKey(queryCtx, 3, true),
+        PlanCache.createKey(createQueryCtx(STMT, 1), 3, true));
+    queryCtx.session.setDelegated_user("other_user");
+    assertEquals(createKey(STMT), PlanCache.createKey(queryCtx, 3));
+    assertNotEquals(PlanCache.createKey(createQueryCtx(STMT, 0), 3, true),
+        PlanCache.createKey(queryCtx, 3, true));
+
+    assertNotNull(createKey("with t as (select int_col from alltypes) " +
+        "select int_col, sum(int_col) over () from t"));
+    assertNotNull(createKey("select if(id > 1, upper(string_col), '') from alltypes"));
+    // Only SELECT statements are cached.
+    assertNull(createKey("explain " + STMT));
+    assertNull(createKey("insert into alltypesnopart select * from alltypesnopart"));
+    assertNull(createKey("values(1)"));
+    // Functions whose results may differ between queries are not cached.
+    assertNull(createKey("select * from alltypes where timestamp_col < now()"));
+    assertNull(createKey("select rand() from alltypes"));
+    assertNull(createKey("select user()"));
+    // Neither are UDFs.
+    assertNull(createKey("select functional.fn(id) from alltypes"));
+    assertNull(createKey("select fn(id) from alltypes"));
+    // Nor samples which differ between queries.
+    assertNotNull(createKey("select * from alltypes tablesample system(10) " +
+        "repeatable(1)"));
+    assertNull(createKey("select * from alltypes tablesample system(10)"));
+    assertNull(createKey("select * from alltypes a tablesample system(10) " +
+        "repeatable(1) join alltypes b tablesample system(10) on a.id = b.id"));
+  }
+
+  @Test
+  public void testLookup() {
+    Table table = catalog_.getOrLoadTable("functional", "alltypestiny");
+    long version = table.getCatalogVersion();
+    PlanCache cache = new PlanCache(10, null);
+    TQueryCtx queryCtx = createQueryCtx(STMT, 1);
+    PlanCache.Key key = PlanCache.createKey(queryCtx, 3);
+    assertTrue(cache.insert(key, createExecRequest(queryCtx),
+        Arrays.<FeTable>asList(table)));
+
+    try (FrontendProfile.Scope scope = FrontendProfile.createNewWithScope()) {
+      // The cached plan is adapted to the new query.
+      TQueryCtx newQueryCtx = createQueryCtx(STMT, 2);
+      TExecRequest result =
+          cache.lookup(PlanCache.createKey(newQueryCtx, 3), catalog_, newQueryCtx);
+      assertNotNull(result);
+      assertSame(newQueryCtx, result.query_exec_request.query_ctx);
+      assertSame(newQueryCtx.client_request.query_options, result.query_options);
+      assertEquals(1, result.query_options.num_nodes);
+      assertEquals(new TUniqueId(2, 2), newQueryCtx.query_id);
+      assertEquals(1, newQueryCtx.tables_missing_stats.size());
+      assertTrue(newQueryCtx.disable_spilling);
+
+      // The plan is invalidated when the table changes.
+      table.setCatalogVersion(version + 1);
+      newQueryCtx = createQueryCtx(STMT, 3);
+      assertNull(
+          cache.lookup(PlanCache.createKey(newQueryCtx, 3), catalog_, newQueryCtx));
+      assertFalse(newQueryCtx.isSetTables_missing_stats());
+      assertEquals(0, cache.size());
+
+      Map<String, Long> counters =
+          getCounters(FrontendProfile.getCurrent().emitAsThrift());
+      assertEquals(1, (long) counters.get("PlanCache.Hits"));
+      assertEquals(1, (long) counters.get("PlanCache.Misses"));
+    } finally {
+      table.setCatalogVersion(version);
+    }
+
+    assertTrue(cache.insert(key, createExecRequest(queryCtx),
+        Arrays.<FeTable>asList(table)));
+    assertEquals(1, cache.size());
+    cache.invalidateAll();
+    assertNull(cache.lookup(key, catalog_, createQueryCtx(STMT, 4)));
+  }
+}
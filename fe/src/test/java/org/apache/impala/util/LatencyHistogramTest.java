@@ -0,0 +1,67 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package org.apache.impala.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.impala.thrift.TLatencyHistogram;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileNs(50));
+    assertEquals(0, histogram.getMaxNs());
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) histogram.record(i * 1000);
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500000L, histogram.getTotalNs());
+    assertEquals(1000000, histogram.getMaxNs());
+    // Percentiles are rounded up to the end of their bucket, which is at most a quarter
+    // larger than the exact value, and are never larger than the maximum.
+    assertPercentile(500000, histogram.getPercentileNs(50));
+    assertPercentile(950000, histogram.getPercentileNs(95));
+    assertPercentile(990000, histogram.getPercentileNs(99));
+    assertEquals(1000000, histogram.getPercentileNs(100));
+
+    // Small and negative latencies are counted exactly.
+    histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(3);
+    assertEquals(0, histogram.getPercentileNs(50));
+    assertEquals(3, histogram.getPercentileNs(100));
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.getPercentileNs(100));
+
+    TLatencyHistogram thrift = histogram.toThrift();
+    assertEquals(3, thrift.getCount());
+    assertEquals(3, thrift.getP50_ns());
+    assertEquals(Long.MAX_VALUE, thrift.getMax_ns());
+  }
+
+  private static void assertPercentile(long expected, long actual) {
+    assertTrue(String.valueOf(actual), actual >= expected && actual <= expected * 5 / 4);
+  }
+}
@@ -0,0 +1,55 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package org.apache.impala.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.apache.impala.thrift.TNetworkAddress;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class TDirectBufferSerializerTest {
+
+  @Test
+  public void testSerialize() throws Exception {
+    TDirectBufferSerializer serializer =
+        new TDirectBufferSerializer(new TBinaryProtocol.Factory(), 16, 1024);
+    TSerializer expectedSerializer = new TSerializer(new TBinaryProtocol.Factory());
+    // The buffer grows for the large object and is replaced for the next one, and
+    // objects serialized one after the other don't affect each other.
+    for (int len : new int[] {1, 10000, 5, 100}) {
+      TNetworkAddress addr = new TNetworkAddress(Strings.repeat("h", len), len);
+      ByteBuffer buffer = serializer.serialize(addr);
+      assertTrue(buffer.isDirect());
+      assertEquals(0, buffer.position());
+      byte[] data = new byte[buffer.limit()];
+      buffer.get(data);
+      assertEquals(ByteBuffer.wrap(expectedSerializer.serialize(addr)),
+          ByteBuffer.wrap(data));
+      TNetworkAddress result = new TNetworkAddress();
+      new TDeserializer(new TBinaryProtocol.Factory()).deserialize(result, data);
+      assertEquals(addr, result);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package org.apache.impala.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TimedReentrantReadWriteLockTest {
+
+  @Test
+  public void testLockWaits() throws Exception {
+    TimedReentrantReadWriteLock lock = new TimedReentrantReadWriteLock(true);
+    lock.readLock().lock();
+    lock.readLock().unlock();
+    assertEquals(1, lock.getReadLockWaits().getCount());
+    assertEquals(0, lock.getWriteLockWaits().getCount());
+
+    // A writer waits until the read lock is released.
+    lock.readLock().lock();
+    CountDownLatch locked = new CountDownLatch(1);
+    Thread writer = new Thread(() -> {
+      lock.writeLock().lock();
+      locked.countDown();
+      lock.writeLock().unlock();
+    });
+    writer.start();
+    assertFalse(locked.await(100, TimeUnit.MILLISECONDS));
+    assertTrue(lock.hasQueuedThreads());
+    lock.readLock().unlock();
+    writer.join();
+    assertEquals(1, lock.getWriteLockWaits().getCount());
+    assertTrue(lock.getWriteLockWaits().getMaxNs() >= TimeUnit.MILLISECONDS.toNanos(100));
+
+    // The lock behaves like a ReentrantReadWriteLock.
+    lock.writeLock().lock();
+    assertTrue(lock.isWriteLockedByCurrentThread());
+    lock.readLock().lock();
+    assertEquals(1, lock.getReadHoldCount());
+    lock.readLock().unlock();
+    lock.writeLock().unlock();
+    assertFalse(lock.isWriteLocked());
+  }
+}
@@ -290,6 +290,12 @@ class TestObservability(ImpalaTestSuite):
     else:
       load_event_regexes = [
         r'Frontend:',
+        r'CatalogFetch.Cache.ColumnStats.Hits',
+        r'CatalogFetch.Cache.ColumnStats.Misses',
+        r'CatalogFetch.Cache.Partition.Hits',
+        r'CatalogFetch.Cache.Partition.Misses',
+        r'CatalogFetch.Cache.Table.Hits',
+        r'CatalogFetch.Cache.Table.Misses',
         r'CatalogFetch.ColumnStats.Hits',
         r'CatalogFetch.ColumnStats.Misses',
         r'CatalogFetch.ColumnStats.Requests',